@@ -0,0 +1,39 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind;
+
+/**
+ * Implemented by core service implementations that require notification when they
+ * expire. This interface is only used by the
+ * {@link org.apache.hivemind.impl.servicemodel.ExpiringServiceModel expiring service model},
+ * which releases a service implementation once it has been idle for a period of time
+ * (and constructs a new one, when the service is next used).
+ * 
+ * <p>
+ * The service implementation is released regardless; this interface allows the
+ * core service implementation to release any acquired resources (such as
+ * caches) immediately.
+ *
+ * @author Howard Lewis Ship
+ */
+public interface Expirable
+{
+    /**
+     * Invoked when the service implementation expires, just before it is released.
+     * New invocations of the service no longer use this implementation, but an invocation
+     * already in progress may still complete.
+     */
+    public void serviceWillExpire();
+}
@@ -29,6 +29,12 @@ public final class HiveMind
      */
     public static final String THREAD_EVENT_NOTIFIER_SERVICE = "hivemind.ThreadEventNotifier";
 
+    /**
+     * The full id of the {@link org.apache.hivemind.service.ScopeManager}
+     * service.
+     */
+    public static final String SCOPE_MANAGER_SERVICE = "hivemind.ScopeManager";
+
     private HiveMind()
     {
         // Prevent instantiation
@@ -0,0 +1,46 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind;
+
+import java.util.List;
+
+import org.apache.hivemind.internal.Module;
+
+/**
+ * An extension of {@link ServiceInterceptorFactory} for interceptors that can contribute
+ * fragments of method bodies, rather than an interceptor object. When two or more
+ * consecutive interceptors of a service are created by such factories, their fragments are
+ * woven together into a single fused interceptor class; each service method invokes
+ * the fragments in order, and then the next object on the stack, without any intervening
+ * interceptor objects.
+ * 
+ * <p>
+ * A lone interceptor (or one whose neighbours are not fusible) is still created by
+ * {@link ServiceInterceptorFactory#createInterceptor(InterceptorStack, Module, List)}, so
+ * implementations must support both.
+ * 
+ * <p>
+ * An interceptor factory service is only fusible if its service point declares this
+ * interface (rather than <code>ServiceInterceptorFactory</code>).
+ *
+ * @author Howard Lewis Ship
+ */
+public interface InterceptorFragmentFactory extends ServiceInterceptorFactory
+{
+    /**
+     * Contributes the fields and method fragments of the interceptor to the weaver.
+     */
+    public void contributeFragment(InterceptorWeaver weaver, Module invokingModule, List parameters);
+}
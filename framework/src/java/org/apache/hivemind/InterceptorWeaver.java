@@ -0,0 +1,73 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind;
+
+import org.apache.commons.logging.Log;
+import org.apache.hivemind.internal.Module;
+import org.apache.hivemind.service.MethodFab;
+import org.apache.hivemind.service.MethodSignature;
+
+/**
+ * Used by an {@link InterceptorFragmentFactory} to contribute its fragment to
+ * a fused interceptor.
+ *
+ * @author Howard Lewis Ship
+ */
+public interface InterceptorWeaver
+{
+    /**
+     * Return the full id of the service extension point for which
+     * the interceptor is being fabricated.
+     */
+    public String getServiceExtensionPointId();
+
+    /**
+     * Returns the module which contains the service extension point.
+     */
+    public Module getServiceModule();
+
+    /**
+     * Returns the interface for the service.
+     */
+    public Class getServiceInterface();
+
+    /**
+     * Returns the Log instance that should be used to log any information
+     * about the service.
+     */
+    public Log getServiceLog();
+
+    /**
+     * Adds a field to the fused interceptor. The field is set to the value when
+     * the interceptor is instantiated.
+     * 
+     * @param name the desired name of the field
+     * @param type the type of field, which must not be a primitive type
+     * @param value the value for the field
+     * @return the actual name of the field, which may differ from the desired name
+     * (to keep it unique within the fused interceptor)
+     */
+    public String addField(String name, Class type, Object value);
+
+    /**
+     * Wraps a service method with a fragment. The body is Javassist source (as with
+     * {@link org.apache.hivemind.service.ClassFab#addMethod(int, MethodSignature, String)}), and
+     * uses <code>$proceed($$)</code> to invoke the next fragment (or the next object
+     * on the interceptor stack). Methods that are not wrapped pass straight through.
+     * 
+     * @return a method fab, used to add catch blocks (and extensions) to the fragment
+     */
+    public MethodFab wrapMethod(MethodSignature signature, String body);
+}
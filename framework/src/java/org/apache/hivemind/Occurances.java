@@ -14,19 +14,26 @@
 
 package org.apache.hivemind;
 
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+
 /**
  * Identifies the number of contributions allowed to
  * a configuration extension point.
  *
  * @author Howard Lewis Ship
  */
-public abstract class Occurances
+public abstract class Occurances implements Serializable
 {
+    private static final long serialVersionUID = 1L;
+
     /**
      * An unbounded number, zero or more.
      */
     public static final Occurances UNBOUNDED = new Occurances("UNBOUNDED")
     {
+        private static final long serialVersionUID = 1L;
+
         public boolean inRange(int count)
         {
             return true;
@@ -39,6 +46,8 @@ public abstract class Occurances
 
     public static final Occurances OPTIONAL = new Occurances("OPTIONAL")
     {
+        private static final long serialVersionUID = 1L;
+
         public boolean inRange(int count)
         {
             return count < 2;
@@ -51,6 +60,8 @@ public abstract class Occurances
 
     public static final Occurances REQUIRED = new Occurances("REQUIRED")
     {
+        private static final long serialVersionUID = 1L;
+
         public boolean inRange(int count)
         {
             return count == 1;
@@ -63,6 +74,8 @@ public abstract class Occurances
 
     public static final Occurances ONE_PLUS = new Occurances("ONE_PLUS")
     {
+        private static final long serialVersionUID = 1L;
+
         public boolean inRange(int count)
         {
             return count > 0;
@@ -71,6 +84,8 @@ public abstract class Occurances
 
     public static final Occurances NONE = new Occurances("NONE")
     {
+        private static final long serialVersionUID = 1L;
+
         public boolean inRange(int count)
         {
             return count == 0;
@@ -94,6 +109,23 @@ public abstract class Occurances
         return "Occurances[" + _name + "]";
     }
 
+    /**
+     * Replaces a deserialized instance with the matching constant, so that
+     * instances may continue to be compared by identity.
+     */
+    protected Object readResolve() throws ObjectStreamException
+    {
+        Occurances[] all = { UNBOUNDED, OPTIONAL, REQUIRED, ONE_PLUS, NONE };
+
+        for (int i = 0; i < all.length; i++)
+        {
+            if (all[i]._name.equals(_name))
+                return all[i];
+        }
+
+        return this;
+    }
+
     /**
      * Validates that an actual count is in range for the particular Occurances count.
      * 
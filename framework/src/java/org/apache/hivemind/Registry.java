@@ -17,6 +17,8 @@ package org.apache.hivemind;
 import java.util.List;
 import java.util.Locale;
 
+import org.apache.hivemind.service.Scope;
+
 /**
  * The HiveMind registry; primarily this is used
  * to gain access to services.
@@ -113,6 +115,34 @@ public interface Registry extends SymbolSource
 
     public Object getService(Class serviceInterface);
 
+    /**
+     * Obtains a handle for a service. The service point is located, and the service
+     * checked against the service interface, just once; the handle's
+     * {@link ServiceHandle#getService()} method simply returns the service. This is
+     * useful for code that repeatedly obtains the same service.
+     * 
+     * @param serviceId the fully qualified id of the service to obtain
+     * @param serviceInterface the class to which the service will be cast
+     * @return a handle for the service
+     * @throws ApplicationRuntimeException if the service does not exist, or if
+     * it can't be cast to the specified service interface
+     * @see #getService(String, Class)
+     */
+
+    public ServiceHandle getServiceHandle(String serviceId, Class serviceInterface);
+
+    /**
+     * Obtains a handle for the single service implementing the service interface.
+     * 
+     * @param serviceInterface the class to which the service will be cast.
+     * @return a handle for the service implementing the given interface.
+     * @throws ApplicationRuntimeException if there are no service extension points implementing
+     * the given interface, or if there multiple service points implementing it.
+     * @see #getService(Class)
+     */
+
+    public ServiceHandle getServiceHandle(Class serviceInterface);
+
     /**
      * Returns the locale for which the registry was created.
      */
@@ -133,4 +163,11 @@ public interface Registry extends SymbolSource
      */
 
     public void cleanupThread();
+
+    /**
+     * Convienience for invoking {@link org.apache.hivemind.service.ScopeManager#openScope()}.
+     * The returned scope is attached to the current thread, and must be closed by the caller.
+     */
+
+    public Scope openScope();
 }
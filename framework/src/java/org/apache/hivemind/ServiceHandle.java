@@ -0,0 +1,48 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind;
+
+/**
+ * A pre-resolved reference to a service, obtained from
+ * {@link Registry#getServiceHandle(String, Class)}. The service point lookup
+ * and the check that the service is assignable to the requested interface are performed
+ * once, when the handle is obtained; {@link #getService()} simply returns the service.
+ * 
+ * <p>
+ * Handles are threadsafe and may be held indefinitely (typically, in a final field).
+ * A handle obtained before the registry is shutdown will continue to return the service
+ * (typically, a proxy) afterwards; as with any other reference to a service, invoking
+ * methods on the service after the registry is shutdown will result in an exception.
+ *
+ * @author Howard Lewis Ship
+ */
+public interface ServiceHandle
+{
+    /**
+     * Returns the fully qualified id of the service.
+     */
+    public String getServiceId();
+
+    /**
+     * Returns the interface the service was checked against; the value returned by
+     * {@link #getService()} may always be cast to this type.
+     */
+    public Class getServiceInterface();
+
+    /**
+     * Returns the service (typically, a proxy, but that's irrelevant to the caller).
+     */
+    public Object getService();
+}
@@ -0,0 +1,193 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.hivemind.ant;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.ClassResolver;
+import org.apache.hivemind.impl.DefaultClassResolver;
+import org.apache.hivemind.impl.RegistryBuilder;
+import org.apache.hivemind.impl.RegistryImageWriter;
+import org.apache.hivemind.impl.StrictErrorHandler;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.Path;
+
+/**
+ * Parses and validates some number of HiveMind module deployment descriptors (and
+ * their sub-modules) and writes them as a registry image, which may be passed to
+ * {@link org.apache.hivemind.impl.RegistryBuilder#processModules(ClassResolver, org.apache.hivemind.Resource)}
+ * to construct a registry without parsing the descriptors at runtime.
+ * 
+ * <p>
+ * Each element of the descriptors path may be a module deployment descriptor, a JAR
+ * containing a deployment descriptor (as <code>META-INF/hivemodule.xml</code>), or a
+ * directory containing one (likewise). The path is also used to resolve classes
+ * (such as custom schema rules) referenced by the descriptors. Any error
+ * in any descriptor fails the build.
+ * 
+ * @author Howard Lewis Ship
+ */
+public class ConstructRegistryImage extends Task
+{
+    private File _output;
+    private Path _descriptorsPath;
+
+    public void execute() throws BuildException
+    {
+        if (_output == null)
+            throw new BuildException("You must specify an output file");
+
+        if (_descriptorsPath == null)
+            throw new BuildException("You must specify a set of module descriptors");
+
+        long outputStamp = _output.lastModified();
+
+        String[] paths = _descriptorsPath.list();
+        int count = paths.length;
+
+        boolean needsUpdate = !_output.exists();
+
+        File[] descriptors = new File[count];
+        URL[] classpath = new URL[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            File f = new File(paths[i]);
+
+            descriptors[i] = f.isDirectory() ? new File(f, RegistryBuilder.HIVE_MODULE_XML) : f;
+
+            if (descriptors[i].lastModified() > outputStamp)
+                needsUpdate = true;
+
+            classpath[i] = toURL(f);
+        }
+
+        if (!needsUpdate)
+            return;
+
+        ClassLoader loader = new URLClassLoader(classpath, getClass().getClassLoader());
+        ClassResolver resolver = new DefaultClassResolver(loader);
+
+        RegistryImageWriter writer = new RegistryImageWriter(new StrictErrorHandler());
+
+        try
+        {
+            for (int i = 0; i < count; i++)
+            {
+                URL descriptorURL = toDescriptorURL(descriptors[i]);
+
+                if (descriptorURL == null)
+                    continue;
+
+                log("Reading " + descriptorURL);
+
+                writer.addModule(resolver, descriptorURL);
+            }
+        }
+        catch (ApplicationRuntimeException ex)
+        {
+            throw new BuildException(ex.getMessage(), ex);
+        }
+
+        log("Writing registry image to " + _output);
+
+        writeImage(writer, _output);
+    }
+
+    private URL toURL(File file) throws BuildException
+    {
+        try
+        {
+            return file.toURL();
+        }
+        catch (MalformedURLException ex)
+        {
+            throw new BuildException(ex);
+        }
+    }
+
+    /**
+     * Returns the URL of the module deployment descriptor, or null if there is
+     * no descriptor (a directory or JAR without one).
+     */
+    private URL toDescriptorURL(File descriptor) throws BuildException
+    {
+        if (!descriptor.getName().endsWith(".jar"))
+            return descriptor.exists() ? toURL(descriptor) : null;
+
+        try
+        {
+            URL url = new URL("jar:" + toURL(descriptor) + "!/" + RegistryBuilder.HIVE_MODULE_XML);
+
+            url.openStream().close();
+
+            return url;
+        }
+        catch (IOException ex)
+        {
+            return null;
+        }
+    }
+
+    private void writeImage(RegistryImageWriter writer, File file) throws BuildException
+    {
+        try
+        {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+
+            try
+            {
+                writer.write(out);
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        catch (IOException ex)
+        {
+            file.delete();
+
+            throw new BuildException("Unable to write registry image to " + file + ": "
+                    + ex.getMessage(), ex);
+        }
+    }
+
+    public Path createDescriptors()
+    {
+        _descriptorsPath = new Path(project);
+        return _descriptorsPath;
+    }
+
+    public File getOutput()
+    {
+        return _output;
+    }
+
+    public void setOutput(File file)
+    {
+        _output = file;
+    }
+}
@@ -0,0 +1,272 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.hivemind.ant;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.ClassResolver;
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.impl.DefaultClassResolver;
+import org.apache.hivemind.impl.RegistryBuilder;
+import org.apache.hivemind.impl.StrictErrorHandler;
+import org.apache.hivemind.internal.RegistryInfrastructure;
+import org.apache.hivemind.internal.ServicePoint;
+import org.apache.hivemind.service.ClassFactory;
+import org.apache.hivemind.service.impl.ClassFactoryImpl;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.Path;
+
+/**
+ * Generates, ahead of time, the service proxy and interceptor classes that HiveMind would
+ * otherwise create at runtime, and packages them in a JAR. When the JAR is on the classpath,
+ * {@link org.apache.hivemind.service.ClassFactory#findPregeneratedClass(String, ClassLoader)}
+ * locates the classes, and HiveMind loads them rather than creating them (any class not in the
+ * JAR, or out of date with respect to its service interface, is still created at runtime).
+ * 
+ * <p>
+ * The task constructs a registry from the modules visible on its classpath and obtains each
+ * service (creating its proxies). Services using the primitive service model, and, if
+ * the <code>instantiate</code> attribute is true, all services, are constructed, which
+ * creates their interceptor classes. Failures to obtain a service are logged, but do not
+ * fail the build.
+ * 
+ * @author Howard Lewis Ship
+ */
+public class PregenerateClasses extends Task
+{
+    private File _output;
+    private Path _classpath;
+    private boolean _instantiate;
+
+    public void execute() throws BuildException
+    {
+        if (_output == null)
+            throw new BuildException("You must specify an output file");
+
+        if (_classpath == null)
+            throw new BuildException("You must specify a classpath");
+
+        long outputStamp = _output.lastModified();
+
+        String[] paths = _classpath.list();
+
+        boolean needsUpdate = !_output.exists();
+
+        List urls = new ArrayList();
+
+        for (int i = 0; i < paths.length; i++)
+        {
+            File f = new File(paths[i]);
+
+            // Classes in a previous output JAR would not be re-generated.
+
+            if (f.equals(_output))
+                continue;
+
+            File stampFile = f.isDirectory() ? new File(f, RegistryBuilder.HIVE_MODULE_XML) : f;
+
+            if (stampFile.lastModified() > outputStamp)
+                needsUpdate = true;
+
+            urls.add(toURL(f));
+        }
+
+        if (!needsUpdate)
+            return;
+
+        ClassLoader loader =
+            new URLClassLoader((URL[]) urls.toArray(new URL[urls.size()]), getClass()
+                    .getClassLoader());
+
+        Map classes = null;
+
+        try
+        {
+            classes = generateClasses(new DefaultClassResolver(loader));
+        }
+        catch (ApplicationRuntimeException ex)
+        {
+            throw new BuildException(ex.getMessage(), ex);
+        }
+
+        log("Writing " + classes.size() + " classes to " + _output);
+
+        writeJar(classes, _output);
+    }
+
+    private URL toURL(File file) throws BuildException
+    {
+        try
+        {
+            return file.toURL();
+        }
+        catch (MalformedURLException ex)
+        {
+            throw new BuildException(ex);
+        }
+    }
+
+    /**
+     * Constructs the registry, obtains each service, and returns the classes created.
+     * 
+     * @return Map of byte[], keyed on class name
+     */
+    private Map generateClasses(ClassResolver resolver)
+    {
+        RegistryBuilder builder = new RegistryBuilder(new StrictErrorHandler());
+
+        builder.processModules(resolver);
+
+        Registry registry = builder.constructRegistry(Locale.getDefault());
+
+        try
+        {
+            RegistryInfrastructure infrastructure = (RegistryInfrastructure) registry;
+
+            List ids = infrastructure.getServiceIds();
+            int count = ids.size();
+
+            for (int i = 0; i < count; i++)
+            {
+                String id = (String) ids.get(i);
+
+                try
+                {
+                    ServicePoint point = infrastructure.getServicePoint(id);
+
+                    point.getService(point.getServiceInterface());
+
+                    if (_instantiate)
+                        point.forceServiceInstantiation();
+                }
+                catch (RuntimeException ex)
+                {
+                    log("Unable to obtain service " + id + ": " + ex.getMessage(), Project.MSG_WARN);
+                }
+            }
+
+            ClassFactoryImpl factory =
+                (ClassFactoryImpl) infrastructure.getService(
+                    "hivemind.ClassFactory",
+                    ClassFactory.class);
+
+            return factory.getPregenerableClasses();
+        }
+        finally
+        {
+            registry.shutdown();
+        }
+    }
+
+    private void writeJar(Map classes, File file) throws BuildException
+    {
+        List names = new ArrayList(classes.keySet());
+
+        Collections.sort(names);
+
+        try
+        {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+            JarOutputStream jar = new JarOutputStream(out, new Manifest());
+
+            try
+            {
+                int count = names.size();
+
+                for (int i = 0; i < count; i++)
+                {
+                    String name = (String) names.get(i);
+
+                    jar.putNextEntry(new ZipEntry(name.replace('.', '/') + ".class"));
+                    jar.write((byte[]) classes.get(name));
+                }
+
+                jar.putNextEntry(new ZipEntry(ClassFactoryImpl.PREGENERATED_CLASSES));
+
+                Writer writer = new OutputStreamWriter(jar, "UTF-8");
+
+                writer.write(ClassFactoryImpl.PREGENERATED_CLASSES_HEADER);
+                writer.write('\n');
+
+                for (int i = 0; i < count; i++)
+                {
+                    writer.write((String) names.get(i));
+                    writer.write('\n');
+                }
+
+                writer.flush();
+            }
+            finally
+            {
+                jar.close();
+            }
+        }
+        catch (IOException ex)
+        {
+            file.delete();
+
+            throw new BuildException("Unable to write classes to " + file + ": "
+                    + ex.getMessage(), ex);
+        }
+    }
+
+    public Path createClasspath()
+    {
+        _classpath = new Path(project);
+
+        return _classpath;
+    }
+
+    public File getOutput()
+    {
+        return _output;
+    }
+
+    public void setOutput(File file)
+    {
+        _output = file;
+    }
+
+    public boolean getInstantiate()
+    {
+        return _instantiate;
+    }
+
+    public void setInstantiate(boolean instantiate)
+    {
+        _instantiate = instantiate;
+    }
+}
@@ -14,6 +14,8 @@
 
 package org.apache.hivemind.impl;
 
+import java.io.Serializable;
+
 import org.apache.hivemind.Attribute;
 import org.apache.hivemind.util.ToStringBuilder;
 
@@ -22,8 +24,10 @@ import org.apache.hivemind.util.ToStringBuilder;
  *
  * @author Howard Lewis Ship
  */
-public class AttributeImpl implements Attribute
+public class AttributeImpl implements Attribute, Serializable
 {
+    private static final long serialVersionUID = 1L;
+
     private String _name;
     private String _value;
 
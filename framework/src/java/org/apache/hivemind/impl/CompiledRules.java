@@ -0,0 +1,38 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl;
+
+import org.apache.hivemind.Element;
+import org.apache.hivemind.schema.SchemaProcessor;
+
+/**
+ * The rules of an {@link org.apache.hivemind.schema.ElementModel}, compiled into a class by
+ * {@link SchemaCompiler}. Firing the compiled rules has the same effect as firing each
+ * {@link org.apache.hivemind.schema.Rule} in turn.
+ *
+ * @author Howard Lewis Ship
+ */
+public interface CompiledRules
+{
+    /**
+     * Fires the begin rules, in order.
+     */
+    public void fireBegin(SchemaProcessor processor, Element element);
+
+    /**
+     * Fires the end rules, in inverse order.
+     */
+    public void fireEnd(SchemaProcessor processor, Element element);
+}
@@ -29,15 +29,17 @@ import org.apache.hivemind.util.ToStringBuilder;
  *
  * @author Howard Lewis Ship
  */
-public final class ElementImpl extends BaseLocatable implements Element
+public final class ElementImpl extends SerializableLocatable implements Element
 {
+    private static final long serialVersionUID = 1L;
+
     private String _elementName;
     private String _content;
     private List _elements;
-    private List _safeElements;
+    private transient List _safeElements;
     private List _attributes;
     private Map _attributesMap;
-    private List _safeAttributes;
+    private transient List _safeAttributes;
 
     public void setElementName(String elementName)
     {
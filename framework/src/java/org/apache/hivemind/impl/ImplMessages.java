@@ -31,6 +31,7 @@ import org.apache.hivemind.internal.ServiceInterceptorContribution;
 import org.apache.hivemind.internal.ServicePoint;
 import org.apache.hivemind.parse.ContributionDescriptor;
 import org.apache.hivemind.parse.ModuleDescriptor;
+import org.apache.hivemind.schema.ElementModel;
 import org.apache.hivemind.schema.Schema;
 import org.apache.hivemind.schema.SchemaProcessor;
 
@@ -129,6 +130,11 @@ final class ImplMessages
                 serviceInterface.getName()});
     }
 
+    public static String unableToInstantiateFusedInterceptor(String serviceId, Throwable cause)
+    {
+        return _formatter.format("unable-to-instantiate-fused-interceptor", serviceId, cause);
+    }
+
     public static String unabelToReadMessages(URL url)
     {
         return _formatter.format("unable-to-read-messages", url);
@@ -363,4 +369,34 @@ final class ImplMessages
     {
         return _formatter.format("schema-stack-violation", processor.getElementPath());
     }
+
+    public static String subModuleNotRelative(Resource subModule, Resource parent)
+    {
+        return _formatter.format("sub-module-not-relative", subModule, parent);
+    }
+
+    public static String unableToReadRegistryImage(Resource image, Throwable cause)
+    {
+        return _formatter.format("unable-to-read-registry-image", image, cause);
+    }
+
+    public static String incompatibleRegistryImage(Resource image)
+    {
+        return _formatter.format("incompatible-registry-image", image);
+    }
+
+    public static String staleRegistryImage(Resource image, String descriptor)
+    {
+        return _formatter.format("stale-registry-image", image, descriptor);
+    }
+
+    public static String classNotAllowedInRegistryImage()
+    {
+        return _formatter.getMessage("class-not-allowed-in-registry-image");
+    }
+
+    public static String unableToCompileElement(ElementModel model, Throwable cause)
+    {
+        return _formatter.format("unable-to-compile-element", model.getElementName(), cause);
+    }
 }
@@ -14,6 +14,9 @@
 
 package org.apache.hivemind.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.commons.logging.Log;
 import org.apache.hivemind.ApplicationRuntimeException;
 import org.apache.hivemind.InterceptorStack;
@@ -25,6 +28,11 @@ import org.apache.hivemind.util.ToStringBuilder;
 /**
  * Implementation of the {@link org.apache.hivemind.InterceptorStack} interface; localizes
  * error checking in one place.
+ * 
+ * <p>
+ * Consecutive contributions from {@link org.apache.hivemind.InterceptorFragmentFactory fusible}
+ * factories are deferred, and then woven into a single interceptor (by an
+ * {@link InterceptorWeaverImpl}) when the top of the stack is next needed.
  *
  * @author Howard Lewis Ship
  */
@@ -37,6 +45,11 @@ public final class InterceptorStackImpl implements InterceptorStack
     private Class _interfaceClass;
     private Object _top;
 
+    /**
+     * Fusible contributions not yet applied, innermost first.
+     */
+    private final List _fragments = new ArrayList();
+
     public InterceptorStackImpl(Log log, ServicePoint sep, Object root)
     {
         _log = log;
@@ -72,6 +85,8 @@ public final class InterceptorStackImpl implements InterceptorStack
 
     public Object peek()
     {
+        weaveFragments();
+
         return _top;
     }
 
@@ -107,6 +122,14 @@ public final class InterceptorStackImpl implements InterceptorStack
         if (_log.isDebugEnabled())
             _log.debug("Applying interceptor factory " + contribution.getFactoryServiceId());
 
+        if (contribution.isFusible())
+        {
+            _fragments.add(contribution);
+            return;
+        }
+
+        weaveFragments();
+
         // And now we can finally do this!
 
         try
@@ -121,6 +144,58 @@ public final class InterceptorStackImpl implements InterceptorStack
         }
     }
 
+    /**
+     * Applies any deferred fusible contributions. A lone contribution gains nothing
+     * from fusion, and creates its interceptor normally.
+     */
+    private void weaveFragments()
+    {
+        int count = _fragments.size();
+
+        if (count == 0)
+            return;
+
+        List fragments = new ArrayList(_fragments);
+
+        _fragments.clear();
+
+        if (count == 1)
+        {
+            ServiceInterceptorContribution contribution =
+                (ServiceInterceptorContribution) fragments.get(0);
+
+            try
+            {
+                _contribution = contribution;
+
+                contribution.createInterceptor(this);
+            }
+            finally
+            {
+                _contribution = null;
+            }
+
+            return;
+        }
+
+        InterceptorWeaverImpl weaver = new InterceptorWeaverImpl(this);
+
+        for (int i = 0; i < count; i++)
+        {
+            ServiceInterceptorContribution contribution =
+                (ServiceInterceptorContribution) fragments.get(i);
+
+            weaver.beginFragment();
+
+            contribution.contributeFragment(weaver);
+        }
+
+        if (_log.isDebugEnabled())
+            _log.debug("Fusing " + count + " interceptors for service " + getServiceExtensionPointId());
+
+        _top = weaver.weave(_top);
+    }
+
 	public Log getServiceLog()
 	{
 		return _log;
@@ -0,0 +1,429 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.InterceptorWeaver;
+import org.apache.hivemind.internal.Module;
+import org.apache.hivemind.service.BodyBuilder;
+import org.apache.hivemind.service.ClassFab;
+import org.apache.hivemind.service.ClassFabUtils;
+import org.apache.hivemind.service.ClassFactory;
+import org.apache.hivemind.service.MethodFab;
+import org.apache.hivemind.service.MethodIterator;
+import org.apache.hivemind.service.MethodSignature;
+
+/**
+ * Collects the fragments contributed by a run of
+ * {@link org.apache.hivemind.InterceptorFragmentFactory fusible} interceptors, and weaves
+ * them into a single interceptor class. Used by {@link InterceptorStackImpl}.
+ * 
+ * <p>
+ * For each service method, the outermost fragment becomes the public method, and each
+ * inner fragment a private method (invoked in place of <code>$proceed</code> by the fragment
+ * that wraps it); the innermost fragment invokes the next object on the stack.
+ * The interceptor class is given a stable name, and so is reused each time the same
+ * fragments are woven around the same class.
+ *
+ * @author Howard Lewis Ship
+ */
+final class InterceptorWeaverImpl implements InterceptorWeaver
+{
+    private static final String PROCEED = "$proceed";
+
+    private final InterceptorStackImpl _stack;
+
+    private final Set _fieldNames = new HashSet();
+    private final List _fields = new ArrayList();
+    private final List _values = new ArrayList();
+
+    /**
+     * List of Map (of {@link FragmentMethod}, keyed on {@link MethodSignature}),
+     * one per fragment, innermost first.
+     */
+    private final List _fragments = new ArrayList();
+
+    private Map _currentFragment;
+
+    private static class Field
+    {
+        private final String _name;
+        private final Class _type;
+
+        Field(String name, Class type)
+        {
+            _name = name;
+            _type = type;
+        }
+    }
+
+    /**
+     * Records the catch blocks and extensions of a fragment, to be replayed once the
+     * method is added to the interceptor class.
+     */
+    private static class FragmentMethod implements MethodFab
+    {
+        private final String _body;
+        private final List _catchClasses = new ArrayList();
+        private final List _catchBodies = new ArrayList();
+        private final List _extensions = new ArrayList();
+
+        FragmentMethod(String body)
+        {
+            _body = body;
+        }
+
+        public void addCatch(Class exceptionClass, String catchBody)
+        {
+            _catchClasses.add(exceptionClass);
+            _catchBodies.add(catchBody);
+        }
+
+        public void extend(String body, boolean asFinally)
+        {
+            _extensions.add(new Object[] { body, asFinally ? Boolean.TRUE : Boolean.FALSE });
+        }
+
+        void replay(MethodFab methodFab)
+        {
+            for (int i = 0; i < _catchClasses.size(); i++)
+                methodFab.addCatch((Class) _catchClasses.get(i), (String) _catchBodies.get(i));
+
+            for (int i = 0; i < _extensions.size(); i++)
+            {
+                Object[] extension = (Object[]) _extensions.get(i);
+
+                methodFab.extend((String) extension[0], ((Boolean) extension[1]).booleanValue());
+            }
+        }
+
+        void appendKey(StringBuffer buffer)
+        {
+            buffer.append(_body);
+
+            for (int i = 0; i < _catchClasses.size(); i++)
+            {
+                buffer.append(" catch ");
+                buffer.append(((Class) _catchClasses.get(i)).getName());
+                buffer.append(_catchBodies.get(i));
+            }
+
+            for (int i = 0; i < _extensions.size(); i++)
+            {
+                Object[] extension = (Object[]) _extensions.get(i);
+
+                buffer.append(" extend ");
+                buffer.append(extension[1]);
+                buffer.append(extension[0]);
+            }
+        }
+    }
+
+    InterceptorWeaverImpl(InterceptorStackImpl stack)
+    {
+        _stack = stack;
+
+        _fieldNames.add("_inner");
+    }
+
+    /**
+     * Invoked before each fragment is contributed, innermost first.
+     */
+    void beginFragment()
+    {
+        _currentFragment = new HashMap();
+        _fragments.add(_currentFragment);
+    }
+
+    public String getServiceExtensionPointId()
+    {
+        return _stack.getServiceExtensionPointId();
+    }
+
+    public Module getServiceModule()
+    {
+        return _stack.getServiceModule();
+    }
+
+    public Class getServiceInterface()
+    {
+        return _stack.getServiceInterface();
+    }
+
+    public Log getServiceLog()
+    {
+        return _stack.getServiceLog();
+    }
+
+    public String addField(String name, Class type, Object value)
+    {
+        String result = name;
+        int index = 1;
+
+        while (_fieldNames.contains(result))
+            result = name + "_" + index++;
+
+        _fieldNames.add(result);
+        _fields.add(new Field(result, type));
+        _values.add(value);
+
+        return result;
+    }
+
+    public MethodFab wrapMethod(MethodSignature signature, String body)
+    {
+        FragmentMethod result = new FragmentMethod(body);
+
+        _currentFragment.put(signature, result);
+
+        return result;
+    }
+
+    /**
+     * Creates the fused interceptor around the top object of the stack.
+     */
+    Object weave(Object top)
+    {
+        Class serviceInterface = getServiceInterface();
+        Class topClass = ClassFabUtils.getInstanceClass(top, serviceInterface);
+        ClassLoader loader = getServiceModule().getClassResolver().getClassLoader();
+
+        ClassFactory factory =
+            (ClassFactory) getServiceModule().getService("hivemind.ClassFactory", ClassFactory.class);
+
+        String name =
+            ClassFabUtils.generateClassName(
+                "FusedInterceptor",
+                getServiceExtensionPointId(),
+                serviceInterface,
+                buildClassKey(topClass));
+
+        Class interceptorClass = factory.findPregeneratedClass(name, loader);
+
+        // As with LoggingInterceptorFactory, the pregenerated class may refer to a different
+        // class of the same name as the top of the stack.
+
+        if (interceptorClass == null
+            || interceptorClass.getConstructors()[0].getParameterTypes()[1] != topClass)
+            interceptorClass = createInterceptorClass(factory, name, loader, topClass);
+
+        try
+        {
+            Constructor c = interceptorClass.getConstructors()[0];
+
+            return c.newInstance(new Object[] { _values.toArray(), top });
+        }
+        catch (Exception ex)
+        {
+            throw new ApplicationRuntimeException(
+                ImplMessages.unableToInstantiateFusedInterceptor(getServiceExtensionPointId(), ex),
+                ex);
+        }
+    }
+
+    /**
+     * Identifies everything (beyond the service and its interface) that determines the content
+     * of the interceptor class.
+     */
+    private String buildClassKey(Class topClass)
+    {
+        StringBuffer buffer = new StringBuffer(topClass.getName());
+
+        for (int i = 0; i < _fields.size(); i++)
+        {
+            Field f = (Field) _fields.get(i);
+
+            buffer.append(' ');
+            buffer.append(f._name);
+            buffer.append(':');
+            buffer.append(f._type.getName());
+        }
+
+        for (int i = 0; i < _fragments.size(); i++)
+        {
+            Map fragment = (Map) _fragments.get(i);
+            List methods = new ArrayList();
+
+            // Sorted, since the order of the methods is not defined.
+
+            Object[] signatures = fragment.keySet().toArray();
+
+            for (int j = 0; j < signatures.length; j++)
+            {
+                StringBuffer method = new StringBuffer(signatures[j].toString());
+
+                ((FragmentMethod) fragment.get(signatures[j])).appendKey(method);
+
+                methods.add(method.toString());
+            }
+
+            Collections.sort(methods);
+
+            buffer.append(" fragment");
+
+            for (int j = 0; j < methods.size(); j++)
+            {
+                buffer.append(' ');
+                buffer.append(methods.get(j));
+            }
+        }
+
+        return buffer.toString();
+    }
+
+    private Class createInterceptorClass(
+        ClassFactory factory,
+        String name,
+        ClassLoader loader,
+        Class topClass)
+    {
+        Class serviceInterface = getServiceInterface();
+
+        ClassFab classFab = factory.newClass(name, Object.class, loader);
+
+        classFab.addInterface(serviceInterface);
+
+        addInfrastructure(classFab, topClass);
+
+        MethodIterator mi = new MethodIterator(serviceInterface);
+
+        while (mi.hasNext())
+            addServiceMethod(classFab, mi.next());
+
+        if (!mi.getToString())
+            ClassFabUtils.addToStringMethod(classFab, "<FusedInterceptor for "
+                    + getServiceExtensionPointId() + "(" + serviceInterface.getName() + ")>");
+
+        return classFab.createClass();
+    }
+
+    private void addInfrastructure(ClassFab classFab, Class topClass)
+    {
+        // As with the LoggingInterceptorFactory, the next object on the stack is
+        // referenced by its exact class, rather than the service interface.
+
+        classFab.addField("_inner", topClass);
+
+        BodyBuilder builder = new BodyBuilder();
+
+        builder.begin();
+        builder.addln("_inner = $2;");
+
+        for (int i = 0; i < _fields.size(); i++)
+        {
+            Field f = (Field) _fields.get(i);
+            String typeName = ClassFabUtils.getJavaClassName(f._type);
+
+            classFab.addField(f._name, f._type);
+
+            builder.add(f._name);
+            builder.add(" = (");
+            builder.add(typeName);
+            builder.add(") $1[");
+            builder.add(String.valueOf(i));
+            builder.addln("];");
+        }
+
+        builder.end();
+
+        classFab.addConstructor(new Class[] { Object[].class, topClass }, null, builder.toString());
+    }
+
+    private void addServiceMethod(ClassFab classFab, MethodSignature sig)
+    {
+        String methodName = sig.getName();
+        String invocation = "_inner." + methodName;
+
+        int outermost = -1;
+
+        for (int i = 0; i < _fragments.size(); i++)
+        {
+            if (((Map) _fragments.get(i)).containsKey(sig))
+                outermost = i;
+        }
+
+        if (outermost < 0)
+        {
+            classFab.addMethod(Modifier.PUBLIC, sig, "return ($r) " + invocation + "($$);");
+            return;
+        }
+
+        for (int i = 0; i <= outermost; i++)
+        {
+            FragmentMethod fragment = (FragmentMethod) ((Map) _fragments.get(i)).get(sig);
+
+            if (fragment == null)
+                continue;
+
+            String body = replace(fragment._body, PROCEED, invocation);
+
+            MethodFab methodFab;
+
+            if (i == outermost)
+                methodFab = classFab.addMethod(Modifier.PUBLIC, sig, body);
+            else
+            {
+                String fragmentName = methodName + "$fragment" + i;
+
+                MethodSignature fragmentSig =
+                    new MethodSignature(
+                        sig.getReturnType(),
+                        fragmentName,
+                        sig.getParameterTypes(),
+                        sig.getExceptionTypes());
+
+                methodFab = classFab.addMethod(Modifier.PRIVATE, fragmentSig, body);
+
+                invocation = fragmentName;
+            }
+
+            fragment.replay(methodFab);
+        }
+    }
+
+    private static String replace(String input, String token, String replacement)
+    {
+        StringBuffer buffer = new StringBuffer();
+        int start = 0;
+
+        while (true)
+        {
+            int index = input.indexOf(token, start);
+
+            if (index < 0)
+                break;
+
+            buffer.append(input.substring(start, index));
+            buffer.append(replacement);
+
+            start = index + token.length();
+        }
+
+        buffer.append(input.substring(start));
+
+        return buffer.toString();
+    }
+}
@@ -14,6 +14,8 @@
 
 package org.apache.hivemind.impl;
 
+import java.io.Serializable;
+
 import org.apache.hivemind.Location;
 import org.apache.hivemind.Resource;
 
@@ -22,8 +24,10 @@ import org.apache.hivemind.Resource;
  *
  * @author Howard Lewis Ship
  */
-public final class LocationImpl implements Location
+public final class LocationImpl implements Location, Serializable
 {
+    private static final long serialVersionUID = 1L;
+
     private Resource _resource;
     private int _lineNumber = -1;
     private int _columnNumber = -1;
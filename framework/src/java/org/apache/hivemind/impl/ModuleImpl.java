@@ -14,13 +14,17 @@
 
 package org.apache.hivemind.impl;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.apache.hivemind.ClassResolver;
 import org.apache.hivemind.ErrorHandler;
 import org.apache.hivemind.Location;
 import org.apache.hivemind.Messages;
+import org.apache.hivemind.ServiceHandle;
 import org.apache.hivemind.internal.Module;
 import org.apache.hivemind.internal.RegistryInfrastructure;
 import org.apache.hivemind.internal.ServiceModelFactory;
@@ -41,6 +45,19 @@ public final class ModuleImpl extends BaseLocatable implements Module
     private ClassResolver _resolver;
     private Messages _messages;
 
+    /**
+     * Map of {@link ServiceHandle}, keyed on service id (as provided to
+     * {@link #getServiceHandle(String, Class)}, qualified or not). Copied and
+     * replaced, never modified, so that reads are unsynchronized.
+     */
+    private volatile Map _handlesById = Collections.EMPTY_MAP;
+
+    /**
+     * Map of {@link ServiceHandle}, keyed on service interface. Copied and
+     * replaced like {@link #_handlesById}.
+     */
+    private volatile Map _handlesByInterface = Collections.EMPTY_MAP;
+
     public List getConfiguration(String extensionPointId)
     {
         String qualifiedId = IdUtils.qualify(_moduleId, extensionPointId);
@@ -55,14 +72,61 @@ public final class ModuleImpl extends BaseLocatable implements Module
 
     public Object getService(String serviceId, Class serviceInterface)
     {
+        return getServiceHandle(serviceId, serviceInterface).getService();
+    }
+
+    public Object getService(Class serviceInterface)
+    {
+        return getServiceHandle(serviceInterface).getService();
+    }
+
+    public ServiceHandle getServiceHandle(String serviceId, Class serviceInterface)
+    {
+        ServiceHandle result = (ServiceHandle) _handlesById.get(serviceId);
+
+        // The same service may be requested as different interfaces (say, Object
+        // and the actual service interface); the cache only satisfies exact matches.
+
+        if (result != null && result.getServiceInterface() == serviceInterface)
+            return result;
+
         String qualifiedId = IdUtils.qualify(_moduleId, serviceId);
 
-        return _registry.getService(qualifiedId, serviceInterface);
+        result = _registry.getServiceHandle(qualifiedId, serviceInterface);
+
+        cacheById(serviceId, result);
+
+        return result;
     }
 
-    public Object getService(Class serviceInterface)
+    public ServiceHandle getServiceHandle(Class serviceInterface)
     {
-        return _registry.getService(serviceInterface);
+        ServiceHandle result = (ServiceHandle) _handlesByInterface.get(serviceInterface);
+
+        if (result == null)
+        {
+            result = _registry.getServiceHandle(serviceInterface);
+
+            cacheByInterface(serviceInterface, result);
+        }
+
+        return result;
+    }
+
+    private synchronized void cacheById(String serviceId, ServiceHandle handle)
+    {
+        Map handles = new HashMap(_handlesById);
+        handles.put(serviceId, handle);
+
+        _handlesById = handles;
+    }
+
+    private synchronized void cacheByInterface(Class serviceInterface, ServiceHandle handle)
+    {
+        Map handles = new HashMap(_handlesByInterface);
+        handles.put(serviceInterface, handle);
+
+        _handlesByInterface = handles;
     }
 
     public void setModuleId(String string)
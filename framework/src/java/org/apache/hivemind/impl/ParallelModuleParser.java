@@ -0,0 +1,406 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.ClassResolver;
+import org.apache.hivemind.ErrorHandler;
+import org.apache.hivemind.Location;
+import org.apache.hivemind.Resource;
+import org.apache.hivemind.parse.DescriptorParser;
+import org.apache.hivemind.parse.ModuleDescriptor;
+import org.apache.hivemind.schema.Schema;
+
+/**
+ * Parses module deployment descriptors (and the sub-modules they identify) concurrently,
+ * using a fixed number of worker threads, each with its own {@link DescriptorParser}.
+ * Used by {@link RegistryBuilder} when more than one parse thread is configured.
+ *
+ * <p>
+ * The parsers do not have access to the shared {@link RegistryAssembly} or
+ * {@link ErrorHandler}; instead, each parse records the schemas, post processors and errors
+ * it produces. Parsed descriptors are consumed (by {@link #next()}) in exactly the order
+ * a single parser would have produced them (each top-level descriptor, followed
+ * by its sub-modules, breadth first), and the recorded operations are replayed, in order,
+ * as each descriptor is consumed. The resulting registry and error reporting is therefore
+ * the same as with serial parsing.
+ *
+ * <p>
+ * A schema defined in a different module than the one that references it
+ * is always resolved by post processing (a parse can't see the schemas
+ * of other, concurrent, parses).
+ *
+ * @author Howard Lewis Ship
+ */
+final class ParallelModuleParser
+{
+    private final ErrorHandler _errorHandler;
+    private final RegistryAssembly _assembly;
+
+    /**
+     * Tasks awaiting a worker thread.
+     */
+    private final LinkedList _pending = new LinkedList();
+
+    /**
+     * Top-level tasks (one per descriptor passed to {@link #start(List, ClassResolver)}),
+     * in consumption order.
+     */
+    private final LinkedList _topLevel = new LinkedList();
+
+    /**
+     * Sub-module tasks of the most recently consumed top-level task, in consumption order.
+     */
+    private final LinkedList _subModules = new LinkedList();
+
+    private final Worker[] _workers;
+
+    private boolean _closed;
+
+    /**
+     * A recorded invocation of the assembly or error handler, replayed on the thread
+     * consuming the parsed descriptors.
+     */
+    private interface Operation
+    {
+        public void replay(RegistryAssembly assembly, ErrorHandler handler);
+    }
+
+    private static class AddSchema implements Operation
+    {
+        private final String _schemaId;
+        private final Schema _schema;
+
+        AddSchema(String schemaId, Schema schema)
+        {
+            _schemaId = schemaId;
+            _schema = schema;
+        }
+
+        public void replay(RegistryAssembly assembly, ErrorHandler handler)
+        {
+            assembly.addSchema(_schemaId, _schema);
+        }
+    }
+
+    private static class AddPostProcessor implements Operation
+    {
+        private final Runnable _postProcessor;
+
+        AddPostProcessor(Runnable postProcessor)
+        {
+            _postProcessor = postProcessor;
+        }
+
+        public void replay(RegistryAssembly assembly, ErrorHandler handler)
+        {
+            assembly.addPostProcessor(_postProcessor);
+        }
+    }
+
+    private static class ReportError implements Operation
+    {
+        private final Log _log;
+        private final String _message;
+        private final Location _location;
+        private final Throwable _cause;
+
+        ReportError(Log log, String message, Location location, Throwable cause)
+        {
+            _log = log;
+            _message = message;
+            _location = location;
+            _cause = cause;
+        }
+
+        public void replay(RegistryAssembly assembly, ErrorHandler handler)
+        {
+            handler.error(_log, _message, _location, _cause);
+        }
+    }
+
+    /**
+     * The parse of a single descriptor, and its outcome.
+     */
+    private static class ParseTask
+    {
+        private final Resource _resource;
+        private final ClassResolver _resolver;
+
+        private final List _operations = new ArrayList();
+        private final Map _schemas = new HashMap();
+        private final List _subModules = new ArrayList();
+
+        private ModuleDescriptor _descriptor;
+        private RuntimeException _failure;
+        private boolean _done;
+
+        ParseTask(Resource resource, ClassResolver resolver)
+        {
+            _resource = resource;
+            _resolver = resolver;
+        }
+
+        synchronized void finish(ModuleDescriptor descriptor, RuntimeException failure)
+        {
+            _descriptor = descriptor;
+            _failure = failure;
+            _done = true;
+
+            notifyAll();
+        }
+
+        synchronized void waitUntilDone()
+        {
+            while (!_done)
+            {
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException ex)
+                {
+                    throw new ApplicationRuntimeException(ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * A worker thread; acts as the {@link RegistryAssembly} and {@link ErrorHandler}
+     * for its parser, recording into whichever task is currently being parsed.
+     */
+    private class Worker extends Thread implements RegistryAssembly, ErrorHandler
+    {
+        private DescriptorParser _parser;
+
+        /**
+         * The task being parsed, or null between tasks. Once all parsing is complete,
+         * schema lookups (from post processors) are passed through to the real
+         * assembly.
+         */
+        private volatile ParseTask _current;
+
+        Worker(int index)
+        {
+            super("HiveMind module parser " + index);
+
+            setDaemon(true);
+        }
+
+        public void run()
+        {
+            while (true)
+            {
+                ParseTask task = nextPendingTask();
+
+                if (task == null)
+                    return;
+
+                parse(task);
+            }
+        }
+
+        private void parse(ParseTask task)
+        {
+            if (_parser == null)
+                _parser = new DescriptorParser(this, this);
+
+            _current = task;
+
+            ModuleDescriptor descriptor = null;
+            RuntimeException failure = null;
+
+            try
+            {
+                descriptor = _parser.parse(task._resource, task._resolver);
+            }
+            catch (RuntimeException ex)
+            {
+                // As with RegistryBuilder, discard a parser that may be in an unknown state.
+
+                _parser = null;
+
+                failure = ex;
+            }
+
+            _current = null;
+
+            // Sub-modules identified before a failure are still parsed, just as they
+            // would be by a single parser.
+
+            addPendingTasks(task._subModules);
+
+            task.finish(descriptor, failure);
+        }
+
+        public void addSchema(String schemaId, Schema schema)
+        {
+            _current._schemas.put(schemaId, schema);
+            _current._operations.add(new AddSchema(schemaId, schema));
+        }
+
+        public Schema getSchema(String schemaId)
+        {
+            ParseTask current = _current;
+
+            if (current == null)
+                return _assembly.getSchema(schemaId);
+
+            return (Schema) current._schemas.get(schemaId);
+        }
+
+        public void addPostProcessor(Runnable postProcessor)
+        {
+            _current._operations.add(new AddPostProcessor(postProcessor));
+        }
+
+        public void enqueueModuleParse(Resource resource, ClassResolver resolver)
+        {
+            _current._subModules.add(new ParseTask(resource, resolver));
+        }
+
+        public void error(Log log, String message, Location location, Throwable cause)
+        {
+            ParseTask current = _current;
+
+            // Post processors (which run after all parsing is complete) report errors
+            // directly.
+
+            if (current == null)
+                _errorHandler.error(log, message, location, cause);
+            else
+                current._operations.add(new ReportError(log, message, location, cause));
+        }
+    }
+
+    ParallelModuleParser(ErrorHandler errorHandler, RegistryAssembly assembly, int threadCount)
+    {
+        _errorHandler = errorHandler;
+        _assembly = assembly;
+
+        _workers = new Worker[threadCount];
+    }
+
+    /**
+     * Starts parsing the descriptors.
+     *
+     * @param resources list of {@link Resource}, one for each module deployment descriptor
+     * @param resolver the class resolver for the descriptors (and their sub-modules)
+     */
+    void start(List resources, ClassResolver resolver)
+    {
+        int count = resources.size();
+
+        for (int i = 0; i < count; i++)
+        {
+            Resource resource = (Resource) resources.get(i);
+
+            _topLevel.add(new ParseTask(resource, resolver));
+        }
+
+        addPendingTasks(_topLevel);
+
+        for (int i = 0; i < _workers.length; i++)
+        {
+            _workers[i] = new Worker(i);
+            _workers[i].start();
+        }
+    }
+
+    /**
+     * Returns true if there are more descriptors to be consumed.
+     */
+    boolean hasNext()
+    {
+        return !(_subModules.isEmpty() && _topLevel.isEmpty());
+    }
+
+    /**
+     * Waits for the next descriptor (in serial parse order) to be parsed, replays the
+     * schemas, post processors and errors recorded while parsing it, and returns it.
+     *
+     * @throws RuntimeException the exception thrown by the parser, if the parse failed
+     */
+    ModuleDescriptor next()
+    {
+        ParseTask task =
+            (ParseTask) (_subModules.isEmpty() ? _topLevel.removeFirst() : _subModules
+                    .removeFirst());
+
+        task.waitUntilDone();
+
+        _subModules.addAll(task._subModules);
+
+        int count = task._operations.size();
+
+        for (int i = 0; i < count; i++)
+        {
+            Operation op = (Operation) task._operations.get(i);
+
+            op.replay(_assembly, _errorHandler);
+        }
+
+        if (task._failure != null)
+            throw task._failure;
+
+        return task._descriptor;
+    }
+
+    /**
+     * Stops the worker threads (once they complete any parse in progress).
+     */
+    synchronized void close()
+    {
+        _closed = true;
+
+        notifyAll();
+    }
+
+    private synchronized void addPendingTasks(List tasks)
+    {
+        _pending.addAll(tasks);
+
+        notifyAll();
+    }
+
+    private synchronized ParseTask nextPendingTask()
+    {
+        while (true)
+        {
+            if (_closed)
+                return null;
+
+            if (!_pending.isEmpty())
+                return (ParseTask) _pending.removeFirst();
+
+            try
+            {
+                wait();
+            }
+            catch (InterruptedException ex)
+            {
+                return null;
+            }
+        }
+    }
+}
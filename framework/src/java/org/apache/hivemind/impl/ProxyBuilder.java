@@ -36,6 +36,9 @@ public final class ProxyBuilder
     private Class _serviceInterface;
     private ClassFab _classFab;
     private String _type;
+    private String _className;
+    private ClassFactory _factory;
+    private ClassLoader _loader;
 
     /**
      * Constructs a new builder.  The type will be incorporated
@@ -44,26 +47,53 @@ public final class ProxyBuilder
      * and service id.
      */
     public ProxyBuilder(String type, ServicePoint point)
+    {
+        this(type, point, null);
+    }
+
+    /**
+     * As with {@link #ProxyBuilder(String, ServicePoint)}, but with a key that identifies
+     * anything else (beyond the type, service id and service interface) that determines the
+     * content of the proxy class; the key is incorporated into the class name, so that the
+     * class may be generated ahead of time.
+     */
+    public ProxyBuilder(String type, ServicePoint point, String key)
     {
         _point = point;
         _type = type;
         _serviceInterface = point.getServiceInterface();
 
         Module module = point.getModule();
-        ClassFactory factory =
-            (ClassFactory) module.getService("hivemind.ClassFactory", ClassFactory.class);
 
-        _classFab =
-            factory.newClass(
-                ClassFabUtils.generateClassName(type),
-                Object.class,
-                module.getClassResolver().getClassLoader());
+        _factory = (ClassFactory) module.getService("hivemind.ClassFactory", ClassFactory.class);
+        _loader = module.getClassResolver().getClassLoader();
 
-        _classFab.addInterface(_serviceInterface);
+        _className =
+            ClassFabUtils.generateClassName(
+                type,
+                point.getExtensionPointId(),
+                _serviceInterface,
+                key);
+    }
+
+    /**
+     * Returns the proxy class, if it was generated ahead of time, or null
+     * if it must be created (using {@link #getClassFab()}).
+     */
+    public Class getPregeneratedClass()
+    {
+        return _factory.findPregeneratedClass(_className, _loader);
     }
 
     public ClassFab getClassFab()
     {
+        if (_classFab == null)
+        {
+            _classFab = _factory.newClass(_className, Object.class, _loader);
+
+            _classFab.addInterface(_serviceInterface);
+        }
+
         return _classFab;
     }
 
@@ -73,6 +103,15 @@ public final class ProxyBuilder
      * used to redirect the invocation on the proxy to the actual service implementation.
      */
     public void addServiceMethods(String indirection)
+    {
+        addServiceMethods(indirection, Modifier.PUBLIC);
+    }
+
+    /**
+     * As with {@link #addServiceMethods(String)}, but with the modifiers for
+     * each service method (for example, to make each method synchronized).
+     */
+    public void addServiceMethods(String indirection, int modifiers)
     {
         BodyBuilder builder = new BodyBuilder();
 
@@ -91,12 +130,12 @@ public final class ProxyBuilder
             builder.addln("($$);");
             builder.end();
 
-            _classFab.addMethod(Modifier.PUBLIC, m, builder.toString());
+            getClassFab().addMethod(modifiers, m, builder.toString());
         }
 
         if (!mi.getToString())
             ClassFabUtils.addToStringMethod(
-                _classFab,
+                getClassFab(),
                 "<"
                     + _type
                     + " for "
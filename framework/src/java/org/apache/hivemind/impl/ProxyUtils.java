@@ -54,17 +54,24 @@ public final class ProxyUtils
         ServicePoint servicePoint,
         ShutdownCoordinator shutdownCoordinator)
     {
-        ProxyBuilder builder = new ProxyBuilder(type, servicePoint);
+        ProxyBuilder builder =
+            new ProxyBuilder(type, servicePoint, serviceModel.getClass().getName() + "."
+                    + delegationMethodName);
 
-        ClassFab classFab = builder.getClassFab();
+        Class proxyClass = builder.getPregeneratedClass();
 
-        addConstructor(classFab, serviceModel);
+        if (proxyClass == null)
+        {
+            ClassFab classFab = builder.getClassFab();
+
+            addConstructor(classFab, serviceModel);
 
-        addServiceAccessor(classFab, delegationMethodName, servicePoint);
+            addServiceAccessor(classFab, delegationMethodName, servicePoint);
 
-        builder.addServiceMethods(SERVICE_ACCESSOR_METHOD_NAME + "()");
+            builder.addServiceMethods(SERVICE_ACCESSOR_METHOD_NAME + "()");
 
-        Class proxyClass = classFab.createClass();
+            proxyClass = classFab.createClass();
+        }
 
         try
         {
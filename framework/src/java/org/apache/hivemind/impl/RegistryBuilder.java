@@ -44,6 +44,7 @@ import org.apache.hivemind.parse.InstanceBuilder;
 import org.apache.hivemind.parse.InterceptorDescriptor;
 import org.apache.hivemind.parse.ModuleDescriptor;
 import org.apache.hivemind.parse.ServicePointDescriptor;
+import org.apache.hivemind.schema.Schema;
 import org.apache.hivemind.util.IdUtils;
 import org.apache.hivemind.util.URLResource;
 
@@ -149,6 +150,18 @@ public final class RegistryBuilder
 
     private RegistryAssemblyImpl _registryAssembly;
 
+    /**
+     * Number of threads used to parse the descriptors found by
+     * {@link #processModules(ClassResolver)}; 1 (the default) parses serially.
+     */
+    private int _parseThreadCount = 1;
+
+    /**
+     * Whether service points that don't specify a binding are bound directly; see
+     * {@link #setDirectBinding(boolean)}.
+     */
+    private boolean _directBinding;
+
     public RegistryBuilder()
     {
         this(new DefaultErrorHandler());
@@ -169,13 +182,65 @@ public final class RegistryBuilder
         if (LOG.isDebugEnabled())
             LOG.debug("Processing modules visible to " + resolver);
 
-        processModulesResources(resolver, HIVE_MODULE_XML);
+        processModulesResources(resolver, findModuleDescriptors(resolver, HIVE_MODULE_XML));
+    }
+
+    /**
+     * Processes all modules that can be found using the resolver, using a registry image
+     * (created by {@link RegistryImageWriter}, typically via the
+     * {@link org.apache.hivemind.ant.ConstructRegistryImage} Ant task) in place of
+     * parsing the module deployment descriptors. The image is only used if it
+     * describes exactly the descriptors visible to the resolver, and none of them
+     * has changed since the image was written (judged by URL and last modified time,
+     * or failing that, by checksum); otherwise, the image is ignored and the descriptors
+     * are parsed, exactly as with {@link #processModules(ClassResolver)}.
+     * 
+     * @param resolver used to locate module deployment descriptors, and to
+     *            resolve classes within those modules
+     * @param registryImage the registry image, which need not exist
+     */
+    public void processModules(ClassResolver resolver, Resource registryImage)
+    {
+        if (LOG.isDebugEnabled())
+            LOG.debug("Processing modules visible to " + resolver + " using registry image "
+                    + registryImage);
+
+        List resources = findModuleDescriptors(resolver, HIVE_MODULE_XML);
+
+        if (!processModuleImage(resolver, registryImage, resources))
+            processModulesResources(resolver, resources);
+    }
+
+    /**
+     * Sets the number of threads used by {@link #processModules(ClassResolver)} to parse
+     * module deployment descriptors (and their sub-modules). The default, 1,
+     * parses each descriptor in turn. With more than one thread, descriptors are parsed
+     * concurrently, but modules are processed (and errors reported) in the same order
+     * as with a single thread.
+     */
+    public void setParseThreadCount(int parseThreadCount)
+    {
+        _parseThreadCount = parseThreadCount;
+    }
+
+    /**
+     * Sets the default binding of service points that do not specify one (with the
+     * <code>binding</code> attribute of the &lt;service-point&gt; element). With direct binding,
+     * an eagerly loaded singleton service without interceptors is, once it has been constructed,
+     * provided to callers (and injected into other services) as the core service
+     * implementation itself, rather than the proxy. The default is false.
+     */
+    public void setDirectBinding(boolean directBinding)
+    {
+        _directBinding = directBinding;
     }
 
     /**
      * Locates module deployment descriptors in the "standard" location (META-INF).
+     * 
+     * @return list of {@link URLResource}
      */
-    private void processModulesResources(ClassResolver resolver, String resourcePath)
+    private List findModuleDescriptors(ClassResolver resolver, String resourcePath)
     {
         ClassLoader loader = resolver.getClassLoader();
         Enumeration e = null;
@@ -191,12 +256,115 @@ public final class RegistryBuilder
                 ex);
         }
 
+        List resources = new ArrayList();
+
         while (e.hasMoreElements())
         {
             URL descriptorURL = (URL) e.nextElement();
-            Resource descriptorResource = new URLResource(descriptorURL);
 
-            processModule(resolver, descriptorResource);
+            resources.add(new URLResource(descriptorURL));
+        }
+
+        return resources;
+    }
+
+    /**
+     * Processes the modules identified by the registry image, if it matches the descriptors.
+     * 
+     * @return true if the image was used, false if the descriptors must be parsed
+     */
+    boolean processModuleImage(ClassResolver resolver, Resource registryImage, List resources)
+    {
+        long startTime = System.currentTimeMillis();
+
+        RegistryImageReader reader = new RegistryImageReader(registryImage);
+
+        List descriptors = reader.read(resolver, resources);
+
+        if (descriptors == null)
+            return false;
+
+        Iterator i = reader.getSchemas().entrySet().iterator();
+
+        while (i.hasNext())
+        {
+            Map.Entry entry = (Map.Entry) i.next();
+
+            _registryAssembly.addSchema((String) entry.getKey(), (Schema) entry.getValue());
+        }
+
+        int count = descriptors.size();
+
+        for (int j = 0; j < count; j++)
+            processModule((ModuleDescriptor) descriptors.get(j));
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Read " + count + " modules from registry image " + registryImage
+                    + " in " + (System.currentTimeMillis() - startTime) + " ms");
+
+        return true;
+    }
+
+    /**
+     * Parses and processes each module deployment descriptor.
+     */
+    private void processModulesResources(ClassResolver resolver, List resources)
+    {
+        long startTime = System.currentTimeMillis();
+        int moduleCount = _modules.size();
+
+        if (_parseThreadCount > 1 && resources.size() > 1)
+            processModulesInParallel(resolver, resources);
+        else
+        {
+            int count = resources.size();
+
+            for (int i = 0; i < count; i++)
+                processModule(resolver, (Resource) resources.get(i));
+        }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Parsed "
+                    + (_modules.size() - moduleCount)
+                    + " modules visible to "
+                    + resolver
+                    + " in "
+                    + (System.currentTimeMillis() - startTime)
+                    + " ms using "
+                    + Math.min(_parseThreadCount, resources.size())
+                    + " thread(s)");
+    }
+
+    /**
+     * Parses the descriptors using a {@link ParallelModuleParser}, and processes
+     * each parsed module (in the same order as serial parsing would).
+     */
+    private void processModulesInParallel(ClassResolver resolver, List resources)
+    {
+        ParallelModuleParser parser =
+            new ParallelModuleParser(_errorHandler, _registryAssembly, Math.min(
+                _parseThreadCount,
+                resources.size()));
+
+        parser.start(resources, resolver);
+
+        try
+        {
+            while (parser.hasNext())
+            {
+                try
+                {
+                    processModule(parser.next());
+                }
+                catch (RuntimeException ex)
+                {
+                    _errorHandler.error(LOG, ex.getMessage(), HiveMind.getLocation(ex), ex);
+                }
+            }
+        }
+        finally
+        {
+            parser.close();
         }
     }
 
@@ -319,6 +487,11 @@ public final class RegistryBuilder
             point.setParametersSchema(sd.getParametersSchema());
             point.setParametersCount(sd.getParametersCount());
 
+            Boolean directBinding = sd.getDirectBinding();
+
+            point.setDirectBinding(directBinding == null ? _directBinding : directBinding
+                    .booleanValue());
+
             point.setShutdownCoordinator(_shutdownCoordinator);
 
             registry.addServicePoint(point);
@@ -0,0 +1,182 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.hivemind.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.zip.CRC32;
+
+/**
+ * Constants and shared structures for registry images: a binary form of a set of
+ * parsed, validated and post-processed {@link org.apache.hivemind.parse.ModuleDescriptor}s
+ * (written by {@link RegistryImageWriter} and read by {@link RegistryImageReader}).
+ * 
+ * <p>
+ * An image consists of a header, written using {@link DataOutput}, which identifies
+ * each module deployment descriptor (its URL, last modified time and checksum),
+ * followed by the descriptors and schemas themselves, written using object
+ * serialization. The header can be checked against the descriptors actually present at
+ * runtime without deserializing anything.
+ * 
+ * @author Howard Lewis Ship
+ */
+final class RegistryImage
+{
+    static final String MAGIC = "HiveMind Registry Image";
+
+    /**
+     * Incremented whenever the format of the image, or of any serialized
+     * descriptor class, changes incompatibly.
+     */
+    static final int FORMAT_VERSION = 4;
+
+    private RegistryImage()
+    {
+    }
+
+    /**
+     * Identifies a single module deployment descriptor stored in the image.
+     */
+    static final class Entry
+    {
+        /**
+         * Index of the entry for the descriptor that identified this descriptor
+         * as a sub-module, or -1 for a top-level descriptor.
+         */
+        final int _parentIndex;
+
+        /**
+         * The path of a sub-module descriptor, relative to its parent descriptor (empty
+         * for a top-level descriptor).
+         */
+        final String _relativePath;
+
+        final String _url;
+        final long _lastModified;
+        final long _checksum;
+
+        Entry(int parentIndex, String relativePath, String url, long lastModified, long checksum)
+        {
+            _parentIndex = parentIndex;
+            _relativePath = relativePath;
+            _url = url;
+            _lastModified = lastModified;
+            _checksum = checksum;
+        }
+
+        static Entry read(DataInput in) throws IOException
+        {
+            return new Entry(in.readInt(), in.readUTF(), in.readUTF(), in.readLong(), in
+                    .readLong());
+        }
+
+        void write(DataOutput out) throws IOException
+        {
+            out.writeInt(_parentIndex);
+            out.writeUTF(_relativePath);
+            out.writeUTF(_url);
+            out.writeLong(_lastModified);
+            out.writeLong(_checksum);
+        }
+
+        /**
+         * Returns true if the descriptor at the given URL is (still) the one
+         * stored in the image. When the URL and last modified time are unchanged, the
+         * descriptor is assumed to be unchanged; otherwise its content is compared
+         * using the checksum.
+         */
+        boolean matches(URL url) throws IOException
+        {
+            if (url.toString().equals(_url) && lastModified(url) == _lastModified)
+                return true;
+
+            return checksum(url) == _checksum;
+        }
+    }
+
+    /**
+     * Stored in the image in place of the {@link org.apache.hivemind.Resource} of a module
+     * deployment descriptor; resolved to the descriptor's runtime resource when
+     * the image is read.
+     */
+    static final class ResourceReference implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        final int _index;
+
+        ResourceReference(int index)
+        {
+            _index = index;
+        }
+    }
+
+    /**
+     * Stored in the image in place of a {@link org.apache.hivemind.ClassResolver};
+     * resolved to the class resolver passed to the {@link RegistryBuilder}.
+     */
+    static final class ClassResolverReference implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+    }
+
+    static long lastModified(URL url) throws IOException
+    {
+        if (url.getProtocol().equals("file"))
+            return new File(url.getFile()).lastModified();
+
+        URLConnection connection = url.openConnection();
+
+        long result = connection.getLastModified();
+
+        connection.getInputStream().close();
+
+        return result;
+    }
+
+    static long checksum(URL url) throws IOException
+    {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[4096];
+
+        InputStream stream = url.openStream();
+
+        try
+        {
+            while (true)
+            {
+                int length = stream.read(buffer);
+
+                if (length < 0)
+                    break;
+
+                crc.update(buffer, 0, length);
+            }
+        }
+        finally
+        {
+            stream.close();
+        }
+
+        return crc.getValue();
+    }
+}
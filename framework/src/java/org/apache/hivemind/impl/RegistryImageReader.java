@@ -0,0 +1,345 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.hivemind.impl;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hivemind.ClassResolver;
+import org.apache.hivemind.Occurances;
+import org.apache.hivemind.Resource;
+
+/**
+ * Reads a registry image written by {@link RegistryImageWriter}, for use
+ * by {@link RegistryBuilder#processModules(ClassResolver, Resource)}. The image is
+ * only used if it describes exactly the module deployment descriptors visible
+ * at runtime; a missing, incompatible or out of date image is ignored (and the
+ * descriptors are parsed as usual).
+ * 
+ * @author Howard Lewis Ship
+ */
+final class RegistryImageReader
+{
+    private static final Log LOG = LogFactory.getLog(RegistryImageReader.class);
+
+    /**
+     * Classes, other than descriptors, schemas and rules (subclasses of
+     * {@link SerializableLocatable}) and {@link Occurances}, that may appear in an image.
+     */
+    private static final Class[] IMAGE_CLASSES =
+    { String.class, Boolean.class, Integer.class, Number.class, ArrayList.class,
+            HashMap.class, AttributeImpl.class, LocationImpl.class,
+            RegistryImage.ResourceReference.class, RegistryImage.ClassResolverReference.class };
+
+    private final Resource _image;
+
+    /**
+     * Map of {@link org.apache.hivemind.schema.Schema} keyed on fully qualified id,
+     * available after a successful {@link #read(ClassResolver, List)}.
+     */
+    private Map _schemas;
+
+    RegistryImageReader(Resource image)
+    {
+        _image = image;
+    }
+
+    /**
+     * Reads the image.
+     * 
+     * @param resolver the class resolver used to locate the descriptors, which replaces the
+     *            resolver(s) in use when the image was written
+     * @param descriptors list of {@link Resource}, the top-level module deployment descriptors
+     *            visible at runtime
+     * @return list of {@link org.apache.hivemind.parse.ModuleDescriptor}, in the order
+     *         they should be processed (each top-level descriptor, in the order provided,
+     *         followed by its sub-modules), or null if the image can't be used
+     */
+    List read(ClassResolver resolver, List descriptors)
+    {
+        URL imageURL = _image.getResourceURL();
+
+        if (imageURL == null)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Registry image " + _image + " does not exist.");
+
+            return null;
+        }
+
+        try
+        {
+            InputStream stream = imageURL.openStream();
+
+            try
+            {
+                return read(resolver, descriptors, new DataInputStream(new BufferedInputStream(
+                        stream)));
+            }
+            finally
+            {
+                stream.close();
+            }
+        }
+        catch (IOException ex)
+        {
+            LOG.warn(ImplMessages.unableToReadRegistryImage(_image, ex), ex);
+        }
+        catch (ClassNotFoundException ex)
+        {
+            LOG.warn(ImplMessages.unableToReadRegistryImage(_image, ex), ex);
+        }
+
+        return null;
+    }
+
+    Map getSchemas()
+    {
+        return _schemas;
+    }
+
+    private List read(ClassResolver resolver, List descriptors, DataInputStream data)
+            throws IOException, ClassNotFoundException
+    {
+        if (!isCompatible(data))
+        {
+            LOG.warn(ImplMessages.incompatibleRegistryImage(_image));
+
+            return null;
+        }
+
+        int count = data.readInt();
+
+        RegistryImage.Entry[] entries = new RegistryImage.Entry[count];
+
+        for (int i = 0; i < count; i++)
+            entries[i] = RegistryImage.Entry.read(data);
+
+        Resource[] resources = new Resource[count];
+
+        List order = matchDescriptors(entries, resources, descriptors);
+
+        if (order == null)
+            return null;
+
+        ObjectInputStream in = new ImageInputStream(data, resolver, resources);
+
+        List stored = (List) in.readObject();
+        _schemas = (Map) in.readObject();
+
+        List result = new ArrayList(count);
+
+        for (int i = 0; i < count; i++)
+        {
+            int index = ((Integer) order.get(i)).intValue();
+
+            result.add(stored.get(index));
+        }
+
+        return result;
+    }
+
+    private boolean isCompatible(DataInputStream data)
+    {
+        try
+        {
+            return data.readUTF().equals(RegistryImage.MAGIC)
+                    && data.readInt() == RegistryImage.FORMAT_VERSION;
+        }
+        catch (IOException ex)
+        {
+            // Typically, a file that is not a registry image at all.
+
+            return false;
+        }
+    }
+
+    /**
+     * Matches the runtime descriptors to the entries, filling in the resources array.
+     * 
+     * @return the entry indexes (as {@link Integer}), in processing order, or null if the
+     *         descriptors don't match the entries
+     */
+    private List matchDescriptors(RegistryImage.Entry[] entries, Resource[] resources,
+            List descriptors) throws IOException
+    {
+        int count = entries.length;
+
+        // Each entry is the index of the top-level entry it descends from.
+
+        int[] roots = new int[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            int parentIndex = entries[i]._parentIndex;
+
+            roots[i] = parentIndex < 0 ? i : roots[parentIndex];
+        }
+
+        int descriptorCount = descriptors.size();
+        List result = new ArrayList(count);
+
+        for (int i = 0; i < descriptorCount; i++)
+        {
+            Resource descriptor = (Resource) descriptors.get(i);
+            URL url = descriptor.getResourceURL();
+
+            int rootIndex = -1;
+
+            for (int j = 0; j < count; j++)
+            {
+                if (entries[j]._parentIndex < 0 && resources[j] == null && entries[j].matches(url))
+                {
+                    rootIndex = j;
+                    break;
+                }
+            }
+
+            if (rootIndex < 0)
+            {
+                LOG.warn(ImplMessages.staleRegistryImage(_image, url.toString()));
+
+                return null;
+            }
+
+            resources[rootIndex] = descriptor;
+            result.add(new Integer(rootIndex));
+
+            // Sub-modules always follow the descriptor that identifies them.
+
+            for (int j = rootIndex + 1; j < count; j++)
+            {
+                if (entries[j]._parentIndex < 0 || roots[j] != rootIndex)
+                    continue;
+
+                Resource parent = resources[entries[j]._parentIndex];
+                Resource subModule = parent.getRelativeResource(entries[j]._relativePath);
+
+                URL subModuleURL = subModule.getResourceURL();
+
+                if (subModuleURL == null || !entries[j].matches(subModuleURL))
+                {
+                    LOG.warn(ImplMessages.staleRegistryImage(_image, subModule.toString()));
+
+                    return null;
+                }
+
+                resources[j] = subModule;
+                result.add(new Integer(j));
+            }
+        }
+
+        // Check for descriptors that were present when the image was written, but
+        // no longer are.
+
+        for (int i = 0; i < count; i++)
+        {
+            if (resources[i] == null)
+            {
+                LOG.warn(ImplMessages.staleRegistryImage(_image, entries[i]._url));
+
+                return null;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Resolves the references stored in place of descriptor resources and class
+     * resolvers.
+     */
+    private static class ImageInputStream extends ObjectInputStream
+    {
+        private final ClassResolver _resolver;
+        private final Resource[] _resources;
+
+        ImageInputStream(InputStream stream, ClassResolver resolver, Resource[] resources)
+                throws IOException
+        {
+            super(stream);
+
+            _resolver = resolver;
+            _resources = resources;
+
+            enableResolveObject(true);
+        }
+
+        protected Object resolveObject(Object obj) throws IOException
+        {
+            if (obj instanceof RegistryImage.ClassResolverReference)
+                return _resolver;
+
+            if (obj instanceof RegistryImage.ResourceReference)
+                return _resources[((RegistryImage.ResourceReference) obj)._index];
+
+            return obj;
+        }
+
+        /**
+         * Classes (such as custom schema rules) are loaded using the class resolver. Only the
+         * classes that make up parsed descriptors and schemas may be read; anything else in the
+         * image is rejected before it can be instantiated.
+         */
+        protected Class resolveClass(ObjectStreamClass desc) throws IOException,
+                ClassNotFoundException
+        {
+            Class result = null;
+
+            try
+            {
+                result = Class.forName(desc.getName(), false, _resolver.getClassLoader());
+            }
+            catch (ClassNotFoundException ex)
+            {
+                result = super.resolveClass(desc);
+            }
+
+            if (!isImageClass(result))
+                throw new InvalidClassException(desc.getName(), ImplMessages
+                        .classNotAllowedInRegistryImage());
+
+            return result;
+        }
+    }
+
+    private static boolean isImageClass(Class clazz)
+    {
+        if (SerializableLocatable.class.isAssignableFrom(clazz)
+                || Occurances.class.isAssignableFrom(clazz))
+            return true;
+
+        for (int i = 0; i < IMAGE_CLASSES.length; i++)
+        {
+            if (IMAGE_CLASSES[i] == clazz)
+                return true;
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,301 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.hivemind.impl;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.ClassResolver;
+import org.apache.hivemind.ErrorHandler;
+import org.apache.hivemind.Resource;
+import org.apache.hivemind.parse.DescriptorParser;
+import org.apache.hivemind.parse.ModuleDescriptor;
+import org.apache.hivemind.schema.Schema;
+import org.apache.hivemind.util.URLResource;
+
+/**
+ * Parses module deployment descriptors (and their sub-modules), exactly as the
+ * {@link RegistryBuilder} would, and writes the resulting descriptors and schemas
+ * as a registry image. The image can later be passed to
+ * {@link RegistryBuilder#processModules(ClassResolver, Resource)}, which will use it in place
+ * of parsing the descriptors for as long as the descriptors are unchanged.
+ * 
+ * <p>
+ * Typically, images are created at build time, using the
+ * {@link org.apache.hivemind.ant.ConstructRegistryImage} Ant task.
+ * 
+ * @author Howard Lewis Ship
+ */
+public final class RegistryImageWriter
+{
+    private final ErrorHandler _errorHandler;
+    private final RegistryAssemblyImpl _assembly;
+    private final Assembly _recorder = new Assembly();
+
+    private DescriptorParser _parser;
+
+    /**
+     * List of {@link RegistryImage.Entry}, one per parsed descriptor.
+     */
+    private final List _entries = new ArrayList();
+
+    /**
+     * List of {@link Resource}, parallel to {@link #_entries}.
+     */
+    private final List _resources = new ArrayList();
+
+    /**
+     * List of {@link ModuleDescriptor}, parallel to {@link #_entries}.
+     */
+    private final List _descriptors = new ArrayList();
+
+    /**
+     * Map of {@link Schema}, keyed on fully qualified schema id.
+     */
+    private final Map _schemas = new HashMap();
+
+    /**
+     * Sub-modules awaiting parsing.
+     */
+    private final List _queue = new ArrayList();
+
+    private int _currentIndex;
+
+    private static class QueuedModule
+    {
+        private final Resource _resource;
+        private final ClassResolver _resolver;
+        private final int _parentIndex;
+
+        QueuedModule(Resource resource, ClassResolver resolver, int parentIndex)
+        {
+            _resource = resource;
+            _resolver = resolver;
+            _parentIndex = parentIndex;
+        }
+    }
+
+    /**
+     * The {@link RegistryAssembly} seen by the parser; records schemas and
+     * sub-modules and otherwise delegates to a {@link RegistryAssemblyImpl}.
+     */
+    private class Assembly implements RegistryAssembly
+    {
+        public void addSchema(String schemaId, Schema schema)
+        {
+            if (_assembly.getSchema(schemaId) == null)
+                _schemas.put(schemaId, schema);
+
+            _assembly.addSchema(schemaId, schema);
+        }
+
+        public Schema getSchema(String schemaId)
+        {
+            return _assembly.getSchema(schemaId);
+        }
+
+        public void addPostProcessor(Runnable postProcessor)
+        {
+            _assembly.addPostProcessor(postProcessor);
+        }
+
+        public void enqueueModuleParse(Resource resource, ClassResolver resolver)
+        {
+            _queue.add(new QueuedModule(resource, resolver, _currentIndex));
+        }
+    }
+
+    public RegistryImageWriter(ErrorHandler handler)
+    {
+        _errorHandler = handler;
+
+        _assembly = new RegistryAssemblyImpl(handler);
+    }
+
+    /**
+     * Parses all module deployment descriptors that can be found using the resolver.
+     */
+    public void addModules(ClassResolver resolver)
+    {
+        Enumeration e = null;
+
+        try
+        {
+            e = resolver.getClassLoader().getResources(RegistryBuilder.HIVE_MODULE_XML);
+        }
+        catch (IOException ex)
+        {
+            throw new ApplicationRuntimeException(
+                ImplMessages.unableToFindModules(resolver, ex),
+                ex);
+        }
+
+        while (e.hasMoreElements())
+            addModule(resolver, (URL) e.nextElement());
+    }
+
+    /**
+     * Parses a single module deployment descriptor, followed by any sub-modules
+     * it identifies.
+     * 
+     * @throws ApplicationRuntimeException if a descriptor can't be parsed
+     */
+    public void addModule(ClassResolver resolver, URL descriptorURL)
+    {
+        parse(new URLResource(descriptorURL), resolver, -1, "");
+
+        while (!_queue.isEmpty())
+        {
+            QueuedModule qm = (QueuedModule) _queue.remove(0);
+
+            Resource parent = (Resource) _resources.get(qm._parentIndex);
+
+            parse(qm._resource, qm._resolver, qm._parentIndex, relativePath(qm._resource, parent));
+        }
+    }
+
+    private String relativePath(Resource resource, Resource parent)
+    {
+        String parentPath = parent.getPath();
+        String folder = parentPath.substring(0, parentPath.lastIndexOf('/') + 1);
+
+        String path = resource.getPath();
+
+        if (!path.startsWith(folder))
+            throw new ApplicationRuntimeException(ImplMessages.subModuleNotRelative(
+                resource,
+                parent));
+
+        return path.substring(folder.length());
+    }
+
+    private void parse(Resource resource, ClassResolver resolver, int parentIndex,
+            String relativePath)
+    {
+        URL url = resource.getResourceURL();
+        RegistryImage.Entry entry = null;
+
+        try
+        {
+            entry = new RegistryImage.Entry(parentIndex, relativePath, url.toString(),
+                    RegistryImage.lastModified(url), RegistryImage.checksum(url));
+        }
+        catch (IOException ex)
+        {
+            throw new ApplicationRuntimeException(ex.getMessage(), ex);
+        }
+
+        if (_parser == null)
+            _parser = new DescriptorParser(_errorHandler, _recorder);
+
+        _currentIndex = _entries.size();
+
+        ModuleDescriptor md = null;
+
+        try
+        {
+            md = _parser.parse(resource, resolver);
+        }
+        catch (RuntimeException ex)
+        {
+            _parser = null;
+
+            throw ex;
+        }
+
+        _entries.add(entry);
+        _resources.add(resource);
+        _descriptors.add(md);
+    }
+
+    /**
+     * Performs post processing (resolving schema references between modules), then
+     * writes the image. The stream is flushed, but not closed.
+     * 
+     * @throws IOException if the image can't be written, or any part of the parsed descriptors
+     *             (such as a custom schema rule) is not serializable
+     */
+    public void write(OutputStream stream) throws IOException
+    {
+        _assembly.performPostProcessing();
+
+        DataOutputStream data = new DataOutputStream(stream);
+
+        data.writeUTF(RegistryImage.MAGIC);
+        data.writeInt(RegistryImage.FORMAT_VERSION);
+
+        int count = _entries.size();
+
+        data.writeInt(count);
+
+        for (int i = 0; i < count; i++)
+        {
+            RegistryImage.Entry entry = (RegistryImage.Entry) _entries.get(i);
+
+            entry.write(data);
+        }
+
+        ImageOutputStream out = new ImageOutputStream(data, _resources);
+
+        out.writeObject(_descriptors);
+        out.writeObject(_schemas);
+
+        out.flush();
+    }
+
+    /**
+     * Replaces descriptor resources and class resolvers with references that are resolved
+     * when the image is read.
+     */
+    private static class ImageOutputStream extends ObjectOutputStream
+    {
+        private final List _resources;
+
+        ImageOutputStream(OutputStream stream, List resources) throws IOException
+        {
+            super(stream);
+
+            _resources = resources;
+
+            enableReplaceObject(true);
+        }
+
+        protected Object replaceObject(Object obj) throws IOException
+        {
+            if (obj instanceof ClassResolver)
+                return new RegistryImage.ClassResolverReference();
+
+            if (obj instanceof Resource)
+            {
+                int index = _resources.indexOf(obj);
+
+                if (index >= 0)
+                    return new RegistryImage.ResourceReference(index);
+            }
+
+            return obj;
+        }
+    }
+}
@@ -14,7 +14,9 @@
 
 package org.apache.hivemind.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -30,6 +32,7 @@ import org.apache.hivemind.HiveMind;
 import org.apache.hivemind.HiveMindMessages;
 import org.apache.hivemind.Location;
 import org.apache.hivemind.Registry;
+import org.apache.hivemind.ServiceHandle;
 import org.apache.hivemind.ShutdownCoordinator;
 import org.apache.hivemind.SymbolSource;
 import org.apache.hivemind.SymbolSourceContribution;
@@ -39,6 +42,8 @@ import org.apache.hivemind.internal.ServiceModelFactory;
 import org.apache.hivemind.internal.ServicePoint;
 import org.apache.hivemind.order.Orderer;
 import org.apache.hivemind.schema.Translator;
+import org.apache.hivemind.service.Scope;
+import org.apache.hivemind.service.ScopeManager;
 import org.apache.hivemind.service.ThreadEventNotifier;
 import org.apache.hivemind.util.ToStringBuilder;
 
@@ -52,18 +57,37 @@ public final class RegistryImpl implements Registry, RegistryInfrastructure
     private static final String SYMBOL_SOURCES = "hivemind.SymbolSources";
     private static final Log LOG = LogFactory.getLog(RegistryImpl.class);
 
+    /**
+     * Registry state before {@link #startup()}; extension points may still be added.
+     */
+    private static final int STATE_ASSEMBLING = 0;
+
+    /**
+     * Registry state after {@link #startup()}; the lookup tables are frozen.
+     */
+    private static final int STATE_STARTED = 1;
+
+    /**
+     * Registry state after {@link #shutdown()}.
+     */
+    private static final int STATE_SHUTDOWN = 2;
+
     /**
      * Map of {@link ServicePoint} keyed on fully qualified service id.
+     * Replaced with a frozen, unmodifiable copy by {@link #startup()}; after that
+     * point it is only read, so lookups require no synchronization.
      */
     private Map _servicePoints = new HashMap();
 
     /**
      * Map of List (of {@link ServicePoint}, keyed on service interface.
+     * Frozen by {@link #startup()}, like {@link #_servicePoints}.
      */
     private Map _servicePointsByInterface = new HashMap();
 
     /**
      * Map of {@link ConfigurationPoint} keyed on fully qualified configuration id.
+     * Frozen by {@link #startup()}, like {@link #_servicePoints}.
      */
     private Map _configurationPoints = new HashMap();
 
@@ -78,10 +102,21 @@ public final class RegistryImpl implements Registry, RegistryInfrastructure
      */
     private Map _serviceModelFactories;
 
-    private boolean _started = false;
-    private boolean _shutdown = false;
+    /**
+     * One of {@link #STATE_ASSEMBLING}, {@link #STATE_STARTED} or {@link #STATE_SHUTDOWN}.
+     * The lookup tables are frozen before the state changes to started, so any thread
+     * that reads the started state also sees the frozen tables.
+     */
+    private volatile int _state = STATE_ASSEMBLING;
 
     private ThreadEventNotifier _threadEventNotifier;
+
+    /**
+     * Obtained on first use, without locking (any thread obtaining it obtains the same
+     * service).
+     */
+    private volatile ScopeManager _scopeManager;
+
     private TranslatorManager _translatorManager;
 
     private SymbolExpander _expander;
@@ -139,25 +174,59 @@ public final class RegistryImpl implements Registry, RegistryInfrastructure
         ServicePoint result = (ServicePoint) _servicePoints.get(serviceId);
 
         if (result == null)
+        {
+            // The registry may have been shutdown (and the tables released)
+            // since the check above.
+
+            checkShutdown();
+
             throw new ApplicationRuntimeException(ImplMessages.noSuchServicePoint(serviceId));
+        }
+
+        return result;
+    }
+
+    public List getServiceIds()
+    {
+        checkShutdown();
+
+        List result = new ArrayList(_servicePoints.keySet());
+
+        Collections.sort(result);
 
         return result;
     }
 
     public Object getService(String serviceId, Class serviceInterface)
+    {
+        return getServiceHandle(serviceId, serviceInterface).getService();
+    }
+
+    public ServiceHandle getServiceHandle(String serviceId, Class serviceInterface)
     {
         ServicePoint point = getServicePoint(serviceId);
 
-        return point.getService(serviceInterface);
+        return point.getServiceHandle(serviceInterface);
     }
 
     public Object getService(Class serviceInterface)
     {
+        return getServiceHandle(serviceInterface).getService();
+    }
+
+    public ServiceHandle getServiceHandle(Class serviceInterface)
+    {
+        checkShutdown();
+
         List servicePoints = (List) _servicePointsByInterface.get(serviceInterface);
 
         if (servicePoints == null)
+        {
+            checkShutdown();
+
             throw new ApplicationRuntimeException(
                 ImplMessages.noServicePointForInterface(serviceInterface));
+        }
 
         if (servicePoints.size() > 1)
             throw new ApplicationRuntimeException(
@@ -165,7 +234,7 @@ public final class RegistryImpl implements Registry, RegistryInfrastructure
 
         ServicePoint sp = (ServicePoint) servicePoints.get(0);
 
-        return sp.getService(serviceInterface);
+        return sp.getServiceHandle(serviceInterface);
     }
 
     public ConfigurationPoint getConfigurationPoint(String configurationId)
@@ -175,8 +244,12 @@ public final class RegistryImpl implements Registry, RegistryInfrastructure
         ConfigurationPoint result = (ConfigurationPoint) _configurationPoints.get(configurationId);
 
         if (result == null)
+        {
+            checkShutdown();
+
             throw new ApplicationRuntimeException(
                 ImplMessages.noSuchConfiguration(configurationId));
+        }
 
         return result;
     }
@@ -262,7 +335,10 @@ public final class RegistryImpl implements Registry, RegistryInfrastructure
 
     /**
      * Invokes {@link ShutdownCoordinator#shutdown()}, then releases
-     * the coordinator, modules and variable sources.
+     * the coordinator, modules and variable sources. The lookup tables
+     * are replaced with empty maps (rather than nulled out), so that
+     * a lookup racing with the shutdown reports the shutdown, rather than
+     * failing with a NullPointerException.
      */
     public synchronized void shutdown()
     {
@@ -275,30 +351,35 @@ public final class RegistryImpl implements Registry, RegistryInfrastructure
 
         coordinatorService.shutdown();
 
-        _shutdown = true;
+        _state = STATE_SHUTDOWN;
 
         // Shutdown infrastructure items, such as proxies.
 
         _shutdownCoordinator.shutdown();
 
-        _servicePoints = null;
-        _servicePointsByInterface = null;
-        _configurationPoints = null;
+        _servicePoints = Collections.EMPTY_MAP;
+        _servicePointsByInterface = Collections.EMPTY_MAP;
+        _configurationPoints = Collections.EMPTY_MAP;
         _shutdownCoordinator = null;
         _variableSources = null;
         _serviceModelFactories = null;
         _threadEventNotifier = null;
+        _scopeManager = null;
     }
 
-    private synchronized void checkShutdown()
+    /**
+     * Checks that the registry has not been shutdown. This is a read of a single volatile
+     * field, so it does not serialize concurrent lookups.
+     */
+    private void checkShutdown()
     {
-        if (_shutdown)
+        if (_state == STATE_SHUTDOWN)
             throw new ApplicationRuntimeException(HiveMindMessages.registryShutdown());
     }
 
     private void checkStarted()
     {
-        if (_started)
+        if (_state != STATE_ASSEMBLING)
             throw new IllegalStateException(ImplMessages.registryAlreadyStarted());
     }
 
@@ -311,18 +392,60 @@ public final class RegistryImpl implements Registry, RegistryInfrastructure
      * In addition, the service <code>hivemind.Startup</code> is obtained and 
      * <code>run()</code> is invoked on it. This allows additional startup, provided
      * in the <code>hivemind.Startup</code> configuration point, to be executed.
+     * 
+     * <p>
+     * Before any of that, the lookup tables for service and configuration points
+     * are frozen: replaced with unmodifiable copies that are never again
+     * changed, and so may be read by any number of threads without locking.
      */
     public void startup()
     {
         checkStarted();
 
-        _started = true;
+        freezeLookupTables();
+
+        _state = STATE_STARTED;
 
         Runnable startup = (Runnable) getService("hivemind.Startup", Runnable.class);
 
         startup.run();
     }
 
+    /**
+     * Replaces the lookup tables with unmodifiable copies. The lists of service points
+     * (keyed on service interface) are converted to unmodifiable ArrayLists, which
+     * are cheaper to access by index than the LinkedLists used during assembly.
+     */
+    private void freezeLookupTables()
+    {
+        _servicePoints = freeze(_servicePoints);
+        _configurationPoints = freeze(_configurationPoints);
+
+        Map byInterface = new HashMap(_servicePointsByInterface.size() * 2);
+
+        Iterator i = _servicePointsByInterface.entrySet().iterator();
+        while (i.hasNext())
+        {
+            Map.Entry e = (Map.Entry) i.next();
+            List l = (List) e.getValue();
+
+            byInterface.put(e.getKey(), Collections.unmodifiableList(new ArrayList(l)));
+        }
+
+        _servicePointsByInterface = Collections.unmodifiableMap(byInterface);
+    }
+
+    private static Map freeze(Map map)
+    {
+        // Sized so that the copy is never rehashed, and has a sparse (fast) table.
+
+        Map result = new HashMap(map.size() * 2);
+
+        result.putAll(map);
+
+        return Collections.unmodifiableMap(result);
+    }
+
     public synchronized ServiceModelFactory getServiceModelFactory(String name)
     {
         if (_serviceModelFactories == null)
@@ -377,6 +500,20 @@ public final class RegistryImpl implements Registry, RegistryInfrastructure
         _threadEventNotifier.fireThreadCleanup();
     }
 
+    public Scope openScope()
+    {
+        ScopeManager manager = _scopeManager;
+
+        if (manager == null)
+        {
+            manager = (ScopeManager) getService(HiveMind.SCOPE_MANAGER_SERVICE, ScopeManager.class);
+
+            _scopeManager = manager;
+        }
+
+        return manager.openScope();
+    }
+
     public boolean containsConfiguration(String configurationId)
     {
         checkShutdown();
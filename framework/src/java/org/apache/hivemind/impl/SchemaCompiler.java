@@ -0,0 +1,545 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hivemind.ClassResolver;
+import org.apache.hivemind.Element;
+import org.apache.hivemind.schema.ElementModel;
+import org.apache.hivemind.schema.Rule;
+import org.apache.hivemind.schema.SchemaProcessor;
+import org.apache.hivemind.schema.rules.CreateObjectRule;
+import org.apache.hivemind.schema.rules.InvokeParentRule;
+import org.apache.hivemind.schema.rules.PushAttributeRule;
+import org.apache.hivemind.schema.rules.ReadAttributeRule;
+import org.apache.hivemind.schema.rules.ReadContentRule;
+import org.apache.hivemind.schema.rules.SetModuleRule;
+import org.apache.hivemind.schema.rules.SetParentRule;
+import org.apache.hivemind.schema.rules.SetPropertyRule;
+import org.apache.hivemind.service.ClassFab;
+import org.apache.hivemind.service.ClassFabUtils;
+import org.apache.hivemind.service.ClassFactory;
+import org.apache.hivemind.service.MethodSignature;
+
+/**
+ * Compiles the rules of an {@link org.apache.hivemind.schema.ElementModel} into a
+ * {@link CompiledRules} class. Used by {@link SchemaElement} once an element has been processed
+ * enough times to be worth the cost.
+ *
+ * <p>
+ * {@link CreateObjectRule}, {@link ReadAttributeRule} and {@link InvokeParentRule} are compiled
+ * into direct calls (with the same error reporting as the rules themselves). This requires
+ * knowing the classes of the objects on the processor's stack, which the compiler tracks
+ * (as a List of Class, with null for an object whose class is not known). Where a class is not
+ * known, or not accessible from the generated class, or for any other rule, the compiled class
+ * simply fires the rule. The depth of the stack is no longer known after a rule that is not one
+ * of the standard rules; the rules that follow can only be fired.
+ *
+ * @author Howard Lewis Ship
+ */
+final class SchemaCompiler
+{
+    private static final Log LOG = LogFactory.getLog(SchemaCompiler.class);
+
+    private static final MethodSignature FIRE_BEGIN =
+        new MethodSignature(void.class, "fireBegin", new Class[] { SchemaProcessor.class,
+                Element.class }, null);
+
+    private static final MethodSignature FIRE_END =
+        new MethodSignature(void.class, "fireEnd", new Class[] { SchemaProcessor.class,
+                Element.class }, null);
+
+    /**
+     * Standard rules that leave the stack unchanged, and do nothing at end.
+     */
+    private static final Class[] NEUTRAL_RULES = { ReadAttributeRule.class,
+            InvokeParentRule.class, SetParentRule.class, SetPropertyRule.class,
+            ReadContentRule.class, SetModuleRule.class };
+
+    private final ClassFactory _classFactory;
+
+    SchemaCompiler(ClassFactory classFactory)
+    {
+        _classFactory = classFactory;
+    }
+
+    /**
+     * Returns the classes of the objects on the stack once the begin rules of the element have
+     * fired (and so, while its nested elements are processed).
+     * 
+     * @param stack the classes of the objects on the stack before the rules fire, or null if not
+     *            known
+     * @return the classes after the rules fire, or null if not known
+     */
+    List getStackAfterBegin(List stack, List rules, ClassResolver resolver)
+    {
+        if (stack == null)
+            return null;
+
+        List result = new ArrayList(stack);
+        int count = rules.size();
+
+        for (int i = 0; i < count; i++)
+        {
+            Rule rule = (Rule) rules.get(i);
+            Class ruleClass = rule.getClass();
+
+            if (ruleClass == CreateObjectRule.class)
+                result.add(findClass(resolver, ((CreateObjectRule) rule).getClassName()));
+            else if (ruleClass == PushAttributeRule.class)
+                result.add(null);
+            else if (!isNeutral(ruleClass))
+                return null;
+        }
+
+        return result;
+    }
+
+    /**
+     * Compiles the rules of the element model.
+     * 
+     * @param model the element to compile
+     * @param stack the classes of the objects on the stack before the element's rules fire, or
+     *            null if not known
+     * @param resolver the class resolver of the contributing module (which is used to create
+     *            objects)
+     * @return the compiled rules, or null if none of the rules can be compiled (or the class can't
+     *         be created)
+     */
+    CompiledRules compile(ElementModel model, List stack, ClassResolver resolver)
+    {
+        List rules = model.getRules();
+
+        Compilation c = new Compilation(resolver, stack);
+
+        int count = rules.size();
+
+        for (int i = 0; i < count; i++)
+            c.addBeginRule((Rule) rules.get(i), i);
+
+        for (int i = count - 1; i >= 0; i--)
+            c.addEndRule((Rule) rules.get(i), i);
+
+        if (c._compiledCount == 0)
+            return null;
+
+        try
+        {
+            ClassFab classFab = _classFactory.newClass(
+                ClassFabUtils.generateClassName("CompiledRules"),
+                Object.class,
+                resolver.getClassLoader());
+
+            classFab.addInterface(CompiledRules.class);
+            classFab.addField("_rules", Rule[].class);
+            classFab.addField("_types", Class[].class);
+            classFab.addConstructor(
+                new Class[] { Rule[].class, Class[].class },
+                null,
+                "{ _rules = $1; _types = $2; }");
+            // Element inherits getLocation(), which Javassist doesn't find.
+
+            classFab.addMethod(Modifier.PUBLIC, FIRE_BEGIN, "{ org.apache.hivemind.Location "
+                    + "location = ((org.apache.hivemind.Locatable) $2).getLocation(); " + c._begin
+                    + "}");
+            classFab.addMethod(Modifier.PUBLIC, FIRE_END, "{ " + c._end + "}");
+
+            Constructor constructor = classFab.createClass().getConstructors()[0];
+
+            Rule[] ruleArray = (Rule[]) rules.toArray(new Rule[count]);
+            Class[] typeArray = (Class[]) c._types.toArray(new Class[c._types.size()]);
+
+            return (CompiledRules) constructor.newInstance(new Object[] { ruleArray, typeArray });
+        }
+        catch (Exception ex)
+        {
+            // The rules can still be interpreted.
+
+            LOG.warn(ImplMessages.unableToCompileElement(model, ex), ex);
+
+            return null;
+        }
+    }
+
+    /**
+     * Accumulates the bodies of the two methods, and the classes they reference.
+     */
+    private class Compilation
+    {
+        private final ClassResolver _resolver;
+        private final ClassLoader _loader;
+        private List _stack;
+
+        private final StringBuffer _begin = new StringBuffer();
+        private final StringBuffer _end = new StringBuffer();
+        private final List _types = new ArrayList();
+
+        private int _compiledCount;
+
+        Compilation(ClassResolver resolver, List stack)
+        {
+            _resolver = resolver;
+            _loader = resolver.getClassLoader();
+            _stack = stack == null ? null : new ArrayList(stack);
+        }
+
+        void addBeginRule(Rule rule, int index)
+        {
+            Class ruleClass = rule.getClass();
+
+            boolean compiled = false;
+
+            if (ruleClass == CreateObjectRule.class)
+                compiled = addCreateObject((CreateObjectRule) rule, index);
+            else if (ruleClass == ReadAttributeRule.class)
+                compiled = addReadAttribute((ReadAttributeRule) rule, index);
+            else if (ruleClass == InvokeParentRule.class)
+                compiled = addInvokeParent((InvokeParentRule) rule, index);
+
+            if (compiled)
+            {
+                _compiledCount++;
+                return;
+            }
+
+            _begin.append("_rules[" + index + "].begin($1, $2); ");
+
+            if (_stack == null)
+                return;
+
+            if (ruleClass == CreateObjectRule.class || ruleClass == PushAttributeRule.class)
+                _stack.add(null);
+            else if (!isNeutral(ruleClass))
+                _stack = null;
+        }
+
+        void addEndRule(Rule rule, int index)
+        {
+            Class ruleClass = rule.getClass();
+
+            if (ruleClass == CreateObjectRule.class || ruleClass == PushAttributeRule.class)
+                _end.append("$1.pop(); ");
+            else if (!isNeutral(ruleClass))
+                _end.append("_rules[" + index + "].end($1, $2); ");
+        }
+
+        /**
+         * The class of the object the given depth from the top of the stack, or null if not
+         * known or not accessible.
+         */
+        private Class getStackType(int depth)
+        {
+            if (_stack == null)
+                return null;
+
+            int position = _stack.size() - 1 - depth;
+
+            if (position < 0)
+                return null;
+
+            Class result = (Class) _stack.get(position);
+
+            return result != null && isVisible(result) ? result : null;
+        }
+
+        private String addType(Class type)
+        {
+            _types.add(type);
+
+            return "_types[" + (_types.size() - 1) + "]";
+        }
+
+        private String getRule(Class ruleClass, int index)
+        {
+            return "((" + ruleClass.getName() + ") _rules[" + index + "])";
+        }
+
+        private boolean addCreateObject(CreateObjectRule rule, int index)
+        {
+            if (_stack == null)
+                return false;
+
+            Class objectClass = findClass(_resolver, rule.getClassName());
+
+            if (objectClass == null || !isVisible(objectClass)
+                    || !hasPublicConstructor(objectClass))
+                return false;
+
+            String object = "object" + index;
+
+            _begin.append("Object " + object + " = null; ");
+            _begin.append("try { " + object + " = new " + objectClass.getName() + "(); } ");
+            _begin.append("catch (Exception ex) { throw " + getRule(CreateObjectRule.class, index)
+                    + ".creationFailure(ex); } ");
+            _begin.append("org.apache.hivemind.HiveMind.setLocation(" + object
+                    + ", location); ");
+            _begin.append("$1.push(" + object + "); ");
+
+            _stack.add(objectClass);
+
+            return true;
+        }
+
+        private boolean addReadAttribute(ReadAttributeRule rule, int index)
+        {
+            String attributeName = quote(rule.getAttributeName());
+            String propertyName = quote(rule.getPropertyName());
+            String translator = rule.getTranslator();
+
+            String raw = "raw" + index;
+            String value = "value" + index;
+            String target = "target" + index;
+            String finalValue = "finalValue" + index;
+            String t = "translator" + index;
+
+            _begin.append("String " + raw + " = $2.getAttributeValue(" + attributeName + "); ");
+
+            if (rule.getSkipIfNull())
+                _begin.append("if (" + raw + " != null) { ");
+            else
+                _begin.append("{ ");
+
+            _begin.append("String " + value
+                    + " = org.apache.hivemind.schema.rules.RuleUtils.processText($1, $2, " + raw
+                    + "); ");
+            _begin.append("Object " + target + " = $1.peek(); ");
+            _begin.append("try { ");
+            _begin.append("org.apache.hivemind.schema.Translator " + t + " = ");
+
+            if (translator == null)
+                _begin.append("$1.getAttributeTranslator(" + attributeName + "); ");
+            else
+                _begin.append("$1.getTranslator(" + quote(translator) + "); ");
+
+            PropertyDescriptor pd = findWritableProperty(getStackType(0), rule.getPropertyName());
+
+            if (pd == null)
+            {
+                _begin.append("Object " + finalValue + " = " + t
+                        + ".translate($1.getContributingModule(), "
+                        + "org.apache.hivemind.util.PropertyUtils.getPropertyType(" + target + ", "
+                        + propertyName + "), " + value + ", location); ");
+                _begin.append("org.apache.hivemind.util.PropertyUtils.write(" + target + ", "
+                        + propertyName + ", " + finalValue + "); ");
+            }
+            else
+            {
+                Method writeMethod = pd.getWriteMethod();
+
+                _begin.append("Object " + finalValue + " = " + t
+                        + ".translate($1.getContributingModule(), "
+                        + addType(pd.getPropertyType()) + ", " + value + ", location); ");
+                _begin.append("((" + writeMethod.getDeclaringClass().getName() + ") " + target
+                        + ")." + writeMethod.getName() + "("
+                        + unwrap(writeMethod.getParameterTypes()[0], finalValue) + "); ");
+            }
+
+            _begin.append("} catch (Exception ex) { " + getRule(ReadAttributeRule.class, index)
+                    + ".reportFailure($1, $2, ex); } } ");
+
+            return true;
+        }
+
+        private boolean addInvokeParent(InvokeParentRule rule, int index)
+        {
+            Class childClass = getStackType(0);
+            Class parentClass = getStackType(rule.getDepth());
+
+            if (childClass == null || parentClass == null)
+                return false;
+
+            Method method;
+
+            try
+            {
+                method = rule.findMethod(parentClass, childClass);
+            }
+            catch (NoSuchMethodException ex)
+            {
+                // Let the rule report the error.
+
+                return false;
+            }
+
+            if (!isAccessible(method))
+                return false;
+
+            String child = "child" + index;
+            String parent = "parent" + index;
+
+            _begin.append("Object " + child + " = $1.peek(); ");
+            _begin.append("Object " + parent + " = $1.peek(" + rule.getDepth() + "); ");
+            _begin.append("try { ((" + method.getDeclaringClass().getName() + ") " + parent
+                    + ")." + method.getName() + "(("
+                    + ClassFabUtils.getJavaClassName(method.getParameterTypes()[0]) + ") " + child
+                    + "); } ");
+            _begin.append("catch (Exception ex) { throw " + getRule(InvokeParentRule.class, index)
+                    + ".invocationFailure(" + parent + ", ex); } ");
+
+            return true;
+        }
+
+        /**
+         * Returns the descriptor of the writable property, if its write method may be invoked
+         * directly.
+         */
+        private PropertyDescriptor findWritableProperty(Class targetClass, String propertyName)
+        {
+            if (targetClass == null)
+                return null;
+
+            try
+            {
+                PropertyDescriptor[] pds =
+                    Introspector.getBeanInfo(targetClass).getPropertyDescriptors();
+
+                for (int i = 0; i < pds.length; i++)
+                {
+                    if (pds[i].getName().equals(propertyName))
+                        return isAccessible(pds[i].getWriteMethod()) ? pds[i] : null;
+                }
+            }
+            catch (Exception ex)
+            {
+                // Let PropertyUtils report the error.
+            }
+
+            return null;
+        }
+
+        private boolean isAccessible(Method method)
+        {
+            if (method == null || !Modifier.isPublic(method.getModifiers()))
+                return false;
+
+            if (!isVisible(method.getDeclaringClass()))
+                return false;
+
+            Class[] parameterTypes = method.getParameterTypes();
+
+            for (int i = 0; i < parameterTypes.length; i++)
+            {
+                Class type = parameterTypes[i];
+
+                while (type.isArray())
+                    type = type.getComponentType();
+
+                if (!type.isPrimitive() && !isVisible(type))
+                    return false;
+            }
+
+            return true;
+        }
+
+        /**
+         * Returns true if the class is public and may be referenced by the generated class.
+         */
+        private boolean isVisible(Class type)
+        {
+            if (!Modifier.isPublic(type.getModifiers()))
+                return false;
+
+            try
+            {
+                return Class.forName(type.getName(), false, _loader) == type;
+            }
+            catch (ClassNotFoundException ex)
+            {
+                return false;
+            }
+        }
+    }
+
+    private static boolean isNeutral(Class ruleClass)
+    {
+        for (int i = 0; i < NEUTRAL_RULES.length; i++)
+        {
+            if (NEUTRAL_RULES[i] == ruleClass)
+                return true;
+        }
+
+        return false;
+    }
+
+    private static Class findClass(ClassResolver resolver, String className)
+    {
+        try
+        {
+            return resolver.findClass(className);
+        }
+        catch (RuntimeException ex)
+        {
+            // The rule will report the error, when it fires.
+
+            return null;
+        }
+    }
+
+    private static boolean hasPublicConstructor(Class objectClass)
+    {
+        if (Modifier.isAbstract(objectClass.getModifiers()))
+            return false;
+
+        try
+        {
+            return Modifier.isPublic(objectClass.getConstructor(null).getModifiers());
+        }
+        catch (NoSuchMethodException ex)
+        {
+            return false;
+        }
+    }
+
+    private static String unwrap(Class type, String expression)
+    {
+        Class wrapper = ClassFabUtils.getWrapperType(type);
+
+        if (wrapper == null)
+            return "(" + ClassFabUtils.getJavaClassName(type) + ") " + expression;
+
+        return "((" + wrapper.getName() + ") " + expression + ")." + type.getName() + "Value()";
+    }
+
+    /**
+     * Returns the string as a Java string literal.
+     */
+    private static String quote(String value)
+    {
+        StringBuffer buffer = new StringBuffer("\"");
+
+        for (int i = 0; i < value.length(); i++)
+        {
+            char ch = value.charAt(i);
+
+            if (ch == '"' || ch == '\\')
+                buffer.append('\\');
+
+            buffer.append(ch);
+        }
+
+        buffer.append('"');
+
+        return buffer.toString();
+    }
+}
@@ -24,12 +24,12 @@ import java.util.Set;
 
 import org.apache.hivemind.ApplicationRuntimeException;
 import org.apache.hivemind.Attribute;
+import org.apache.hivemind.ClassResolver;
 import org.apache.hivemind.Element;
 import org.apache.hivemind.Location;
 import org.apache.hivemind.schema.AttributeModel;
 import org.apache.hivemind.schema.ElementModel;
 import org.apache.hivemind.schema.Rule;
-import org.apache.hivemind.schema.SchemaProcessor;
 import org.apache.hivemind.schema.Translator;
 import org.apache.hivemind.schema.rules.NullTranslator;
 
@@ -37,11 +37,16 @@ import org.apache.hivemind.schema.rules.NullTranslator;
  * A wrapper around {@link org.apache.hivemind.schema.ElementModel} used
  * by {@link org.apache.hivemind.impl.SchemaProcessorImpl}.
  *
+ * <p>
+ * Once an element has been processed enough times, its rules are compiled
+ * (by the processor's {@link SchemaCompiler}) for the contributing module's class resolver.
+ *
  * @author Howard Lewis Ship
  */
 final class SchemaElement
 {
-    private SchemaProcessor _processor;
+    private SchemaProcessorImpl _processor;
+    private SchemaElement _parent;
     private ElementModel _model;
     private List _requiredAttributes = new ArrayList();
     private Set _knownAttributes = new HashSet();
@@ -59,9 +64,30 @@ final class SchemaElement
      */
     private Map _attributeValues = new HashMap();
 
-    SchemaElement(SchemaProcessor processor, ElementModel model)
+    /**
+     * The number of times {@link #fireBegin(Element)} has been invoked.
+     */
+    private int _fireCount;
+
+    /**
+     * The compiled rules, or null if not (yet) compiled, or if the rules can't be compiled.
+     */
+    private CompiledRules _compiledRules;
+
+    /**
+     * The class resolver the rules were last compiled for.
+     */
+    private ClassResolver _compiledResolver;
+
+    SchemaElement(SchemaProcessorImpl processor, ElementModel model)
+    {
+        this(processor, null, model);
+    }
+
+    SchemaElement(SchemaProcessorImpl processor, SchemaElement parent, ElementModel model)
     {
         _processor = processor;
+        _parent = parent;
         _model = model;
 
         List attributeModels = model.getAttributeModels();
@@ -111,7 +137,7 @@ final class SchemaElement
         {
             ElementModel nested = (ElementModel) l.get(i);
 
-            SchemaElement nestedElement = new SchemaElement(_processor, nested);
+            SchemaElement nestedElement = new SchemaElement(_processor, this, nested);
 
             // TODO: Check for duplicates here, or at parse!
 
@@ -199,6 +225,14 @@ final class SchemaElement
 
     void fireBegin(Element element)
     {
+        CompiledRules compiled = getCompiledRules();
+
+        if (compiled != null)
+        {
+            compiled.fireBegin(_processor, element);
+            return;
+        }
+
         List rules = _model.getRules();
         int count = rules.size();
 
@@ -213,6 +247,14 @@ final class SchemaElement
 
     void fireEnd(Element element)
     {
+        CompiledRules compiled = getCurrentCompiledRules();
+
+        if (compiled != null)
+        {
+            compiled.fireEnd(_processor, element);
+            return;
+        }
+
         List rules = _model.getRules();
         int count = rules.size();
 
@@ -225,6 +267,72 @@ final class SchemaElement
         }
     }
 
+    /**
+     * Returns the compiled rules to fire, compiling them once the threshold is reached.
+     */
+    private CompiledRules getCompiledRules()
+    {
+        _fireCount++;
+
+        int threshold = _processor.getCompileThreshold();
+
+        if (threshold <= 0 || _fireCount < threshold)
+            return null;
+
+        CompiledRules result = getCurrentCompiledRules();
+
+        if (result != null || _fireCount > threshold)
+            return result;
+
+        // Compile just once; if the rules can't be compiled, they are fired individually.
+
+        SchemaCompiler compiler = _processor.getSchemaCompiler();
+
+        if (compiler == null)
+            return null;
+
+        ClassResolver resolver = _processor.getContributingModule().getClassResolver();
+
+        _compiledRules =
+            compiler.compile(_model, getStackBefore(compiler, resolver), resolver);
+        _compiledResolver = resolver;
+
+        return _compiledRules;
+    }
+
+    /**
+     * Returns the compiled rules, if compiled for the contributing module's class resolver.
+     * Compiled rules create objects using the class resolver they were compiled for.
+     */
+    private CompiledRules getCurrentCompiledRules()
+    {
+        if (_compiledRules == null)
+            return null;
+
+        ClassResolver resolver = _processor.getContributingModule().getClassResolver();
+
+        return resolver == _compiledResolver ? _compiledRules : null;
+    }
+
+    /**
+     * Returns the classes of the objects on the processor's stack before the rules fire, or
+     * null if not known.
+     */
+    private List getStackBefore(SchemaCompiler compiler, ClassResolver resolver)
+    {
+        if (_parent == null)
+        {
+            List result = new ArrayList();
+            result.add(_processor.getClass());
+
+            return result;
+        }
+
+        List parentStack = _parent.getStackBefore(compiler, resolver);
+
+        return compiler.getStackAfterBegin(parentStack, _parent._model.getRules(), resolver);
+    }
+
     private Translator _nullTranslator = new NullTranslator();
     private Translator _contentTranslator;
 
@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.logging.Log;
+import org.apache.hivemind.ApplicationRuntimeException;
 import org.apache.hivemind.Element;
 import org.apache.hivemind.ErrorHandler;
 import org.apache.hivemind.internal.Module;
@@ -27,6 +28,7 @@ import org.apache.hivemind.schema.ElementModel;
 import org.apache.hivemind.schema.Schema;
 import org.apache.hivemind.schema.SchemaProcessor;
 import org.apache.hivemind.schema.Translator;
+import org.apache.hivemind.service.ClassFactory;
 
 /**
  * Used to assemble all the {@link org.apache.hivemind.Contribution}s
@@ -38,6 +40,17 @@ import org.apache.hivemind.schema.Translator;
  */
 public final class SchemaProcessorImpl implements SchemaProcessor
 {
+    /**
+     * The number of times an element is processed before its rules are compiled.
+     */
+    static final int COMPILE_THRESHOLD = 100;
+
+    /**
+     * Replaces {@link #COMPILE_THRESHOLD} for processors created while it is set (that is,
+     * not negative). For testing only.
+     */
+    private static volatile int _testCompileThreshold = -1;
+
     private ErrorHandler _errorHandler;
     private Log _log;
     private Schema _schema;
@@ -50,6 +63,13 @@ public final class SchemaProcessorImpl implements SchemaProcessor
     private List _stack = new ArrayList();
     private Module _module;
 
+    /**
+     * Compiles the rules of frequently processed elements; created as needed.
+     */
+    private SchemaCompiler _compiler;
+    private boolean _compilerUnavailable;
+    private final int _compileThreshold;
+
     /**
      * Map on element name to {@link SchemaElement}.
      */
@@ -67,6 +87,10 @@ public final class SchemaProcessorImpl implements SchemaProcessor
         _schema = schema;
         _stack.add(this);
 
+        int testCompileThreshold = _testCompileThreshold;
+
+        _compileThreshold = testCompileThreshold < 0 ? COMPILE_THRESHOLD : testCompileThreshold;
+
         if (_schema != null)
         {
 
@@ -125,6 +149,59 @@ public final class SchemaProcessorImpl implements SchemaProcessor
         return _module;
     }
 
+    /**
+     * Returns the number of times an element is processed before its rules are compiled, or
+     * zero if rules are never compiled.
+     */
+    int getCompileThreshold()
+    {
+        return _compileThreshold;
+    }
+
+    /**
+     * Overrides the compile threshold of processors created from now on; zero disables
+     * compilation. For testing only; tests must {@link #clearTestCompileThreshold() clear}
+     * the override when done.
+     */
+    static void setTestCompileThreshold(int compileThreshold)
+    {
+        _testCompileThreshold = Math.max(0, compileThreshold);
+    }
+
+    static void clearTestCompileThreshold()
+    {
+        _testCompileThreshold = -1;
+    }
+
+    /**
+     * Returns the compiler for the rules of this processor's elements, or null if the rules
+     * can't be compiled. The compiler creates classes using the registry's
+     * <code>hivemind.ClassFactory</code> service (obtained through the contributing module),
+     * so the classes are released along with the registry.
+     */
+    SchemaCompiler getSchemaCompiler()
+    {
+        if (_compiler != null || _compilerUnavailable)
+            return _compiler;
+
+        try
+        {
+            ClassFactory factory =
+                (ClassFactory) _module.getService("hivemind.ClassFactory", ClassFactory.class);
+
+            _compiler = new SchemaCompiler(factory);
+        }
+        catch (ApplicationRuntimeException ex)
+        {
+            // Such as when the configuration is needed to construct the ClassFactory itself.
+            // The rules are fired individually.
+
+            _compilerUnavailable = true;
+        }
+
+        return _compiler;
+    }
+
     public String getElementPath()
     {
         StringBuffer buffer = new StringBuffer();
@@ -0,0 +1,47 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import org.apache.hivemind.Location;
+
+/**
+ * Base class for the parsed module descriptors, schemas and schema rules, which are stored
+ * in registry images (see {@link RegistryImageWriter}). {@link BaseLocatable} itself is not
+ * serializable, as it is also the base class of many runtime objects; this class
+ * writes the location explicitly.
+ * 
+ * @author Howard Lewis Ship
+ */
+public class SerializableLocatable extends BaseLocatable implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        out.defaultWriteObject();
+        out.writeObject(getLocation());
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        setLocation((Location) in.readObject());
+    }
+}
@@ -0,0 +1,63 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl;
+
+import org.apache.hivemind.ServiceHandle;
+import org.apache.hivemind.util.ToStringBuilder;
+
+/**
+ * Implementation of {@link org.apache.hivemind.ServiceHandle}; an immutable
+ * holder for a service that has already been checked against the service interface.
+ *
+ * @author Howard Lewis Ship
+ */
+public final class ServiceHandleImpl implements ServiceHandle
+{
+    private final String _serviceId;
+    private final Class _serviceInterface;
+    private final Object _service;
+
+    public ServiceHandleImpl(String serviceId, Class serviceInterface, Object service)
+    {
+        _serviceId = serviceId;
+        _serviceInterface = serviceInterface;
+        _service = service;
+    }
+
+    public String getServiceId()
+    {
+        return _serviceId;
+    }
+
+    public Class getServiceInterface()
+    {
+        return _serviceInterface;
+    }
+
+    public Object getService()
+    {
+        return _service;
+    }
+
+    public String toString()
+    {
+        ToStringBuilder builder = new ToStringBuilder(this);
+
+        builder.append("serviceId", _serviceId);
+        builder.append("serviceInterface", _serviceInterface);
+
+        return builder.toString();
+    }
+}
@@ -16,7 +16,9 @@ package org.apache.hivemind.impl;
 
 import java.util.List;
 
+import org.apache.hivemind.InterceptorFragmentFactory;
 import org.apache.hivemind.InterceptorStack;
+import org.apache.hivemind.InterceptorWeaver;
 import org.apache.hivemind.ServiceInterceptorFactory;
 import org.apache.hivemind.internal.Module;
 import org.apache.hivemind.internal.ServiceInterceptorContribution;
@@ -70,6 +72,23 @@ public final class ServiceInterceptorContributionImpl
         _factory.createInterceptor(stack, _contributingModule, _convertedParameters);
     }
 
+    public boolean isFusible()
+    {
+        setup();
+
+        return _factory instanceof InterceptorFragmentFactory;
+    }
+
+    public void contributeFragment(InterceptorWeaver weaver)
+    {
+        setup();
+
+        ((InterceptorFragmentFactory) _factory).contributeFragment(
+            weaver,
+            _contributingModule,
+            _convertedParameters);
+    }
+
     private synchronized void setup()
     {
         if (_factory == null)
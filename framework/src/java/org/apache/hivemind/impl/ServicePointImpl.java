@@ -15,8 +15,11 @@
 package org.apache.hivemind.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -24,6 +27,7 @@ import org.apache.hivemind.ApplicationRuntimeException;
 import org.apache.hivemind.ClassResolver;
 import org.apache.hivemind.HiveMind;
 import org.apache.hivemind.Occurances;
+import org.apache.hivemind.ServiceHandle;
 import org.apache.hivemind.ShutdownCoordinator;
 import org.apache.hivemind.internal.ServiceImplementationConstructor;
 import org.apache.hivemind.internal.ServiceInterceptorContribution;
@@ -57,6 +61,14 @@ public final class ServicePointImpl
     private String _serviceModel;
     private ShutdownCoordinator _shutdownCoordinator;
     private ServiceModel _serviceModelObject;
+    private boolean _directBinding;
+
+    /**
+     * Map of {@link ServiceHandle}, keyed on service interface. The map
+     * is never modified; instead, it is copied and replaced (while synchronized) when a new
+     * handle is added. Lookups are therefore unsynchronized.
+     */
+    private volatile Map _serviceHandles = Collections.EMPTY_MAP;
 
     protected void extendDescription(ToStringBuilder builder)
     {
@@ -181,9 +193,33 @@ public final class ServicePointImpl
 
     public Object getService(Class serviceInterface)
     {
-        Object result = getService();
+        return getServiceHandle(serviceInterface).getService();
+    }
+
+    public ServiceHandle getServiceHandle(Class serviceInterface)
+    {
+        ServiceHandle result = (ServiceHandle) _serviceHandles.get(serviceInterface);
+
+        if (result == null)
+            result = createServiceHandle(serviceInterface);
+
+        return result;
+    }
+
+    /**
+     * Obtains the service, checks it against the requested interface and
+     * caches a {@link ServiceHandle} for it.
+     */
+    private synchronized ServiceHandle createServiceHandle(Class serviceInterface)
+    {
+        ServiceHandle result = (ServiceHandle) _serviceHandles.get(serviceInterface);
 
-        if (!serviceInterface.isAssignableFrom(result.getClass()))
+        if (result != null)
+            return result;
+
+        Object service = getService();
+
+        if (!serviceInterface.isAssignableFrom(service.getClass()))
         {
             throw new ApplicationRuntimeException(
                 ImplMessages.serviceWrongInterface(this, serviceInterface),
@@ -191,6 +227,13 @@ public final class ServicePointImpl
                 null);
         }
 
+        result = new ServiceHandleImpl(getExtensionPointId(), serviceInterface, service);
+
+        Map handles = new HashMap(_serviceHandles);
+        handles.put(serviceInterface, result);
+
+        _serviceHandles = handles;
+
         return result;
     }
 
@@ -266,13 +309,50 @@ public final class ServicePointImpl
     }
 
     /**
-     * Forces the service into existence.
+     * Forces the service into existence. With direct binding, the service implementation
+     * (if the service model allows it) then replaces the proxy for all later callers.
      */
     public void forceServiceInstantiation()
     {
         getService();
 
         _serviceModelObject.instantiateService();
+
+        if (_directBinding)
+            bindDirectly();
+    }
+
+    /**
+     * Replaces the service (and discards any service handles, which will be recreated as needed)
+     * with the service implementation provided by the service model, if any. Callers that have
+     * already obtained the proxy continue to use it. Once bound directly, invocations of the
+     * service are no longer checked for registry shutdown; instead, the registry refuses to
+     * provide services once shut down.
+     */
+    private synchronized void bindDirectly()
+    {
+        Object direct = _serviceModelObject.getDirectServiceImplementation();
+
+        if (direct == null || direct == _service)
+            return;
+
+        Log log = getServiceLog();
+
+        if (log.isDebugEnabled())
+            log.debug("Binding service " + getExtensionPointId() + " directly to " + direct);
+
+        _service = direct;
+        _serviceHandles = Collections.EMPTY_MAP;
+    }
+
+    public void setDirectBinding(boolean directBinding)
+    {
+        _directBinding = directBinding;
+    }
+
+    public boolean isDirectBinding()
+    {
+        return _directBinding;
     }
 
     public Log getServiceLog()
@@ -160,6 +160,14 @@ public abstract class AbstractServiceModelImpl implements ServiceModel
 
     }
 
+    /**
+     * Returns null; service models (other than singleton) always provide a proxy.
+     */
+    public Object getDirectServiceImplementation()
+    {
+        return null;
+    }
+
     public ConstructableServicePoint getServicePoint()
     {
         return _servicePoint;
@@ -0,0 +1,147 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl.servicemodel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single background thread, shared by all {@link ExpiringServiceModel}s (in all
+ * registries), which periodically {@link ExpiringServiceModel#sweep(long) sweeps} each model
+ * whose service is live. The thread runs only while there are such models.
+ *
+ * @author Howard Lewis Ship
+ */
+final class ExpirationSweeper implements Runnable
+{
+    private static final ExpirationSweeper INSTANCE = new ExpirationSweeper();
+
+    /**
+     * Models to be swept. A model is added each time its service is constructed, and removed
+     * (once) each time it expires; a model may be present more than once, briefly, if
+     * re-constructed before the sweep that expired it has removed it.
+     */
+    private final List _models = new ArrayList();
+
+    private boolean _running;
+
+    private ExpirationSweeper()
+    {
+    }
+
+    static ExpirationSweeper getInstance()
+    {
+        return INSTANCE;
+    }
+
+    synchronized void add(ExpiringServiceModel model)
+    {
+        _models.add(model);
+
+        if (_running)
+        {
+            // The model may need to be swept sooner than the thread is waiting for.
+
+            notifyAll();
+            return;
+        }
+
+        Thread thread = new Thread(this, "HiveMind expiring service sweeper");
+
+        thread.setDaemon(true);
+        thread.start();
+
+        _running = true;
+    }
+
+    /**
+     * Removes the model entirely (when its registry is shutdown).
+     */
+    synchronized void remove(ExpiringServiceModel model)
+    {
+        while (_models.remove(model))
+        {
+        }
+    }
+
+    private synchronized void removeOnce(ExpiringServiceModel model)
+    {
+        _models.remove(model);
+    }
+
+    public void run()
+    {
+        while (true)
+        {
+            List models = waitForSweep();
+
+            if (models == null)
+                return;
+
+            long now = System.currentTimeMillis();
+            int count = models.size();
+
+            for (int i = 0; i < count; i++)
+            {
+                ExpiringServiceModel model = (ExpiringServiceModel) models.get(i);
+
+                if (!model.sweep(now))
+                    removeOnce(model);
+            }
+        }
+    }
+
+    /**
+     * Waits for the shortest sweep interval of any model, then returns a copy of the
+     * list of models; returns null (and marks the thread as stopped) if there are no models.
+     */
+    private synchronized List waitForSweep()
+    {
+        if (!_models.isEmpty())
+        {
+            try
+            {
+                wait(getSweepInterval());
+            }
+            catch (InterruptedException ex)
+            {
+                // Sweep immediately.
+            }
+        }
+
+        if (_models.isEmpty())
+        {
+            _running = false;
+            return null;
+        }
+
+        return new ArrayList(_models);
+    }
+
+    private long getSweepInterval()
+    {
+        long result = Long.MAX_VALUE;
+        int count = _models.size();
+
+        for (int i = 0; i < count; i++)
+        {
+            ExpiringServiceModel model = (ExpiringServiceModel) _models.get(i);
+
+            result = Math.min(result, model.getSweepInterval());
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,271 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl.servicemodel;
+
+import java.util.List;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.Expirable;
+import org.apache.hivemind.events.RegistryShutdownListener;
+import org.apache.hivemind.impl.ConstructableServicePoint;
+import org.apache.hivemind.impl.ProxyUtils;
+
+/**
+ * Like the {@link org.apache.hivemind.impl.servicemodel.SingletonServiceModel singleton service model},
+ * a single implementation of the service is constructed when a service method is first
+ * invoked. Unlike the singleton model, the core implementation expires (and is released) once
+ * the service has not been used for an idle timeout (configured in the
+ * <code>hivemind.ServiceExpiration</code> configuration point); a new core implementation
+ * is constructed when the service is next used. Implementations may implement
+ * {@link org.apache.hivemind.Expirable} to be notified when they expire. Interceptors are
+ * constructed just once, around the proxy.
+ * 
+ * <p>
+ * While the service is live, invoking a service method reads two volatile fields
+ * (and writes one of them only if not already set); it does not lock. Expiration is checked
+ * by a single background thread shared by all expiring services; see {@link #sweep(long)}.
+ *
+ * @author Howard Lewis Ship
+ */
+public final class ExpiringServiceModel extends AbstractServiceModelImpl
+    implements RegistryShutdownListener
+{
+    /**
+     * The id of the configuration point used to configure idle timeouts.
+     */
+    public static final String SERVICE_EXPIRATION_CONFIGURATION_ID = "hivemind.ServiceExpiration";
+
+    /**
+     * The idle timeout of services that are not configured: five minutes.
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT = 5 * 60 * 1000;
+
+    private Object _serviceProxy;
+    private final long _idleTimeout;
+
+    /**
+     * The live core service implementation, or null.
+     */
+    private volatile Object _core;
+
+    /**
+     * Set when the service is used; cleared by each sweep.
+     */
+    private volatile boolean _used;
+
+    /**
+     * The time of the most recent sweep that found the service had been used.
+     */
+    private long _lastUsed;
+
+    private boolean _shutdown;
+
+    public ExpiringServiceModel(ConstructableServicePoint servicePoint)
+    {
+        super(servicePoint);
+
+        _idleTimeout = findIdleTimeout();
+    }
+
+    private long findIdleTimeout()
+    {
+        ConstructableServicePoint servicePoint = getServicePoint();
+        String serviceId = servicePoint.getExtensionPointId();
+
+        List contributions =
+            servicePoint.getModule().getConfiguration(SERVICE_EXPIRATION_CONFIGURATION_ID);
+        int count = contributions.size();
+
+        for (int i = 0; i < count; i++)
+        {
+            ServiceExpirationContribution c = (ServiceExpirationContribution) contributions.get(i);
+
+            if (!serviceId.equals(c.getServiceId()))
+                continue;
+
+            if (c.getIdleTimeout() > 0)
+                return c.getIdleTimeout();
+
+            servicePoint.getModule().getErrorHandler().error(
+                _log,
+                ServiceModelMessages.invalidIdleTimeout(servicePoint, c.getIdleTimeout()),
+                c.getLocation(),
+                null);
+        }
+
+        return DEFAULT_IDLE_TIMEOUT;
+    }
+
+    /**
+     * Always returns the service proxy.
+     */
+    public synchronized Object getService()
+    {
+        if (_serviceProxy == null)
+        {
+            _serviceProxy = createServiceProxy();
+
+            getServicePoint().getShutdownCoordinator().addRegistryShutdownListener(this);
+        }
+
+        return _serviceProxy;
+    }
+
+    /**
+     * Creates a proxy instance for the service, and returns it, wrapped in any
+     * interceptors for the service.
+     */
+    private Object createServiceProxy()
+    {
+        if (_log.isDebugEnabled())
+            _log.debug(
+                "Creating ExpiringProxy for service " + getServicePoint().getExtensionPointId());
+
+        Object proxy =
+            ProxyUtils.createDelegatingProxy(
+                "ExpiringProxy",
+                this,
+                "getServiceImplementation",
+                getServicePoint(),
+                getServicePoint().getShutdownCoordinator());
+
+        return addInterceptors(proxy);
+    }
+
+    /**
+     * Invoked by the proxy to return the live core service implementation,
+     * constructing it as needed.
+     */
+    public Object getServiceImplementation()
+    {
+        Object result = _core;
+
+        if (result == null)
+            return constructServiceImplementation();
+
+        if (!_used)
+            _used = true;
+
+        return result;
+    }
+
+    protected synchronized Object constructServiceImplementation()
+    {
+        if (_core != null)
+            return _core;
+
+        Object core;
+
+        try
+        {
+            core = constructCoreServiceImplementation();
+        }
+        catch (Exception ex)
+        {
+            throw new ApplicationRuntimeException(
+                ServiceModelMessages.unableToConstructService(getServicePoint(), ex),
+                ex);
+        }
+
+        _used = true;
+        _core = core;
+
+        if (!_shutdown)
+            ExpirationSweeper.getInstance().add(this);
+
+        return core;
+    }
+
+    /**
+     * Invoked periodically by the {@link ExpirationSweeper}. If the service has been used since
+     * the previous sweep, notes the time. Otherwise, if the service has been idle for the idle
+     * timeout, releases the core implementation. Returns true if the service is still live,
+     * false if it has expired (and need not be swept until re-constructed).
+     */
+    boolean sweep(long now)
+    {
+        Object expired;
+
+        synchronized (this)
+        {
+            if (_core == null)
+                return false;
+
+            if (_used)
+            {
+                _used = false;
+                _lastUsed = now;
+
+                return true;
+            }
+
+            if (now - _lastUsed < _idleTimeout)
+                return true;
+
+            expired = _core;
+            _core = null;
+        }
+
+        expire(expired);
+
+        return false;
+    }
+
+    private void expire(Object core)
+    {
+        if (_log.isDebugEnabled())
+            _log.debug("Service " + getServicePoint().getExtensionPointId() + " has expired.");
+
+        if (core instanceof Expirable)
+            ((Expirable) core).serviceWillExpire();
+    }
+
+    /**
+     * How often the service must be swept; half the idle timeout.
+     */
+    long getSweepInterval()
+    {
+        return Math.max(1, _idleTimeout / 2);
+    }
+
+    /**
+     * Constructs the core service implementation.
+     */
+    public void instantiateService()
+    {
+        getServiceImplementation();
+    }
+
+    /**
+     * Stops sweeping the service, and releases the core service implementation.
+     */
+    public void registryDidShutdown()
+    {
+        Object core;
+
+        synchronized (this)
+        {
+            _shutdown = true;
+
+            core = _core;
+            _core = null;
+        }
+
+        ExpirationSweeper.getInstance().remove(this);
+
+        if (core != null)
+            expire(core);
+    }
+}
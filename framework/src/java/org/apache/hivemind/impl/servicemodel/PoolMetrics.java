@@ -0,0 +1,127 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.hivemind.impl.servicemodel;
+
+import org.apache.hivemind.util.ToStringBuilder;
+
+/**
+ * A snapshot of the pool of a service that uses the pooled service model.
+ * 
+ * @see PooledServiceModelFactory#getPoolMetrics(String)
+ * @author Howard Lewis Ship
+ */
+public final class PoolMetrics
+{
+    private final int _size;
+    private final int _idleCount;
+    private final int _peakSize;
+    private final int _createdCount;
+    private final int _evictedCount;
+    private final int _waitCount;
+    private final int _exhaustedCount;
+
+    public PoolMetrics(int size, int idleCount, int peakSize, int createdCount,
+            int evictedCount, int waitCount, int exhaustedCount)
+    {
+        _size = size;
+        _idleCount = idleCount;
+        _peakSize = peakSize;
+        _createdCount = createdCount;
+        _evictedCount = evictedCount;
+        _waitCount = waitCount;
+        _exhaustedCount = exhaustedCount;
+    }
+
+    /**
+     * The number of instances in the pool, whether idle or in use.
+     */
+    public int getSize()
+    {
+        return _size;
+    }
+
+    /**
+     * The number of idle instances.
+     */
+    public int getIdleCount()
+    {
+        return _idleCount;
+    }
+
+    /**
+     * The number of instances in use by some thread.
+     */
+    public int getActiveCount()
+    {
+        return Math.max(0, _size - _idleCount);
+    }
+
+    /**
+     * The largest size the pool has reached.
+     */
+    public int getPeakSize()
+    {
+        return _peakSize;
+    }
+
+    /**
+     * The number of instances created.
+     */
+    public int getCreatedCount()
+    {
+        return _createdCount;
+    }
+
+    /**
+     * The number of idle instances evicted from the pool.
+     */
+    public int getEvictedCount()
+    {
+        return _evictedCount;
+    }
+
+    /**
+     * The number of times a thread waited for an instance, because the pool was exhausted.
+     */
+    public int getWaitCount()
+    {
+        return _waitCount;
+    }
+
+    /**
+     * The number of times a thread failed to obtain an instance, because the pool was
+     * exhausted (and either fail fast was configured, or the maximum wait elapsed).
+     */
+    public int getExhaustedCount()
+    {
+        return _exhaustedCount;
+    }
+
+    public String toString()
+    {
+        ToStringBuilder builder = new ToStringBuilder(this);
+
+        builder.append("size", _size);
+        builder.append("idleCount", _idleCount);
+        builder.append("peakSize", _peakSize);
+        builder.append("createdCount", _createdCount);
+        builder.append("evictedCount", _evictedCount);
+        builder.append("waitCount", _waitCount);
+        builder.append("exhaustedCount", _exhaustedCount);
+
+        return builder.toString();
+    }
+}
@@ -15,9 +15,12 @@
 package org.apache.hivemind.impl.servicemodel;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.Discardable;
 import org.apache.hivemind.HiveMind;
 import org.apache.hivemind.PoolManageable;
 import org.apache.hivemind.impl.ConstructableServicePoint;
@@ -29,6 +32,16 @@ import org.apache.hivemind.service.ThreadEventNotifier;
 /**
  * Similar to the {@link org.apache.hivemind.impl.ThreadedServiceModel threaded service model},
  * except that, once created, services are pooled for later use.
+ * 
+ * <p>
+ * Invoking a method on the service proxy only requires a thread local lookup, once
+ * an instance is bound to the current thread. Idle instances are kept in several
+ * independently locked lists (chosen by thread), so that threads binding and releasing
+ * instances rarely contend. The pool may be configured (in the
+ * <code>hivemind.ServicePools</code> configuration point) with a minimum and maximum size,
+ * whether to wait or fail when the pool is exhausted, and a timeout after which idle
+ * instances are evicted (which is checked as instances are obtained from, and released to,
+ * the pool).
  *
  * @author Howard Lewis Ship
  */
@@ -40,10 +53,54 @@ public class PooledServiceModel extends AbstractServiceModelImpl
      */
     protected static final String SERVICE_ACCESSOR_METHOD_NAME = "_service";
 
+    /**
+     * The id of the configuration point used to configure pools.
+     */
+    public static final String SERVICE_POOLS_CONFIGURATION_ID = "hivemind.ServicePools";
+
+    /**
+     * Number of lists of idle instances; must be a power of two.
+     */
+    private static final int STRIPE_COUNT = 4;
+
     private Object _serviceProxy;
-    private ThreadEventNotifier _notifier;
-    private ThreadLocal _activeService;
-    private List _servicePool;
+    private volatile ThreadEventNotifier _notifier;
+    private final ThreadLocal _activeService = new ThreadLocal();
+
+    /**
+     * Lists of idle {@link PooledService}s, most recently released first.
+     */
+    private final LinkedList[] _stripes = new LinkedList[STRIPE_COUNT];
+
+    private final int _minimum;
+    private final int _maximum;
+    private final boolean _failFast;
+    private final long _maxWait;
+    private final long _idleTimeout;
+
+    /**
+     * Guards the size of the pool (and the statistics); threads waiting for an instance
+     * wait on this lock. Never acquired while holding the lock of a stripe.
+     */
+    private final Object _lock = new Object();
+
+    private int _size;
+    private int _peakSize;
+    private int _createdCount;
+    private int _evictedCount;
+    private int _waitCount;
+    private int _exhaustedCount;
+    /**
+     * Time at which idle instances are next checked for eviction; read without locking, so that
+     * obtaining an instance doesn't take the lock just to find there's nothing to do.
+     */
+    private volatile long _nextEviction;
+
+    /**
+     * Number of threads waiting for an instance; checked (without locking) when an instance
+     * is released.
+     */
+    private volatile int _waiting;
 
     /**
      * Shared, null implementation of PoolManageable.
@@ -65,7 +122,11 @@ public class PooledServiceModel extends AbstractServiceModelImpl
         private PoolManageable _managed;
 
         /**
-         * @param service the full service implementation, including any interceptors
+         * Time at which the service was last released to the pool.
+         */
+        private long _releaseTime;
+
+        /**
          * @param core the core service implementation, which may optionally implement {@link PoolManageable}
          */
         PooledService(Object core)
@@ -93,6 +154,12 @@ public class PooledServiceModel extends AbstractServiceModelImpl
             _managed.passivateService();
         }
 
+        void discard()
+        {
+            if (_core instanceof Discardable)
+                ((Discardable) _core).threadDidDiscardService();
+        }
+
         /**
          * Returns the configured service implementation.
          */
@@ -106,6 +173,60 @@ public class PooledServiceModel extends AbstractServiceModelImpl
     public PooledServiceModel(ConstructableServicePoint servicePoint)
     {
         super(servicePoint);
+
+        for (int i = 0; i < STRIPE_COUNT; i++)
+            _stripes[i] = new LinkedList();
+
+        ServicePoolContribution pool = findPoolContribution();
+
+        if (pool == null)
+        {
+            _minimum = 0;
+            _maximum = 0;
+            _failFast = false;
+            _maxWait = 0;
+            _idleTimeout = 0;
+
+            return;
+        }
+
+        int minimum = pool.getMinimum();
+
+        if (pool.getMaximum() > 0 && minimum > pool.getMaximum())
+        {
+            servicePoint.getModule().getErrorHandler().error(
+                _log,
+                ServiceModelMessages.poolMinimumExceedsMaximum(servicePoint, pool),
+                pool.getLocation(),
+                null);
+
+            minimum = pool.getMaximum();
+        }
+
+        _minimum = minimum;
+        _maximum = pool.getMaximum();
+        _failFast = pool.isFailFast();
+        _maxWait = pool.getMaxWait();
+        _idleTimeout = pool.getIdleTimeout();
+    }
+
+    private ServicePoolContribution findPoolContribution()
+    {
+        ConstructableServicePoint servicePoint = getServicePoint();
+        String serviceId = servicePoint.getExtensionPointId();
+
+        List pools = servicePoint.getModule().getConfiguration(SERVICE_POOLS_CONFIGURATION_ID);
+        int count = pools.size();
+
+        for (int i = 0; i < count; i++)
+        {
+            ServicePoolContribution pool = (ServicePoolContribution) pools.get(i);
+
+            if (serviceId.equals(pool.getServiceId()))
+                return pool;
+        }
+
+        return null;
     }
 
     public synchronized Object getService()
@@ -146,52 +267,278 @@ public class PooledServiceModel extends AbstractServiceModelImpl
         return addInterceptors(proxy);
     }
 
-    public synchronized Object getServiceImplementationForCurrentThread()
+    public Object getServiceImplementationForCurrentThread()
     {
-        if (_activeService == null)
-            _activeService = new ThreadLocal();
-
         PooledService pooled = (PooledService) _activeService.get();
 
         if (pooled == null)
-        {
-            pooled = obtainPooledService();
+            pooled = bindPooledServiceToCurrentThread();
 
-            pooled.activate();
+        return pooled.getService();
+    }
 
-            _notifier.addThreadCleanupListener(pooled);
-            _activeService.set(pooled);
-        }
+    private PooledService bindPooledServiceToCurrentThread()
+    {
+        PooledService pooled = obtainPooledService();
 
-        return pooled.getService();
+        pooled.activate();
+
+        _notifier.addThreadCleanupListener(pooled);
+        _activeService.set(pooled);
+
+        return pooled;
     }
 
+    /**
+     * Obtains an idle instance or, if there are none, creates a new instance (if the
+     * pool is not at its maximum size) or waits for (or fails for lack of) an idle
+     * instance.
+     */
     private PooledService obtainPooledService()
     {
+        // Evict first, so that an instance that has been idle too long isn't handed out.
+
+        if (_idleTimeout > 0)
+            evictIdleServices(System.currentTimeMillis());
+
         PooledService result = getServiceFromPool();
 
-        if (result == null)
-            result = constructPooledService();
+        if (result != null)
+            return result;
+
+        synchronized (_lock)
+        {
+            long deadline = _maxWait > 0 ? System.currentTimeMillis() + _maxWait : 0;
+
+            // Announce the intent to wait before re-checking the pool, so that
+            // a thread releasing an instance will see it, and notify.
+
+            _waiting++;
+
+            try
+            {
+                boolean waited = false;
+
+                while (true)
+                {
+                    result = getServiceFromPool();
+
+                    if (result != null)
+                        return result;
+
+                    if (_maximum <= 0 || _size < _maximum)
+                    {
+                        reserve();
+                        break;
+                    }
+
+                    long remaining = 0;
+
+                    if (deadline > 0)
+                    {
+                        remaining = deadline - System.currentTimeMillis();
+
+                        if (remaining <= 0)
+                            throw poolExhausted();
+                    }
+
+                    if (_failFast)
+                        throw poolExhausted();
+
+                    if (!waited)
+                    {
+                        _waitCount++;
+                        waited = true;
+                    }
+
+                    try
+                    {
+                        _lock.wait(remaining);
+                    }
+                    catch (InterruptedException ex)
+                    {
+                        throw new ApplicationRuntimeException(ex);
+                    }
+                }
+            }
+            finally
+            {
+                _waiting--;
+            }
+        }
 
-        return result;
+        return constructReservedService();
     }
 
-    private synchronized PooledService getServiceFromPool()
+    /**
+     * Reserves space for a new instance; invoked with the lock held.
+     */
+    private void reserve()
     {
-        int count = _servicePool == null ? 0 : _servicePool.size();
+        _size++;
+        _createdCount++;
+
+        if (_size > _peakSize)
+            _peakSize = _size;
+    }
 
-        if (count == 0)
-            return null;
+    private ApplicationRuntimeException poolExhausted()
+    {
+        _exhaustedCount++;
 
-        return (PooledService) _servicePool.remove(count - 1);
+        return new ApplicationRuntimeException(ServiceModelMessages.servicePoolExhausted(
+                getServicePoint(),
+                _maximum));
     }
 
-    private synchronized void returnServiceToPool(PooledService pooled)
+    /**
+     * Constructs an instance, for which space in the pool has already been reserved.
+     */
+    private PooledService constructReservedService()
     {
-        if (_servicePool == null)
-            _servicePool = new ArrayList();
+        try
+        {
+            return constructPooledService();
+        }
+        catch (RuntimeException ex)
+        {
+            synchronized (_lock)
+            {
+                _size--;
+                _createdCount--;
+
+                _lock.notifyAll();
+            }
 
-        _servicePool.add(pooled);
+            throw ex;
+        }
+    }
+
+    private LinkedList getStripe()
+    {
+        return _stripes[System.identityHashCode(Thread.currentThread()) & (STRIPE_COUNT - 1)];
+    }
+
+    /**
+     * Removes and returns an idle instance, preferring the current thread's stripe,
+     * or returns null if there are no idle instances.
+     */
+    private PooledService getServiceFromPool()
+    {
+        int start = System.identityHashCode(Thread.currentThread());
+
+        for (int i = 0; i < STRIPE_COUNT; i++)
+        {
+            LinkedList stripe = _stripes[(start + i) & (STRIPE_COUNT - 1)];
+
+            synchronized (stripe)
+            {
+                if (!stripe.isEmpty())
+                    return (PooledService) stripe.removeFirst();
+            }
+        }
+
+        return null;
+    }
+
+    private void returnServiceToPool(PooledService pooled)
+    {
+        long now = System.currentTimeMillis();
+
+        pooled._releaseTime = now;
+
+        LinkedList stripe = getStripe();
+
+        synchronized (stripe)
+        {
+            stripe.addFirst(pooled);
+        }
+
+        if (_waiting > 0)
+        {
+            synchronized (_lock)
+            {
+                _lock.notifyAll();
+            }
+        }
+
+        if (_idleTimeout > 0)
+            evictIdleServices(now);
+    }
+
+    /**
+     * Evicts instances that have been idle longer than the idle timeout, while the pool
+     * is larger than its minimum size. Performed at most once per idle timeout period.
+     */
+    private void evictIdleServices(long now)
+    {
+        if (now < _nextEviction)
+            return;
+
+        synchronized (_lock)
+        {
+            if (now < _nextEviction)
+                return;
+
+            _nextEviction = now + _idleTimeout;
+        }
+
+        long cutoff = now - _idleTimeout;
+        List expired = new ArrayList();
+
+        for (int i = 0; i < STRIPE_COUNT; i++)
+        {
+            LinkedList stripe = _stripes[i];
+
+            synchronized (stripe)
+            {
+                // The least recently released instances are at the end.
+
+                while (!stripe.isEmpty()
+                        && ((PooledService) stripe.getLast())._releaseTime <= cutoff)
+                    expired.add(stripe.removeLast());
+            }
+        }
+
+        if (expired.isEmpty())
+            return;
+
+        int evictCount;
+
+        synchronized (_lock)
+        {
+            evictCount = Math.min(expired.size(), Math.max(0, _size - _minimum));
+
+            _size -= evictCount;
+            _evictedCount += evictCount;
+
+            if (evictCount > 0)
+                _lock.notifyAll();
+        }
+
+        Iterator i = expired.iterator();
+
+        while (i.hasNext())
+        {
+            PooledService pooled = (PooledService) i.next();
+
+            if (evictCount > 0)
+            {
+                pooled.discard();
+                evictCount--;
+
+                continue;
+            }
+
+            // Retained, to keep the pool at its minimum size.
+
+            LinkedList stripe = getStripe();
+
+            synchronized (stripe)
+            {
+                stripe.addLast(pooled);
+            }
+        }
     }
 
     private synchronized PooledService constructPooledService()
@@ -222,12 +569,47 @@ public class PooledServiceModel extends AbstractServiceModelImpl
     }
 
     /**
-     * Invokes {@link #getServiceImplementationForCurrentThread()} to instantiate an instance
-     * of the service.
+     * Prefills the pool with idle instances, up to its minimum size (and at least one).
      */
     public void instantiateService()
     {
-        getServiceImplementationForCurrentThread();
+        int target = Math.max(1, _minimum);
+
+        while (true)
+        {
+            synchronized (_lock)
+            {
+                if (_size >= target || (_maximum > 0 && _size >= _maximum))
+                    return;
+
+                reserve();
+            }
+
+            returnServiceToPool(constructReservedService());
+        }
     }
 
+    /**
+     * Returns a snapshot of the state of the pool.
+     */
+    public PoolMetrics getMetrics()
+    {
+        int idleCount = 0;
+
+        for (int i = 0; i < STRIPE_COUNT; i++)
+        {
+            LinkedList stripe = _stripes[i];
+
+            synchronized (stripe)
+            {
+                idleCount += stripe.size();
+            }
+        }
+
+        synchronized (_lock)
+        {
+            return new PoolMetrics(_size, idleCount, _peakSize, _createdCount, _evictedCount,
+                    _waitCount, _exhaustedCount);
+        }
+    }
 }
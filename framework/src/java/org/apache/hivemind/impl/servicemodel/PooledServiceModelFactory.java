@@ -14,16 +14,52 @@
 
 package org.apache.hivemind.impl.servicemodel;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.apache.hivemind.impl.ConstructableServicePoint;
 import org.apache.hivemind.internal.ServiceModel;
 import org.apache.hivemind.internal.ServiceModelFactory;
 
+/**
+ * Creates instances of {@link PooledServiceModel}, and provides access
+ * to the {@link PoolMetrics} of each pool.
+ *
+ * @author Howard Lewis Ship
+ */
 public class PooledServiceModelFactory implements ServiceModelFactory
 {
+    /**
+     * Keyed on service id, value is {@link PooledServiceModel}.
+     */
+    private final Map _models = new HashMap();
 
     public ServiceModel createServiceModelForService(ConstructableServicePoint servicePoint)
     {
-        return new PooledServiceModel(servicePoint);
+        PooledServiceModel result = new PooledServiceModel(servicePoint);
+
+        synchronized (_models)
+        {
+            _models.put(servicePoint.getExtensionPointId(), result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a snapshot of the state of the pool for the identified service, or null if the
+     * service does not use the pooled service model (or has not yet been referenced).
+     */
+    public PoolMetrics getPoolMetrics(String serviceId)
+    {
+        PooledServiceModel model;
+
+        synchronized (_models)
+        {
+            model = (PooledServiceModel) _models.get(serviceId);
+        }
+
+        return model == null ? null : model.getMetrics();
     }
 
 }
@@ -0,0 +1,314 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl.servicemodel;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.Discardable;
+import org.apache.hivemind.HiveMind;
+import org.apache.hivemind.PoolManageable;
+import org.apache.hivemind.impl.ConstructableServicePoint;
+import org.apache.hivemind.impl.ProxyUtils;
+import org.apache.hivemind.internal.Module;
+import org.apache.hivemind.service.Scope;
+import org.apache.hivemind.service.ScopeListener;
+import org.apache.hivemind.service.ScopeManager;
+
+/**
+ * Like the {@link org.apache.hivemind.impl.servicemodel.PooledServiceModel pooled service model},
+ * except that service implementations are bound to the current
+ * {@link org.apache.hivemind.service.Scope} (obtained from the
+ * <code>hivemind.ScopeManager</code> service) rather than to the current thread.
+ * All threads attached to a scope share the implementations bound to it, and no thread
+ * cleanup listener is registered per thread. When the scope is closed, its implementations are
+ * passivated and kept for reuse by later scopes (up to the number configured in the
+ * <code>hivemind.ServiceScopes</code> configuration point, by default
+ * {@link #DEFAULT_MAXIMUM_IDLE}; further implementations are discarded).
+ * 
+ * <p>
+ * Once the first implementation has been constructed, further implementations are
+ * constructed without locking.
+ *
+ * @author Howard Lewis Ship
+ */
+public final class ScopedServiceModel extends AbstractServiceModelImpl
+{
+    /**
+     * The id of the configuration point used to set the number of idle implementations of
+     * a service kept for reuse.
+     */
+    public static final String SERVICE_SCOPES_CONFIGURATION_ID = "hivemind.ServiceScopes";
+
+    /**
+     * The maximum number of idle implementations kept for reuse when a service is not
+     * configured.
+     */
+    public static final int DEFAULT_MAXIMUM_IDLE = 10;
+
+    private Object _serviceProxy;
+    private final int _maximumIdle;
+    private volatile ScopeManager _scopeManager;
+
+    /**
+     * Set once the first implementation has been constructed; the service's
+     * constructor prepares itself (by resolving its factory and parameters) on first use,
+     * which must not occur concurrently.
+     */
+    private volatile boolean _constructorPrepared;
+
+    /**
+     * Idle {@link ScopedInstance}s, released by closed scopes.
+     */
+    private final LinkedList _idle = new LinkedList();
+
+    /**
+     * Shared, null implementation of PoolManageable.
+     */
+    private static final PoolManageable NULL_MANAGEABLE = new PoolManageable()
+    {
+        public void activateService()
+        {
+        }
+
+        public void passivateService()
+        {
+        }
+    };
+
+    /**
+     * A core implementation, stored in the scope to which it is bound.
+     */
+    private class ScopedInstance implements ScopeListener
+    {
+        private final Object _core;
+        private final PoolManageable _managed;
+
+        ScopedInstance(Object core)
+        {
+            _core = core;
+
+            if (core instanceof PoolManageable)
+                _managed = (PoolManageable) core;
+            else
+                _managed = NULL_MANAGEABLE;
+        }
+
+        public void scopeDidClose()
+        {
+            release(this);
+        }
+    }
+
+    public ScopedServiceModel(ConstructableServicePoint servicePoint)
+    {
+        super(servicePoint);
+
+        _maximumIdle = findMaximumIdle();
+    }
+
+    private int findMaximumIdle()
+    {
+        ConstructableServicePoint servicePoint = getServicePoint();
+        String serviceId = servicePoint.getExtensionPointId();
+
+        List contributions =
+            servicePoint.getModule().getConfiguration(SERVICE_SCOPES_CONFIGURATION_ID);
+        int count = contributions.size();
+
+        for (int i = 0; i < count; i++)
+        {
+            ServiceScopesContribution c = (ServiceScopesContribution) contributions.get(i);
+
+            if (!serviceId.equals(c.getServiceId()))
+                continue;
+
+            if (c.getMaximumIdle() >= 0)
+                return c.getMaximumIdle();
+
+            servicePoint.getModule().getErrorHandler().error(
+                _log,
+                ServiceModelMessages.invalidMaximumIdle(servicePoint, c.getMaximumIdle()),
+                c.getLocation(),
+                null);
+        }
+
+        return DEFAULT_MAXIMUM_IDLE;
+    }
+
+    /**
+     * Always returns the service proxy.
+     */
+    public synchronized Object getService()
+    {
+        if (_scopeManager == null)
+        {
+            Module module = getServicePoint().getModule();
+
+            _scopeManager =
+                (ScopeManager) module.getService(
+                    HiveMind.SCOPE_MANAGER_SERVICE,
+                    ScopeManager.class);
+        }
+
+        if (_serviceProxy == null)
+            _serviceProxy = createServiceProxy();
+
+        return _serviceProxy;
+    }
+
+    /**
+     * Creates a proxy instance for the service, and returns it, wrapped in any
+     * interceptors for the service.
+     */
+    private Object createServiceProxy()
+    {
+        if (_log.isDebugEnabled())
+            _log.debug(
+                "Creating ScopedProxy for service " + getServicePoint().getExtensionPointId());
+
+        Object proxy =
+            ProxyUtils.createDelegatingProxy(
+                "ScopedProxy",
+                this,
+                "getServiceImplementationForCurrentScope",
+                getServicePoint(),
+                getServicePoint().getShutdownCoordinator());
+
+        return addInterceptors(proxy);
+    }
+
+    /**
+     * Invoked by the proxy to return the service implementation bound to the
+     * scope attached to the current thread, binding an implementation as necessary.
+     */
+    public Object getServiceImplementationForCurrentScope()
+    {
+        Scope scope = _scopeManager.getCurrentScope();
+
+        if (scope == null)
+            throw new ApplicationRuntimeException(ServiceModelMessages.noCurrentScope(getServicePoint()));
+
+        ScopedInstance instance = (ScopedInstance) scope.get(this);
+
+        if (instance == null)
+            instance = bindInstance(scope);
+
+        return instance._core;
+    }
+
+    private ScopedInstance bindInstance(Scope scope)
+    {
+        ScopedInstance instance = obtainInstance();
+
+        instance._managed.activateService();
+
+        ScopedInstance bound;
+
+        try
+        {
+            bound = (ScopedInstance) scope.putIfAbsent(this, instance);
+        }
+        catch (RuntimeException ex)
+        {
+            release(instance);
+
+            throw ex;
+        }
+
+        // Another thread attached to the same scope may have bound an instance first.
+
+        if (bound != instance)
+            release(instance);
+
+        return bound;
+    }
+
+    private ScopedInstance obtainInstance()
+    {
+        synchronized (_idle)
+        {
+            if (!_idle.isEmpty())
+                return (ScopedInstance) _idle.removeFirst();
+        }
+
+        return newInstance();
+    }
+
+    private ScopedInstance newInstance()
+    {
+        if (_constructorPrepared)
+            return constructInstance();
+
+        return constructFirstInstance();
+    }
+
+    private synchronized ScopedInstance constructFirstInstance()
+    {
+        ScopedInstance result = constructInstance();
+
+        _constructorPrepared = true;
+
+        return result;
+    }
+
+    private ScopedInstance constructInstance()
+    {
+        try
+        {
+            Object core = constructCoreServiceImplementation();
+
+            return new ScopedInstance(core);
+        }
+        catch (Exception ex)
+        {
+            throw new ApplicationRuntimeException(
+                ServiceModelMessages.unableToConstructService(getServicePoint(), ex),
+                ex);
+        }
+    }
+
+    private void release(ScopedInstance instance)
+    {
+        instance._managed.passivateService();
+
+        keepIdle(instance);
+    }
+
+    private void keepIdle(ScopedInstance instance)
+    {
+        synchronized (_idle)
+        {
+            if (_idle.size() < _maximumIdle)
+            {
+                _idle.addFirst(instance);
+                return;
+            }
+        }
+
+        if (instance._core instanceof Discardable)
+            ((Discardable) instance._core).threadDidDiscardService();
+    }
+
+    /**
+     * Constructs an implementation of the service, and keeps it for use by the
+     * first scope to reference the service.
+     */
+    public void instantiateService()
+    {
+        keepIdle(newInstance());
+    }
+}
@@ -0,0 +1,52 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl.servicemodel;
+
+import org.apache.hivemind.impl.BaseLocatable;
+
+/**
+ * Configures the idle timeout of a service that uses the expiring service model; contributed
+ * to the <code>hivemind.ServiceExpiration</code> configuration point.
+ *
+ * @author Howard Lewis Ship
+ */
+public class ServiceExpirationContribution extends BaseLocatable
+{
+    private String _serviceId;
+    private long _idleTimeout;
+
+    public String getServiceId()
+    {
+        return _serviceId;
+    }
+
+    public void setServiceId(String serviceId)
+    {
+        _serviceId = serviceId;
+    }
+
+    /**
+     * The time, in milliseconds, after which an unused service implementation expires.
+     */
+    public long getIdleTimeout()
+    {
+        return _idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout)
+    {
+        _idleTimeout = idleTimeout;
+    }
+}
@@ -53,4 +53,55 @@ final class ServiceModelMessages
     {
         return _formatter.format("unable-to-construct-service", point.getExtensionPointId(), cause);
     }
+
+    public static String servicePoolExhausted(ServicePoint point, int maximum)
+    {
+        return _formatter.format(
+            "service-pool-exhausted",
+            point.getExtensionPointId(),
+            new Integer(maximum));
+    }
+
+    public static String poolMinimumExceedsMaximum(
+        ServicePoint point,
+        ServicePoolContribution pool)
+    {
+        return _formatter.format(
+            "pool-minimum-exceeds-maximum",
+            point.getExtensionPointId(),
+            new Integer(pool.getMinimum()),
+            new Integer(pool.getMaximum()));
+    }
+
+    public static String noCurrentScope(ServicePoint point)
+    {
+        return _formatter.format("no-current-scope", point.getExtensionPointId());
+    }
+
+    public static String invalidStripeCount(ServicePoint point, int count)
+    {
+        return _formatter.format(
+            "invalid-stripe-count",
+            point.getExtensionPointId(),
+            new Integer(count),
+            new Integer(StripedServiceModel.DEFAULT_STRIPE_COUNT));
+    }
+
+    public static String invalidMaximumIdle(ServicePoint point, int maximumIdle)
+    {
+        return _formatter.format(
+            "invalid-maximum-idle",
+            point.getExtensionPointId(),
+            new Integer(maximumIdle),
+            new Integer(ScopedServiceModel.DEFAULT_MAXIMUM_IDLE));
+    }
+
+    public static String invalidIdleTimeout(ServicePoint point, long idleTimeout)
+    {
+        return _formatter.format(
+            "invalid-idle-timeout",
+            point.getExtensionPointId(),
+            new Long(idleTimeout),
+            new Long(ExpiringServiceModel.DEFAULT_IDLE_TIMEOUT));
+    }
 }
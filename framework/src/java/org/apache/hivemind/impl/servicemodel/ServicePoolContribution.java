@@ -0,0 +1,115 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.hivemind.impl.servicemodel;
+
+import org.apache.hivemind.impl.BaseLocatable;
+
+/**
+ * Configures the pool of a service that uses the pooled service model; contributed to the
+ * <code>hivemind.ServicePools</code> configuration point.
+ *
+ * @author Howard Lewis Ship
+ */
+public class ServicePoolContribution extends BaseLocatable
+{
+    private String _serviceId;
+    private int _minimum;
+    private int _maximum;
+    private boolean _failFast;
+    private long _maxWait;
+    private long _idleTimeout;
+
+    public String getServiceId()
+    {
+        return _serviceId;
+    }
+
+    public void setServiceId(String serviceId)
+    {
+        _serviceId = serviceId;
+    }
+
+    /**
+     * The number of instances created when the service is eagerly loaded, and the number
+     * of idle instances that are never evicted. Defaults to zero.
+     */
+    public int getMinimum()
+    {
+        return _minimum;
+    }
+
+    public void setMinimum(int minimum)
+    {
+        _minimum = minimum;
+    }
+
+    /**
+     * The maximum number of instances (idle, or in use by some thread), or zero (the
+     * default) for no limit.
+     */
+    public int getMaximum()
+    {
+        return _maximum;
+    }
+
+    public void setMaximum(int maximum)
+    {
+        _maximum = maximum;
+    }
+
+    /**
+     * If true, then a thread that requires an instance when the pool is exhausted
+     * fails immediately. If false (the default), the thread waits for another thread
+     * to release an instance.
+     */
+    public boolean isFailFast()
+    {
+        return _failFast;
+    }
+
+    public void setFailFast(boolean failFast)
+    {
+        _failFast = failFast;
+    }
+
+    /**
+     * The maximum time, in milliseconds, to wait for an instance when the pool is exhausted,
+     * or zero (the default) to wait indefinitely.
+     */
+    public long getMaxWait()
+    {
+        return _maxWait;
+    }
+
+    public void setMaxWait(long maxWait)
+    {
+        _maxWait = maxWait;
+    }
+
+    /**
+     * The time, in milliseconds, after which an idle instance may be evicted from the pool,
+     * or zero (the default) to never evict instances.
+     */
+    public long getIdleTimeout()
+    {
+        return _idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout)
+    {
+        _idleTimeout = idleTimeout;
+    }
+}
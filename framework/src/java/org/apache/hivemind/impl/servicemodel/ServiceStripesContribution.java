@@ -0,0 +1,52 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl.servicemodel;
+
+import org.apache.hivemind.impl.BaseLocatable;
+
+/**
+ * Configures the number of instances of a service that uses the striped service model;
+ * contributed to the <code>hivemind.ServiceStripes</code> configuration point.
+ *
+ * @author Howard Lewis Ship
+ */
+public class ServiceStripesContribution extends BaseLocatable
+{
+    private String _serviceId;
+    private int _count;
+
+    public String getServiceId()
+    {
+        return _serviceId;
+    }
+
+    public void setServiceId(String serviceId)
+    {
+        _serviceId = serviceId;
+    }
+
+    /**
+     * The number of instances of the service.
+     */
+    public int getCount()
+    {
+        return _count;
+    }
+
+    public void setCount(int count)
+    {
+        _count = count;
+    }
+}
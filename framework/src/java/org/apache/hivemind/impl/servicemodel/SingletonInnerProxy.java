@@ -18,7 +18,8 @@ package org.apache.hivemind.impl.servicemodel;
  * Interface implemented by the inner proxies used with the 
  * {@link org.apache.hivemind.impl.servicemodel.SingletonServiceModel}. This allows
  * the service model to force the inner proxy to resolve the service implementation and
- * install it into the outer proxy.
+ * install it into the outer proxy. Inner proxies also implement
+ * {@link org.apache.hivemind.events.RegistryShutdownListener}.
  *
  * @author Howard Lewis Ship
  */
@@ -18,6 +18,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
 
 import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.HiveMind;
 import org.apache.hivemind.events.RegistryShutdownListener;
 import org.apache.hivemind.impl.ConstructableServicePoint;
 import org.apache.hivemind.impl.ProxyBuilder;
@@ -47,6 +48,11 @@ public final class SingletonServiceModel extends AbstractServiceModelImpl
     private SingletonInnerProxy _innerProxy;
     private Object _constructedService;
 
+    /**
+     * True if the constructed service is wrapped with interceptors.
+     */
+    private boolean _intercepted;
+
     public SingletonServiceModel(ConstructableServicePoint servicePoint)
     {
         super(servicePoint);
@@ -66,11 +72,24 @@ public final class SingletonServiceModel extends AbstractServiceModelImpl
     public synchronized Object getActualServiceImplementation()
     {
         if (_constructedService == null)
+        {
+            _intercepted = !HiveMind.isEmpty(getServicePoint().getOrderedInterceptorContributions());
+
             _constructedService = constructServiceImplementation();
+        }
 
         return _constructedService;
     }
 
+    /**
+     * Returns the constructed core service implementation, if constructed and
+     * not wrapped with interceptors.
+     */
+    public synchronized Object getDirectServiceImplementation()
+    {
+        return _intercepted ? null : _constructedService;
+    }
+
     /**
      * Creates a proxy class for the service and then constructs the class itself.
      */
@@ -91,7 +110,7 @@ public final class SingletonServiceModel extends AbstractServiceModelImpl
             // Create the inner proxy, whose job is to replace itself
             // when the first service method is invoked.
 
-            Class innerProxyClass = createInnerProxyClass(proxyClass);
+            Constructor c = createInnerProxyConstructor(proxyClass);
 
             // Create the outer proxy.
 
@@ -100,12 +119,13 @@ public final class SingletonServiceModel extends AbstractServiceModelImpl
             // The inner proxy's construct invokes a method on the
             // outer proxy to connect the two.
 
-            Constructor c = innerProxyClass.getConstructor(new Class[] { proxyClass, getClass()});
-
             _innerProxy = (SingletonInnerProxy) c.newInstance(new Object[] { result, this });
 
+            // At shutdown, the inner proxy reinstalls itself into the outer proxy, so
+            // that further invocations fail.
+
             getServicePoint().getShutdownCoordinator().addRegistryShutdownListener(
-                (RegistryShutdownListener) result);
+                (RegistryShutdownListener) _innerProxy);
 
             return result;
         }
@@ -117,9 +137,11 @@ public final class SingletonServiceModel extends AbstractServiceModelImpl
     }
 
     /**
-     * Creates a class that implements the service interface. Implements
-     * a private synchronized method, _service(), that constructs the service
-     * as needed, and has each service interface method re-invoke on _service().
+     * Creates a class that implements the service interface. Each service interface
+     * method re-invokes on a volatile field, <code>_inner</code>, which is initially the
+     * inner proxy, and (once the service is constructed) is replaced with the service
+     * implementation; the only overhead of the proxy is then a single field read (volatile,
+     * which provides safe publication of the service implementation without locking).
      * Adds a toString() method if the service interface does not define toString().
      */
     private Class createSingletonProxyClass()
@@ -128,61 +150,82 @@ public final class SingletonServiceModel extends AbstractServiceModelImpl
 
         ProxyBuilder proxyBuilder = new ProxyBuilder("SingletonProxy", servicePoint);
 
+        Class pregenerated = proxyBuilder.getPregeneratedClass();
+
+        if (pregenerated != null)
+            return pregenerated;
+
         ClassFab classFab = proxyBuilder.getClassFab();
 
         Class serviceInterface = servicePoint.getServiceInterface();
 
         // This will initally be the inner proxy, then switch over to the
-        // service implementation.
+        // service implementation (and, at shutdown, back to the inner proxy).
 
-        classFab.addField("_inner", serviceInterface);
-        classFab.addField("_shutdown", boolean.class);
-
-        classFab.addInterface(RegistryShutdownListener.class);
+        classFab.addField("_inner", Modifier.PRIVATE | Modifier.VOLATILE, serviceInterface);
 
         classFab.addMethod(
             Modifier.PUBLIC | Modifier.FINAL,
-            new MethodSignature(void.class, "registryDidShutdown", null, null),
-            "{ _shutdown = true; }");
-
-        classFab.addMethod(
-            Modifier.PUBLIC | Modifier.SYNCHRONIZED | Modifier.FINAL,
             new MethodSignature(void.class, "_setInner", new Class[] { serviceInterface }, null),
             "{ _inner = $1; }");
 
-        BodyBuilder builder = new BodyBuilder();
-        builder.begin();
-        builder.addln("if (_shutdown)");
-        builder.begin();
-        builder.addln("_inner = null;");
-        builder.addln("throw org.apache.hivemind.HiveMind#createRegistryShutdownException();");
-        builder.end();
+        proxyBuilder.addServiceMethods("_inner");
 
-        builder.addln("return _inner;");
-        builder.end();
+        return classFab.createClass();
+    }
 
-        classFab.addMethod(
-            Modifier.PRIVATE,
-            new MethodSignature(serviceInterface, "_getInner", null, null),
-            builder.toString());
+    /**
+     * Returns the constructor for the inner proxy class, which takes the outer proxy
+     * and this service model as parameters.
+     */
+    private Constructor createInnerProxyConstructor(Class deferredProxyClass)
+        throws NoSuchMethodException
+    {
+        Class[] parameterTypes = new Class[] { deferredProxyClass, getClass()};
 
-        proxyBuilder.addServiceMethods("_getInner()");
+        ProxyBuilder builder =
+            new ProxyBuilder("InnerProxy", getServicePoint(), deferredProxyClass.getName());
 
-        return classFab.createClass();
+        Class pregenerated = builder.getPregeneratedClass();
+
+        // A pregenerated inner proxy can only be used with the pregenerated outer proxy
+        // (rather than an outer proxy of the same name, created at runtime).
+
+        if (pregenerated != null)
+        {
+            try
+            {
+                return pregenerated.getConstructor(parameterTypes);
+            }
+            catch (NoSuchMethodException ex)
+            {
+                // Fall through and create the class.
+            }
+        }
+
+        return createInnerProxyClass(builder, deferredProxyClass).getConstructor(parameterTypes);
     }
 
-    private Class createInnerProxyClass(Class deferredProxyClass)
+    /**
+     * Creates the inner proxy class. Its service methods construct the service
+     * implementation (via {@link #getActualServiceImplementation()}, which ensures the
+     * service is only constructed once), and install it into the outer proxy. It also
+     * implements {@link RegistryShutdownListener}: at shutdown, it reinstalls itself into
+     * the outer proxy, and its service methods then throw an exception.
+     */
+    private Class createInnerProxyClass(ProxyBuilder builder, Class deferredProxyClass)
     {
         ServicePoint servicePoint = getServicePoint();
 
         Class serviceInterface = servicePoint.getServiceInterface();
-        ProxyBuilder builder = new ProxyBuilder("InnerProxy", servicePoint);
+        String serviceInterfaceName = serviceInterface.getName();
 
         ClassFab classFab = builder.getClassFab();
 
         classFab.addField("_deferredProxy", deferredProxyClass);
-        classFab.addField("_service", serviceInterface);
+        classFab.addField("_service", Modifier.PRIVATE | Modifier.VOLATILE, serviceInterface);
         classFab.addField("_serviceModel", getClass());
+        classFab.addField("_shutdown", Modifier.PRIVATE | Modifier.VOLATILE, boolean.class);
 
         BodyBuilder body = new BodyBuilder();
 
@@ -205,28 +248,40 @@ public final class SingletonServiceModel extends AbstractServiceModelImpl
 
         // Method _service() will look up the service implementation,
         // then update the deferred proxy to go directly to the
-        // service implementation, bypassing itself!
+        // service implementation, bypassing itself! Several threads may
+        // do so concurrently, but the service model only constructs the
+        // service once.
 
         body.clear();
         body.begin();
 
-        body.add("if (_service == null)");
-        body.begin();
+        body.addln("if (_shutdown)");
+        body.addln("  throw org.apache.hivemind.HiveMind#createRegistryShutdownException();");
 
-        body.add("_service = (");
-        body.add(serviceInterface.getName());
+        body.add(serviceInterfaceName);
+        body.addln(" result = _service;");
+
+        body.addln("if (result != null)");
+        body.addln("  return result;");
+
+        body.add("result = (");
+        body.add(serviceInterfaceName);
         body.addln(") _serviceModel.getActualServiceImplementation();");
 
-        body.add("_deferredProxy._setInner(_service);");
+        body.addln("_service = result;");
+        body.addln("_deferredProxy._setInner(result);");
 
-        body.end();
+        // Don't undo a concurrent shutdown.
 
-        body.add("return _service;");
+        body.addln("if (_shutdown)");
+        body.addln("  _deferredProxy._setInner(this);");
+
+        body.addln("return result;");
 
         body.end();
 
         classFab.addMethod(
-            Modifier.PRIVATE | Modifier.FINAL | Modifier.SYNCHRONIZED,
+            Modifier.PRIVATE | Modifier.FINAL,
             new MethodSignature(serviceInterface, "_service", null, null),
             body.toString());
 
@@ -248,6 +303,15 @@ public final class SingletonServiceModel extends AbstractServiceModelImpl
 
         classFab.addInterface(SingletonInnerProxy.class);
 
+        // And RegistryShutdownListener
+
+        classFab.addMethod(
+            Modifier.PUBLIC | Modifier.FINAL,
+            new MethodSignature(void.class, "registryDidShutdown", null, null),
+            "{ _shutdown = true; _deferredProxy._setInner(this); }");
+
+        classFab.addInterface(RegistryShutdownListener.class);
+
         return classFab.createClass();
     }
 
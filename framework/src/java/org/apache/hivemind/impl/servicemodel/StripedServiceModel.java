@@ -0,0 +1,266 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl.servicemodel;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.impl.ConstructableServicePoint;
+import org.apache.hivemind.impl.ProxyBuilder;
+import org.apache.hivemind.impl.ProxyUtils;
+import org.apache.hivemind.service.ClassFab;
+
+/**
+ * A service model for services that are not thread safe, but are cheap to keep around
+ * (formatters, parsers and the like). A fixed number of instances (by default, the number of
+ * processors) is kept; each invocation of a service method uses the instance selected by
+ * the identity hash code of the current thread, while holding that instance's lock.
+ * Unlike the threaded and pooled service models, nothing is bound to the current thread,
+ * so there's nothing to clean up when the thread is cleaned up.
+ * 
+ * <p>
+ * Each instance is wrapped in a fabricated "StripeProxy" whose service methods are
+ * synchronized. Instances are constructed as they are first used.
+ *
+ * @author Howard Lewis Ship
+ */
+public final class StripedServiceModel extends AbstractServiceModelImpl
+{
+    /**
+     * The id of the configuration point used to set the number of instances of a service.
+     */
+    public static final String SERVICE_STRIPES_CONFIGURATION_ID = "hivemind.ServiceStripes";
+
+    /**
+     * The number of instances used when a service is not configured: the number of processors,
+     * where that can be determined (JDK 1.4 and above), or four.
+     */
+    public static final int DEFAULT_STRIPE_COUNT = findProcessorCount();
+
+    private Object _serviceProxy;
+    private final int _stripeCount;
+
+    /**
+     * The synchronized wrappers around each instance; null elements are constructed as
+     * needed. The array is copied (not changed) as elements are constructed.
+     */
+    private volatile Object[] _stripes;
+
+    private Constructor _stripeConstructor;
+
+    public StripedServiceModel(ConstructableServicePoint servicePoint)
+    {
+        super(servicePoint);
+
+        _stripeCount = findStripeCount();
+        _stripes = new Object[_stripeCount];
+    }
+
+    private static int findProcessorCount()
+    {
+        try
+        {
+            Method m = Runtime.class.getMethod("availableProcessors", null);
+
+            Integer count = (Integer) m.invoke(Runtime.getRuntime(), null);
+
+            return Math.max(1, count.intValue());
+        }
+        catch (Exception ex)
+        {
+            return 4;
+        }
+    }
+
+    private int findStripeCount()
+    {
+        ConstructableServicePoint servicePoint = getServicePoint();
+        String serviceId = servicePoint.getExtensionPointId();
+
+        List contributions =
+            servicePoint.getModule().getConfiguration(SERVICE_STRIPES_CONFIGURATION_ID);
+        int count = contributions.size();
+
+        for (int i = 0; i < count; i++)
+        {
+            ServiceStripesContribution c = (ServiceStripesContribution) contributions.get(i);
+
+            if (!serviceId.equals(c.getServiceId()))
+                continue;
+
+            if (c.getCount() > 0)
+                return c.getCount();
+
+            servicePoint.getModule().getErrorHandler().error(
+                _log,
+                ServiceModelMessages.invalidStripeCount(servicePoint, c.getCount()),
+                c.getLocation(),
+                null);
+        }
+
+        return DEFAULT_STRIPE_COUNT;
+    }
+
+    /**
+     * Always returns the service proxy.
+     */
+    public synchronized Object getService()
+    {
+        if (_serviceProxy == null)
+            _serviceProxy = createServiceProxy();
+
+        return _serviceProxy;
+    }
+
+    /**
+     * Creates a proxy instance for the service, and returns it, wrapped in any
+     * interceptors for the service.
+     */
+    private Object createServiceProxy()
+    {
+        if (_log.isDebugEnabled())
+            _log.debug(
+                "Creating StripedProxy for service " + getServicePoint().getExtensionPointId());
+
+        Object proxy =
+            ProxyUtils.createDelegatingProxy(
+                "StripedProxy",
+                this,
+                "getStripeForCurrentThread",
+                getServicePoint(),
+                getServicePoint().getShutdownCoordinator());
+
+        return addInterceptors(proxy);
+    }
+
+    /**
+     * Invoked by the proxy to return the (synchronized) instance to be used by the
+     * current thread, constructing it as necessary.
+     */
+    public Object getStripeForCurrentThread()
+    {
+        int index =
+            (System.identityHashCode(Thread.currentThread()) & Integer.MAX_VALUE) % _stripeCount;
+
+        Object result = _stripes[index];
+
+        if (result == null)
+            result = constructStripe(index);
+
+        return result;
+    }
+
+    private synchronized Object constructStripe(int index)
+    {
+        Object[] stripes = _stripes;
+
+        if (stripes[index] != null)
+            return stripes[index];
+
+        Object core;
+
+        try
+        {
+            core = constructCoreServiceImplementation();
+        }
+        catch (Exception ex)
+        {
+            throw new ApplicationRuntimeException(
+                ServiceModelMessages.unableToConstructService(getServicePoint(), ex),
+                ex);
+        }
+
+        Object result = createStripeProxy(core);
+
+        Object[] copy = (Object[]) stripes.clone();
+        copy[index] = result;
+
+        _stripes = copy;
+
+        return result;
+    }
+
+    /**
+     * Wraps the core implementation in a proxy whose service methods are synchronized.
+     */
+    private Object createStripeProxy(Object core)
+    {
+        if (_stripeConstructor == null)
+            _stripeConstructor = createStripeProxyClass();
+
+        try
+        {
+            return _stripeConstructor.newInstance(new Object[] { core });
+        }
+        catch (Exception ex)
+        {
+            throw new ApplicationRuntimeException(ex);
+        }
+    }
+
+    private Constructor createStripeProxyClass()
+    {
+        ConstructableServicePoint servicePoint = getServicePoint();
+        Class serviceInterface = servicePoint.getServiceInterface();
+
+        ProxyBuilder builder = new ProxyBuilder("StripeProxy", servicePoint);
+
+        Class stripeClass = builder.getPregeneratedClass();
+
+        if (stripeClass == null)
+        {
+            ClassFab classFab = builder.getClassFab();
+
+            classFab.addField("_inner", serviceInterface);
+            classFab.addConstructor(
+                new Class[] { serviceInterface },
+                null,
+                "{ super(); _inner = $1; }");
+
+            builder.addServiceMethods("_inner", Modifier.PUBLIC | Modifier.SYNCHRONIZED);
+
+            stripeClass = classFab.createClass();
+        }
+
+        try
+        {
+            return stripeClass.getConstructor(new Class[] { serviceInterface });
+        }
+        catch (Exception ex)
+        {
+            throw new ApplicationRuntimeException(ex);
+        }
+    }
+
+    /**
+     * Constructs every instance of the service.
+     */
+    public void instantiateService()
+    {
+        for (int i = 0; i < _stripeCount; i++)
+            constructStripe(i);
+    }
+
+    /**
+     * Returns the number of instances of the service that will be used.
+     */
+    public int getStripeCount()
+    {
+        return _stripeCount;
+    }
+}
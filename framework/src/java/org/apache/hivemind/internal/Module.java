@@ -22,6 +22,7 @@ import org.apache.hivemind.ErrorHandler;
 import org.apache.hivemind.Locatable;
 import org.apache.hivemind.Location;
 import org.apache.hivemind.Messages;
+import org.apache.hivemind.ServiceHandle;
 import org.apache.hivemind.SymbolSource;
 import org.apache.hivemind.schema.Translator;
 
@@ -64,6 +65,24 @@ public interface Module extends Locatable, SymbolSource
      */
     public Object getService(Class serviceInterface);
 
+    /**
+     * Obtains a pre-resolved handle for a service. Handles are cached by the module,
+     * so repeatedly obtaining the same service is inexpensive.
+     * 
+     * @param serviceId an unqualified id for a service within this module, or a fully qualified id for a service in this or any other module
+     * @param serviceInterface type the result will be cast to
+     * @see org.apache.hivemind.Registry#getServiceHandle(String, Class)
+     */
+    public ServiceHandle getServiceHandle(String serviceId, Class serviceInterface);
+
+    /**
+     * Obtains a pre-resolved handle for the single service implementing the service interface.
+     * 
+     * @param serviceInterface the interface the service implements
+     * @see org.apache.hivemind.Registry#getServiceHandle(Class)
+     */
+    public ServiceHandle getServiceHandle(Class serviceInterface);
+
     /**
      * Returns the identified service extension point.
      * 
@@ -19,6 +19,7 @@ import java.util.Locale;
 
 import org.apache.hivemind.ErrorHandler;
 import org.apache.hivemind.Location;
+import org.apache.hivemind.ServiceHandle;
 import org.apache.hivemind.SymbolSource;
 import org.apache.hivemind.schema.Translator;
 
@@ -52,6 +53,23 @@ public interface RegistryInfrastructure extends SymbolSource
      */
     public Object getService(Class serviceInterface);
 
+    /**
+     * Obtains a pre-resolved handle for a service.
+     * 
+     * @param serviceId the fully qualified id of the service to obtain
+     * @param serviceInterface the class to which the service will be cast
+     * @see org.apache.hivemind.Registry#getServiceHandle(String, Class)
+     */
+    public ServiceHandle getServiceHandle(String serviceId, Class serviceInterface);
+
+    /**
+     * Obtains a pre-resolved handle for the single service implementing the provided interface.
+     * 
+     * @param serviceInterface used to locate the service
+     * @see org.apache.hivemind.Registry#getServiceHandle(Class)
+     */
+    public ServiceHandle getServiceHandle(Class serviceInterface);
+
     /**
      * Returns the converted items contributed to the configuration point.
      * 
@@ -81,6 +99,14 @@ public interface RegistryInfrastructure extends SymbolSource
 
     public ServicePoint getServicePoint(String serviceId);
 
+    /**
+     * Returns the fully qualified ids of all service points, in ascending order.
+     * 
+     * @return List of String
+     */
+
+    public List getServiceIds();
+
     /**
      * Expands any substitution symbols in the input string, replacing
      * each symbol with the symbols value (if known).  If a symbol
@@ -15,6 +15,7 @@
 package org.apache.hivemind.internal;
 
 import org.apache.hivemind.InterceptorStack;
+import org.apache.hivemind.InterceptorWeaver;
 import org.apache.hivemind.Locatable;
 
 /**
@@ -36,6 +37,19 @@ public interface ServiceInterceptorContribution extends Locatable
      */
     public void createInterceptor(InterceptorStack stack);
 
+    /**
+     * Returns true if the interceptor factory is an
+     * {@link org.apache.hivemind.InterceptorFragmentFactory}, whose interceptor
+     * may be fused with its neighbours.
+     */
+    public boolean isFusible();
+
+    /**
+     * Invoked to contribute the interceptor's fragment to a fused interceptor;
+     * only invoked if {@link #isFusible()} returns true.
+     */
+    public void contributeFragment(InterceptorWeaver weaver);
+
     /**
      * Returns a list interceptors service ids as a comma seperated list.
      * The behavior provided by these interceptors should
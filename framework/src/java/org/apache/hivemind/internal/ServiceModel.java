@@ -44,4 +44,12 @@ public interface ServiceModel
      * when a service needs to be "eagerly loaded" rather than "lazy loaded".
      */
     public void instantiateService();
+
+    /**
+     * Returns the service implementation, if it may be used in place of the value returned by
+     * {@link #getService()}, or null if it may not (or has not yet been constructed). Only
+     * the singleton service model, for a service without interceptors, returns non-null.
+     * Invoked after {@link #instantiateService()} for services that use direct binding.
+     */
+    public Object getDirectServiceImplementation();
 }
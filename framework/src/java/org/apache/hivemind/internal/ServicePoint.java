@@ -16,6 +16,7 @@ package org.apache.hivemind.internal;
 
 import org.apache.commons.logging.Log;
 import org.apache.hivemind.Occurances;
+import org.apache.hivemind.ServiceHandle;
 import org.apache.hivemind.schema.Schema;
 
 /**
@@ -56,6 +57,18 @@ public interface ServicePoint extends ExtensionPoint
      */
     public Object getService(Class interfaceClass);
 
+    /**
+     * Returns a handle for the service, checked against the provided interface.
+     * Handles are cached, so subsequent requests for the same interface
+     * require neither synchronization nor a type check.
+     * 
+     * @param interfaceClass the class that the service will be cast to
+     * @throws org.apache.hivemind.ApplicationRuntimeException if there
+     * is any problem creating the service, or the service is not assignable to the
+     * interface
+     */
+    public ServiceHandle getServiceHandle(Class interfaceClass);
+
     /**
      * Returns the {@link Schema} used to process any parameters
      * passed to the service.  Service implementation factories
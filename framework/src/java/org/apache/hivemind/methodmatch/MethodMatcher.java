@@ -14,9 +14,13 @@
 
 package org.apache.hivemind.methodmatch;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.hivemind.ApplicationRuntimeException;
 import org.apache.hivemind.HiveMind;
@@ -55,10 +59,21 @@ import org.apache.hivemind.service.MethodSignature;
  * <li><code>perform(java.util.List, int)</code> - method taking a List and an int parameter
  * </ul> 
  *
+ * <p>
+ * The stored patterns are compiled into an index on the name pattern (a map of exact names, and
+ * tries of prefixes, suffixes and substrings), so that only the patterns whose name pattern
+ * matches are checked fully. The result for each method signature is also cached,
+ * and may be read without locking.
+ *
  * @author Howard Lewis Ship
  */
 public class MethodMatcher
 {
+    /**
+     * Stands in for a null value in the cache of results.
+     */
+    private static final Object NO_MATCH = new Object();
+
     private class StoredPattern
     {
         String _methodPattern;
@@ -71,14 +86,18 @@ public class MethodMatcher
             _patternValue = value;
         }
 
-        boolean match(MethodSignature sig)
+        /**
+         * Parses the pattern; invoked (while holding the matcher's lock) as the patterns
+         * are compiled.
+         */
+        void parse()
         {
             if (_filter == null)
             {
 
                 try
                 {
-                    _filter = parseMethodPattern(_methodPattern);
+                    _filter = _parser.parseMethodPattern(_methodPattern);
                 }
                 catch (RuntimeException ex)
                 {
@@ -92,22 +111,60 @@ public class MethodMatcher
                         ex);
                 }
             }
+        }
 
+        boolean match(MethodSignature sig)
+        {
             return _filter.matchMethod(sig);
         }
     }
 
+    /**
+     * The stored patterns, indexed on their name patterns. Immutable once compiled.
+     */
+    private static class CompiledPatterns
+    {
+        final StoredPattern[] _patterns;
+
+        /**
+         * Map of List of Integer, keyed on method name.
+         */
+        final Map _exactNames = new HashMap();
+
+        final NameTrie _prefixes = new NameTrie();
+
+        /**
+         * Suffixes are stored (and matched) reversed.
+         */
+        final NameTrie _suffixes = new NameTrie();
+
+        final NameTrie _infixes = new NameTrie();
+
+        /**
+         * Indexes of patterns that must always be checked: those that match any name.
+         */
+        final List _unindexed = new ArrayList();
+
+        CompiledPatterns(List methodInfos)
+        {
+            _patterns = (StoredPattern[]) methodInfos.toArray(new StoredPattern[methodInfos.size()]);
+        }
+    }
+
     private MethodPatternParser _parser = new MethodPatternParser();
     private List _methodInfos;
 
-    private MethodFilter parseMethodPattern(String pattern)
-    {
-        return _parser.parseMethodPattern(pattern);
-    }
+    private CompiledPatterns _compiled;
+
+    /**
+     * Map of pattern value (or {@link #NO_MATCH}), keyed on {@link MethodSignature}. Copied
+     * when changed, so that it may be read without locking.
+     */
+    private volatile Map _results = Collections.EMPTY_MAP;
 
     /**
      * Stores a pattern and an associated value. Values can later be
-     * accessed via {@link #get(Method)}.
+     * accessed via {@link #get(MethodSignature)}.
      * 
      * @param methodPattern a pattern that is used to recognize methods
      * @param patternValue a value associated with the pattern
@@ -120,32 +177,239 @@ public class MethodMatcher
         StoredPattern sp = new StoredPattern(methodPattern, patternValue);
 
         _methodInfos.add(sp);
+
+        _compiled = null;
+        _results = Collections.EMPTY_MAP;
     }
 
     /**
      * Returns a pattern value prevoiusly stored via {@link #put(String, Object)}.
-     * Iterates over the patterns stored, in the order in which they were stored,
-     * until a match is found.
+     * The value for the first stored pattern (in the order in which they were stored)
+     * that matches is returned.
      * 
      * @param sig the MethodSignature to find a matching pattern for
      * @returns the pattern value for the matching pattern, or null if not found.
      */
-    public synchronized Object get(MethodSignature sig)
+    public Object get(MethodSignature sig)
     {
-        if (_methodInfos == null)
-            return null;
+        Object result = _results.get(sig);
+
+        if (result == null)
+        {
+            CompiledPatterns compiled = getCompiledPatterns();
+
+            result = findMatch(compiled, sig);
 
-        Iterator i = _methodInfos.iterator();
-        while (i.hasNext())
+            Map update = new HashMap();
+
+            update.put(sig, result);
+
+            storeResults(compiled, update);
+        }
+
+        return result == NO_MATCH ? null : result;
+    }
+
+    /**
+     * Matches each method of the service interface, in a single pass; subsequent
+     * invocations of {@link #get(MethodSignature)} for those methods will not need
+     * to check the patterns.
+     * 
+     * @param serviceInterface the interface whose methods are matched
+     * @return Map of pattern value, keyed on {@link MethodSignature}, for each method that
+     * matches a pattern
+     */
+    public Map match(Class serviceInterface)
+    {
+        Map results = _results;
+        CompiledPatterns compiled = getCompiledPatterns();
+        Map update = new HashMap();
+        Map matches = new HashMap();
+
+        Method[] methods = serviceInterface.getMethods();
+
+        for (int i = 0; i < methods.length; i++)
         {
-            StoredPattern sp = (StoredPattern) i.next();
+            MethodSignature sig = new MethodSignature(methods[i]);
+
+            Object result = results.get(sig);
+
+            if (result == null)
+            {
+                result = findMatch(compiled, sig);
+
+                update.put(sig, result);
+            }
+
+            if (result != NO_MATCH)
+                matches.put(sig, result);
+        }
+
+        if (!update.isEmpty())
+            storeResults(compiled, update);
+
+        return matches;
+    }
+
+    /**
+     * Adds results to the cache, unless patterns have been stored since they were found.
+     */
+    private synchronized void storeResults(CompiledPatterns compiled, Map update)
+    {
+        if (compiled != _compiled)
+            return;
+
+        Map results = new HashMap(_results);
+
+        results.putAll(update);
+
+        _results = results;
+    }
+
+    /**
+     * Returns the compiled patterns, compiling them if necessary.
+     */
+    private synchronized CompiledPatterns getCompiledPatterns()
+    {
+        if (_compiled == null)
+            _compiled = compile();
+
+        return _compiled;
+    }
+
+    /**
+     * Returns the value of the first stored pattern that matches the signature,
+     * or {@link #NO_MATCH}.
+     */
+    private Object findMatch(CompiledPatterns compiled, MethodSignature sig)
+    {
+        int[] candidates = findCandidates(compiled, sig.getName());
+
+        for (int i = 0; i < candidates.length; i++)
+        {
+            StoredPattern sp = compiled._patterns[candidates[i]];
 
             if (sp.match(sig))
                 return sp._patternValue;
         }
 
         // Not found.
-        
-        return null;
+
+        return NO_MATCH;
+    }
+
+    /**
+     * Returns the indexes of the patterns whose name pattern may match the name, in
+     * ascending order.
+     */
+    private int[] findCandidates(CompiledPatterns compiled, String name)
+    {
+        List indexes = new ArrayList(compiled._unindexed);
+
+        List exact = (List) compiled._exactNames.get(name);
+
+        if (exact != null)
+            indexes.addAll(exact);
+
+        if (!compiled._prefixes.isEmpty())
+            compiled._prefixes.collect(name, 0, indexes);
+
+        if (!compiled._suffixes.isEmpty())
+            compiled._suffixes.collect(reverse(name), 0, indexes);
+
+        if (!compiled._infixes.isEmpty())
+        {
+            for (int i = 0; i < name.length(); i++)
+                compiled._infixes.collect(name, i, indexes);
+        }
+
+        int count = indexes.size();
+        int[] sorted = new int[count];
+
+        for (int i = 0; i < count; i++)
+            sorted[i] = ((Integer) indexes.get(i)).intValue();
+
+        Arrays.sort(sorted);
+
+        // Remove duplicates (a substring may occur more than once within the name).
+
+        int unique = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            if (unique == 0 || sorted[unique - 1] != sorted[i])
+                sorted[unique++] = sorted[i];
+        }
+
+        if (unique == count)
+            return sorted;
+
+        int[] result = new int[unique];
+
+        System.arraycopy(sorted, 0, result, 0, unique);
+
+        return result;
+    }
+
+    /**
+     * Parses each pattern, and indexes the patterns on their name patterns. Name patterns are
+     * classified as by {@link MethodPatternParser}.
+     */
+    private CompiledPatterns compile()
+    {
+        CompiledPatterns result =
+            new CompiledPatterns(_methodInfos == null ? Collections.EMPTY_LIST : _methodInfos);
+
+        for (int i = 0; i < result._patterns.length; i++)
+        {
+            StoredPattern sp = result._patterns[i];
+
+            sp.parse();
+
+            String pattern = sp._methodPattern;
+
+            int parenx = pattern.indexOf('(');
+            String namePattern = parenx < 0 ? pattern : pattern.substring(0, parenx);
+
+            int length = namePattern.length();
+
+            boolean leading = namePattern.startsWith("*");
+            boolean trailing = length > 1 && namePattern.endsWith("*");
+
+            String fragment =
+                namePattern.substring(leading ? 1 : 0, trailing ? length - 1 : length);
+
+            if (fragment.length() == 0)
+            {
+                result._unindexed.add(new Integer(i));
+                continue;
+            }
+
+            if (leading && trailing)
+                result._infixes.add(fragment, i);
+            else if (leading)
+                result._suffixes.add(reverse(fragment), i);
+            else if (trailing)
+                result._prefixes.add(fragment, i);
+            else
+            {
+                List indexes = (List) result._exactNames.get(fragment);
+
+                if (indexes == null)
+                {
+                    indexes = new ArrayList();
+                    result._exactNames.put(fragment, indexes);
+                }
+
+                indexes.add(new Integer(i));
+            }
+        }
+
+        return result;
+    }
+
+    private static String reverse(String input)
+    {
+        return new StringBuffer(input).reverse().toString();
     }
 }
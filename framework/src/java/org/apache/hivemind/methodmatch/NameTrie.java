@@ -0,0 +1,104 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.methodmatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A trie of name fragments, used by {@link MethodMatcher} to find the patterns
+ * (identified by their index) whose prefix, suffix or infix appears in a method name.
+ *
+ * @author Howard Lewis Ship
+ */
+final class NameTrie
+{
+    private static class Node
+    {
+        /**
+         * Child nodes, keyed on Character; null for a leaf.
+         */
+        Map _children;
+
+        /**
+         * Indexes (as Integer) of the patterns whose fragment ends at this node; or null.
+         */
+        List _indexes;
+    }
+
+    private final Node _root = new Node();
+
+    private boolean _empty = true;
+
+    void add(String fragment, int index)
+    {
+        Node node = _root;
+
+        for (int i = 0; i < fragment.length(); i++)
+        {
+            Character ch = new Character(fragment.charAt(i));
+
+            if (node._children == null)
+                node._children = new HashMap();
+
+            Node child = (Node) node._children.get(ch);
+
+            if (child == null)
+            {
+                child = new Node();
+                node._children.put(ch, child);
+            }
+
+            node = child;
+        }
+
+        if (node._indexes == null)
+            node._indexes = new ArrayList();
+
+        node._indexes.add(new Integer(index));
+
+        _empty = false;
+    }
+
+    boolean isEmpty()
+    {
+        return _empty;
+    }
+
+    /**
+     * Adds, to the result list, the index of each fragment that matches the name starting
+     * at the given offset.
+     */
+    void collect(String name, int start, List result)
+    {
+        Node node = _root;
+
+        for (int i = start; i < name.length(); i++)
+        {
+            if (node._children == null)
+                return;
+
+            node = (Node) node._children.get(new Character(name.charAt(i)));
+
+            if (node == null)
+                return;
+
+            if (node._indexes != null)
+                result.addAll(node._indexes);
+        }
+    }
+}
@@ -17,7 +17,7 @@ package org.apache.hivemind.parse;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.hivemind.impl.BaseLocatable;
+import org.apache.hivemind.impl.SerializableLocatable;
 import org.apache.hivemind.util.ToStringBuilder;
 
 /**
@@ -27,8 +27,10 @@ import org.apache.hivemind.util.ToStringBuilder;
  *
  * @author Howard Lewis Ship
  */
-public abstract class AbstractServiceDescriptor extends BaseLocatable
+public abstract class AbstractServiceDescriptor extends SerializableLocatable
 {
+    private static final long serialVersionUID = 1L;
+
     private InstanceBuilder _instanceBuilder;
     private List _interceptors;
 
@@ -18,7 +18,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.hivemind.Element;
-import org.apache.hivemind.impl.BaseLocatable;
+import org.apache.hivemind.impl.SerializableLocatable;
 import org.apache.hivemind.util.ToStringBuilder;
 
 /**
@@ -27,8 +27,10 @@ import org.apache.hivemind.util.ToStringBuilder;
  *
  * @author Howard Lewis Ship
  */
-public abstract class AbstractServiceInvocationDescriptor extends BaseLocatable
+public abstract class AbstractServiceInvocationDescriptor extends SerializableLocatable
 {
+    private static final long serialVersionUID = 1L;
+
     private String _factoryServiceId;
 
 	private List _parameters;
@@ -15,7 +15,7 @@
 package org.apache.hivemind.parse;
 
 import org.apache.hivemind.Occurances;
-import org.apache.hivemind.impl.BaseLocatable;
+import org.apache.hivemind.impl.SerializableLocatable;
 import org.apache.hivemind.schema.Schema;
 import org.apache.hivemind.util.ToStringBuilder;
 
@@ -25,8 +25,10 @@ import org.apache.hivemind.util.ToStringBuilder;
  *
  * @author Howard Lewis Ship
  */
-public final class ConfigurationPointDescriptor extends BaseLocatable
+public final class ConfigurationPointDescriptor extends SerializableLocatable
 {
+    private static final long serialVersionUID = 1L;
+
     private String _id;
     private Occurances _count = Occurances.UNBOUNDED;
     private Schema _contributionsSchema;
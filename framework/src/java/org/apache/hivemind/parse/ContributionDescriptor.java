@@ -19,7 +19,7 @@ import java.util.Collections;
 import java.util.List;
 
 import org.apache.hivemind.Element;
-import org.apache.hivemind.impl.BaseLocatable;
+import org.apache.hivemind.impl.SerializableLocatable;
 import org.apache.hivemind.util.ToStringBuilder;
 
 /**
@@ -27,8 +27,10 @@ import org.apache.hivemind.util.ToStringBuilder;
  *
  * @author Howard Lewis Ship
  */
-public final class ContributionDescriptor extends BaseLocatable
+public final class ContributionDescriptor extends SerializableLocatable
 {
+    private static final long serialVersionUID = 1L;
+
     private String _configurationId;
 
     private List _elements;
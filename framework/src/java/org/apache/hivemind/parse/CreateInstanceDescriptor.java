@@ -14,7 +14,7 @@
 
 package org.apache.hivemind.parse;
 
-import org.apache.hivemind.impl.BaseLocatable;
+import org.apache.hivemind.impl.SerializableLocatable;
 import org.apache.hivemind.impl.CreateClassServiceConstructor;
 import org.apache.hivemind.internal.Module;
 import org.apache.hivemind.internal.ServicePoint;
@@ -27,8 +27,10 @@ import org.apache.hivemind.util.ToStringBuilder;
  *
  * @author Howard Lewis Ship
  */
-public final class CreateInstanceDescriptor extends BaseLocatable implements InstanceBuilder
+public final class CreateInstanceDescriptor extends SerializableLocatable implements InstanceBuilder
 {
+    private static final long serialVersionUID = 1L;
+
     private String _serviceModel = "singleton";
     private String _instanceClassName;
 
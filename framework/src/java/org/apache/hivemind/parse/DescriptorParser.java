@@ -226,8 +226,9 @@ public final class DescriptorParser extends AbstractParser
      */
     private final Map _ruleMap = new HashMap();
 
-    private final Map OCCURS_MAP = new HashMap();
+    private static final Map OCCURS_MAP = new HashMap();
 
+    static
     {
         OCCURS_MAP.put("0..1", Occurances.OPTIONAL);
         OCCURS_MAP.put("1", Occurances.REQUIRED);
@@ -236,6 +237,14 @@ public final class DescriptorParser extends AbstractParser
         OCCURS_MAP.put("none", Occurances.NONE);
     }
 
+    private static final Map BINDING_MAP = new HashMap();
+
+    static
+    {
+        BINDING_MAP.put("proxy", Boolean.FALSE);
+        BINDING_MAP.put("direct", Boolean.TRUE);
+    }
+
     public DescriptorParser(ErrorHandler errorHandler, RegistryAssembly assembly)
     {
         _errorHandler = errorHandler;
@@ -1042,6 +1051,8 @@ public final class DescriptorParser extends AbstractParser
         if (count != null)
             spd.setParametersCount(count);
 
+        spd.setDirectBinding((Boolean) getEnumAttribute("binding", BINDING_MAP));
+
         md.addServicePoint(spd);
     }
 
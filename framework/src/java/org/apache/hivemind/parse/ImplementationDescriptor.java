@@ -23,6 +23,8 @@ import org.apache.hivemind.util.ToStringBuilder;
  */
 public final class ImplementationDescriptor extends AbstractServiceDescriptor
 {
+    private static final long serialVersionUID = 1L;
+
     private String _serviceId;
 
     public String getServiceId()
@@ -23,6 +23,8 @@ import org.apache.hivemind.util.ToStringBuilder;
  */
 public final class InterceptorDescriptor extends AbstractServiceInvocationDescriptor
 {
+    private static final long serialVersionUID = 1L;
+
     private String _before;
     private String _after;
 
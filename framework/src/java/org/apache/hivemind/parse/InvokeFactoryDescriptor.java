@@ -29,6 +29,8 @@ public final class InvokeFactoryDescriptor
     extends AbstractServiceInvocationDescriptor
     implements InstanceBuilder
 {
+    private static final long serialVersionUID = 1L;
+
     private String _serviceModel;
 
     public ServiceImplementationConstructor createConstructor(
@@ -18,7 +18,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.hivemind.ClassResolver;
-import org.apache.hivemind.impl.BaseLocatable;
+import org.apache.hivemind.impl.SerializableLocatable;
 import org.apache.hivemind.util.ToStringBuilder;
 
 /**
@@ -28,8 +28,10 @@ import org.apache.hivemind.util.ToStringBuilder;
  *
  * @author Howard Lewis Ship
  */
-public final class ModuleDescriptor extends BaseLocatable
+public final class ModuleDescriptor extends SerializableLocatable
 {
+    private static final long serialVersionUID = 1L;
+
     private String _moduleId;
     private String _version;
     private List _servicePoints;
@@ -26,10 +26,13 @@ import org.apache.hivemind.util.ToStringBuilder;
  */
 public final class ServicePointDescriptor extends AbstractServiceDescriptor
 {
+    private static final long serialVersionUID = 1L;
+
     private String _id;
     private String _interfaceClassName;
     private Schema _parametersSchema;
     private Occurances _parametersCount = Occurances.REQUIRED;
+    private Boolean _directBinding;
 
     public String getId()
     {
@@ -57,6 +60,7 @@ public final class ServicePointDescriptor extends AbstractServiceDescriptor
         builder.append("interfaceClassName", _interfaceClassName);
         builder.append("parametersSchema", _parametersSchema);
         builder.append("parametersCount", _parametersCount);
+        builder.append("directBinding", _directBinding);
     }
 
     public Schema getParametersSchema()
@@ -79,4 +83,19 @@ public final class ServicePointDescriptor extends AbstractServiceDescriptor
         _parametersCount = occurances;
     }
 
+    /**
+     * Returns {@link Boolean#TRUE} if the service should be bound directly to its
+     * implementation (<code>binding="direct"</code>), {@link Boolean#FALSE} if it should not
+     * (<code>binding="proxy"</code>), or null if the registry default applies.
+     */
+    public Boolean getDirectBinding()
+    {
+        return _directBinding;
+    }
+
+    public void setDirectBinding(Boolean directBinding)
+    {
+        _directBinding = directBinding;
+    }
+
 }
@@ -14,7 +14,7 @@
 
 package org.apache.hivemind.schema.impl;
 
-import org.apache.hivemind.impl.BaseLocatable;
+import org.apache.hivemind.impl.SerializableLocatable;
 import org.apache.hivemind.schema.AttributeModel;
 
 /**
@@ -22,8 +22,10 @@ import org.apache.hivemind.schema.AttributeModel;
  *
  * @author Howard Lewis Ship
  */
-public final class AttributeModelImpl extends BaseLocatable implements AttributeModel
+public final class AttributeModelImpl extends SerializableLocatable implements AttributeModel
 {
+    private static final long serialVersionUID = 1L;
+
     private String _name;
     private boolean _required;
 	private boolean _unique;
@@ -29,11 +29,13 @@ import org.apache.hivemind.schema.Rule;
  */
 public class ElementModelImpl extends SchemaImpl implements ElementModel
 {
+    private static final long serialVersionUID = 1L;
+
     private String _elementName;
     private List _attributeModels;
-    private List _shareableAttributeModels;
+    private transient List _shareableAttributeModels;
     private List _rules;
-    private List _shareableRules;
+    private transient List _shareableRules;
     private String _contentTranslator;
     
     public String getElementName()
@@ -18,7 +18,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import org.apache.hivemind.impl.BaseLocatable;
+import org.apache.hivemind.impl.SerializableLocatable;
 import org.apache.hivemind.schema.ElementModel;
 import org.apache.hivemind.schema.Schema;
 
@@ -27,10 +27,12 @@ import org.apache.hivemind.schema.Schema;
  *
  * @author Howard Lewis Ship
  */
-public class SchemaImpl extends BaseLocatable implements Schema
+public class SchemaImpl extends SerializableLocatable implements Schema
 {
+    private static final long serialVersionUID = 1L;
+
     private List _elementModels;
-    private List _shareableElementModels;
+    private transient List _shareableElementModels;
 
     public void addElementModel(ElementModel model)
     {
@@ -15,7 +15,7 @@
 package org.apache.hivemind.schema.rules;
 
 import org.apache.hivemind.Element;
-import org.apache.hivemind.impl.BaseLocatable;
+import org.apache.hivemind.impl.SerializableLocatable;
 import org.apache.hivemind.schema.Rule;
 import org.apache.hivemind.schema.SchemaProcessor;
 
@@ -24,8 +24,10 @@ import org.apache.hivemind.schema.SchemaProcessor;
  *
  * @author Howard Lewis Ship
  */
-public abstract class BaseRule extends BaseLocatable implements Rule
+public abstract class BaseRule extends SerializableLocatable implements Rule
 {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Does nothing; subclasses may override.
      */
@@ -30,6 +30,8 @@ import org.apache.hivemind.schema.SchemaProcessor;
  */
 public class CreateObjectRule extends BaseRule
 {
+    private static final long serialVersionUID = 1L;
+
     private String _className;
 
     public CreateObjectRule()
@@ -61,10 +63,7 @@ public class CreateObjectRule extends BaseRule
         }
         catch (Exception ex)
         {
-            throw new ApplicationRuntimeException(
-                RulesMessages.errorCreatingObject(_className, getLocation(), ex),
-                getLocation(),
-                ex);
+            throw creationFailure(ex);
         }
 
         HiveMind.setLocation(object, element.getLocation());
@@ -80,6 +79,18 @@ public class CreateObjectRule extends BaseRule
         processor.pop();
     }
 
+    /**
+     * Returns the exception thrown when the object can't be created; used by
+     * compiled schema processors, as well as by this rule.
+     */
+    public ApplicationRuntimeException creationFailure(Throwable cause)
+    {
+        return new ApplicationRuntimeException(
+            RulesMessages.errorCreatingObject(_className, getLocation(), cause),
+            getLocation(),
+            cause);
+    }
+
     public String getClassName()
     {
         return _className;
@@ -31,6 +31,8 @@ import org.apache.hivemind.schema.SchemaProcessor;
  */
 public class InvokeParentRule extends BaseRule
 {
+    private static final long serialVersionUID = 1L;
+
     private String _methodName;
     private int _depth = 1;
 
@@ -54,19 +56,28 @@ public class InvokeParentRule extends BaseRule
 
         try
         {
-            Method m = findMethod(parent, _methodName, child.getClass());
+            Method m = findMethod(parent.getClass(), child.getClass());
 
             m.invoke(parent, new Object[] { child });
         }
         catch (Exception ex)
         {
-            throw new ApplicationRuntimeException(
-                RulesMessages.errorInvokingMethod(_methodName, parent, getLocation(), ex),
-                getLocation(),
-                ex);
+            throw invocationFailure(parent, ex);
         }
     }
 
+    /**
+     * Returns the exception thrown when the method can't be invoked; used by
+     * compiled schema processors, as well as by this rule.
+     */
+    public ApplicationRuntimeException invocationFailure(Object parent, Throwable cause)
+    {
+        return new ApplicationRuntimeException(
+            RulesMessages.errorInvokingMethod(_methodName, parent, getLocation(), cause),
+            getLocation(),
+            cause);
+    }
+
     public String getMethodName()
     {
         return _methodName;
@@ -85,16 +96,21 @@ public class InvokeParentRule extends BaseRule
         _depth = i;
     }
 
+    public int getDepth()
+    {
+        return _depth;
+    }
+
     /** 
-     * Searches for the *first* public method the has the right name, and takes a
-     * single parameter that is compatible with the parameter type.
+     * Searches for the *first* public method of the parent class that has the right name, and
+     * takes a single parameter that is compatible with the child class. Used by compiled
+     * schema processors, as well as by this rule.
      * 
      * @throws NoSuchMethodException if a method can't be found 
      */
-    private Method findMethod(Object target, String name, Class parameterType)
-        throws NoSuchMethodException
+    public Method findMethod(Class parentClass, Class childClass) throws NoSuchMethodException
     {
-        Method[] methods = target.getClass().getMethods();
+        Method[] methods = parentClass.getMethods();
 
         for (int i = 0; i < methods.length; i++)
         {
@@ -103,15 +119,15 @@ public class InvokeParentRule extends BaseRule
             if (m.getParameterTypes().length != 1)
                 continue;
 
-            if (!m.getName().equals(name))
+            if (!m.getName().equals(_methodName))
                 continue;
 
-            if (m.getParameterTypes()[0].isAssignableFrom(parameterType))
+            if (m.getParameterTypes()[0].isAssignableFrom(childClass))
                 return m;
 
         }
 
-        throw new NoSuchMethodException(name);
+        throw new NoSuchMethodException(_methodName);
     }
 
 }
@@ -26,6 +26,8 @@ import org.apache.hivemind.schema.Translator;
  */
 public class PushAttributeRule extends BaseRule
 {
+    private static final long serialVersionUID = 1L;
+
     private String _attributeName;
 
     /**
@@ -32,6 +32,8 @@ import org.apache.hivemind.util.PropertyUtils;
  */
 public class ReadAttributeRule extends BaseRule
 {
+    private static final long serialVersionUID = 1L;
+
 
     private static final Log LOG = LogFactory.getLog(ReadAttributeRule.class);
 
@@ -89,15 +91,24 @@ public class ReadAttributeRule extends BaseRule
         }
         catch (Exception ex)
         {
-            ErrorHandler eh = processor.getContributingModule().getErrorHandler();
-
-            eh.error(
-                LOG,
-                RulesMessages.readAttributeFailure(_attributeName, element, processor, ex),
-                element.getLocation(),
-                ex);
+            reportFailure(processor, element, ex);
         }
+    }
+
+    /**
+     * Reports a failure to translate the attribute, or to update the property, to the
+     * contributing module's error handler; used by compiled schema processors, as well as by
+     * this rule.
+     */
+    public void reportFailure(SchemaProcessor processor, Element element, Throwable cause)
+    {
+        ErrorHandler eh = processor.getContributingModule().getErrorHandler();
 
+        eh.error(
+            LOG,
+            RulesMessages.readAttributeFailure(_attributeName, element, processor, cause),
+            element.getLocation(),
+            cause);
     }
 
     public String getAttributeName()
@@ -130,6 +141,11 @@ public class ReadAttributeRule extends BaseRule
         _skipIfNull = b;
     }
 
+    public String getTranslator()
+    {
+        return _translator;
+    }
+
     public void setTranslator(String string)
     {
         _translator = string;
@@ -36,6 +36,8 @@ import org.apache.hivemind.util.PropertyUtils;
  */
 public class ReadContentRule extends BaseRule
 {
+    private static final long serialVersionUID = 1L;
+
     private static final Log LOG = LogFactory.getLog(ReadContentRule.class);
 
     private String _propertyName;
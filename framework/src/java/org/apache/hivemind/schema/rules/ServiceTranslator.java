@@ -16,6 +16,7 @@ package org.apache.hivemind.schema.rules;
 
 import org.apache.hivemind.HiveMind;
 import org.apache.hivemind.Location;
+import org.apache.hivemind.ServiceHandle;
 import org.apache.hivemind.internal.Module;
 import org.apache.hivemind.schema.Translator;
 
@@ -41,9 +42,12 @@ public class ServiceTranslator implements Translator
         if (HiveMind.isBlank(inputValue))
             return null;
 
-        return contributingModule.getService(
-            inputValue,
-            propertyType == null ? Object.class : propertyType);
+        ServiceHandle handle =
+            contributingModule.getServiceHandle(
+                inputValue,
+                propertyType == null ? Object.class : propertyType);
+
+        return handle.getService();
     }
 
 }
@@ -27,6 +27,8 @@ import org.apache.hivemind.schema.SchemaProcessor;
  */
 public class SetParentRule extends BaseRule
 {
+    private static final long serialVersionUID = 1L;
+
     private String _propertyName;
 
     public void setPropertyName(String string)
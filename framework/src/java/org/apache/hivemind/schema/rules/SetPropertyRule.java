@@ -29,11 +29,13 @@ import org.apache.hivemind.util.PropertyUtils;
  */
 public class SetPropertyRule extends BaseRule
 {
+    private static final long serialVersionUID = 1L;
+
     private static final Log LOG = LogFactory.getLog(SetPropertyRule.class);
 
     private String _propertyName;
     private String _value;
-    private Translator _smartTranslator;
+    private transient Translator _smartTranslator;
 
     public void begin(SchemaProcessor processor, Element element)
     {
@@ -57,6 +57,15 @@ public interface ClassFab
 
     public void addField(String name, Class type);
 
+    /**
+     * Adds a new field with the given name, modifiers and type.
+     * 
+     * @param modifiers Modifiers for the field (see {@link java.lang.reflect.Modifier}),
+     * such as <code>Modifier.PRIVATE | Modifier.VOLATILE</code>.
+     */
+
+    public void addField(String name, int modifiers, Class type);
+
     /**
      * Adds a method.  The method is a public instance method.
      * @return a method fabricator, used to add catch handlers.
@@ -64,7 +73,8 @@ public interface ClassFab
      * @param signature defines the name, return type, parameters and exceptions thrown
      * @param body The body of the method.
      * @throws ApplicationRuntimeException if a method with that signature has already
-     * been added, or if there is a Javassist compilation error
+     * been added, or if there is a Javassist compilation error (when bytecode is cached,
+     * compilation is deferred, and compilation errors are reported by {@link #createClass()})
      */
 
     public MethodFab addMethod(int modifiers, MethodSignature signature, String body);
@@ -90,6 +100,8 @@ public interface ClassFab
     /**
      * Invoked last to create the class.  This will enforce that
      * all abstract methods have been implemented in the (concrete) class.
+     * An identical class created in an earlier run may be loaded from the
+     * bytecode cache, rather than compiled.
      */
     public Class createClass();
 }
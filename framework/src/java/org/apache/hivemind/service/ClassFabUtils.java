@@ -17,6 +17,10 @@ package org.apache.hivemind.service;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
 
 /**
  * Static class containing utility methods.
@@ -29,17 +33,114 @@ public class ClassFabUtils
 
     private static final char QUOTE = '"';
 
+    /**
+     * The version of the classes given stable names by
+     * {@link #generateClassName(String, String, Class, String)}. Incremented whenever
+     * the content of such a class changes (for example, the fields or constructor
+     * of a proxy), so that classes generated ahead of time by an earlier version
+     * are not used.
+     */
+    public static final int GENERATOR_VERSION = 3;
+
+    /**
+     * Map from primitive type to wrapper type.
+     */
+    private static final Map _wrappers = new HashMap();
+
+    static
+    {
+        _wrappers.put(boolean.class, Boolean.class);
+        _wrappers.put(byte.class, Byte.class);
+        _wrappers.put(char.class, Character.class);
+        _wrappers.put(short.class, Short.class);
+        _wrappers.put(int.class, Integer.class);
+        _wrappers.put(long.class, Long.class);
+        _wrappers.put(float.class, Float.class);
+        _wrappers.put(double.class, Double.class);
+    }
+
     private ClassFabUtils()
     {
     }
 
     /**
      * Generates a unique class name, which will be in the default package.
+     * Names are drawn from a sequence (rather than, say, the current time), so that
+     * the same sequence of classes is given the same names in each run; this allows
+     * such classes to be found in the bytecode cache (see
+     * {@link org.apache.hivemind.service.impl.ClassFactoryImpl}).
      */
 
     public static synchronized String generateClassName(String baseName)
     {
-        return "$" + baseName + "_" + Long.toHexString(System.currentTimeMillis()) + "_" + _uid++;
+        return "$" + baseName + "_" + Integer.toHexString(_uid++);
+    }
+
+    /**
+     * Generates a class name for a class created on behalf of a particular service.
+     * Unlike {@link #generateClassName(String)}, the name is stable: the same arguments
+     * (and the same methods in the service interface) always produce the same name
+     * (for a given {@link #GENERATOR_VERSION}),
+     * so the class may have been generated ahead of time (see
+     * {@link ClassFactory#findPregeneratedClass(String, ClassLoader)}).
+     * 
+     * @param baseName the kind of class, such as "SingletonProxy"
+     * @param serviceId the fully qualified id of the service
+     * @param serviceInterface the service interface, whose methods are incorporated into the name
+     * @param key any further information that affects the content of the class, or null
+     */
+    public static String generateClassName(String baseName, String serviceId,
+            Class serviceInterface, String key)
+    {
+        Method[] methods = serviceInterface.getMethods();
+        String[] signatures = new String[methods.length];
+
+        for (int i = 0; i < methods.length; i++)
+            signatures[i] = new MethodSignature(methods[i]).toString();
+
+        // The order of getMethods() is not defined.
+
+        Arrays.sort(signatures);
+
+        StringBuffer buffer = new StringBuffer();
+
+        buffer.append(GENERATOR_VERSION);
+        buffer.append(';');
+        buffer.append(serviceId);
+        buffer.append(';');
+        buffer.append(serviceInterface.getName());
+
+        for (int i = 0; i < signatures.length; i++)
+        {
+            buffer.append(';');
+            buffer.append(signatures[i]);
+        }
+
+        if (key != null)
+        {
+            buffer.append(';');
+            buffer.append(key);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.toString().getBytes());
+
+        StringBuffer result = new StringBuffer("$");
+
+        result.append(baseName);
+        result.append('_');
+
+        for (int i = 0; i < serviceId.length(); i++)
+        {
+            char ch = serviceId.charAt(i);
+
+            result.append(Character.isJavaIdentifierPart(ch) ? ch : '_');
+        }
+
+        result.append('_');
+        result.append(Long.toHexString(crc.getValue()));
+
+        return result.toString();
     }
 
     /**
@@ -56,6 +157,15 @@ public class ClassFabUtils
         return inputClass.getName();
     }
 
+    /**
+     * Returns the wrapper type for a primitive type (i.e., <code>java.lang.Integer</code> for
+     * <code>int</code>), or null if the type is not primitive (or is <code>void</code>).
+     */
+    public static Class getWrapperType(Class type)
+    {
+        return (Class) _wrappers.get(type);
+    }
+
     /**
      * Returns true if the method is the standard toString() method. Very few
      * interfaces will ever include this method as part of the interface, but we
@@ -33,4 +33,26 @@ public interface ClassFactory
 	 */
 	
 	public ClassFab newClass(String name, Class superClass, ClassLoader classLoader);
+
+	/**
+	 * Returns a class that was generated ahead of time (and packaged, along with an index
+	 * of such classes, in a JAR visible to the class loader), or null if there is no such
+	 * class, in which case the caller should create the class using
+	 * {@link #newClass(String, Class, ClassLoader)}, with the same name.
+	 * 
+	 * <p>
+	 * The implementation may also return a class it created (on behalf of an earlier registry)
+	 * after a previous, unsuccessful, search for the same name and class loader.
+	 * 
+	 * <p>
+	 * Class names passed to this method should be generated with
+	 * {@link ClassFabUtils#generateClassName(String, String, Class, String)}, and so
+	 * identify everything that determines the content of the class.
+	 * 
+	 * @param name the fully qualified name of the class
+	 * @param classLoader the class loader used to locate the class (this is usually
+	 * provided by the containing {@link org.apache.hivemind.internal.Module})
+	 * @see org.apache.hivemind.ant.PregenerateClasses
+	 */
+	public Class findPregeneratedClass(String name, ClassLoader classLoader);
 }
@@ -0,0 +1,233 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.service;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.hivemind.InterceptorStack;
+import org.apache.hivemind.methodmatch.MethodMatcher;
+
+/**
+ * Constructs the class of an interceptor, on behalf of a
+ * {@link org.apache.hivemind.ServiceInterceptorFactory}. The class implements the service
+ * interface and has a field, <code>_inner</code>, for the next object on the stack; the
+ * field is of that object's actual class, rather than the service interface, which is more
+ * efficient at runtime. Subclasses add any further fields, the constructor (whose second
+ * parameter must be the inner object) and the service methods.
+ * <p>
+ * The class is given a stable name, so that a pregenerated class is used when one is available.
+ *
+ * @author Howard Lewis Ship
+ */
+public abstract class InterceptorClassBuilder
+{
+    private final ClassFactory _classFactory;
+    private final InterceptorStack _stack;
+    private final Class _topClass;
+
+    protected InterceptorClassBuilder(ClassFactory classFactory, InterceptorStack stack)
+    {
+        _classFactory = classFactory;
+        _stack = stack;
+        _topClass = ClassFabUtils.getInstanceClass(stack.peek(), stack.getServiceInterface());
+    }
+
+    /**
+     * Returns the pregenerated interceptor class, if there is one, or creates the class.
+     * 
+     * @param classKey identifies everything (beyond the service, its interface and the class
+     * of the inner object) that determines the content of the class; see
+     * {@link #buildClassKey(Object, String, List)}
+     */
+    public Class constructInterceptorClass(String classKey)
+    {
+        Class serviceInterface = _stack.getServiceInterface();
+        ClassLoader loader = _stack.getServiceModule().getClassResolver().getClassLoader();
+
+        String name = ClassFabUtils.generateClassName("Interceptor", _stack
+                .getServiceExtensionPointId(), serviceInterface, classKey + ' '
+                + _topClass.getName());
+
+        Class pregenerated = _classFactory.findPregeneratedClass(name, loader);
+
+        // The pregenerated class may refer to a different class of the same name
+        // as the top of the stack (when the top is itself an interceptor created at runtime).
+
+        if (pregenerated != null
+                && pregenerated.getConstructors()[0].getParameterTypes()[1] == _topClass)
+            return pregenerated;
+
+        ClassFab classFab = _classFactory.newClass(name, Object.class, loader);
+
+        classFab.addInterface(serviceInterface);
+        classFab.addField("_inner", _topClass);
+
+        createInfrastructure(classFab);
+        addServiceMethods(classFab);
+
+        return classFab.createClass();
+    }
+
+    /**
+     * Adds any further fields, and the constructor, to the interceptor class.
+     */
+    protected abstract void createInfrastructure(ClassFab classFab);
+
+    /**
+     * Adds the service methods, and a <code>toString()</code> method (unless the service
+     * interface defines one).
+     */
+    protected abstract void addServiceMethods(ClassFab classFab);
+
+    public InterceptorStack getStack()
+    {
+        return _stack;
+    }
+
+    /**
+     * Returns the class of the inner object (the top of the stack).
+     */
+    public Class getTopClass()
+    {
+        return _topClass;
+    }
+
+    /**
+     * Adds a field for each of a number of methods (named from the prefix and the
+     * index of the method), and a constructor taking an array of the field values and the
+     * inner object.
+     */
+    protected void addMethodFields(ClassFab classFab, String prefix, Class fieldType, int count)
+    {
+        BodyBuilder constructor = new BodyBuilder();
+        constructor.begin();
+
+        for (int i = 0; i < count; i++)
+        {
+            String field = prefix + i;
+
+            classFab.addField(field, fieldType);
+            constructor.addln(field + " = $1[" + i + "];");
+        }
+
+        constructor.addln("_inner = $2;");
+        constructor.end();
+
+        Class arrayType = Array.newInstance(fieldType, 0).getClass();
+
+        classFab.addConstructor(new Class[]
+        { arrayType, _topClass }, null, constructor.toString());
+    }
+
+    /**
+     * Adds a method that simply invokes the inner object.
+     */
+    protected void addPassThruMethod(ClassFab classFab, MethodSignature sig)
+    {
+        classFab.addMethod(Modifier.PUBLIC, sig, "return ($r) _inner." + sig.getName()
+                + "($$);");
+    }
+
+    /**
+     * Adds a <code>toString()</code> method identifying the kind of interceptor, the
+     * intercepted service and the service interface.
+     */
+    protected void addToStringMethod(ClassFab classFab, String interceptorName)
+    {
+        ClassFabUtils.addToStringMethod(classFab, "<" + interceptorName + " for "
+                + _stack.getServiceExtensionPointId() + "("
+                + _stack.getServiceInterface().getName() + ")>");
+    }
+
+    /**
+     * Builds a key for {@link #constructInterceptorClass(String)}.
+     * 
+     * @param interceptorFactory the factory creating the interceptor
+     * @param interceptorFactoryId the id of the factory's service
+     * @param details whatever else determines the content of the class, typically the factory's
+     * parameters or the intercepted methods. A {@link MethodContribution} is described by its
+     * method pattern, prefixed with '+' or '-'; anything else by its <code>toString()</code>.
+     */
+    public static String buildClassKey(Object interceptorFactory, String interceptorFactoryId,
+            List details)
+    {
+        StringBuffer buffer = new StringBuffer(interceptorFactory.getClass().getName());
+
+        buffer.append(' ');
+        buffer.append(interceptorFactoryId);
+
+        Iterator i = details.iterator();
+        while (i.hasNext())
+        {
+            Object detail = i.next();
+
+            buffer.append(' ');
+
+            if (detail instanceof MethodContribution)
+            {
+                MethodContribution mc = (MethodContribution) detail;
+
+                buffer.append(mc.getInclude() ? '+' : '-');
+                buffer.append(mc.getMethodPattern());
+            }
+            else
+                buffer.append(detail);
+        }
+
+        return buffer.toString();
+    }
+
+    /**
+     * Builds a matcher for a list of {@link MethodContribution}s, and matches it against the
+     * methods of the service interface in a single pass. Returns null if the list is empty.
+     */
+    public static MethodMatcher buildMethodMatcher(List contributions, Class serviceInterface)
+    {
+        if (contributions.isEmpty())
+            return null;
+
+        MethodMatcher result = new MethodMatcher();
+
+        Iterator i = contributions.iterator();
+        while (i.hasNext())
+        {
+            MethodContribution mc = (MethodContribution) i.next();
+
+            result.put(mc.getMethodPattern(), mc);
+        }
+
+        result.match(serviceInterface);
+
+        return result;
+    }
+
+    /**
+     * Returns true if the method is included by the matcher built by
+     * {@link #buildMethodMatcher(List, Class)}: that is, if no contribution matches the
+     * method, or the matching contribution includes it.
+     */
+    public static boolean includeMethod(MethodMatcher matcher, MethodSignature sig)
+    {
+        if (matcher == null)
+            return true;
+
+        MethodContribution mc = (MethodContribution) matcher.get(sig);
+
+        return mc == null || mc.getInclude();
+    }
+}
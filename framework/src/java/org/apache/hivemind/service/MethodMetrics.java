@@ -0,0 +1,242 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.service;
+
+import java.lang.reflect.Method;
+
+/**
+ * Counts the invocations of a single service method, and records their latency in a
+ * log-linear histogram with a fixed number of buckets. Used by the code generated by
+ * the <code>hivemind.MetricsInterceptor</code> service; see {@link MetricsSnapshot}.
+ * 
+ * <p>
+ * The counters are striped: each thread updates one of several sets of counters (selected
+ * by the identity of the thread), so threads invoking the same method rarely contend. Nothing
+ * is allocated when an invocation is recorded.
+ * 
+ * <p>
+ * Latencies are in nanoseconds. Each power of two is split into eight linear buckets, so a
+ * percentile is accurate to within 12.5%. Latencies beyond 2<sup>36</sup> nanoseconds
+ * (about 68 seconds) are counted in the last bucket.
+ *
+ * @author Howard Lewis Ship
+ */
+public final class MethodMetrics
+{
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int MAX_EXPONENT = 35;
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    private static final int STRIPE_COUNT = findStripeCount();
+
+    private final String _serviceId;
+    private final String _methodName;
+    private final long _startTime = System.currentTimeMillis();
+    private final Stripe[] _stripes = new Stripe[STRIPE_COUNT];
+
+    private static final class Stripe
+    {
+        private long _count;
+        private long _failureCount;
+        private long _totalTime;
+        private long _failureTime;
+        private long _maxTime;
+        private final long[] _buckets = new long[BUCKET_COUNT];
+    }
+
+    /**
+     * @param serviceId the id of the service
+     * @param methodName identifies the method; typically the name and parameter types
+     */
+    public MethodMetrics(String serviceId, String methodName)
+    {
+        _serviceId = serviceId;
+        _methodName = methodName;
+
+        for (int i = 0; i < STRIPE_COUNT; i++)
+            _stripes[i] = new Stripe();
+    }
+
+    /**
+     * Returns the smallest power of two not less than the number of processors
+     * (but at most 16).
+     */
+    private static int findStripeCount()
+    {
+        int processors = 4;
+
+        try
+        {
+            Method m = Runtime.class.getMethod("availableProcessors", null);
+
+            processors = ((Integer) m.invoke(Runtime.getRuntime(), null)).intValue();
+        }
+        catch (Exception ex)
+        {
+            // JDK 1.3; use the default.
+        }
+
+        int result = 1;
+
+        while (result < processors && result < 16)
+            result <<= 1;
+
+        return result;
+    }
+
+    private Stripe getStripe()
+    {
+        return _stripes[System.identityHashCode(Thread.currentThread()) & (STRIPE_COUNT - 1)];
+    }
+
+    /**
+     * Records an invocation that completed normally.
+     * 
+     * @param time the latency, in nanoseconds
+     */
+    public void record(long time)
+    {
+        int bucket = getBucket(time);
+        Stripe stripe = getStripe();
+
+        synchronized (stripe)
+        {
+            stripe._count++;
+            stripe._totalTime += time;
+
+            if (time > stripe._maxTime)
+                stripe._maxTime = time;
+
+            stripe._buckets[bucket]++;
+        }
+    }
+
+    /**
+     * Records an invocation that threw an exception. The latency of such invocations is
+     * totalled separately, and is not included in the histogram.
+     * 
+     * @param time the latency, in nanoseconds
+     */
+    public void recordFailure(long time)
+    {
+        Stripe stripe = getStripe();
+
+        synchronized (stripe)
+        {
+            stripe._failureCount++;
+            stripe._failureTime += time;
+        }
+    }
+
+    public String getServiceId()
+    {
+        return _serviceId;
+    }
+
+    public String getMethodName()
+    {
+        return _methodName;
+    }
+
+    /**
+     * Combines the stripes into a snapshot of the metrics.
+     */
+    public MethodStatistics getStatistics()
+    {
+        long count = 0;
+        long failureCount = 0;
+        long totalTime = 0;
+        long failureTime = 0;
+        long maxTime = 0;
+        long[] buckets = new long[BUCKET_COUNT];
+
+        for (int i = 0; i < STRIPE_COUNT; i++)
+        {
+            Stripe stripe = _stripes[i];
+
+            synchronized (stripe)
+            {
+                count += stripe._count;
+                failureCount += stripe._failureCount;
+                totalTime += stripe._totalTime;
+                failureTime += stripe._failureTime;
+                maxTime = Math.max(maxTime, stripe._maxTime);
+
+                for (int j = 0; j < BUCKET_COUNT; j++)
+                    buckets[j] += stripe._buckets[j];
+            }
+        }
+
+        return new MethodStatistics(_serviceId, _methodName, System.currentTimeMillis()
+                - _startTime, count, failureCount, totalTime, failureTime, maxTime, buckets);
+    }
+
+    /**
+     * Returns the index of the bucket for a latency.
+     */
+    static int getBucket(long time)
+    {
+        if (time < SUB_BUCKET_COUNT)
+            return time < 0 ? 0 : (int) time;
+
+        int exponent = highestBit(time);
+
+        if (exponent > MAX_EXPONENT)
+            return BUCKET_COUNT - 1;
+
+        int subBucket = (int) (time >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Returns the largest latency counted in a bucket.
+     */
+    static long getBucketLimit(int bucket)
+    {
+        if (bucket < SUB_BUCKET_COUNT)
+            return bucket;
+
+        int shift = bucket / SUB_BUCKET_COUNT - 1;
+        long subBucket = bucket % SUB_BUCKET_COUNT;
+
+        return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Returns the index of the highest bit set in a positive value.
+     */
+    private static int highestBit(long value)
+    {
+        int result = 0;
+
+        for (int shift = 32; shift > 0; shift >>= 1)
+        {
+            if ((value >>> shift) != 0)
+            {
+                value >>>= shift;
+                result += shift;
+            }
+        }
+
+        return result;
+    }
+
+    public String toString()
+    {
+        return "MethodMetrics[" + _serviceId + " " + _methodName + "]";
+    }
+}
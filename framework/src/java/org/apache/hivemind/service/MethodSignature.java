@@ -154,13 +154,15 @@ public class MethodSignature
         return false;
     }
 
-    public String toString()
+    /**
+     * Returns the name and parameter types of the method, i.e.,
+     * <code>lookup(java.lang.String)</code>; used to identify the method (among the methods
+     * of a service interface) in messages and statistics.
+     */
+    public String getDescription()
     {
-        StringBuffer buffer = new StringBuffer();
+        StringBuffer buffer = new StringBuffer(_name);
 
-        buffer.append(ClassFabUtils.getJavaClassName(_returnType));
-        buffer.append(" ");
-        buffer.append(_name);
         buffer.append("(");
 
         for (int i = 0; i < count(_parameterTypes); i++)
@@ -173,6 +175,17 @@ public class MethodSignature
 
         buffer.append(")");
 
+        return buffer.toString();
+    }
+
+    public String toString()
+    {
+        StringBuffer buffer = new StringBuffer();
+
+        buffer.append(ClassFabUtils.getJavaClassName(_returnType));
+        buffer.append(" ");
+        buffer.append(getDescription());
+
         for (int i = 0; i < count(_exceptionTypes); i++)
         {
             if (i == 0)
@@ -0,0 +1,170 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.service;
+
+/**
+ * A snapshot of the {@link MethodMetrics} for a single service method.
+ * Times are in nanoseconds.
+ *
+ * @author Howard Lewis Ship
+ */
+public class MethodStatistics
+{
+    private final String _serviceId;
+    private final String _methodName;
+    private final long _elapsedTime;
+    private final long _count;
+    private final long _failureCount;
+    private final long _totalTime;
+    private final long _failureTime;
+    private final long _maxTime;
+    private final long[] _buckets;
+
+    MethodStatistics(String serviceId, String methodName, long elapsedTime, long count,
+            long failureCount, long totalTime, long failureTime, long maxTime, long[] buckets)
+    {
+        _serviceId = serviceId;
+        _methodName = methodName;
+        _elapsedTime = elapsedTime;
+        _count = count;
+        _failureCount = failureCount;
+        _totalTime = totalTime;
+        _failureTime = failureTime;
+        _maxTime = maxTime;
+        _buckets = buckets;
+    }
+
+    public String getServiceId()
+    {
+        return _serviceId;
+    }
+
+    public String getMethodName()
+    {
+        return _methodName;
+    }
+
+    /**
+     * The number of invocations that completed normally.
+     */
+    public long getCount()
+    {
+        return _count;
+    }
+
+    /**
+     * The number of invocations that threw an exception.
+     */
+    public long getFailureCount()
+    {
+        return _failureCount;
+    }
+
+    /**
+     * Invocations (successful or not) per second, since the metrics were created.
+     */
+    public double getRate()
+    {
+        if (_elapsedTime <= 0)
+            return 0;
+
+        return (_count + _failureCount) * 1000.0 / _elapsedTime;
+    }
+
+    /**
+     * The combined latency of the invocations that completed normally.
+     */
+    public long getTotalTime()
+    {
+        return _totalTime;
+    }
+
+    public long getMeanTime()
+    {
+        return _count == 0 ? 0 : _totalTime / _count;
+    }
+
+    /**
+     * The combined latency of the invocations that threw an exception.
+     */
+    public long getFailureTime()
+    {
+        return _failureTime;
+    }
+
+    public long getMeanFailureTime()
+    {
+        return _failureCount == 0 ? 0 : _failureTime / _failureCount;
+    }
+
+    public long getMaxTime()
+    {
+        return _maxTime;
+    }
+
+    /**
+     * Returns the latency at or below which the given percentage of
+     * invocations (that completed normally) completed. The result is the upper bound of the
+     * histogram bucket containing the percentile.
+     * 
+     * @param percentile from 0 to 100
+     */
+    public long getPercentile(double percentile)
+    {
+        if (_count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(_count * percentile / 100.0));
+        long cumulative = 0;
+
+        for (int i = 0; i < _buckets.length; i++)
+        {
+            cumulative += _buckets[i];
+
+            if (cumulative >= rank)
+                return Math.min(MethodMetrics.getBucketLimit(i), _maxTime);
+        }
+
+        return _maxTime;
+    }
+
+    /**
+     * Returns a single line summary; latencies are in microseconds.
+     */
+    public String toString()
+    {
+        StringBuffer buffer = new StringBuffer(_methodName);
+
+        buffer.append(": count=");
+        buffer.append(_count);
+        buffer.append(" failures=");
+        buffer.append(_failureCount);
+        buffer.append(" rate=");
+        buffer.append(Math.round(getRate() * 10) / 10.0);
+        buffer.append("/s mean=");
+        buffer.append(getMeanTime() / 1000);
+        buffer.append("us p50=");
+        buffer.append(getPercentile(50) / 1000);
+        buffer.append("us p90=");
+        buffer.append(getPercentile(90) / 1000);
+        buffer.append("us p99=");
+        buffer.append(getPercentile(99) / 1000);
+        buffer.append("us max=");
+        buffer.append(_maxTime / 1000);
+        buffer.append("us");
+
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,45 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.service;
+
+import java.util.List;
+
+/**
+ * Collects the {@link MethodMetrics} of every service method instrumented by the
+ * <code>hivemind.MetricsInterceptor</code>, and provides snapshots of them.
+ *
+ * @author Howard Lewis Ship
+ */
+public interface MetricsSnapshot
+{
+    /**
+     * Returns the metrics for a service method, creating them as needed. Every interceptor
+     * for the same service (there may be several, for example, with the threaded service model)
+     * shares the same metrics.
+     */
+    public MethodMetrics getMethodMetrics(String serviceId, MethodSignature signature);
+
+    /**
+     * Returns a {@link MethodStatistics} for every instrumented method, sorted by service id
+     * and then by method.
+     */
+    public List getStatistics();
+
+    /**
+     * Returns a report of the statistics: a line for each service id, followed by an indented
+     * line for each method.
+     */
+    public String getReport();
+}
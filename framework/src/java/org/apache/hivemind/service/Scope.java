@@ -0,0 +1,59 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.service;
+
+/**
+ * A unit of work, such as a request or a transaction, to which services using the
+ * <code>scoped</code> service model bind their implementations. A scope is opened by
+ * {@link ScopeManager#openScope()} and is not tied to a single thread: it may be
+ * {@link ScopeManager#attach(Scope) attached} to any number of threads (for instance, to the
+ * threads of an executor performing tasks on behalf of the unit of work), which then share
+ * the service implementations bound to the scope.
+ * 
+ * <p>
+ * Implementations are thread safe.
+ *
+ * @author Howard Lewis Ship
+ */
+public interface Scope
+{
+    /**
+     * Returns the value stored in the scope under the given key, or null if no value
+     * is stored (or the scope is closed).
+     */
+    public Object get(Object key);
+
+    /**
+     * Stores a value under the given key, unless a value is already stored under the key.
+     * Returns the value now stored under the key (which is the value provided, or the value
+     * previously stored).
+     * 
+     * @throws org.apache.hivemind.ApplicationRuntimeException if the scope is closed
+     */
+    public Object putIfAbsent(Object key, Object value);
+
+    /**
+     * Closes the scope, detaching it from the current thread (if attached, in which case the
+     * scope that enclosed it when it was opened is re-attached). Stored values that
+     * implement {@link ScopeListener} are notified, and all values are released. Closing
+     * a closed scope does nothing.
+     */
+    public void close();
+
+    /**
+     * Returns true once the scope has been closed.
+     */
+    public boolean isClosed();
+}
@@ -0,0 +1,46 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.service;
+
+/**
+ * Service which opens {@link Scope}s, and tracks the scope attached to each thread.
+ * Available as service <code>hivemind.ScopeManager</code>.
+ *
+ * @author Howard Lewis Ship
+ */
+public interface ScopeManager
+{
+    /**
+     * Opens a new scope and attaches it to the current thread, in place of any scope
+     * previously attached. When the new scope is closed, the previous scope (or, if that
+     * has since been closed, the innermost open scope enclosing it) is attached once more.
+     * The caller is responsible for closing the scope.
+     */
+    public Scope openScope();
+
+    /**
+     * Returns the scope attached to the current thread, or null if no scope is attached.
+     */
+    public Scope getCurrentScope();
+
+    /**
+     * Attaches the scope to the current thread, so that the thread shares the service
+     * implementations bound to it. Returns the scope previously attached, if any, which
+     * should be restored (by attaching it once more) when the thread completes its work.
+     * 
+     * @param scope the scope to attach, or null to detach the current scope
+     */
+    public Scope attach(Scope scope);
+}
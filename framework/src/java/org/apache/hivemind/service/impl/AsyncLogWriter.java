@@ -0,0 +1,627 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.service.impl;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Fixed size ring buffers of log events, and the background thread that formats and
+ * writes them; used by {@link AsyncLoggingInterceptorFactory}. The events are allocated
+ * once, and reused.
+ * 
+ * <p>
+ * The buffer is divided into stripes, each with its own lock; a recording thread always
+ * uses the same stripe, so recording threads rarely contend with each other (only with the
+ * writer's thread, once per batch of events). The writer's thread is only notified
+ * when it is waiting for events. Events are written in the order they were recorded
+ * (events recorded by different threads in the same millisecond may be interleaved).
+ * 
+ * <p>
+ * When a stripe is full, new events are either dropped (and counted; the count is
+ * reported once space is available), or the recording thread waits for space.
+ * Each message is prefixed with the time at which the event was recorded.
+ *
+ * @author Howard Lewis Ship
+ */
+final class AsyncLogWriter implements Runnable
+{
+    static final int ENTRY = 0;
+    static final int EXIT = 1;
+    static final int VOID_EXIT = 2;
+    static final int EXCEPTION = 3;
+
+    private static class Event
+    {
+        int _kind;
+        long _timestamp;
+        AsyncMethodLogger _logger;
+        String _methodName;
+        Object[] _args;
+
+        /**
+         * The result (or exception); null for a primitive result.
+         */
+        Object _result;
+
+        /**
+         * The type of a primitive result, or null.
+         */
+        Class _primitiveType;
+        long _longResult;
+        double _doubleResult;
+
+        void clear()
+        {
+            _logger = null;
+            _args = null;
+            _result = null;
+            _primitiveType = null;
+        }
+    }
+
+    /**
+     * A ring buffer of events, guarded by its own lock.
+     */
+    private static class Stripe
+    {
+        final Event[] _events;
+
+        int _head;
+        int _tail;
+        int _count;
+        int _dropped;
+
+        /**
+         * The number of threads waiting for space in the stripe.
+         */
+        int _waiting;
+
+        /**
+         * The events captured by the writer's thread (and only accessed by that thread).
+         */
+        int _start;
+        int _available;
+
+        Stripe(int capacity)
+        {
+            _events = new Event[capacity];
+
+            for (int i = 0; i < capacity; i++)
+                _events[i] = new Event();
+        }
+
+        Event get(int offset)
+        {
+            return _events[(_start + offset) % _events.length];
+        }
+    }
+
+    private final Stripe[] _stripes;
+    private final boolean _dropOnOverflow;
+    private final long _refreshInterval;
+    private final Log _log;
+
+    /**
+     * Map of {@link AsyncMethodLogger}, keyed on Log.
+     */
+    private final Map _loggers = new HashMap();
+
+    private final DateFormat _timestampFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+
+    private Thread _thread;
+    private volatile boolean _shutdown;
+
+    /**
+     * Set once the writer's thread has written its final events (or on shutdown, if it
+     * was never started); events recorded afterwards are dropped.
+     */
+    private volatile boolean _stopped;
+
+    /**
+     * Set while the writer's thread is waiting for events; only then do recording
+     * threads notify it.
+     */
+    private volatile boolean _idle;
+
+    /**
+     * @param capacity the number of events in the buffer (divided between the stripes)
+     * @param stripeCount the number of stripes
+     * @param dropOnOverflow if true, events are dropped when the buffer is full; otherwise,
+     * the recording thread waits
+     * @param refreshInterval interval, in milliseconds, at which the loggers
+     * re-check the log levels
+     * @param log used to report dropped events
+     */
+    AsyncLogWriter(int capacity, int stripeCount, boolean dropOnOverflow,
+            long refreshInterval, Log log)
+    {
+        _stripes = new Stripe[Math.max(1, stripeCount)];
+
+        int stripeCapacity = Math.max(1, capacity / _stripes.length);
+
+        for (int i = 0; i < _stripes.length; i++)
+            _stripes[i] = new Stripe(stripeCapacity);
+
+        _dropOnOverflow = dropOnOverflow;
+        _refreshInterval = Math.max(1, refreshInterval);
+        _log = log;
+    }
+
+    /**
+     * Returns the logger for a service log, creating it (and starting the
+     * thread) as needed.
+     */
+    synchronized AsyncMethodLogger getLogger(Log log)
+    {
+        AsyncMethodLogger result = (AsyncMethodLogger) _loggers.get(log);
+
+        if (result == null)
+        {
+            result = new AsyncMethodLogger(this, log);
+
+            _loggers.put(log, result);
+        }
+
+        start();
+
+        return result;
+    }
+
+    synchronized void start()
+    {
+        if (_thread != null || _shutdown)
+            return;
+
+        _thread = new Thread(this, "HiveMind asynchronous logger");
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    /**
+     * Writes any buffered events, and stops the thread. Events recorded
+     * afterwards are dropped.
+     */
+    void shutdown()
+    {
+        Thread thread;
+
+        synchronized (this)
+        {
+            _shutdown = true;
+
+            notifyAll();
+
+            thread = _thread;
+
+            if (thread == null)
+                _stopped = true;
+        }
+
+        if (thread == null)
+            return;
+
+        try
+        {
+            thread.join();
+        }
+        catch (InterruptedException ex)
+        {
+            // Leave the thread to finish on its own.
+        }
+    }
+
+    void record(
+        AsyncMethodLogger logger,
+        int kind,
+        String methodName,
+        Object[] args,
+        Object result)
+    {
+        Stripe stripe = getStripe();
+
+        synchronized (stripe)
+        {
+            Event e = claim(stripe);
+
+            if (e == null)
+                return;
+
+            e._kind = kind;
+            e._logger = logger;
+            e._methodName = methodName;
+            e._args = args;
+            e._result = result;
+        }
+
+        if (_idle)
+            wakeWriter();
+    }
+
+    void recordPrimitive(
+        AsyncMethodLogger logger,
+        String methodName,
+        Class type,
+        long longResult,
+        double doubleResult)
+    {
+        Stripe stripe = getStripe();
+
+        synchronized (stripe)
+        {
+            Event e = claim(stripe);
+
+            if (e == null)
+                return;
+
+            e._kind = EXIT;
+            e._logger = logger;
+            e._methodName = methodName;
+            e._primitiveType = type;
+            e._longResult = longResult;
+            e._doubleResult = doubleResult;
+        }
+
+        if (_idle)
+            wakeWriter();
+    }
+
+    private Stripe getStripe()
+    {
+        int hash = System.identityHashCode(Thread.currentThread()) & 0x7fffffff;
+
+        return _stripes[hash % _stripes.length];
+    }
+
+    private synchronized void wakeWriter()
+    {
+        notifyAll();
+    }
+
+    /**
+     * Returns the next free event in the stripe (timestamped), or null if the event
+     * must be dropped. Invoked while holding the stripe's lock.
+     */
+    private Event claim(Stripe stripe)
+    {
+        while (stripe._count == stripe._events.length)
+        {
+            if (_dropOnOverflow || _shutdown)
+            {
+                stripe._dropped++;
+                return null;
+            }
+
+            stripe._waiting++;
+
+            try
+            {
+                stripe.wait();
+            }
+            catch (InterruptedException ex)
+            {
+                stripe._dropped++;
+                return null;
+            }
+            finally
+            {
+                stripe._waiting--;
+            }
+        }
+
+        if (_stopped)
+        {
+            stripe._dropped++;
+            return null;
+        }
+
+        Event result = stripe._events[stripe._head];
+
+        stripe._head = (stripe._head + 1) % stripe._events.length;
+        stripe._count++;
+
+        result._timestamp = System.currentTimeMillis();
+
+        return result;
+    }
+
+    public void run()
+    {
+        long nextRefresh = System.currentTimeMillis() + _refreshInterval;
+
+        while (true)
+        {
+            awaitEvents();
+
+            // Read before capturing the events, so that every event recorded
+            // before shutdown is written.
+
+            boolean shutdown = _shutdown;
+
+            boolean empty = writeEvents();
+
+            if (shutdown && empty)
+            {
+                // Events recorded (or dropped) since are written by a final pass.
+
+                _stopped = true;
+
+                writeEvents();
+
+                synchronized (this)
+                {
+                    _thread = null;
+                }
+
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+
+            if (now >= nextRefresh)
+            {
+                refreshLoggers();
+
+                nextRefresh = now + _refreshInterval;
+            }
+        }
+    }
+
+    /**
+     * Waits (up to the refresh interval) until events have been recorded, or the writer
+     * is shutdown.
+     */
+    private synchronized void awaitEvents()
+    {
+        if (_shutdown)
+            return;
+
+        // Set before checking the stripes: a recording thread either stores its event
+        // before the check, or sees that the writer is idle, and notifies it.
+
+        _idle = true;
+
+        if (!hasEvents())
+        {
+            try
+            {
+                wait(_refreshInterval);
+            }
+            catch (InterruptedException ex)
+            {
+                // Continue.
+            }
+        }
+
+        _idle = false;
+    }
+
+    private boolean hasEvents()
+    {
+        for (int i = 0; i < _stripes.length; i++)
+        {
+            Stripe stripe = _stripes[i];
+
+            synchronized (stripe)
+            {
+                if (stripe._count > 0 || stripe._dropped > 0)
+                    return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Captures, writes and releases the events in each stripe.
+     * 
+     * @return true if no events were recorded while writing
+     */
+    private boolean writeEvents()
+    {
+        int dropped = 0;
+
+        for (int i = 0; i < _stripes.length; i++)
+        {
+            Stripe stripe = _stripes[i];
+
+            synchronized (stripe)
+            {
+                stripe._start = stripe._tail;
+                stripe._available = stripe._count;
+
+                dropped += stripe._dropped;
+                stripe._dropped = 0;
+            }
+        }
+
+        if (dropped > 0)
+            _log.warn(ServiceMessages.asyncLogEventsDropped(dropped));
+
+        // The captured events are not reused until released, below.
+
+        writeCapturedEvents();
+
+        boolean empty = true;
+
+        for (int i = 0; i < _stripes.length; i++)
+        {
+            Stripe stripe = _stripes[i];
+
+            synchronized (stripe)
+            {
+                for (int j = 0; j < stripe._available; j++)
+                    stripe.get(j).clear();
+
+                stripe._tail = (stripe._start + stripe._available) % stripe._events.length;
+                stripe._count -= stripe._available;
+                stripe._available = 0;
+
+                if (stripe._waiting > 0)
+                    stripe.notifyAll();
+
+                if (stripe._count > 0)
+                    empty = false;
+            }
+        }
+
+        return empty;
+    }
+
+    /**
+     * Writes the captured events of all the stripes, merged into timestamp order.
+     */
+    private void writeCapturedEvents()
+    {
+        int[] positions = new int[_stripes.length];
+
+        while (true)
+        {
+            Event next = null;
+            int nextStripe = -1;
+
+            for (int i = 0; i < _stripes.length; i++)
+            {
+                Stripe stripe = _stripes[i];
+
+                if (positions[i] == stripe._available)
+                    continue;
+
+                Event e = stripe.get(positions[i]);
+
+                if (next == null || e._timestamp < next._timestamp)
+                {
+                    next = e;
+                    nextStripe = i;
+                }
+            }
+
+            if (next == null)
+                return;
+
+            positions[nextStripe]++;
+
+            write(next);
+        }
+    }
+
+    private void refreshLoggers()
+    {
+        List loggers;
+
+        synchronized (this)
+        {
+            loggers = new ArrayList(_loggers.values());
+        }
+
+        for (int i = 0; i < loggers.size(); i++)
+            ((AsyncMethodLogger) loggers.get(i)).refresh();
+    }
+
+    private void write(Event e)
+    {
+        StringBuffer buffer = new StringBuffer(100);
+
+        buffer.append('[');
+        buffer.append(_timestampFormat.format(new Date(e._timestamp)));
+        buffer.append("] ");
+
+        Log log = e._logger.getLog();
+
+        switch (e._kind)
+        {
+            case ENTRY :
+
+                buffer.append("BEGIN ");
+                buffer.append(e._methodName);
+                buffer.append("(");
+
+                int count = e._args == null ? 0 : e._args.length;
+
+                for (int i = 0; i < count; i++)
+                {
+                    if (i > 0)
+                        buffer.append(", ");
+
+                    LoggingUtils.convert(buffer, e._args[i]);
+                }
+
+                buffer.append(")");
+
+                log.debug(buffer.toString());
+                break;
+
+            case EXIT :
+
+                buffer.append("END ");
+                buffer.append(e._methodName);
+                buffer.append("() [");
+
+                if (e._primitiveType == null)
+                    LoggingUtils.convert(buffer, e._result);
+                else
+                    appendPrimitive(buffer, e);
+
+                buffer.append("]");
+
+                log.debug(buffer.toString());
+                break;
+
+            case VOID_EXIT :
+
+                buffer.append("END ");
+                buffer.append(e._methodName);
+                buffer.append("()");
+
+                log.debug(buffer.toString());
+                break;
+
+            default :
+
+                Throwable t = (Throwable) e._result;
+
+                buffer.append("EXCEPTION ");
+                buffer.append(e._methodName);
+                buffer.append("() -- ");
+                buffer.append(t.getClass().getName());
+
+                log.debug(buffer.toString(), t);
+                break;
+        }
+    }
+
+    private void appendPrimitive(StringBuffer buffer, Event e)
+    {
+        Class type = e._primitiveType;
+
+        if (type == boolean.class)
+            buffer.append(e._longResult != 0);
+        else if (type == char.class)
+            buffer.append((char) e._longResult);
+        else if (type == float.class)
+            buffer.append((float) e._doubleResult);
+        else if (type == double.class)
+            buffer.append(e._doubleResult);
+        else
+            buffer.append(e._longResult);
+    }
+}
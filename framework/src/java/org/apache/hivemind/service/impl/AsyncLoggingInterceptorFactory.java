@@ -0,0 +1,190 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.service.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.hivemind.InterceptorStack;
+import org.apache.hivemind.events.RegistryShutdownListener;
+import org.apache.hivemind.impl.servicemodel.StripedServiceModel;
+import org.apache.hivemind.service.BodyBuilder;
+import org.apache.hivemind.service.ClassFab;
+import org.apache.hivemind.service.ClassFabUtils;
+import org.apache.hivemind.service.MethodSignature;
+
+/**
+ * A variant of the {@link LoggingInterceptorFactory} that formats and logs on a
+ * background thread. The interceptor checks a cached copy of the log level, and
+ * records the method, arguments, result and time into a preallocated ring buffer; an
+ * {@link AsyncLogWriter} formats and logs the events, in order.
+ * 
+ * <p>
+ * The buffer is shared by all services using the interceptor (it is divided into one
+ * stripe per processor, so that threads calling different services rarely contend), and
+ * is written out (and the background thread stopped) when the registry is shutdown.
+ *
+ * @author Howard Lewis Ship
+ */
+public class AsyncLoggingInterceptorFactory extends LoggingInterceptorFactory
+    implements RegistryShutdownListener
+{
+    private int _bufferSize = 1024;
+    private boolean _dropOnOverflow = true;
+    private long _levelRefreshInterval = 1000;
+    private Log _log;
+
+    private AsyncLogWriter _writer;
+
+    private synchronized AsyncLogWriter getWriter()
+    {
+        if (_writer == null)
+            _writer =
+                new AsyncLogWriter(_bufferSize, StripedServiceModel.DEFAULT_STRIPE_COUNT,
+                        _dropOnOverflow, _levelRefreshInterval, _log);
+
+        return _writer;
+    }
+
+    protected Class getLoggerType()
+    {
+        return AsyncMethodLogger.class;
+    }
+
+    protected Object getLogger(Log serviceLog)
+    {
+        return getWriter().getLogger(serviceLog);
+    }
+
+    protected String buildMethodBody(MethodSignature sig, String logField, String invocation)
+    {
+        Class returnType = sig.getReturnType();
+        String methodName = sig.getName();
+
+        boolean isVoid = (returnType == void.class);
+
+        BodyBuilder builder = new BodyBuilder();
+
+        builder.begin();
+        builder.addln("boolean debug = " + logField + ".isDebugEnabled();");
+
+        builder.addln("if (debug)");
+        builder.add("  " + logField + ".entry(");
+        builder.addQuoted(methodName);
+        builder.addln(", $args);");
+
+        if (!isVoid)
+        {
+            builder.add(ClassFabUtils.getJavaClassName(returnType));
+            builder.add(" result = ");
+        }
+
+        builder.add(invocation);
+        builder.addln("($$);");
+
+        builder.addln("if (debug)");
+
+        if (isVoid)
+        {
+            builder.add("  " + logField + ".voidExit(");
+            builder.addQuoted(methodName);
+            builder.addln(");");
+        }
+        else
+        {
+            // The result is not wrapped; AsyncMethodLogger has an exit()
+            // method for each primitive type.
+
+            builder.add("  " + logField + ".exit(");
+            builder.addQuoted(methodName);
+            builder.addln(", result);");
+            builder.addln("return result;");
+        }
+
+        builder.end();
+
+        return builder.toString();
+    }
+
+    protected String buildExceptionBody(MethodSignature sig, String logField)
+    {
+        BodyBuilder builder = new BodyBuilder();
+
+        builder.begin();
+        builder.add(logField + ".exception(");
+        builder.addQuoted(sig.getName());
+        builder.addln(", $e);");
+        builder.addln("throw $e;");
+        builder.end();
+
+        return builder.toString();
+    }
+
+    protected void addToStringMethod(InterceptorStack stack, ClassFab fab)
+    {
+        ClassFabUtils.addToStringMethod(fab, "<AsyncLoggingInterceptor for "
+                + stack.getServiceExtensionPointId() + "(" + stack.getServiceInterface().getName()
+                + ")>");
+    }
+
+    /**
+     * Writes out any buffered log events.
+     */
+    public void registryDidShutdown()
+    {
+        AsyncLogWriter writer;
+
+        synchronized (this)
+        {
+            writer = _writer;
+        }
+
+        if (writer != null)
+            writer.shutdown();
+    }
+
+    /**
+     * The number of log events that may be buffered; defaults to 1024. The buffer is
+     * divided equally between the stripes.
+     */
+    public void setBufferSize(int bufferSize)
+    {
+        _bufferSize = bufferSize;
+    }
+
+    /**
+     * If true (the default), log events are dropped when the buffer is full;
+     * if false, the service method waits until there is space.
+     */
+    public void setDropOnOverflow(boolean dropOnOverflow)
+    {
+        _dropOnOverflow = dropOnOverflow;
+    }
+
+    /**
+     * The interval, in milliseconds, at which the log levels are re-checked; defaults to
+     * one second.
+     */
+    public void setLevelRefreshInterval(long levelRefreshInterval)
+    {
+        _levelRefreshInterval = levelRefreshInterval;
+    }
+
+    /**
+     * The Log used to report dropped events.
+     */
+    public void setLog(Log log)
+    {
+        _log = log;
+    }
+}
@@ -0,0 +1,176 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.service.impl;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * The logger used by interceptors created by the {@link AsyncLoggingInterceptorFactory}.
+ * Method entries, exits and exceptions are recorded into the {@link AsyncLogWriter}'s buffer,
+ * rather than formatted and logged immediately. Primitive return values are recorded without
+ * being wrapped.
+ * 
+ * <p>
+ * Only immutable values (strings, primitive wrappers and classes) are recorded as is, and
+ * formatted later by the writer's thread. Any other parameter or return value is formatted
+ * immediately, on the calling thread, so that the event shows its state at the time of the call
+ * (and the buffer doesn't keep the object reachable).
+ * 
+ * <p>
+ * Whether debug logging is enabled is cached, and refreshed periodically by the writer's
+ * thread; a change to the log level takes effect within the refresh interval.
+ *
+ * @author Howard Lewis Ship
+ */
+public final class AsyncMethodLogger
+{
+    private final AsyncLogWriter _writer;
+    private final Log _log;
+
+    private volatile boolean _debugEnabled;
+
+    AsyncMethodLogger(AsyncLogWriter writer, Log log)
+    {
+        _writer = writer;
+        _log = log;
+
+        refresh();
+    }
+
+    Log getLog()
+    {
+        return _log;
+    }
+
+    /**
+     * Re-checks whether debug logging is enabled for the log.
+     */
+    void refresh()
+    {
+        _debugEnabled = _log.isDebugEnabled();
+    }
+
+    public boolean isDebugEnabled()
+    {
+        return _debugEnabled;
+    }
+
+    public void entry(String methodName, Object[] args)
+    {
+        _writer.record(this, AsyncLogWriter.ENTRY, methodName, capture(args), null);
+    }
+
+    public void voidExit(String methodName)
+    {
+        _writer.record(this, AsyncLogWriter.VOID_EXIT, methodName, null, null);
+    }
+
+    public void exit(String methodName, Object result)
+    {
+        _writer.record(this, AsyncLogWriter.EXIT, methodName, null, capture(result));
+    }
+
+    public void exit(String methodName, boolean result)
+    {
+        _writer.recordPrimitive(this, methodName, boolean.class, result ? 1 : 0, 0);
+    }
+
+    public void exit(String methodName, byte result)
+    {
+        _writer.recordPrimitive(this, methodName, byte.class, result, 0);
+    }
+
+    public void exit(String methodName, char result)
+    {
+        _writer.recordPrimitive(this, methodName, char.class, result, 0);
+    }
+
+    public void exit(String methodName, short result)
+    {
+        _writer.recordPrimitive(this, methodName, short.class, result, 0);
+    }
+
+    public void exit(String methodName, int result)
+    {
+        _writer.recordPrimitive(this, methodName, int.class, result, 0);
+    }
+
+    public void exit(String methodName, long result)
+    {
+        _writer.recordPrimitive(this, methodName, long.class, result, 0);
+    }
+
+    public void exit(String methodName, float result)
+    {
+        _writer.recordPrimitive(this, methodName, float.class, 0, result);
+    }
+
+    public void exit(String methodName, double result)
+    {
+        _writer.recordPrimitive(this, methodName, double.class, 0, result);
+    }
+
+    /**
+     * Records an exception thrown by the method; only if debug logging is enabled.
+     */
+    public void exception(String methodName, Throwable t)
+    {
+        if (_debugEnabled)
+            _writer.record(this, AsyncLogWriter.EXCEPTION, methodName, null, t);
+    }
+
+    /**
+     * Returns the parameters, or a copy with each mutable parameter replaced by its formatted
+     * value.
+     */
+    private static Object[] capture(Object[] args)
+    {
+        Object[] result = args;
+        int count = args == null ? 0 : args.length;
+
+        for (int i = 0; i < count; i++)
+        {
+            Object value = capture(args[i]);
+
+            if (value == args[i])
+                continue;
+
+            if (result == args)
+                result = (Object[]) args.clone();
+
+            result[i] = value;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the value if it is immutable, or its formatted value.
+     */
+    private static Object capture(Object value)
+    {
+        if (value == null || value instanceof String || value instanceof Integer
+                || value instanceof Long || value instanceof Boolean || value instanceof Double
+                || value instanceof Float || value instanceof Short || value instanceof Byte
+                || value instanceof Character || value instanceof Class)
+            return value;
+
+        StringBuffer buffer = new StringBuffer();
+
+        LoggingUtils.convert(buffer, value);
+
+        return buffer.toString();
+    }
+}
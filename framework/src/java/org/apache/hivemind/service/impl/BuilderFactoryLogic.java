@@ -27,6 +27,7 @@ import org.apache.hivemind.ClassResolver;
 import org.apache.hivemind.ErrorHandler;
 import org.apache.hivemind.HiveMind;
 import org.apache.hivemind.Location;
+import org.apache.hivemind.ServiceHandle;
 import org.apache.hivemind.internal.Module;
 import org.apache.hivemind.service.EventLinker;
 import org.apache.hivemind.util.ConstructorUtils;
@@ -298,7 +299,9 @@ public class BuilderFactoryLogic
 
         try
         {
-            Object collaboratingService = _contributingModule.getService(propertyType);
+            ServiceHandle handle = _contributingModule.getServiceHandle(propertyType);
+
+            Object collaboratingService = handle.getService();
 
             PropertyUtils.write(service, propertyName, collaboratingService);
 
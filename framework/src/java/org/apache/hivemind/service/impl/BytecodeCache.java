@@ -0,0 +1,363 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.hivemind.service.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.service.ClassFabUtils;
+import org.apache.hivemind.service.MethodSignature;
+
+/**
+ * An on-disk cache of the bytecode of classes created by {@link ClassFabImpl}, allowing
+ * an identical class, created in a later run, to be loaded without compiling its
+ * method bodies.
+ * 
+ * <p>
+ * Each class is stored in a file named for a digest of the class name and the class's
+ * complete description (its superclass, interfaces, fields, and the signatures and bodies of
+ * its methods and constructors). The description includes a fingerprint (the name and the
+ * public method and constructor signatures) of each class it references, so that a change to
+ * one of those classes results in a new entry. Classes referenced only by name, from within
+ * a method body, are not fingerprinted. Most of these are HiveMind's own classes, so every key
+ * also incorporates {@link ClassFabUtils#GENERATOR_VERSION} and the version and build time of
+ * HiveMind; the cache should be cleared when other such classes are upgraded.
+ * 
+ * @author Howard Lewis Ship
+ */
+class BytecodeCache
+{
+    private static final Log LOG = LogFactory.getLog(BytecodeCache.class);
+
+    /**
+     * Incorporated into every key; changed whenever the format of descriptions changes.
+     */
+    private static final String FORMAT_VERSION = "1";
+
+    /**
+     * Incorporated into every key; identifies the HiveMind classes in use.
+     */
+    private static final String FRAMEWORK_VERSION = getFrameworkVersion();
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File _directory;
+
+    /**
+     * Fingerprint strings, keyed on Class.
+     */
+    private final Map _fingerprints = new HashMap();
+
+    private int _hitCount;
+    private int _missCount;
+
+    BytecodeCache(File directory)
+    {
+        _directory = directory;
+    }
+
+    File getDirectory()
+    {
+        return _directory;
+    }
+
+    /**
+     * Returns the implementation version of HiveMind (from its JAR's manifest), and the time
+     * at which its classes were last modified (the time the JAR was built, or the classes
+     * compiled).
+     */
+    static String getFrameworkVersion()
+    {
+        Package p = ClassFabUtils.class.getPackage();
+        String version = p == null ? null : p.getImplementationVersion();
+
+        long lastModified = 0;
+
+        URL url = ClassFabUtils.class.getResource("ClassFabUtils.class");
+
+        try
+        {
+            if (url != null)
+            {
+                URLConnection connection = url.openConnection();
+
+                lastModified = connection.getLastModified();
+
+                connection.getInputStream().close();
+            }
+        }
+        catch (IOException ex)
+        {
+            LOG.debug(ex.getMessage(), ex);
+        }
+
+        return version + " " + lastModified;
+    }
+
+    /**
+     * Returns the key (a hex string) for a class, given its name and description.
+     */
+    String getKey(String className, String description)
+    {
+        MessageDigest digest;
+
+        try
+        {
+            digest = MessageDigest.getInstance("MD5");
+        }
+        catch (NoSuchAlgorithmException ex)
+        {
+            throw new ApplicationRuntimeException(ex.getMessage(), ex);
+        }
+
+        try
+        {
+            digest.update(FORMAT_VERSION.getBytes("UTF-8"));
+            digest.update(String.valueOf(ClassFabUtils.GENERATOR_VERSION).getBytes("UTF-8"));
+            digest.update(FRAMEWORK_VERSION.getBytes("UTF-8"));
+            digest.update(className.getBytes("UTF-8"));
+            digest.update(description.getBytes("UTF-8"));
+        }
+        catch (IOException ex)
+        {
+            throw new ApplicationRuntimeException(ex.getMessage(), ex);
+        }
+
+        byte[] bytes = digest.digest();
+        char[] result = new char[bytes.length * 2];
+
+        for (int i = 0; i < bytes.length; i++)
+        {
+            result[2 * i] = HEX[(bytes[i] >> 4) & 0x0f];
+            result[2 * i + 1] = HEX[bytes[i] & 0x0f];
+        }
+
+        return new String(result);
+    }
+
+    /**
+     * Returns a fingerprint of a class: its name and the signatures of its public methods
+     * and constructors.
+     */
+    synchronized String getFingerprint(Class type)
+    {
+        String result = (String) _fingerprints.get(type);
+
+        if (result == null)
+        {
+            result = buildFingerprint(type);
+
+            _fingerprints.put(type, result);
+        }
+
+        return result;
+    }
+
+    private String buildFingerprint(Class type)
+    {
+        StringBuffer buffer = new StringBuffer(ClassFabUtils.getJavaClassName(type));
+
+        if (type.isPrimitive() || type.isArray())
+            return buffer.toString();
+
+        Method[] methods = type.getMethods();
+        Constructor[] constructors = type.getConstructors();
+
+        String[] signatures = new String[methods.length + constructors.length];
+
+        for (int i = 0; i < methods.length; i++)
+            signatures[i] = new MethodSignature(methods[i]).toString();
+
+        for (int i = 0; i < constructors.length; i++)
+        {
+            Class[] parameterTypes = constructors[i].getParameterTypes();
+
+            StringBuffer constructor = new StringBuffer("<init>(");
+
+            for (int j = 0; j < parameterTypes.length; j++)
+            {
+                if (j > 0)
+                    constructor.append(", ");
+
+                constructor.append(ClassFabUtils.getJavaClassName(parameterTypes[j]));
+            }
+
+            constructor.append(')');
+
+            signatures[methods.length + i] = constructor.toString();
+        }
+
+        // The order of getMethods() is not defined.
+
+        Arrays.sort(signatures);
+
+        buffer.append('{');
+
+        for (int i = 0; i < signatures.length; i++)
+        {
+            buffer.append(signatures[i]);
+            buffer.append(';');
+        }
+
+        buffer.append('}');
+
+        return buffer.toString();
+    }
+
+    /**
+     * Returns the cached bytecode for the key, or null if not cached.
+     */
+    byte[] read(String key)
+    {
+        File file = getFile(key);
+
+        if (!file.exists())
+            return null;
+
+        try
+        {
+            InputStream stream = new FileInputStream(file);
+
+            try
+            {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream((int) file.length());
+                byte[] buffer = new byte[4096];
+
+                while (true)
+                {
+                    int length = stream.read(buffer);
+
+                    if (length < 0)
+                        break;
+
+                    bos.write(buffer, 0, length);
+                }
+
+                return bos.toByteArray();
+            }
+            finally
+            {
+                stream.close();
+            }
+        }
+        catch (IOException ex)
+        {
+            LOG.warn(ServiceMessages.unableToReadCachedClass(file, ex), ex);
+
+            return null;
+        }
+    }
+
+    /**
+     * Stores bytecode into the cache. The bytecode is written to a temporary file,
+     * which is then renamed, so that a concurrent reader (in another process) never
+     * sees a partial file. Failures are logged, but are otherwise ignored.
+     */
+    void write(String key, byte[] bytecode)
+    {
+        File file = getFile(key);
+        File temp = null;
+
+        try
+        {
+            _directory.mkdirs();
+
+            temp = File.createTempFile(key, ".tmp", _directory);
+
+            OutputStream stream = new FileOutputStream(temp);
+
+            try
+            {
+                stream.write(bytecode);
+            }
+            finally
+            {
+                stream.close();
+            }
+
+            // On some platforms, rename fails if the target exists; in which case,
+            // another process has already stored the identical bytecode.
+
+            if (!temp.renameTo(file) && !file.exists())
+                throw new IOException(ServiceMessages.unableToRename(temp, file));
+        }
+        catch (IOException ex)
+        {
+            LOG.warn(ServiceMessages.unableToWriteCachedClass(file, ex), ex);
+        }
+        finally
+        {
+            if (temp != null && temp.exists())
+                temp.delete();
+        }
+    }
+
+    /**
+     * Removes an entry whose bytecode could not be loaded.
+     */
+    void remove(String key)
+    {
+        getFile(key).delete();
+    }
+
+    private File getFile(String key)
+    {
+        return new File(_directory, key + ".class");
+    }
+
+    synchronized void recordHit(String className)
+    {
+        _hitCount++;
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Loaded class " + className + " from bytecode cache.");
+    }
+
+    synchronized void recordMiss(String className)
+    {
+        _missCount++;
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Class " + className + " not found in bytecode cache.");
+    }
+
+    synchronized int getHitCount()
+    {
+        return _hitCount;
+    }
+
+    synchronized int getMissCount()
+    {
+        return _missCount;
+    }
+}
@@ -12,11 +12,16 @@
 // See the License for the specific language governing permissions and
 // limitations under the License.
 
+
 package org.apache.hivemind.service.impl;
 
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import javassist.CannotCompileException;
 import javassist.CtClass;
@@ -32,6 +37,11 @@ import org.apache.hivemind.service.MethodSignature;
 /**
  * Implementation of {@link org.apache.hivemind.service.ClassFab}. Hides,
  * as much as possible, the underlying library (Javassist).
+ * 
+ * <p>
+ * When the {@link CtClassSource} caches bytecode, compiling the bodies of methods
+ * and constructors is deferred until {@link #createClass()}, and is skipped entirely
+ * if the class is found in the cache.
  *
  * @author Howard Lewis Ship
  */
@@ -45,10 +55,52 @@ public class ClassFabImpl implements ClassFab
      */
     private Map _methods = new HashMap();
 
+    /**
+     * Describes the content of the class, to identify it in the
+     * {@link BytecodeCache}. Null if the source does not cache.
+     */
+    private StringBuffer _description;
+
+    /**
+     * Classes referenced by the class (whose fingerprints are included in its
+     * description), keyed on class name.
+     */
+    private Map _referencedClasses;
+
+    /**
+     * Changes that require compilation (each a {@link Runnable}),
+     * deferred until {@link #createClass()}. Null if the source does not cache.
+     */
+    private List _deferred;
+
     public ClassFabImpl(CtClassSource source, CtClass ctClass)
+    {
+        this(source, ctClass, null);
+    }
+
+    /**
+     * @param source the source of CtClass instances
+     * @param ctClass the new class
+     * @param superClass the super class of the new class, which is included in
+     *            the description of the class when caching
+     */
+    ClassFabImpl(CtClassSource source, CtClass ctClass, Class superClass)
     {
         _source = source;
         _ctClass = ctClass;
+
+        if (source.isCaching())
+        {
+            _description = new StringBuffer();
+            _referencedClasses = new TreeMap();
+            _deferred = new ArrayList();
+
+            if (superClass != null)
+            {
+                describe("extends " + superClass.getName());
+                reference(superClass);
+            }
+        }
     }
 
     /**
@@ -59,21 +111,95 @@ public class ClassFabImpl implements ClassFab
         return _ctClass.getName();
     }
 
+    /**
+     * Adds to the description of the class (if caching).
+     */
+    void describe(String text)
+    {
+        if (_description != null)
+        {
+            _description.append(text);
+            _description.append('\n');
+        }
+    }
+
+    /**
+     * Records a class referenced by the class (if caching).
+     */
+    void reference(Class referencedClass)
+    {
+        if (_referencedClasses == null || referencedClass == null)
+            return;
+
+        Class type = referencedClass;
+
+        while (type.isArray())
+            type = type.getComponentType();
+
+        if (!type.isPrimitive())
+            _referencedClasses.put(type.getName(), type);
+    }
+
+    private void reference(Class[] referencedClasses)
+    {
+        for (int i = 0; referencedClasses != null && i < referencedClasses.length; i++)
+            reference(referencedClasses[i]);
+    }
+
+    /**
+     * Performs a change to the class that requires compilation; immediately or,
+     * if caching, just before the class is created (if it is not found in the cache).
+     */
+    void perform(Runnable change)
+    {
+        if (_deferred == null)
+            change.run();
+        else
+            _deferred.add(change);
+    }
+
+    /**
+     * Returns the complete description of the class, used to identify it in the cache.
+     */
+    String getDescription()
+    {
+        StringBuffer buffer = new StringBuffer(_description.toString());
+        BytecodeCache cache = _source.getCache();
+
+        Iterator i = _referencedClasses.values().iterator();
+
+        while (i.hasNext())
+        {
+            buffer.append(cache.getFingerprint((Class) i.next()));
+            buffer.append('\n');
+        }
+
+        return buffer.toString();
+    }
+
     public void addInterface(Class interfaceClass)
     {
         CtClass ctInterfaceClass = _source.getCtClass(interfaceClass);
 
         _ctClass.addInterface(ctInterfaceClass);
+
+        describe("implements " + interfaceClass.getName());
+        reference(interfaceClass);
     }
 
     public void addField(String name, Class type)
+    {
+        addField(name, Modifier.PRIVATE, type);
+    }
+
+    public void addField(String name, int modifiers, Class type)
     {
         CtClass ctType = _source.getCtClass(type);
 
         try
         {
             CtField field = new CtField(ctType, name, _ctClass);
-            field.setModifiers(Modifier.PRIVATE);
+            field.setModifiers(modifiers);
 
             _ctClass.addField(field);
         }
@@ -83,9 +209,12 @@ public class ClassFabImpl implements ClassFab
                 ServiceMessages.unableToAddField(name, _ctClass, ex),
                 ex);
         }
+
+        describe("field " + Modifier.toString(modifiers) + " " + type.getName() + " " + name);
+        reference(type);
     }
 
-    public MethodFab addMethod(int modifiers, MethodSignature ms, String body)
+    public MethodFab addMethod(final int modifiers, final MethodSignature ms, final String body)
     {
         if (_methods.get(ms) != null)
             throw new ApplicationRuntimeException(ServiceMessages.duplicateMethodInClass(ms, this));
@@ -93,28 +222,39 @@ public class ClassFabImpl implements ClassFab
         CtClass ctReturnType = _source.getCtClass(ms.getReturnType());
 
         CtClass[] ctParameters = convertClasses(ms.getParameterTypes());
-        CtClass[] ctExceptions = convertClasses(ms.getExceptionTypes());
+        final CtClass[] ctExceptions = convertClasses(ms.getExceptionTypes());
 
-        CtMethod method = new CtMethod(ctReturnType, ms.getName(), ctParameters, _ctClass);
+        final CtMethod method = new CtMethod(ctReturnType, ms.getName(), ctParameters, _ctClass);
 
-        try
+        perform(new Runnable()
         {
-            method.setBody(body);
-            method.setModifiers(modifiers);
-            method.setExceptionTypes(ctExceptions);
-
-            _ctClass.addMethod(method);
-        }
-        catch (Exception ex)
-        {
-            throw new ApplicationRuntimeException(
-                ServiceMessages.unableToAddMethod(ms, _ctClass, ex),
-                ex);
-        }
+            public void run()
+            {
+                try
+                {
+                    method.setBody(body);
+                    method.setModifiers(modifiers);
+                    method.setExceptionTypes(ctExceptions);
+
+                    _ctClass.addMethod(method);
+                }
+                catch (Exception ex)
+                {
+                    throw new ApplicationRuntimeException(
+                        ServiceMessages.unableToAddMethod(ms, _ctClass, ex),
+                        ex);
+                }
+            }
+        });
+
+        describe("method " + Modifier.toString(modifiers) + " " + ms + " {" + body + "}");
+        reference(ms.getReturnType());
+        reference(ms.getParameterTypes());
+        reference(ms.getExceptionTypes());
 
         // Return a MethodFab so the caller can add catches.
 
-        MethodFab result = new MethodFabImpl(_source, ms, method);
+        MethodFab result = new MethodFabImpl(this, _source, ms, method);
 
         _methods.put(ms, result);
 
@@ -126,25 +266,36 @@ public class ClassFabImpl implements ClassFab
         return (MethodFab) _methods.get(ms);
     }
 
-    public void addConstructor(Class[] parameterTypes, Class[] exceptions, String body)
+    public void addConstructor(Class[] parameterTypes, Class[] exceptions, final String body)
     {
-        CtClass[] ctParameters = convertClasses(parameterTypes);
-        CtClass[] ctExceptions = convertClasses(exceptions);
-
-        try
-        {
-            CtConstructor constructor = new CtConstructor(ctParameters, _ctClass);
-            constructor.setExceptionTypes(ctExceptions);
-            constructor.setBody(body);
+        final CtClass[] ctParameters = convertClasses(parameterTypes);
+        final CtClass[] ctExceptions = convertClasses(exceptions);
 
-            _ctClass.addConstructor(constructor);
-        }
-        catch (Exception ex)
+        perform(new Runnable()
         {
-            throw new ApplicationRuntimeException(
-                ServiceMessages.unableToAddConstructor(_ctClass, ex),
-                ex);
-        }
+            public void run()
+            {
+                try
+                {
+                    CtConstructor constructor = new CtConstructor(ctParameters, _ctClass);
+                    constructor.setExceptionTypes(ctExceptions);
+                    constructor.setBody(body);
+
+                    _ctClass.addConstructor(constructor);
+                }
+                catch (Exception ex)
+                {
+                    throw new ApplicationRuntimeException(
+                        ServiceMessages.unableToAddConstructor(_ctClass, ex),
+                        ex);
+                }
+            }
+        });
+
+        describe("constructor " + new MethodSignature(void.class, "<init>", parameterTypes,
+                exceptions) + " {" + body + "}");
+        reference(parameterTypes);
+        reference(exceptions);
     }
 
     private CtClass[] convertClasses(Class[] inputClasses)
@@ -167,7 +318,28 @@ public class ClassFabImpl implements ClassFab
 
     public Class createClass()
     {
-        return _source.createClass(_ctClass);
+        if (_deferred == null)
+            return _source.createClass(_ctClass);
+
+        String key = _source.getCache().getKey(getName(), getDescription());
+
+        Class result = _source.findCachedClass(getName(), key);
+
+        if (result != null)
+            return result;
+
+        int count = _deferred.size();
+
+        for (int i = 0; i < count; i++)
+        {
+            Runnable change = (Runnable) _deferred.get(i);
+
+            change.run();
+        }
+
+        _deferred.clear();
+
+        return _source.createClass(_ctClass, key);
     }
 
 }
@@ -14,48 +14,313 @@
 
 package org.apache.hivemind.service.impl;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 import javassist.CtClass;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.hivemind.ApplicationRuntimeException;
 import org.apache.hivemind.service.ClassFab;
+import org.apache.hivemind.service.ClassFabUtils;
 import org.apache.hivemind.service.ClassFactory;
 
 /**
  * Implementation of {@link org.apache.hivemind.service.ClassFactory}.
+ * 
+ * <p>
+ * If the system property <code>hivemind.class-cache-dir</code> is set, the bytecode
+ * of each created class is stored in that directory, and an identical class created
+ * in a later run is loaded from there, rather than compiled.
  *
  * @author Howard Lewis Ship
  */
 public class ClassFactoryImpl implements ClassFactory
 {
+    private static final Log LOG = LogFactory.getLog(ClassFactoryImpl.class);
+
+    /**
+     * The path, within a JAR, of the list of classes (one fully qualified name per line,
+     * following {@link #PREGENERATED_CLASSES_HEADER}) generated ahead of time and stored
+     * in the JAR.
+     */
+    public static final String PREGENERATED_CLASSES = "META-INF/hivemind/pregenerated-classes";
+
+    /**
+     * The first line of the list of pregenerated classes, identifying the
+     * {@link ClassFabUtils#GENERATOR_VERSION} that generated them. A list generated by
+     * any other version is ignored.
+     */
+    public static final String PREGENERATED_CLASSES_HEADER =
+        "hivemind-pregenerated-classes " + ClassFabUtils.GENERATOR_VERSION;
+
+    /**
+     * The system property identifying the directory used to cache the bytecode of created
+     * classes.
+     */
+    public static final String CACHE_DIRECTORY_PROPERTY = "hivemind.class-cache-dir";
+
+    /**
+     * Classes with stable names, shared with the factories of other registries.
+     */
+    private static final SharedClassCache SHARED_CLASSES = new SharedClassCache();
+
     /**
      * ClassPool shared by all modules (all CtClassSource instances).
      */
     private HiveMindClassPool _pool = new HiveMindClassPool();
-    private CtClassSource _classSource = new CtClassSource(_pool);
+    private CtClassSource _classSource;
+    private BytecodeCache _cache;
 
     private Set _addedClassLoaders = new HashSet();
 
+    /**
+     * Set of names of pregenerated classes, keyed on class loader.
+     */
+    private Map _pregeneratedClassNames = new HashMap();
+
+    /**
+     * Names of classes that were sought by {@link #findPregeneratedClass(String, ClassLoader)},
+     * but not found.
+     */
+    private Set _pregenerableClassNames = new HashSet();
+
+    /**
+     * Names of classes created by this factory.
+     */
+    private Set _createdClassNames = new HashSet();
+
+    /**
+     * Creates a factory that caches bytecode in the directory identified by the
+     * <code>hivemind.class-cache-dir</code> system property, if set.
+     */
+    public ClassFactoryImpl()
+    {
+        this(getDefaultCacheDirectory());
+    }
+
+    /**
+     * @param cacheDirectory directory in which to cache bytecode, or null for no caching
+     */
+    public ClassFactoryImpl(File cacheDirectory)
+    {
+        if (cacheDirectory != null)
+            _cache = new BytecodeCache(cacheDirectory);
+
+        _classSource = new CtClassSource(_pool, _cache);
+    }
+
+    private static File getDefaultCacheDirectory()
+    {
+        String path = System.getProperty(CACHE_DIRECTORY_PROPERTY);
+
+        if (path == null || path.length() == 0)
+            return null;
+
+        return new File(path);
+    }
+
+    /**
+     * Returns the number of classes loaded from the bytecode cache, rather than compiled.
+     */
+    public int getCacheHitCount()
+    {
+        return _cache == null ? 0 : _cache.getHitCount();
+    }
+
+    /**
+     * Returns the number of classes sought in the bytecode cache, but not found there
+     * (and so compiled, and stored into the cache).
+     */
+    public int getCacheMissCount()
+    {
+        return _cache == null ? 0 : _cache.getMissCount();
+    }
+
     public ClassFab newClass(String name, Class superClass, ClassLoader loader)
     {
         updateSourceForClassLoader(loader);
 
+        String className = claimClassName(name);
+
+        // A class sought (by its stable name) but not found is shared once created.
+
+        if (className.equals(name) && isPregenerable(name))
+            SHARED_CLASSES.register(loader, name, _pool.getClassLoader());
+
         try
         {
-            CtClass ctNewClass = _classSource.newClass(name, superClass);
+            CtClass ctNewClass = _classSource.newClass(className, superClass);
 
-            return new ClassFabImpl(_classSource, ctNewClass);
+            return new ClassFabImpl(_classSource, ctNewClass, superClass);
         }
         catch (Exception ex)
         {
             throw new ApplicationRuntimeException(
-                ServiceMessages.unableToCreateClass(name, superClass, ex),
+                ServiceMessages.unableToCreateClass(className, superClass, ex),
                 ex);
         }
     }
 
+    /**
+     * Classes with stable names (see
+     * {@link org.apache.hivemind.service.ClassFabUtils#generateClassName(String, String, Class, String)})
+     * may be requested repeatedly (for example, an interceptor class for a threaded service is created
+     * for each thread); each repeat is given a unique name.
+     */
+    private synchronized String claimClassName(String name)
+    {
+        if (_createdClassNames.add(name))
+            return name;
+
+        String result = name + "_" + _createdClassNames.size();
+
+        _createdClassNames.add(result);
+
+        return result;
+    }
+
+    /**
+     * Finds a class generated ahead of time or, failing that, a class previously created,
+     * for a different registry, by another instance of this factory.
+     */
+    public Class findPregeneratedClass(String name, ClassLoader loader)
+    {
+        if (getPregeneratedClassNames(loader).contains(name))
+        {
+            try
+            {
+                return loader.loadClass(name);
+            }
+            catch (ClassNotFoundException ex)
+            {
+                LOG.warn(ServiceMessages.unableToLoadPregeneratedClass(name, ex));
+            }
+        }
+
+        Class shared = SHARED_CLASSES.find(loader, name);
+
+        if (shared != null)
+            return shared;
+
+        synchronized (this)
+        {
+            _pregenerableClassNames.add(name);
+        }
+
+        return null;
+    }
+
+    private synchronized boolean isPregenerable(String name)
+    {
+        return _pregenerableClassNames.contains(name);
+    }
+
+    private synchronized Set getPregeneratedClassNames(ClassLoader loader)
+    {
+        Set result = (Set) _pregeneratedClassNames.get(loader);
+
+        if (result == null)
+        {
+            result = readPregeneratedClassNames(loader);
+
+            _pregeneratedClassNames.put(loader, result);
+        }
+
+        return result;
+    }
+
+    private Set readPregeneratedClassNames(ClassLoader loader)
+    {
+        Set result = new HashSet();
+
+        try
+        {
+            Enumeration e = loader.getResources(PREGENERATED_CLASSES);
+
+            while (e.hasMoreElements())
+                readPregeneratedClassNames((URL) e.nextElement(), result);
+        }
+        catch (IOException ex)
+        {
+            LOG.warn(ServiceMessages.unableToReadPregeneratedClasses(loader, ex), ex);
+        }
+
+        return result;
+    }
+
+    private void readPregeneratedClassNames(URL url, Set names) throws IOException
+    {
+        InputStream stream = url.openStream();
+
+        try
+        {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+
+            String header = reader.readLine();
+
+            if (header == null || !header.trim().equals(PREGENERATED_CLASSES_HEADER))
+            {
+                LOG.warn(ServiceMessages.incompatiblePregeneratedClasses(url));
+                return;
+            }
+
+            while (true)
+            {
+                String line = reader.readLine();
+
+                if (line == null)
+                    break;
+
+                line = line.trim();
+
+                if (line.length() > 0)
+                    names.add(line);
+            }
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    /**
+     * Returns the bytecode for each class created by this factory that could have
+     * been generated ahead of time (that is, classes sought using
+     * {@link #findPregeneratedClass(String, ClassLoader)} but not found, and then
+     * created using {@link #newClass(String, Class, ClassLoader)}). Used
+     * to generate classes ahead of time.
+     * 
+     * @return Map of byte[], keyed on class name
+     */
+    public synchronized Map getPregenerableClasses()
+    {
+        Map result = new HashMap();
+
+        Iterator i = _pregenerableClassNames.iterator();
+
+        while (i.hasNext())
+        {
+            String name = (String) i.next();
+
+            if (_createdClassNames.contains(name))
+                result.put(name, _classSource.getBytecode(name));
+        }
+
+        return result;
+    }
+
     /**
      * Whenever a new class loader is encountered (which is, actually, 
      * fairly rare), update the pool (and, indirectly, the class source)
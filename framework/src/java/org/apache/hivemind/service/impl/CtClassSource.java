@@ -14,9 +14,14 @@
 
 package org.apache.hivemind.service.impl;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import javassist.CtClass;
 import javassist.NotFoundException;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.hivemind.ApplicationRuntimeException;
 import org.apache.hivemind.service.ClassFabUtils;
 
@@ -24,17 +29,47 @@ import org.apache.hivemind.service.ClassFabUtils;
  * Wrapper around Javassist's {@link javassist.ClassPool} and
  * our own {@link org.apache.hivemind.service.impl.ClassFactoryClassLoader}
  * that manages the creation of new instance of {@link javassist.CtClass}
- * and converts finished CtClass's into instantiable Classes.
+ * and converts finished CtClass's into instantiable Classes. Optionally,
+ * uses a {@link BytecodeCache} to load classes created in a previous run.
  *
  * @author Howard Lewis Ship
  */
 public class CtClassSource
 {
+    private static final Log LOG = LogFactory.getLog(CtClassSource.class);
+
     private HiveMindClassPool _pool;
+    private BytecodeCache _cache;
+
+    /**
+     * Cache keys of classes loaded from the cache, keyed on class name.
+     */
+    private Map _cachedClassKeys = new HashMap();
 
     public CtClassSource(HiveMindClassPool pool)
+    {
+        this(pool, null);
+    }
+
+    CtClassSource(HiveMindClassPool pool, BytecodeCache cache)
     {
         _pool = pool;
+        _cache = cache;
+    }
+
+    /**
+     * Returns true if classes are cached; in which case, {@link ClassFabImpl} defers
+     * compilation until {@link ClassFabImpl#createClass()}, and then only if the class
+     * is not in the cache.
+     */
+    boolean isCaching()
+    {
+        return _cache != null;
+    }
+
+    BytecodeCache getCache()
+    {
+        return _cache;
     }
 
     public CtClass getCtClass(Class searchClass)
@@ -62,19 +97,94 @@ public class CtClassSource
         return result;
     }
 
+    /**
+     * Returns the bytecode for a class previously created by
+     * {@link #createClass(CtClass)}.
+     */
+    public byte[] getBytecode(String className)
+    {
+        String key = getCachedClassKey(className);
+
+        if (key != null)
+            return _cache.read(key);
+
+        try
+        {
+            return _pool.write(className);
+        }
+        catch (Throwable ex)
+        {
+            throw new ApplicationRuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    private synchronized String getCachedClassKey(String className)
+    {
+        return (String) _cachedClassKeys.get(className);
+    }
+
+    /**
+     * Loads a class from the cache.
+     * 
+     * @param className the name of the class
+     * @param key the cache key for the class (see {@link BytecodeCache#getKey(String, String)})
+     * @return the class, or null if not cached (or the cached bytecode could not be loaded)
+     */
+    Class findCachedClass(String className, String key)
+    {
+        byte[] bytecode = _cache.read(key);
+
+        if (bytecode != null)
+        {
+            try
+            {
+                Class result = _pool.loadClass(className, bytecode);
+
+                synchronized (this)
+                {
+                    _cachedClassKeys.put(className, key);
+                }
+
+                _cache.recordHit(className);
+
+                return result;
+            }
+            catch (LinkageError ex)
+            {
+                LOG.warn(ServiceMessages.unableToLoadCachedClass(className, ex), ex);
+
+                _cache.remove(key);
+            }
+        }
+
+        _cache.recordMiss(className);
+
+        return null;
+    }
+
     public Class createClass(CtClass ctClass)
+    {
+        return createClass(ctClass, null);
+    }
+
+    /**
+     * Converts the CtClass to bytecode and loads it.
+     * 
+     * @param ctClass the completed class
+     * @param key if not null, the key used to store the bytecode into the cache
+     */
+    Class createClass(CtClass ctClass, String key)
     {
         String className = ctClass.getName();
 
         try
         {
-            _pool.write(className);
-
             byte[] bytecode = _pool.write(className);
 
             Class result = _pool.loadClass(className, bytecode);
 
-            // _cache.add(className, bytecode);
+            if (key != null)
+                _cache.write(key, bytecode);
 
             return result;
         }
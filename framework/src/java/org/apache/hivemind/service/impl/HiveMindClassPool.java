@@ -64,4 +64,12 @@ public class HiveMindClassPool extends ClassPool
     {
         return _loader.loadClass(name, bytecodes);
     }
+
+    /**
+     * Returns the class loader that defines the classes created by this pool.
+     */
+    ClassLoader getClassLoader()
+    {
+        return _loader;
+    }
 }
@@ -16,20 +16,20 @@ package org.apache.hivemind.service.impl;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
-import java.util.Iterator;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.InterceptorFragmentFactory;
 import org.apache.hivemind.InterceptorStack;
-import org.apache.hivemind.ServiceInterceptorFactory;
+import org.apache.hivemind.InterceptorWeaver;
 import org.apache.hivemind.internal.Module;
 import org.apache.hivemind.methodmatch.MethodMatcher;
 import org.apache.hivemind.service.BodyBuilder;
 import org.apache.hivemind.service.ClassFab;
 import org.apache.hivemind.service.ClassFabUtils;
 import org.apache.hivemind.service.ClassFactory;
-import org.apache.hivemind.service.MethodContribution;
+import org.apache.hivemind.service.InterceptorClassBuilder;
 import org.apache.hivemind.service.MethodFab;
 import org.apache.hivemind.service.MethodIterator;
 import org.apache.hivemind.service.MethodSignature;
@@ -44,10 +44,13 @@ import org.apache.hivemind.service.MethodSignature;
  * return value), plus log any exceptions thrown by the method. The logger used
  * is the <em>id of the service</em>, which is not necessarily the name of
  * the implementing class. Logging occurs at the debug level.
+ * <p>
+ * The logging may also be contributed as a fragment of a fused interceptor
+ * (see {@link org.apache.hivemind.InterceptorFragmentFactory}).
  * 
  * @author Howard Lewis Ship
  */
-public class LoggingInterceptorFactory implements ServiceInterceptorFactory
+public class LoggingInterceptorFactory implements InterceptorFragmentFactory
 {
     private ClassFactory _factory;
 
@@ -72,6 +75,42 @@ public class LoggingInterceptorFactory implements ServiceInterceptorFactory
     }
 
     protected void addServiceMethodImplementation(ClassFab classFab, MethodSignature sig)
+    {
+        String body = buildMethodBody(sig, "_log", "_inner." + sig.getName());
+
+        MethodFab methodFab = classFab.addMethod(Modifier.PUBLIC, sig, body);
+
+        addExceptionLogging(methodFab, sig, "_log");
+    }
+
+    /**
+     * Returns the type of the logger stored in the interceptor; subclasses that override
+     * this must also override {@link #getLogger(Log)},
+     * {@link #buildMethodBody(MethodSignature, String, String)} and
+     * {@link #buildExceptionBody(MethodSignature, String)}.
+     */
+    protected Class getLoggerType()
+    {
+        return Log.class;
+    }
+
+    /**
+     * Returns the logger stored in the interceptor; by default, the service's Log.
+     */
+    protected Object getLogger(Log serviceLog)
+    {
+        return serviceLog;
+    }
+
+    /**
+     * Builds the body of a logged method.
+     * 
+     * @param sig the method
+     * @param logField the name of the field storing the logger
+     * @param invocation the method (of the inner object) to invoke, such as
+     * <code>_inner.foo</code>
+     */
+    protected String buildMethodBody(MethodSignature sig, String logField, String invocation)
     {
         Class returnType = sig.getReturnType();
         String methodName = sig.getName();
@@ -81,10 +120,10 @@ public class LoggingInterceptorFactory implements ServiceInterceptorFactory
         BodyBuilder builder = new BodyBuilder();
 
         builder.begin();
-        builder.addln("boolean debug = _log.isDebugEnabled();");
+        builder.addln("boolean debug = " + logField + ".isDebugEnabled();");
 
         builder.addln("if (debug)");
-        builder.add("  org.apache.hivemind.service.impl.LoggingUtils.entry(_log, ");
+        builder.add("  org.apache.hivemind.service.impl.LoggingUtils.entry(" + logField + ", ");
         builder.addQuoted(methodName);
         builder.addln(", $args);");
 
@@ -94,21 +133,20 @@ public class LoggingInterceptorFactory implements ServiceInterceptorFactory
             builder.add(" result = ");
         }
 
-        builder.add("_inner.");
-        builder.add(methodName);
+        builder.add(invocation);
         builder.addln("($$);");
 
         if (isVoid)
         {
             builder.addln("if (debug)");
-            builder.add("  org.apache.hivemind.service.impl.LoggingUtils.voidExit(_log, ");
+            builder.add("  org.apache.hivemind.service.impl.LoggingUtils.voidExit(" + logField + ", ");
             builder.addQuoted(methodName);
             builder.addln(");");
         }
         else
         {
             builder.addln("if (debug)");
-            builder.add("  org.apache.hivemind.service.impl.LoggingUtils.exit(_log, ");
+            builder.add("  org.apache.hivemind.service.impl.LoggingUtils.exit(" + logField + ", ");
             builder.addQuoted(methodName);
             builder.addln(", ($w)result);");
             builder.addln("return result;");
@@ -116,18 +154,30 @@ public class LoggingInterceptorFactory implements ServiceInterceptorFactory
 
         builder.end();
 
-        MethodFab methodFab = classFab.addMethod(Modifier.PUBLIC, sig, builder.toString());
+        return builder.toString();
+    }
 
-        builder.clear();
+    /**
+     * Builds the body of the catch block that logs (and rethrows) an exception
+     * thrown by a method.
+     */
+    protected String buildExceptionBody(MethodSignature sig, String logField)
+    {
+        BodyBuilder builder = new BodyBuilder();
 
         builder.begin();
-        builder.add("org.apache.hivemind.service.impl.LoggingUtils.exception(_log, ");
-        builder.addQuoted(methodName);
+        builder.add("org.apache.hivemind.service.impl.LoggingUtils.exception(" + logField + ", ");
+        builder.addQuoted(sig.getName());
         builder.addln(", $e);");
         builder.addln("throw $e;");
         builder.end();
 
-        String body = builder.toString();
+        return builder.toString();
+    }
+
+    private void addExceptionLogging(MethodFab methodFab, MethodSignature sig, String logField)
+    {
+        String body = buildExceptionBody(sig, logField);
 
         Class[] exceptions = sig.getExceptionTypes();
 
@@ -146,7 +196,8 @@ public class LoggingInterceptorFactory implements ServiceInterceptorFactory
 
     protected void addServiceMethods(InterceptorStack stack, ClassFab fab, List parameters)
     {
-        MethodMatcher matcher = buildMethodMatcher(parameters);
+        MethodMatcher matcher =
+            InterceptorClassBuilder.buildMethodMatcher(parameters, stack.getServiceInterface());
 
         MethodIterator mi = new MethodIterator(stack.getServiceInterface());
 
@@ -154,7 +205,7 @@ public class LoggingInterceptorFactory implements ServiceInterceptorFactory
         {
             MethodSignature sig = mi.next();
 
-            if (includeMethod(matcher, sig))
+            if (InterceptorClassBuilder.includeMethod(matcher, sig))
                 addServiceMethodImplementation(fab, sig);
             else
                 addPassThruMethodImplementation(fab, sig);
@@ -175,62 +226,43 @@ public class LoggingInterceptorFactory implements ServiceInterceptorFactory
 
     }
 
-    private MethodMatcher buildMethodMatcher(List parameters)
+    private Class constructInterceptorClass(final InterceptorStack stack, final List parameters)
     {
-        MethodMatcher result = null;
-
-        Iterator i = parameters.iterator();
-        while (i.hasNext())
+        InterceptorClassBuilder builder = new InterceptorClassBuilder(_factory, stack)
         {
-            MethodContribution mc = (MethodContribution) i.next();
-
-            if (result == null)
-                result = new MethodMatcher();
-
-            result.put(mc.getMethodPattern(), mc);
-        }
-
-        return result;
-    }
-
-    private Class constructInterceptorClass(InterceptorStack stack, List parameters)
-    {
-        Class serviceInterfaceClass = stack.getServiceInterface();
-        Module module = stack.getServiceModule();
-
-        String name = ClassFabUtils.generateClassName("Interceptor");
-
-        ClassFab classFab = _factory.newClass(name, Object.class, module.getClassResolver().getClassLoader());
-
-        classFab.addInterface(serviceInterfaceClass);
-
-        createInfrastructure(stack, classFab);
-
-        addServiceMethods(stack, classFab, parameters);
-
-        return classFab.createClass();
+            protected void createInfrastructure(ClassFab classFab)
+            {
+                LoggingInterceptorFactory.this.createInfrastructure(classFab, getTopClass());
+            }
+
+            protected void addServiceMethods(ClassFab classFab)
+            {
+                LoggingInterceptorFactory.this.addServiceMethods(stack, classFab, parameters);
+            }
+        };
+
+        return builder.constructInterceptorClass(InterceptorClassBuilder.buildClassKey(
+                this,
+                _serviceId,
+                parameters));
     }
 
-    private void createInfrastructure(InterceptorStack stack, ClassFab classFab)
+    private void createInfrastructure(ClassFab classFab, Class topClass)
     {
-        Class topClass = ClassFabUtils.getInstanceClass(stack.peek(), stack.getServiceInterface());
+        Class loggerType = getLoggerType();
 
-        classFab.addField("_log", Log.class);
+        classFab.addField("_log", loggerType);
 
         // This is very important: since we know the instance of the top object
-        // (the next
-        // object in the pipeline for this service), we can build the instance
-        // variable
-        // and constructor to use the exact class rather than the service
-        // interface.
+        // (the next object in the pipeline for this service), the _inner field
+        // (added by InterceptorClassBuilder) and the constructor use the exact class
+        // rather than the service interface.
         // That's more efficient at runtime, lowering the cost of using
         // interceptors.
         // One of the reasons I prefer Javassist over JDK Proxies.
 
-        classFab.addField("_inner", topClass);
-
         classFab.addConstructor(new Class[]
-        { Log.class, topClass }, null, "{ _log = $1; _inner = $2; }");
+        { loggerType, topClass }, null, "{ _log = $1; _inner = $2; }");
     }
 
     /**
@@ -257,14 +289,31 @@ public class LoggingInterceptorFactory implements ServiceInterceptorFactory
         }
     }
 
-    private boolean includeMethod(MethodMatcher matcher, MethodSignature sig)
+    /**
+     * Contributes logging of each included method to a fused interceptor.
+     */
+    public void contributeFragment(InterceptorWeaver weaver, Module invokingModule, List parameters)
     {
-        if (matcher == null)
-            return true;
+        String logField =
+            weaver.addField("_log", getLoggerType(), getLogger(weaver.getServiceLog()));
+
+        MethodMatcher matcher =
+            InterceptorClassBuilder.buildMethodMatcher(parameters, weaver.getServiceInterface());
 
-        MethodContribution mc = (MethodContribution) matcher.get(sig);
+        MethodIterator mi = new MethodIterator(weaver.getServiceInterface());
 
-        return mc == null || mc.getInclude();
+        while (mi.hasNext())
+        {
+            MethodSignature sig = mi.next();
+
+            if (!InterceptorClassBuilder.includeMethod(matcher, sig))
+                continue;
+
+            MethodFab methodFab =
+                weaver.wrapMethod(sig, buildMethodBody(sig, logField, "$proceed"));
+
+            addExceptionLogging(methodFab, sig, logField);
+        }
     }
 
     private Object instantiateInterceptor(InterceptorStack stack, Class interceptorClass) throws Exception
@@ -274,7 +323,7 @@ public class LoggingInterceptorFactory implements ServiceInterceptorFactory
         Constructor c = interceptorClass.getConstructors()[0];
 
         return c.newInstance(new Object[]
-        { stack.getServiceLog(), stackTop });
+        { getLogger(stack.getServiceLog()), stackTop });
     }
 
     public void setFactory(ClassFactory factory)
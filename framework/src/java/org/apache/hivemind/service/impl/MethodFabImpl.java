@@ -31,48 +31,72 @@ import org.apache.hivemind.service.MethodSignature;
  */
 class MethodFabImpl implements MethodFab
 {
+    private ClassFabImpl _classFab;
     private CtClassSource _source;
     private MethodSignature _signature;
     private CtMethod _method;
 
-    public MethodFabImpl(CtClassSource source, MethodSignature signature, CtMethod method)
+    public MethodFabImpl(
+        ClassFabImpl classFab,
+        CtClassSource source,
+        MethodSignature signature,
+        CtMethod method)
     {
+        _classFab = classFab;
         _source = source;
         _signature = signature;
         _method = method;
     }
 
-    public void addCatch(Class exceptionClass, String catchBody)
+    public void addCatch(final Class exceptionClass, final String catchBody)
     {
-        CtClass ctException = _source.getCtClass(exceptionClass);
+        final CtClass ctException = _source.getCtClass(exceptionClass);
 
-        try
+        _classFab.perform(new Runnable()
         {
-            _method.addCatch(catchBody, ctException);
-        }
-        catch (Exception ex)
-        {
-            throw new ApplicationRuntimeException(
-                ServiceMessages.unableToAddCatch(exceptionClass, _method, ex),
-                ex);
-        }
+            public void run()
+            {
+                try
+                {
+                    _method.addCatch(catchBody, ctException);
+                }
+                catch (Exception ex)
+                {
+                    throw new ApplicationRuntimeException(
+                        ServiceMessages.unableToAddCatch(exceptionClass, _method, ex),
+                        ex);
+                }
+            }
+        });
+
+        _classFab.describe("catch " + _signature + " " + exceptionClass.getName() + " {"
+                + catchBody + "}");
+        _classFab.reference(exceptionClass);
     }
 
-    public void extend(String body, boolean asFinally)
+    public void extend(final String body, final boolean asFinally)
     {
-        try
+        _classFab.perform(new Runnable()
         {
-            _method.insertAfter(body, asFinally);
-        }
-        catch (Exception ex)
-        {
-            throw new ApplicationRuntimeException(
-                ServiceMessages.unableToExtendMethod(
-                    _signature,
-                    _method.getDeclaringClass().getName(),
-                    ex),
-                ex);
-        }
+            public void run()
+            {
+                try
+                {
+                    _method.insertAfter(body, asFinally);
+                }
+                catch (Exception ex)
+                {
+                    throw new ApplicationRuntimeException(
+                        ServiceMessages.unableToExtendMethod(
+                            _signature,
+                            _method.getDeclaringClass().getName(),
+                            ex),
+                        ex);
+                }
+            }
+        });
+
+        _classFab.describe("extend " + _signature + " " + asFinally + " {" + body + "}");
     }
 
 }
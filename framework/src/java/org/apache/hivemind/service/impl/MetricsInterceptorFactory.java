@@ -0,0 +1,260 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.service.impl;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.InterceptorFragmentFactory;
+import org.apache.hivemind.InterceptorStack;
+import org.apache.hivemind.InterceptorWeaver;
+import org.apache.hivemind.internal.Module;
+import org.apache.hivemind.methodmatch.MethodMatcher;
+import org.apache.hivemind.service.BodyBuilder;
+import org.apache.hivemind.service.ClassFab;
+import org.apache.hivemind.service.ClassFabUtils;
+import org.apache.hivemind.service.ClassFactory;
+import org.apache.hivemind.service.InterceptorClassBuilder;
+import org.apache.hivemind.service.MethodIterator;
+import org.apache.hivemind.service.MethodMetrics;
+import org.apache.hivemind.service.MethodSignature;
+import org.apache.hivemind.service.MetricsSnapshot;
+
+/**
+ * An interceptor factory that counts the invocations of each method of a service, and records
+ * their latency (separately for invocations that throw an exception). The interceptor has a
+ * field, of type {@link MethodMetrics}, for each instrumented method; the metrics are obtained
+ * from (and reported by) the {@link MetricsSnapshot} service.
+ * <p>
+ * Parameters are the same as for the {@link LoggingInterceptorFactory}: methods may be included
+ * or excluded by method pattern, and methods that match no pattern are instrumented.
+ * <p>
+ * Latency is measured with <code>System.nanoTime()</code> when the JVM provides it, and with
+ * <code>System.currentTimeMillis()</code> otherwise.
+ *
+ * @author Howard Lewis Ship
+ */
+public class MetricsInterceptorFactory implements InterceptorFragmentFactory
+{
+    /**
+     * The expression used, in generated code, to read the time (in nanoseconds).
+     */
+    private static final String TIMER = findTimer();
+
+    private ClassFactory _factory;
+
+    private MetricsSnapshot _metrics;
+
+    private String _serviceId;
+
+    private static String findTimer()
+    {
+        try
+        {
+            System.class.getMethod("nanoTime", null);
+
+            return "System.nanoTime()";
+        }
+        catch (NoSuchMethodException ex)
+        {
+            return "(System.currentTimeMillis() * 1000000L)";
+        }
+    }
+
+    /**
+     * Builds the body of an instrumented method. The invocation is timed whether it completes
+     * normally or throws an exception; the catch block (which stands in for a finally block)
+     * is in the body, where it can see the start time.
+     * 
+     * @param sig the method
+     * @param metricsField the name of the field storing the method's {@link MethodMetrics}
+     * @param invocation the method (of the inner object) to invoke, such as
+     * <code>_inner.foo</code>
+     */
+    private String buildMethodBody(MethodSignature sig, String metricsField, String invocation)
+    {
+        Class returnType = sig.getReturnType();
+        boolean isVoid = (returnType == void.class);
+
+        BodyBuilder builder = new BodyBuilder();
+
+        builder.begin();
+        builder.addln("long start = " + TIMER + ";");
+
+        if (!isVoid)
+            builder.addln(ClassFabUtils.getJavaClassName(returnType) + " result;");
+
+        builder.addln("try");
+        builder.begin();
+
+        if (!isVoid)
+            builder.add("result = ");
+
+        builder.add(invocation);
+        builder.addln("($$);");
+
+        builder.end();
+        builder.addln("catch (java.lang.Throwable ex)");
+        builder.begin();
+        builder.addln(metricsField + ".recordFailure(" + TIMER + " - start);");
+        builder.addln("throw ex;");
+        builder.end();
+
+        builder.addln(metricsField + ".record(" + TIMER + " - start);");
+
+        if (!isVoid)
+            builder.addln("return result;");
+
+        builder.end();
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns the methods of the service interface to instrument.
+     */
+    private List findMethods(Class serviceInterface, List parameters)
+    {
+        MethodMatcher matcher =
+            InterceptorClassBuilder.buildMethodMatcher(parameters, serviceInterface);
+        List result = new ArrayList();
+
+        MethodIterator mi = new MethodIterator(serviceInterface);
+
+        while (mi.hasNext())
+        {
+            MethodSignature sig = mi.next();
+
+            if (InterceptorClassBuilder.includeMethod(matcher, sig))
+                result.add(sig);
+        }
+
+        return result;
+    }
+
+    private MethodMetrics[] getMethodMetrics(String serviceId, List methods)
+    {
+        int count = methods.size();
+        MethodMetrics[] result = new MethodMetrics[count];
+
+        for (int i = 0; i < count; i++)
+            result[i] = _metrics.getMethodMetrics(serviceId, (MethodSignature) methods.get(i));
+
+        return result;
+    }
+
+    private Class constructInterceptorClass(InterceptorStack stack, final List methods,
+            List parameters)
+    {
+        InterceptorClassBuilder builder = new InterceptorClassBuilder(_factory, stack)
+        {
+            protected void createInfrastructure(ClassFab classFab)
+            {
+                addMethodFields(classFab, "_metrics", MethodMetrics.class, methods.size());
+            }
+
+            protected void addServiceMethods(ClassFab classFab)
+            {
+                MethodIterator mi = new MethodIterator(getStack().getServiceInterface());
+
+                while (mi.hasNext())
+                {
+                    MethodSignature sig = mi.next();
+                    int index = methods.indexOf(sig);
+
+                    if (index < 0)
+                        addPassThruMethod(classFab, sig);
+                    else
+                        classFab.addMethod(Modifier.PUBLIC, sig, buildMethodBody(
+                                sig,
+                                "_metrics" + index,
+                                "_inner." + sig.getName()));
+                }
+
+                if (!mi.getToString())
+                    addToStringMethod(classFab, "MetricsInterceptor");
+            }
+        };
+
+        return builder.constructInterceptorClass(InterceptorClassBuilder.buildClassKey(
+                this,
+                _serviceId,
+                parameters));
+    }
+
+    public void createInterceptor(InterceptorStack stack, Module invokingModule, List parameters)
+    {
+        List methods = findMethods(stack.getServiceInterface(), parameters);
+
+        Class interceptorClass = constructInterceptorClass(stack, methods, parameters);
+
+        try
+        {
+            Constructor c = interceptorClass.getConstructors()[0];
+
+            Object interceptor = c.newInstance(new Object[]
+            { getMethodMetrics(stack.getServiceExtensionPointId(), methods), stack.peek() });
+
+            stack.push(interceptor);
+        }
+        catch (Exception ex)
+        {
+            throw new ApplicationRuntimeException(ServiceMessages.errorInstantiatingInterceptor(
+                    _serviceId,
+                    stack,
+                    interceptorClass,
+                    ex), ex);
+        }
+    }
+
+    /**
+     * Contributes the instrumentation of each included method to a fused interceptor.
+     */
+    public void contributeFragment(InterceptorWeaver weaver, Module invokingModule,
+            List parameters)
+    {
+        List methods = findMethods(weaver.getServiceInterface(), parameters);
+        MethodMetrics[] metrics = getMethodMetrics(weaver.getServiceExtensionPointId(), methods);
+
+        int count = methods.size();
+
+        for (int i = 0; i < count; i++)
+        {
+            MethodSignature sig = (MethodSignature) methods.get(i);
+
+            String field = weaver.addField("_metrics", MethodMetrics.class, metrics[i]);
+
+            weaver.wrapMethod(sig, buildMethodBody(sig, field, "$proceed"));
+        }
+    }
+
+    public void setFactory(ClassFactory factory)
+    {
+        _factory = factory;
+    }
+
+    public void setMetrics(MetricsSnapshot metrics)
+    {
+        _metrics = metrics;
+    }
+
+    public void setServiceId(String serviceId)
+    {
+        _serviceId = serviceId;
+    }
+}
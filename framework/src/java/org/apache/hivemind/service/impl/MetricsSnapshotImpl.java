@@ -0,0 +1,120 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.service.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hivemind.service.MethodMetrics;
+import org.apache.hivemind.service.MethodSignature;
+import org.apache.hivemind.service.MethodStatistics;
+import org.apache.hivemind.service.MetricsSnapshot;
+
+/**
+ * Implementation of the <code>hivemind.MetricsSnapshot</code> service.
+ *
+ * @author Howard Lewis Ship
+ */
+public class MetricsSnapshotImpl implements MetricsSnapshot
+{
+    /**
+     * Keyed on service id; values are maps of {@link MethodMetrics}, keyed on method name.
+     */
+    private final Map _metrics = new TreeMap();
+
+    public synchronized MethodMetrics getMethodMetrics(String serviceId, MethodSignature signature)
+    {
+        Map methods = (Map) _metrics.get(serviceId);
+
+        if (methods == null)
+        {
+            methods = new TreeMap();
+            _metrics.put(serviceId, methods);
+        }
+
+        String methodName = signature.getDescription();
+
+        MethodMetrics result = (MethodMetrics) methods.get(methodName);
+
+        if (result == null)
+        {
+            result = new MethodMetrics(serviceId, methodName);
+            methods.put(methodName, result);
+        }
+
+        return result;
+    }
+
+    private synchronized List getMetrics()
+    {
+        List result = new ArrayList();
+
+        Iterator i = _metrics.values().iterator();
+        while (i.hasNext())
+        {
+            Map methods = (Map) i.next();
+
+            result.addAll(methods.values());
+        }
+
+        return result;
+    }
+
+    public List getStatistics()
+    {
+        List metrics = getMetrics();
+        int count = metrics.size();
+        List result = new ArrayList(count);
+
+        for (int i = 0; i < count; i++)
+        {
+            MethodMetrics mm = (MethodMetrics) metrics.get(i);
+
+            result.add(mm.getStatistics());
+        }
+
+        return result;
+    }
+
+    public String getReport()
+    {
+        List statistics = getStatistics();
+        int count = statistics.size();
+        StringBuffer buffer = new StringBuffer();
+        String serviceId = null;
+
+        for (int i = 0; i < count; i++)
+        {
+            MethodStatistics ms = (MethodStatistics) statistics.get(i);
+
+            if (!ms.getServiceId().equals(serviceId))
+            {
+                serviceId = ms.getServiceId();
+
+                buffer.append(serviceId);
+                buffer.append('\n');
+            }
+
+            buffer.append("  ");
+            buffer.append(ms);
+            buffer.append('\n');
+        }
+
+        return buffer.toString();
+    }
+}
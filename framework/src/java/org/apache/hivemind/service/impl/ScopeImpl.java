@@ -0,0 +1,127 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.service.Scope;
+import org.apache.hivemind.service.ScopeListener;
+import org.apache.hivemind.util.ToStringBuilder;
+
+/**
+ * Implementation of {@link org.apache.hivemind.service.Scope}, created by
+ * {@link org.apache.hivemind.service.impl.ScopeManagerImpl}.
+ *
+ * @author Howard Lewis Ship
+ */
+final class ScopeImpl implements Scope
+{
+    private final ScopeManagerImpl _manager;
+
+    /**
+     * The scope attached to the opening thread when this scope was opened, or null; re-attached
+     * (if still open) when this scope is closed.
+     */
+    private final Scope _enclosingScope;
+
+    /**
+     * Values stored in the scope, in the order stored (so that listeners are notified
+     * in a predictable order). Null once closed.
+     */
+    private Map _values = new HashMap();
+    private List _keys = new ArrayList();
+
+    ScopeImpl(ScopeManagerImpl manager, Scope enclosingScope)
+    {
+        _manager = manager;
+        _enclosingScope = enclosingScope;
+    }
+
+    Scope getEnclosingScope()
+    {
+        return _enclosingScope;
+    }
+
+    public synchronized Object get(Object key)
+    {
+        return _values == null ? null : _values.get(key);
+    }
+
+    public synchronized Object putIfAbsent(Object key, Object value)
+    {
+        if (_values == null)
+            throw new ApplicationRuntimeException(ServiceMessages.scopeClosed(this));
+
+        Object result = _values.get(key);
+
+        if (result != null)
+            return result;
+
+        _values.put(key, value);
+        _keys.add(key);
+
+        return value;
+    }
+
+    public void close()
+    {
+        Map values;
+        List keys;
+
+        synchronized (this)
+        {
+            if (_values == null)
+                return;
+
+            values = _values;
+            keys = _keys;
+
+            _values = null;
+            _keys = null;
+        }
+
+        _manager.scopeClosed(this);
+
+        // Notify outside of the lock; listeners may do just about anything.
+
+        int count = keys.size();
+
+        for (int i = 0; i < count; i++)
+        {
+            Object value = values.get(keys.get(i));
+
+            if (value instanceof ScopeListener)
+                ((ScopeListener) value).scopeDidClose();
+        }
+    }
+
+    public synchronized boolean isClosed()
+    {
+        return _values == null;
+    }
+
+    public String toString()
+    {
+        ToStringBuilder builder = new ToStringBuilder(this);
+
+        builder.append("closed", isClosed());
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,72 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.service.impl;
+
+import org.apache.hivemind.service.Scope;
+import org.apache.hivemind.service.ScopeManager;
+
+/**
+ * Implementation of {@link org.apache.hivemind.service.ScopeManager},
+ * available as service <code>hivemind.ScopeManager</code>.
+ *
+ * @author Howard Lewis Ship
+ */
+public class ScopeManagerImpl implements ScopeManager
+{
+    private ThreadLocal _current = new ThreadLocal();
+
+    public Scope openScope()
+    {
+        Scope result = new ScopeImpl(this, (Scope) _current.get());
+
+        _current.set(result);
+
+        return result;
+    }
+
+    public Scope getCurrentScope()
+    {
+        return (Scope) _current.get();
+    }
+
+    public Scope attach(Scope scope)
+    {
+        Scope result = (Scope) _current.get();
+
+        _current.set(scope);
+
+        return result;
+    }
+
+    /**
+     * Invoked when a scope is closed; if the scope is attached to the current thread,
+     * re-attaches the innermost open scope enclosing it (if any).
+     */
+    void scopeClosed(ScopeImpl scope)
+    {
+        if (_current.get() != scope)
+            return;
+
+        Scope enclosing = scope.getEnclosingScope();
+
+        // Skip enclosing scopes that have been closed (out of order) in the meantime.
+
+        while (enclosing != null && enclosing.isClosed())
+            enclosing =
+                enclosing instanceof ScopeImpl ? ((ScopeImpl) enclosing).getEnclosingScope() : null;
+
+        _current.set(enclosing);
+    }
+}
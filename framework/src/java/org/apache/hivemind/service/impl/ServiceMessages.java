@@ -15,6 +15,8 @@
 package org.apache.hivemind.service.impl;
 
 import java.beans.EventSetDescriptor;
+import java.io.File;
+import java.net.URL;
 
 import javassist.CtClass;
 import javassist.CtMethod;
@@ -23,6 +25,7 @@ import org.apache.hivemind.InterceptorStack;
 import org.apache.hivemind.Location;
 import org.apache.hivemind.impl.MessageFormatter;
 import org.apache.hivemind.service.MethodSignature;
+import org.apache.hivemind.service.Scope;
 
 /**
  * Messages for the service.impl package.
@@ -195,4 +198,49 @@ final class ServiceMessages
     {
         return _formatter.format("autowire-property-failure", propertyName, serviceId, cause);
     }
+
+    public static String unableToLoadPregeneratedClass(String className, Throwable cause)
+    {
+        return _formatter.format("unable-to-load-pregenerated-class", className, cause);
+    }
+
+    public static String unableToReadPregeneratedClasses(ClassLoader loader, Throwable cause)
+    {
+        return _formatter.format("unable-to-read-pregenerated-classes", loader, cause);
+    }
+
+    public static String incompatiblePregeneratedClasses(URL url)
+    {
+        return _formatter.format("incompatible-pregenerated-classes", url);
+    }
+
+    public static String unableToReadCachedClass(File file, Throwable cause)
+    {
+        return _formatter.format("unable-to-read-cached-class", file, cause);
+    }
+
+    public static String unableToWriteCachedClass(File file, Throwable cause)
+    {
+        return _formatter.format("unable-to-write-cached-class", file, cause);
+    }
+
+    public static String unableToRename(File file, File newFile)
+    {
+        return _formatter.format("unable-to-rename", file, newFile);
+    }
+
+    public static String unableToLoadCachedClass(String className, Throwable cause)
+    {
+        return _formatter.format("unable-to-load-cached-class", className, cause);
+    }
+
+    public static String scopeClosed(Scope scope)
+    {
+        return _formatter.format("scope-closed", scope);
+    }
+
+    public static String asyncLogEventsDropped(int count)
+    {
+        return _formatter.format("async-log-events-dropped", new Integer(count));
+    }
 }
@@ -0,0 +1,106 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.hivemind.service.impl;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Shared by all instances of {@link ClassFactoryImpl} (and so, by all registries), tracks
+ * which class loader defined each class that has a stable name (see
+ * {@link org.apache.hivemind.service.ClassFabUtils#generateClassName(String, String, Class, String)}),
+ * such as a service proxy or interceptor class. When a registry is rebuilt (for example, by
+ * <code>HiveMindFilter</code>, or repeatedly within a test suite), the new registry reuses these
+ * classes, rather than creating identical copies.
+ * 
+ * <p>
+ * Classes are tracked per class loader (the loader passed to
+ * {@link ClassFactoryImpl#newClass(String, Class, ClassLoader)}). Both that loader and the
+ * loader that defined the class are only weakly referenced; neither is kept from being garbage
+ * collected (for example, when an application is redeployed), and the classes of a discarded
+ * registry are only retained while a later registry is using them.
+ *
+ * @author Howard Lewis Ship
+ */
+final class SharedClassCache
+{
+    /**
+     * Map (with weak keys) of Map, keyed on ClassLoader. Each inner Map is of
+     * {@link WeakReference} (to the defining class loader), keyed on class name.
+     */
+    private final Map _classLoaders = new WeakHashMap();
+
+    /**
+     * Records that a class, with the given stable name, has been defined by
+     * <code>definingLoader</code>.
+     */
+    synchronized void register(ClassLoader loader, String className, ClassLoader definingLoader)
+    {
+        Map definingLoaders = (Map) _classLoaders.get(loader);
+
+        if (definingLoaders == null)
+        {
+            definingLoaders = new HashMap();
+
+            _classLoaders.put(loader, definingLoaders);
+        }
+
+        definingLoaders.put(className, new WeakReference(definingLoader));
+    }
+
+    /**
+     * Returns the class with the given name, previously defined for the loader, or null
+     * if no such class exists (or it was never completed, or has since been garbage collected).
+     */
+    Class find(ClassLoader loader, String className)
+    {
+        ClassLoader definingLoader = getDefiningLoader(loader, className);
+
+        if (definingLoader == null)
+            return null;
+
+        try
+        {
+            return definingLoader.loadClass(className);
+        }
+        catch (ClassNotFoundException ex)
+        {
+            return null;
+        }
+    }
+
+    private synchronized ClassLoader getDefiningLoader(ClassLoader loader, String className)
+    {
+        Map definingLoaders = (Map) _classLoaders.get(loader);
+
+        if (definingLoaders == null)
+            return null;
+
+        WeakReference reference = (WeakReference) definingLoaders.get(className);
+
+        if (reference == null)
+            return null;
+
+        ClassLoader result = (ClassLoader) reference.get();
+
+        if (result == null)
+            definingLoaders.remove(className);
+
+        return result;
+    }
+}
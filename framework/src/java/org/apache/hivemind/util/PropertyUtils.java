@@ -24,11 +24,18 @@ import org.apache.hivemind.ApplicationRuntimeException;
 /**
  * A collection of static methods used to perform property-level access on arbitrary objects.
  *
+ * <p>
+ * The per-class information is kept in a copy-on-write map, so that it may be found without
+ * locking.
+ *
  * @author Howard Lewis Ship
  */
 public class PropertyUtils
 {
-    private static final Map _classAdaptors = new HashMap();
+    /**
+     * {@link ClassAdaptor}, keyed on Class. Replaced, never modified, once published.
+     */
+    private static volatile Map _classAdaptors = new HashMap();
 
     // Prevent instantiation
     private PropertyUtils()
@@ -123,7 +130,7 @@ public class PropertyUtils
         return getAdaptor(target).getWriteableProperties();
     }
 
-    private static synchronized ClassAdaptor getAdaptor(Object target)
+    private static ClassAdaptor getAdaptor(Object target)
     {
         if (target == null)
             throw new ApplicationRuntimeException(UtilMessages.nullObject());
@@ -132,10 +139,25 @@ public class PropertyUtils
 
         ClassAdaptor result = (ClassAdaptor) _classAdaptors.get(targetClass);
 
+        if (result == null)
+            result = addAdaptor(target, targetClass);
+
+        return result;
+    }
+
+    private static synchronized ClassAdaptor addAdaptor(Object target, Class targetClass)
+    {
+        ClassAdaptor result = (ClassAdaptor) _classAdaptors.get(targetClass);
+
         if (result == null)
         {
             result = buildClassAdaptor(target, targetClass);
-            _classAdaptors.put(targetClass, result);
+
+            Map classAdaptors = new HashMap(_classAdaptors);
+
+            classAdaptors.put(targetClass, result);
+
+            _classAdaptors = classAdaptors;
         }
 
         return result;
@@ -164,7 +186,7 @@ public class PropertyUtils
 	 */
     public static synchronized void clearCache()
     {
-        _classAdaptors.clear();
+        _classAdaptors = new HashMap();
     }
 
 }
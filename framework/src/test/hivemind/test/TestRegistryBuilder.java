@@ -70,6 +70,41 @@ public class TestRegistryBuilder extends FrameworkTestCase
         assertEquals("wilma", d.getValue());
     }
 
+    /**
+     * Same as {@link #testLookup()}, but with the descriptors parsed concurrently.
+     */
+    public void testParallelLookup() throws Exception
+    {
+        File f = new File(getFrameworkPath("src/test-data/TestRegistryBuilder.jar"));
+
+        URL[] urls = new URL[] { f.toURL()};
+
+        ClassLoader loader =
+            new URLClassLoader(urls, Thread.currentThread().getContextClassLoader());
+
+        ClassResolver resolver = new DefaultClassResolver(loader);
+
+        RegistryBuilder b = new RegistryBuilder();
+        b.setParseThreadCount(4);
+        b.processModules(resolver);
+
+        RegistryInfrastructure r =
+            (RegistryInfrastructure) b.constructRegistry(Locale.getDefault());
+
+        List l = r.getConfiguration("hivemind.test.config.Symbols");
+        assertEquals(1, l.size());
+
+        Datum d = (Datum) l.get(0);
+
+        assertEquals("wife", d.getKey());
+        assertEquals("wilma", d.getValue());
+
+        ClassFactory factory =
+            (ClassFactory) r.getService("hivemind.ClassFactory", ClassFactory.class);
+
+        assertNotNull(factory);
+    }
+
     public void testConstructDefaultRegistry() throws Exception
     {
         Registry r = RegistryBuilder.constructDefaultRegistry();
@@ -0,0 +1,145 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package hivemind.test.ant;
+
+import hivemind.test.FrameworkTestCase;
+
+import java.io.File;
+
+import org.apache.hivemind.ant.ConstructRegistryImage;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.types.Path;
+
+/**
+ * Tests for the {@link org.apache.hivemind.ant.ConstructRegistryImage} Ant task. The content of
+ * the image is tested by {@link org.apache.hivemind.impl.TestRegistryImage}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestConstructRegistryImage extends FrameworkTestCase
+{
+    protected Project _project = new Project();
+
+    protected ConstructRegistryImage create()
+    {
+        Target t = new Target();
+
+        ConstructRegistryImage result = new ConstructRegistryImage();
+        result.setProject(_project);
+        result.setOwningTarget(t);
+        result.setTaskName("constructRegistryImage");
+
+        return result;
+    }
+
+    public void testNoFile() throws Exception
+    {
+        ConstructRegistryImage cri = create();
+
+        try
+        {
+            cri.execute();
+            unreachable();
+        }
+        catch (BuildException ex)
+        {
+            assertExceptionSubstring(ex, "You must specify an output file");
+        }
+    }
+
+    public void testNoDescriptors() throws Exception
+    {
+        ConstructRegistryImage cri = create();
+
+        File f = File.createTempFile("testNoDescriptors-", ".image");
+
+        cri.setOutput(f);
+
+        assertSame(f, cri.getOutput());
+
+        try
+        {
+            cri.execute();
+            unreachable();
+        }
+        catch (BuildException ex)
+        {
+            assertExceptionSubstring(ex, "You must specify a set of module descriptors");
+        }
+
+        f.delete();
+    }
+
+    public void testUptoDate() throws Exception
+    {
+        ConstructRegistryImage cri = create();
+
+        Path p = cri.createDescriptors();
+
+        p.createPath().setLocation(
+            new File(getFrameworkPath("src/test/hivemind/test/OuterModule.xml")));
+
+        File output = File.createTempFile("testUptoDate-", ".image");
+
+        // Delete the file, to force the task to re-create it.
+
+        output.delete();
+
+        cri.setOutput(output);
+
+        cri.execute();
+
+        assertEquals(true, output.length() > 0);
+
+        long stamp = output.lastModified();
+
+        cri.execute();
+
+        assertEquals(stamp, output.lastModified());
+
+        output.delete();
+    }
+
+    public void testInvalidDescriptor() throws Exception
+    {
+        ConstructRegistryImage cri = create();
+
+        Path p = cri.createDescriptors();
+
+        p.createPath().setLocation(
+            new File(getFrameworkPath("src/test/hivemind/test/parse/BadAttribute.xml")));
+
+        File output = File.createTempFile("testInvalidDescriptor-", ".image");
+
+        output.delete();
+
+        cri.setOutput(output);
+
+        try
+        {
+            cri.execute();
+            unreachable();
+        }
+        catch (BuildException ex)
+        {
+            assertExceptionSubstring(ex, "Unknown attribute 'bad-attribute'");
+        }
+
+        assertEquals(false, output.exists());
+    }
+}
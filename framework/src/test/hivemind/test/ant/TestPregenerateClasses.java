@@ -0,0 +1,286 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package hivemind.test.ant;
+
+import hivemind.test.FrameworkTestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.ant.PregenerateClasses;
+import org.apache.hivemind.impl.DefaultClassResolver;
+import org.apache.hivemind.impl.RegistryBuilder;
+import org.apache.hivemind.service.ClassFabUtils;
+import org.apache.hivemind.service.ThreadLocalStorage;
+import org.apache.hivemind.service.impl.ClassFactoryImpl;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.types.Path;
+
+/**
+ * Tests for the {@link org.apache.hivemind.ant.PregenerateClasses} Ant task, and for
+ * the use of the classes it generates.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestPregenerateClasses extends FrameworkTestCase
+{
+    private static final String SERVICE_ID = "hivemind.ThreadLocalStorage";
+
+    protected Project _project = new Project();
+
+    protected PregenerateClasses create()
+    {
+        Target t = new Target();
+
+        PregenerateClasses result = new PregenerateClasses();
+        result.setProject(_project);
+        result.setOwningTarget(t);
+        result.setTaskName("pregenerateClasses");
+
+        return result;
+    }
+
+    /**
+     * Generates classes for the modules visible to the test class path.
+     */
+    private File generate() throws Exception
+    {
+        PregenerateClasses pc = create();
+
+        // An (empty) directory is enough; the framework module is visible to the parent
+        // class loader.
+
+        File dir = File.createTempFile("TestPregenerateClasses-", "");
+        dir.delete();
+        dir.mkdir();
+
+        Path p = pc.createClasspath();
+
+        p.createPath().setLocation(dir);
+
+        File output = File.createTempFile("TestPregenerateClasses-", ".jar");
+
+        output.delete();
+
+        pc.setOutput(output);
+
+        pc.execute();
+
+        dir.delete();
+
+        return output;
+    }
+
+    private String singletonProxyClassName()
+    {
+        return ClassFabUtils.generateClassName(
+            "SingletonProxy",
+            SERVICE_ID,
+            ThreadLocalStorage.class,
+            null);
+    }
+
+    public void testNoFile() throws Exception
+    {
+        PregenerateClasses pc = create();
+
+        try
+        {
+            pc.execute();
+            unreachable();
+        }
+        catch (BuildException ex)
+        {
+            assertExceptionSubstring(ex, "You must specify an output file");
+        }
+    }
+
+    public void testNoClasspath() throws Exception
+    {
+        PregenerateClasses pc = create();
+
+        File f = File.createTempFile("testNoClasspath-", ".jar");
+
+        pc.setOutput(f);
+
+        try
+        {
+            pc.execute();
+            unreachable();
+        }
+        catch (BuildException ex)
+        {
+            assertExceptionSubstring(ex, "You must specify a classpath");
+        }
+
+        f.delete();
+    }
+
+    public void testJarContents() throws Exception
+    {
+        File output = generate();
+
+        JarFile jar = new JarFile(output);
+
+        assertNotNull(jar.getEntry(ClassFactoryImpl.PREGENERATED_CLASSES));
+        assertNotNull(jar.getEntry(singletonProxyClassName() + ".class"));
+
+        jar.close();
+
+        output.delete();
+    }
+
+    public void testPregeneratedClassUsed() throws Exception
+    {
+        File output = generate();
+
+        ClassLoader loader =
+            new URLClassLoader(new URL[] { output.toURL() }, getClass().getClassLoader());
+
+        RegistryBuilder builder = new RegistryBuilder();
+
+        builder.processModules(new DefaultClassResolver(loader));
+
+        Registry registry = builder.constructRegistry(Locale.getDefault());
+
+        ThreadLocalStorage tls =
+            (ThreadLocalStorage) registry.getService(SERVICE_ID, ThreadLocalStorage.class);
+
+        assertEquals(singletonProxyClassName(), tls.getClass().getName());
+        assertSame(loader, tls.getClass().getClassLoader());
+
+        tls.put("key", "value");
+
+        assertEquals("value", tls.get("key"));
+
+        registry.shutdown();
+
+        output.delete();
+    }
+
+    /**
+     * Copies the JAR, replacing the header of the list of pregenerated classes, as if written by
+     * a different version of HiveMind.
+     */
+    private File replaceHeader(File input, String header) throws Exception
+    {
+        File output = File.createTempFile("TestPregenerateClasses-", ".jar");
+
+        JarFile jar = new JarFile(input);
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(output));
+
+        Enumeration e = jar.entries();
+
+        while (e.hasMoreElements())
+        {
+            ZipEntry entry = (ZipEntry) e.nextElement();
+            InputStream in = jar.getInputStream(entry);
+
+            out.putNextEntry(new ZipEntry(entry.getName()));
+
+            if (entry.getName().equals(ClassFactoryImpl.PREGENERATED_CLASSES))
+            {
+                out.write((header + "\n").getBytes("UTF-8"));
+
+                // Skip the original header.
+
+                while (in.read() != '\n')
+                    ;
+            }
+
+            copy(in, out);
+
+            in.close();
+        }
+
+        out.close();
+        jar.close();
+
+        return output;
+    }
+
+    private void copy(InputStream in, OutputStream out) throws Exception
+    {
+        byte[] buffer = new byte[1024];
+
+        while (true)
+        {
+            int length = in.read(buffer);
+
+            if (length < 0)
+                return;
+
+            out.write(buffer, 0, length);
+        }
+    }
+
+    public void testOtherVersionIgnored() throws Exception
+    {
+        File generated = generate();
+        File output = replaceHeader(generated, "hivemind-pregenerated-classes 1");
+
+        generated.delete();
+
+        ClassLoader loader =
+            new URLClassLoader(new URL[] { output.toURL() }, getClass().getClassLoader());
+
+        interceptLogging(ClassFactoryImpl.class.getName());
+
+        RegistryBuilder builder = new RegistryBuilder();
+
+        builder.processModules(new DefaultClassResolver(loader));
+
+        Registry registry = builder.constructRegistry(Locale.getDefault());
+
+        ThreadLocalStorage tls =
+            (ThreadLocalStorage) registry.getService(SERVICE_ID, ThreadLocalStorage.class);
+
+        assertEquals(false, tls.getClass().getClassLoader() == loader);
+
+        assertLoggedMessagePattern("was generated by a different version of HiveMind");
+
+        registry.shutdown();
+
+        output.delete();
+    }
+
+    public void testFallbackWithoutPregeneratedClasses() throws Exception
+    {
+        Registry registry = buildFrameworkRegistry(new String[0]);
+
+        ThreadLocalStorage tls =
+            (ThreadLocalStorage) registry.getService(SERVICE_ID, ThreadLocalStorage.class);
+
+        assertEquals(singletonProxyClassName(), tls.getClass().getName());
+        assertEquals(false, tls.getClass().getClassLoader() == getClass().getClassLoader());
+
+        tls.put("key", "value");
+
+        assertEquals("value", tls.get("key"));
+    }
+}
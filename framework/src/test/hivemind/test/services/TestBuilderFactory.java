@@ -27,6 +27,7 @@ import org.apache.hivemind.Messages;
 import org.apache.hivemind.Registry;
 import org.apache.hivemind.impl.DefaultClassResolver;
 import org.apache.hivemind.impl.DefaultErrorHandler;
+import org.apache.hivemind.impl.ServiceHandleImpl;
 import org.apache.hivemind.internal.Module;
 import org.apache.hivemind.service.impl.BuilderClassResolverFacet;
 import org.apache.hivemind.service.impl.BuilderErrorHandlerFacet;
@@ -292,8 +293,8 @@ public class TestBuilderFactory extends HiveMindTestCase
 
         StringHolder h = new StringHolderImpl();
 
-        module.getService(StringHolder.class);
-        mc.setReturnValue(h);
+        module.getServiceHandle(StringHolder.class);
+        mc.setReturnValue(new ServiceHandleImpl("foo.StringHolder", StringHolder.class, h));
 
         log.isDebugEnabled();
         lc.setReturnValue(false);
@@ -327,7 +328,7 @@ public class TestBuilderFactory extends HiveMindTestCase
         module.getClassResolver();
         mc.setReturnValue(new DefaultClassResolver());
 
-        module.getService(StringHolder.class);
+        module.getServiceHandle(StringHolder.class);
         mc.setThrowable(new ApplicationRuntimeException("Simulated failure."));
 
         module.getErrorHandler();
@@ -15,10 +15,16 @@
 package hivemind.test.services;
 
 import hivemind.test.FrameworkTestCase;
+import hivemind.test.services.impl.SimpleServiceImpl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
+import org.apache.hivemind.ClassResolver;
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.impl.DefaultClassResolver;
+import org.apache.hivemind.impl.RegistryBuilder;
 import org.apache.hivemind.internal.ServicePoint;
 import org.apache.hivemind.service.impl.EagerLoader;
 
@@ -84,4 +90,66 @@ public class TestEagerLoader extends FrameworkTestCase
 
         assertLoggedMessage("Instantiated.");
     }
+
+    private SimpleService getSimpleService(Registry r, String name)
+    {
+        return (SimpleService) r.getService("hivemind.test.services." + name, SimpleService.class);
+    }
+
+    public void testDirectBinding() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("EagerLoadDirect.xml");
+
+        SimpleService direct = getSimpleService(r, "Direct");
+
+        assertTrue(direct instanceof SimpleServiceImpl);
+        assertEquals(7, direct.add(3, 4));
+
+        // Handles are also bound directly.
+
+        assertSame(direct, r.getServiceHandle(
+            "hivemind.test.services.Direct",
+            SimpleService.class).getService());
+
+        // Interceptors, lazy loading and the default binding all require the proxy.
+
+        assertFalse(getSimpleService(r, "Intercepted") instanceof SimpleServiceImpl);
+        assertFalse(getSimpleService(r, "Lazy") instanceof SimpleServiceImpl);
+        assertFalse(getSimpleService(r, "Default") instanceof SimpleServiceImpl);
+    }
+
+    public void testRegistryDefaultDirectBinding() throws Exception
+    {
+        ClassResolver resolver = new DefaultClassResolver();
+        RegistryBuilder builder = new RegistryBuilder();
+
+        builder.setDirectBinding(true);
+
+        builder.processModule(resolver, getResource("EagerLoadDirect.xml"));
+        builder.processModules(resolver);
+
+        Registry r = builder.constructRegistry(Locale.getDefault());
+
+        assertTrue(getSimpleService(r, "Default") instanceof SimpleServiceImpl);
+        assertFalse(getSimpleService(r, "Proxied") instanceof SimpleServiceImpl);
+
+        SimpleService direct = getSimpleService(r, "Direct");
+
+        r.shutdown();
+
+        // The registry refuses to provide services once shut down; direct references
+        // continue to work.
+
+        try
+        {
+            getSimpleService(r, "Direct");
+            unreachable();
+        }
+        catch (Exception ex)
+        {
+            assertExceptionSubstring(ex, "The HiveMind Registry has been shutdown.");
+        }
+
+        assertEquals(7, direct.add(3, 4));
+    }
 }
@@ -0,0 +1,160 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package hivemind.test.services;
+
+import hivemind.test.FrameworkTestCase;
+
+import java.util.List;
+
+import org.apache.hivemind.Registry;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Tests {@link org.apache.hivemind.impl.servicemodel.ExpiringServiceModel}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestExpiringServiceModel extends FrameworkTestCase
+{
+    private static final String EXPIRED_MESSAGE = "serviceWillExpire() has been invoked.";
+
+    /**
+     * Waits (up to a few seconds) for the service implementation to expire.
+     */
+    private void waitForExpiration()
+    {
+        for (int i = 0; i < 100; i++)
+        {
+            if (findMatch(EXPIRED_MESSAGE))
+                return;
+
+            sleep(50);
+        }
+
+        unreachable();
+    }
+
+    private boolean findMatch(String message)
+    {
+        List events = getInterceptedLogEvents();
+        int count = events.size();
+
+        for (int i = 0; i < count; i++)
+        {
+            LoggingEvent e = (LoggingEvent) events.get(i);
+
+            if (message.equals(e.getMessage()))
+                return true;
+        }
+
+        return false;
+    }
+
+    private void sleep(long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException ex)
+        {
+        }
+    }
+
+    public void testExpiration() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Expiring.xml");
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Expiring", StringHolder.class);
+
+        interceptLogging("hivemind.test.services");
+
+        s.setValue("first");
+
+        assertEquals("first", s.getValue());
+
+        waitForExpiration();
+
+        // A new implementation is constructed as needed.
+
+        assertNull(s.getValue());
+
+        r.shutdown();
+    }
+
+    /**
+     * A service that is used more often than the idle timeout does not expire.
+     */
+    public void testInUse() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Expiring.xml");
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Expiring", StringHolder.class);
+
+        interceptLogging("hivemind.test.services");
+
+        s.setValue("busy");
+
+        for (int i = 0; i < 10; i++)
+        {
+            sleep(25);
+
+            assertEquals("busy", s.getValue());
+        }
+
+        assertEquals(false, findMatch(EXPIRED_MESSAGE));
+
+        r.shutdown();
+    }
+
+    /**
+     * The live implementation is released when the registry is shutdown.
+     */
+    public void testShutdown() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Expiring.xml");
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Expiring", StringHolder.class);
+
+        s.setValue("live");
+
+        interceptLogging("hivemind.test.services");
+
+        r.shutdown();
+
+        assertLoggedMessage(EXPIRED_MESSAGE);
+    }
+
+    public void testInvalidIdleTimeout() throws Exception
+    {
+        interceptLogging("hivemind.test.services.Invalid");
+
+        Registry r = buildFrameworkRegistry("Expiring.xml");
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Invalid", StringHolder.class);
+
+        s.setValue("valid");
+
+        assertEquals("valid", s.getValue());
+
+        assertLoggedMessagePattern("Service hivemind\\.test\\.services\\.Invalid is configured with an idle timeout of 0 milliseconds; the timeout must be positive\\.");
+
+        r.shutdown();
+    }
+}
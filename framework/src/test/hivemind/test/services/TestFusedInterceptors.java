@@ -0,0 +1,117 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package hivemind.test.services;
+
+import hivemind.test.FrameworkTestCase;
+import hivemind.test.services.impl.TrackerFactory;
+
+import java.util.List;
+
+import org.apache.hivemind.Registry;
+
+/**
+ * Tests the fusing of interceptors created by
+ * {@link org.apache.hivemind.InterceptorFragmentFactory}s.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestFusedInterceptors extends FrameworkTestCase
+{
+    private Registry buildRegistry() throws Exception
+    {
+        return buildFrameworkRegistry(new String[] { "FusedInterceptors.xml", "Tracker.xml" });
+    }
+
+    public void testFused() throws Exception
+    {
+        interceptLogging("hivemind.test.services.fused.Fused");
+
+        Registry r = buildRegistry();
+
+        SimpleService s =
+            (SimpleService) r.getService("hivemind.test.services.fused.Fused", SimpleService.class);
+
+        TrackerFactory.reset();
+
+        assertEquals(11, s.add(4, 7));
+
+        assertListsEqual(
+            new String[] { "Pebbles:add", "BamBam:add" },
+            TrackerFactory.getInvocations().toArray());
+
+        List events = getInterceptedLogEvents();
+
+        assertLoggedMessage("Fusing 3 interceptors for service hivemind.test.services.fused.Fused", events);
+        assertLoggedMessage("BEGIN add(4, 7)", events);
+        assertLoggedMessage("END add() [11]", events);
+    }
+
+    /**
+     * Fusible interceptors separated by an ordinary interceptor are not fused; the
+     * order of the interceptors is unchanged.
+     */
+    public void testMixed() throws Exception
+    {
+        Registry r = buildRegistry();
+
+        SimpleService s =
+            (SimpleService) r.getService("hivemind.test.services.fused.Mixed", SimpleService.class);
+
+        TrackerFactory.reset();
+
+        assertEquals(11, s.add(4, 7));
+
+        assertListsEqual(
+            new String[] { "Pebbles:add", "Wilma:add", "BamBam:add" },
+            TrackerFactory.getInvocations().toArray());
+    }
+
+    /**
+     * Each thread has its own fused interceptor.
+     */
+    public void testThreaded() throws Exception
+    {
+        Registry r = buildRegistry();
+
+        final SimpleService s =
+            (SimpleService) r.getService("hivemind.test.services.fused.Threaded", SimpleService.class);
+
+        TrackerFactory.reset();
+
+        assertEquals(11, s.add(4, 7));
+
+        final String[] description = new String[1];
+
+        Thread t = new Thread()
+        {
+            public void run()
+            {
+                description[0] = s.toString();
+            }
+        };
+
+        t.start();
+        t.join();
+
+        assertEquals(
+            "<FusedInterceptor for hivemind.test.services.fused.Threaded(hivemind.test.services.SimpleService)>",
+            description[0]);
+        assertEquals(description[0], s.toString());
+
+        assertListsEqual(
+            new String[] { "Pebbles:add", "BamBam:add" },
+            TrackerFactory.getInvocations().toArray());
+    }
+}
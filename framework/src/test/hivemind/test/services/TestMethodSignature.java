@@ -88,4 +88,15 @@ public class TestMethodSignature extends HiveMindTestCase
             "java.lang.Object newInstance() throws java.lang.InstantiationException, java.lang.IllegalAccessException",
             m.toString());
     }
+
+    public void testDescription()
+    {
+        MethodSignature m = find(String.class, "getChars");
+
+        assertEquals("getChars(int, int, char[], int)", m.getDescription());
+
+        m = new MethodSignature(void.class, "foo", null, null);
+
+        assertEquals("foo()", m.getDescription());
+    }
 }
@@ -16,12 +16,16 @@ package hivemind.test.services;
 
 import hivemind.test.FrameworkTestCase;
 
+import org.apache.hivemind.ApplicationRuntimeException;
 import org.apache.hivemind.HiveMind;
 import org.apache.hivemind.Registry;
+import org.apache.hivemind.impl.servicemodel.PoolMetrics;
+import org.apache.hivemind.impl.servicemodel.PooledServiceModelFactory;
+import org.apache.hivemind.internal.RegistryInfrastructure;
 import org.apache.hivemind.service.ThreadEventNotifier;
 
 /**
- * Tests {@link org.apache.hivemind.impl.PooledServiceModel}. 
+ * Tests {@link org.apache.hivemind.impl.servicemodel.PooledServiceModel}. 
  *
  * @author Howard Lewis Ship
  */
@@ -80,4 +84,235 @@ public class TestPooledServiceModel extends FrameworkTestCase
 
         assertEquals("funky monkey", s.getValue());
     }
+
+    /**
+     * Uses the service from a new thread (which binds an instance, and optionally releases it)
+     * and returns the exception thrown, if any.
+     */
+    private RuntimeException useInThread(final Registry r, final StringHolder s, final boolean release)
+        throws Exception
+    {
+        final RuntimeException[] failure = new RuntimeException[1];
+
+        Thread t = new Thread()
+        {
+            public void run()
+            {
+                try
+                {
+                    s.getValue();
+
+                    if (release)
+                        r.cleanupThread();
+                }
+                catch (RuntimeException ex)
+                {
+                    failure[0] = ex;
+                }
+            }
+        };
+
+        t.start();
+        t.join();
+
+        return failure[0];
+    }
+
+    private PoolMetrics getMetrics(Registry r, String serviceId)
+    {
+        PooledServiceModelFactory factory =
+            (PooledServiceModelFactory) ((RegistryInfrastructure) r).getServiceModelFactory("pooled");
+
+        return factory.getPoolMetrics(serviceId);
+    }
+
+    public void testFailWhenExhausted() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("PooledBounded.xml");
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.FailFast", StringHolder.class);
+
+        s.getValue();
+
+        assertNull(useInThread(r, s, false));
+
+        RuntimeException ex = useInThread(r, s, false);
+
+        assertTrue(ex instanceof ApplicationRuntimeException);
+        assertExceptionSubstring(
+            ex,
+            "Unable to obtain an instance of service hivemind.test.services.FailFast: all 2 pooled instances are in use.");
+
+        PoolMetrics metrics = getMetrics(r, "hivemind.test.services.FailFast");
+
+        assertEquals(2, metrics.getSize());
+        assertEquals(2, metrics.getActiveCount());
+        assertEquals(1, metrics.getExhaustedCount());
+    }
+
+    public void testBlockUntilReleased() throws Exception
+    {
+        final Registry r = buildFrameworkRegistry("PooledBounded.xml");
+
+        final StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Blocking", StringHolder.class);
+
+        s.setValue("blocking");
+
+        final RuntimeException[] failure = new RuntimeException[1];
+        final String[] value = new String[1];
+
+        Thread t = new Thread()
+        {
+            public void run()
+            {
+                try
+                {
+                    value[0] = s.getValue();
+                }
+                catch (RuntimeException ex)
+                {
+                    failure[0] = ex;
+                }
+            }
+        };
+
+        t.start();
+
+        // Give the other thread a chance to start waiting
+
+        Thread.sleep(50);
+
+        r.cleanupThread();
+
+        t.join();
+
+        assertNull(failure[0]);
+
+        // The instance was released by this thread, and obtained by the other.
+
+        assertEquals("blocking", value[0]);
+
+        PoolMetrics metrics = getMetrics(r, "hivemind.test.services.Blocking");
+
+        assertEquals(1, metrics.getSize());
+        assertEquals(1, metrics.getCreatedCount());
+    }
+
+    public void testMaxWait() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("PooledBounded.xml");
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Timeout", StringHolder.class);
+
+        s.getValue();
+
+        RuntimeException ex = useInThread(r, s, false);
+
+        assertExceptionSubstring(ex, "all 1 pooled instances are in use");
+
+        PoolMetrics metrics = getMetrics(r, "hivemind.test.services.Timeout");
+
+        assertEquals(1, metrics.getWaitCount());
+        assertEquals(1, metrics.getExhaustedCount());
+    }
+
+    public void testPrefill() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("PooledBounded.xml");
+
+        PoolMetrics metrics = getMetrics(r, "hivemind.test.services.Prefilled");
+
+        assertEquals(3, metrics.getSize());
+        assertEquals(3, metrics.getIdleCount());
+        assertEquals(0, metrics.getActiveCount());
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Prefilled", StringHolder.class);
+
+        s.getValue();
+
+        metrics = getMetrics(r, "hivemind.test.services.Prefilled");
+
+        assertEquals(3, metrics.getSize());
+        assertEquals(1, metrics.getActiveCount());
+        assertEquals(3, metrics.getCreatedCount());
+    }
+
+    public void testIdleEviction() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("PooledBounded.xml");
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Evicting", StringHolder.class);
+
+        s.getValue();
+
+        assertNull(useInThread(r, s, true));
+
+        PoolMetrics metrics = getMetrics(r, "hivemind.test.services.Evicting");
+
+        assertEquals(2, metrics.getSize());
+        assertEquals(1, metrics.getIdleCount());
+
+        Thread.sleep(20);
+
+        // Releasing this thread's instance evicts the other, which has been idle too long.
+
+        r.cleanupThread();
+
+        metrics = getMetrics(r, "hivemind.test.services.Evicting");
+
+        assertEquals(1, metrics.getSize());
+        assertEquals(1, metrics.getIdleCount());
+        assertEquals(1, metrics.getEvictedCount());
+    }
+
+    /**
+     * Obtaining an instance evicts instances that have been idle too long, so that none is
+     * handed out.
+     */
+    public void testIdleEvictionOnCheckout() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("PooledBounded.xml");
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Evicting", StringHolder.class);
+
+        assertNull(useInThread(r, s, true));
+
+        Thread.sleep(20);
+
+        s.getValue();
+
+        PoolMetrics metrics = getMetrics(r, "hivemind.test.services.Evicting");
+
+        assertEquals(1, metrics.getSize());
+        assertEquals(0, metrics.getIdleCount());
+        assertEquals(1, metrics.getEvictedCount());
+        assertEquals(2, metrics.getCreatedCount());
+    }
+
+    public void testMinimumExceedsMaximum() throws Exception
+    {
+        interceptLogging("hivemind.test.services.Unmanaged");
+
+        Registry r = buildFrameworkRegistry("PooledMinimumExceedsMaximum.xml");
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Unmanaged", StringHolder.class);
+
+        s.getValue();
+
+        assertLoggedMessagePattern("Pool for service hivemind\\.test\\.services\\.Unmanaged has a minimum size \\(5\\) larger than its maximum size \\(2\\)");
+    }
+
+    public void testNoPoolMetrics() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Pooled.xml");
+
+        assertNull(getMetrics(r, "hivemind.test.services.Unmanaged"));
+    }
 }
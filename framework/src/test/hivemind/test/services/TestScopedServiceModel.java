@@ -0,0 +1,332 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package hivemind.test.services;
+
+import hivemind.test.FrameworkTestCase;
+
+import org.apache.hivemind.HiveMind;
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.impl.servicemodel.ScopedServiceModel;
+import org.apache.hivemind.service.Scope;
+import org.apache.hivemind.service.ScopeManager;
+
+/**
+ * Tests {@link org.apache.hivemind.impl.servicemodel.ScopedServiceModel}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestScopedServiceModel extends FrameworkTestCase
+{
+    private ScopeManager getScopeManager(Registry r)
+    {
+        return (ScopeManager) r.getService(HiveMind.SCOPE_MANAGER_SERVICE, ScopeManager.class);
+    }
+
+    public void testNoScope() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Scoped.xml");
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Unmanaged", StringHolder.class);
+
+        try
+        {
+            s.getValue();
+            unreachable();
+        }
+        catch (Exception ex)
+        {
+            assertExceptionSubstring(
+                ex,
+                "Service hivemind.test.services.Unmanaged uses the scoped service model, but no scope is attached to the current thread.");
+        }
+    }
+
+    public void testManaged() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Scoped.xml");
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Managed", StringHolder.class);
+
+        interceptLogging("hivemind.test.services.Managed");
+
+        Scope scope = r.openScope();
+
+        assertNull(s.getValue());
+
+        assertLoggedMessage("activateService()");
+
+        s.setValue("funky monkey");
+        assertEquals("funky monkey", s.getValue());
+
+        scope.close();
+
+        assertLoggedMessage("passivateService()");
+
+        assertTrue(scope.isClosed());
+        assertNull(getScopeManager(r).getCurrentScope());
+    }
+
+    public void testScopesAreIndependent() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Scoped.xml");
+        ScopeManager manager = getScopeManager(r);
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Unmanaged", StringHolder.class);
+
+        Scope first = manager.openScope();
+
+        s.setValue("first");
+
+        Scope second = manager.openScope();
+
+        assertNull(s.getValue());
+
+        s.setValue("second");
+
+        assertSame(second, manager.attach(first));
+
+        assertEquals("first", s.getValue());
+
+        manager.attach(second);
+
+        assertEquals("second", s.getValue());
+
+        first.close();
+        second.close();
+    }
+
+    /**
+     * Threads attached to the same scope share the service implementation.
+     */
+    public void testScopeSharedBetweenThreads() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Scoped.xml");
+        final ScopeManager manager = getScopeManager(r);
+
+        final StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Unmanaged", StringHolder.class);
+
+        final Scope scope = r.openScope();
+
+        s.setValue("shared");
+
+        final String[] value = new String[1];
+
+        Thread t = new Thread()
+        {
+            public void run()
+            {
+                Scope previous = manager.attach(scope);
+
+                try
+                {
+                    value[0] = s.getValue();
+
+                    s.setValue("updated");
+                }
+                finally
+                {
+                    manager.attach(previous);
+                }
+            }
+        };
+
+        t.start();
+        t.join();
+
+        assertEquals("shared", value[0]);
+        assertEquals("updated", s.getValue());
+
+        scope.close();
+    }
+
+    /**
+     * Implementations released by a closed scope are reused by later scopes.
+     */
+    public void testReuse() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Scoped.xml");
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Unmanaged", StringHolder.class);
+
+        Scope scope = r.openScope();
+
+        s.setValue("reused");
+
+        scope.close();
+
+        scope = r.openScope();
+
+        assertEquals("reused", s.getValue());
+
+        scope.close();
+    }
+
+    private int countReused(Registry r, String serviceId)
+    {
+        StringHolder s = (StringHolder) r.getService(serviceId, StringHolder.class);
+
+        int count = ScopedServiceModel.DEFAULT_MAXIMUM_IDLE + 5;
+        Scope[] scopes = new Scope[count];
+        ScopeManager manager = getScopeManager(r);
+
+        for (int i = 0; i < count; i++)
+        {
+            scopes[i] = manager.openScope();
+
+            s.setValue("value");
+        }
+
+        for (int i = 0; i < count; i++)
+            scopes[i].close();
+
+        int reused = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            scopes[i] = manager.openScope();
+
+            if (s.getValue() != null)
+                reused++;
+        }
+
+        for (int i = 0; i < count; i++)
+            scopes[i].close();
+
+        return reused;
+    }
+
+    /**
+     * Only a limited number of released implementations are kept for reuse.
+     */
+    public void testIdleLimit() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Scoped.xml");
+
+        assertEquals(
+            ScopedServiceModel.DEFAULT_MAXIMUM_IDLE,
+            countReused(r, "hivemind.test.services.Unmanaged"));
+    }
+
+    public void testConfiguredIdleLimit() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Scoped.xml");
+
+        assertEquals(2, countReused(r, "hivemind.test.services.Limited"));
+    }
+
+    public void testInvalidIdleLimit() throws Exception
+    {
+        interceptLogging("hivemind.test.services.Invalid");
+
+        Registry r = buildFrameworkRegistry("Scoped.xml");
+
+        assertEquals(
+            ScopedServiceModel.DEFAULT_MAXIMUM_IDLE,
+            countReused(r, "hivemind.test.services.Invalid"));
+
+        assertLoggedMessagePattern("Service hivemind\\.test\\.services\\.Invalid is configured to keep -1 idle implementations; the number may not be negative\\.");
+    }
+
+    /**
+     * Closing a nested scope re-attaches the scope that enclosed it.
+     */
+    public void testNestedScope() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Scoped.xml");
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Unmanaged", StringHolder.class);
+        ScopeManager manager = getScopeManager(r);
+
+        Scope outer = manager.openScope();
+
+        s.setValue("outer");
+
+        Scope inner = manager.openScope();
+
+        assertSame(inner, manager.getCurrentScope());
+        assertNull(s.getValue());
+
+        s.setValue("inner");
+
+        inner.close();
+
+        assertSame(outer, manager.getCurrentScope());
+        assertEquals("outer", s.getValue());
+
+        outer.close();
+
+        assertNull(manager.getCurrentScope());
+    }
+
+    /**
+     * Enclosing scopes closed out of order are skipped when a nested scope is closed.
+     */
+    public void testNestedScopeClosedOutOfOrder() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Scoped.xml");
+
+        ScopeManager manager = getScopeManager(r);
+
+        Scope outer = manager.openScope();
+        Scope middle = manager.openScope();
+        Scope inner = manager.openScope();
+
+        middle.close();
+
+        assertSame(inner, manager.getCurrentScope());
+
+        inner.close();
+
+        assertSame(outer, manager.getCurrentScope());
+
+        outer.close();
+
+        assertNull(manager.getCurrentScope());
+    }
+
+    public void testClosedScope() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Scoped.xml");
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Unmanaged", StringHolder.class);
+
+        Scope scope = r.openScope();
+
+        scope.close();
+
+        // Closing again is allowed.
+
+        scope.close();
+
+        getScopeManager(r).attach(scope);
+
+        try
+        {
+            s.getValue();
+            unreachable();
+        }
+        catch (Exception ex)
+        {
+            assertExceptionSubstring(ex, "has been closed; services may not be bound to it.");
+        }
+    }
+}
@@ -49,6 +49,25 @@ public class TestShutdown extends FrameworkTestCase
         }
     }
 
+    public void testShutdownUnrealizedSingleton() throws Exception
+    {
+        Registry r = (Registry) buildFrameworkRegistry("SimpleModule.xml");
+        SimpleService s =
+            (SimpleService) r.getService("hivemind.test.services.Simple", SimpleService.class);
+
+        r.shutdown();
+
+        try
+        {
+            s.add(9, 5);
+            unreachable();
+        }
+        catch (ApplicationRuntimeException ex)
+        {
+            assertExceptionSubstring(ex, "The HiveMind Registry has been shutdown.");
+        }
+    }
+
     public void testRegistryShutdownUnrepeatable() throws Exception
     {
         Registry r = (Registry) buildFrameworkRegistry("SimpleModule.xml");
@@ -76,6 +95,23 @@ public class TestShutdown extends FrameworkTestCase
         }
     }
 
+    public void testLookupByInterfaceAfterShutdown() throws Exception
+    {
+        Registry r = (Registry) buildFrameworkRegistry("SimpleModule.xml");
+
+        r.shutdown();
+
+        try
+        {
+            r.getService(SimpleService.class);
+            unreachable();
+        }
+        catch (ApplicationRuntimeException ex)
+        {
+            assertExceptionSubstring(ex, "The HiveMind Registry has been shutdown.");
+        }
+    }
+
     public void testShutdownThreaded() throws Exception
     {
         Registry r = (Registry) buildFrameworkRegistry("StringHolder.xml");
@@ -21,6 +21,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.hivemind.Registry;
+import org.apache.hivemind.impl.RegistryImpl;
+import org.apache.hivemind.impl.ServicePointImpl;
 import org.apache.hivemind.impl.StartupImpl;
 
 /**
@@ -57,4 +59,19 @@ public class TestStartup extends FrameworkTestCase
 
         assertEquals(true, fixture.getDidRun());
     }
+
+    public void testNoServicePointsAfterStartup() throws Exception
+    {
+        RegistryImpl r = (RegistryImpl) buildFrameworkRegistry("StartupContribution.xml");
+
+        try
+        {
+            r.addServicePoint(new ServicePointImpl());
+            unreachable();
+        }
+        catch (IllegalStateException ex)
+        {
+            assertEquals("The HiveMind Registry has already been started.", ex.getMessage());
+        }
+    }
 }
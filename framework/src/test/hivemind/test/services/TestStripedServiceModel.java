@@ -0,0 +1,88 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package hivemind.test.services;
+
+import hivemind.test.FrameworkTestCase;
+
+import org.apache.hivemind.Registry;
+
+/**
+ * Tests {@link org.apache.hivemind.impl.servicemodel.StripedServiceModel}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestStripedServiceModel extends FrameworkTestCase
+{
+    /**
+     * With a single stripe, every thread uses the same instance.
+     */
+    public void testSingleStripe() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Striped.xml");
+
+        final StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Shared", StringHolder.class);
+
+        s.setValue("shared");
+
+        final String[] value = new String[1];
+
+        Thread t = new Thread()
+        {
+            public void run()
+            {
+                value[0] = s.getValue();
+            }
+        };
+
+        t.start();
+        t.join();
+
+        assertEquals("shared", value[0]);
+    }
+
+    /**
+     * Nothing is bound to the thread, so thread cleanup has no effect.
+     */
+    public void testThreadCleanup() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Striped.xml");
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Default", StringHolder.class);
+
+        s.setValue("retained");
+
+        r.cleanupThread();
+
+        assertEquals("retained", s.getValue());
+    }
+
+    public void testInvalidCount() throws Exception
+    {
+        interceptLogging("hivemind.test.services.Invalid");
+
+        Registry r = buildFrameworkRegistry("Striped.xml");
+
+        StringHolder s =
+            (StringHolder) r.getService("hivemind.test.services.Invalid", StringHolder.class);
+
+        s.setValue("valid");
+
+        assertEquals("valid", s.getValue());
+
+        assertLoggedMessagePattern("Service hivemind\\.test\\.services\\.Invalid is configured with 0 instances; at least one is required\\.");
+    }
+}
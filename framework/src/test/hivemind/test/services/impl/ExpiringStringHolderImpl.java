@@ -0,0 +1,40 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package hivemind.test.services.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.hivemind.Expirable;
+
+/**
+ * Used to test that the expiring service model invokes this method
+ * as a service implementation expires.
+ *
+ * @author Howard Lewis Ship
+ */
+public class ExpiringStringHolderImpl extends StringHolderImpl implements Expirable
+{
+    private Log _log;
+
+    public void serviceWillExpire()
+    {
+        _log.info("serviceWillExpire() has been invoked.");
+    }
+
+    public void setLog(Log log)
+    {
+        _log = log;
+    }
+
+}
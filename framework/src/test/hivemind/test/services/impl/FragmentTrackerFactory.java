@@ -0,0 +1,57 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package hivemind.test.services.impl;
+
+import java.util.List;
+
+import org.apache.hivemind.InterceptorFragmentFactory;
+import org.apache.hivemind.InterceptorWeaver;
+import org.apache.hivemind.internal.Module;
+import org.apache.hivemind.service.BodyBuilder;
+import org.apache.hivemind.service.MethodIterator;
+import org.apache.hivemind.service.MethodSignature;
+
+/**
+ * A {@link TrackerFactory} that may also be fused with other interceptors.
+ *
+ * @author Howard Lewis Ship
+ */
+public class FragmentTrackerFactory extends TrackerFactory implements InterceptorFragmentFactory
+{
+    public void contributeFragment(InterceptorWeaver weaver, Module invokingModule, List parameters)
+    {
+        String nameField = weaver.addField("_name", String.class, getName());
+
+        MethodIterator mi = new MethodIterator(weaver.getServiceInterface());
+
+        while (mi.hasNext())
+        {
+            MethodSignature sig = mi.next();
+
+            BodyBuilder builder = new BodyBuilder();
+
+            builder.begin();
+            builder.add("hivemind.test.services.impl.TrackerFactory.getInvocations().add(");
+            builder.add(nameField);
+            builder.add(" + ");
+            builder.addQuoted(":" + sig.getName());
+            builder.addln(");");
+            builder.addln("return ($r) $proceed($$);");
+            builder.end();
+
+            weaver.wrapMethod(sig, builder.toString());
+        }
+    }
+}
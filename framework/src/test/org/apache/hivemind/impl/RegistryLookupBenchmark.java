@@ -0,0 +1,163 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl;
+
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.internal.RegistryInfrastructure;
+import org.apache.hivemind.service.ClassFactory;
+
+/**
+ * Contention benchmark for the lookup methods of {@link RegistryImpl}
+ * ({@link RegistryImpl#getServicePoint(String)},
+ * {@link RegistryImpl#getConfigurationPoint(String)} and
+ * {@link RegistryImpl#containsService(String, Class)}). Each pass is run with 1, 8 and 64
+ * threads, first with every lookup funnelled through a single shared monitor (which is how
+ * the registry behaved before its lookup tables were frozen at startup), then with
+ * the lock-free lookups.
+ *
+ * <p>
+ * This is not a unit test; run it with <code>main()</code>. An optional
+ * argument is the duration of each pass, in milliseconds.
+ *
+ * @author Howard Lewis Ship
+ */
+public class RegistryLookupBenchmark
+{
+    private static final int[] THREAD_COUNTS = { 1, 8, 64 };
+
+    private final RegistryInfrastructure _registry;
+    private final Object _monitor = new Object();
+    private final long _duration;
+
+    private volatile boolean _running;
+
+    private RegistryLookupBenchmark(RegistryInfrastructure registry, long duration)
+    {
+        _registry = registry;
+        _duration = duration;
+    }
+
+    private class Looker extends Thread
+    {
+        private final boolean _locked;
+        private long _count;
+
+        Looker(boolean locked)
+        {
+            _locked = locked;
+        }
+
+        public void run()
+        {
+            while (_running)
+            {
+                if (_locked)
+                {
+                    synchronized (_monitor)
+                    {
+                        lookup();
+                    }
+                }
+                else
+                    lookup();
+
+                _count++;
+            }
+        }
+
+        long getCount()
+        {
+            return _count;
+        }
+    }
+
+    private void lookup()
+    {
+        _registry.getServicePoint("hivemind.ClassFactory");
+        _registry.getConfigurationPoint("hivemind.ServiceModels");
+        ((Registry) _registry).containsService("hivemind.ClassFactory", ClassFactory.class);
+    }
+
+    private long run(int threadCount, boolean locked) throws InterruptedException
+    {
+        Looker[] lookers = new Looker[threadCount];
+
+        _running = true;
+
+        for (int i = 0; i < threadCount; i++)
+        {
+            lookers[i] = new Looker(locked);
+            lookers[i].start();
+        }
+
+        Thread.sleep(_duration);
+
+        _running = false;
+
+        long total = 0;
+
+        for (int i = 0; i < threadCount; i++)
+        {
+            lookers[i].join();
+            total += lookers[i].getCount();
+        }
+
+        // Each iteration performs three lookups; report lookups per second.
+
+        return total * 3 * 1000 / _duration;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        long duration = args.length == 0 ? 2000 : Long.parseLong(args[0]);
+
+        Registry registry = RegistryBuilder.constructDefaultRegistry();
+
+        RegistryLookupBenchmark benchmark =
+            new RegistryLookupBenchmark((RegistryInfrastructure) registry, duration);
+
+        // Warm up, so that the JIT has compiled the lookup path.
+
+        benchmark.run(1, false);
+        benchmark.run(1, true);
+
+        System.out.println("threads      monitor (lookups/s)    frozen (lookups/s)");
+
+        for (int i = 0; i < THREAD_COUNTS.length; i++)
+        {
+            int threads = THREAD_COUNTS[i];
+
+            long locked = benchmark.run(threads, true);
+            long frozen = benchmark.run(threads, false);
+
+            System.out.println(pad(String.valueOf(threads), 7) + pad(String.valueOf(locked), 23)
+                    + pad(String.valueOf(frozen), 22));
+        }
+
+        registry.shutdown();
+    }
+
+    private static String pad(String value, int width)
+    {
+        StringBuffer buffer = new StringBuffer();
+
+        for (int i = value.length(); i < width; i++)
+            buffer.append(' ');
+
+        buffer.append(value);
+
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,190 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.hivemind.ClassResolver;
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.util.FileResource;
+
+/**
+ * Benchmark for schema processing of a large configuration (by default, 100,000 elements,
+ * each with a create-object rule, three read-attribute rules and an invoke-parent rule).
+ * Each pass builds a registry and times the conversion of the configuration's elements
+ * (which happens on first access), first with the rules fired individually, then with the
+ * rules compiled by {@link SchemaCompiler}.
+ *
+ * <p>
+ * This is not a unit test; run it with <code>main()</code>. Optional arguments are the
+ * number of elements and the number of passes.
+ *
+ * @author Howard Lewis Ship
+ */
+public class SchemaProcessingBenchmark
+{
+    public static class Datum
+    {
+        private String _key;
+        private int _value;
+        private boolean _enabled;
+
+        public String getKey()
+        {
+            return _key;
+        }
+
+        public void setKey(String key)
+        {
+            _key = key;
+        }
+
+        public int getValue()
+        {
+            return _value;
+        }
+
+        public void setValue(int value)
+        {
+            _value = value;
+        }
+
+        public boolean isEnabled()
+        {
+            return _enabled;
+        }
+
+        public void setEnabled(boolean enabled)
+        {
+            _enabled = enabled;
+        }
+    }
+
+    private static File writeModule(int count) throws Exception
+    {
+        File file = File.createTempFile("hivemind-benchmark", ".xml");
+
+        file.deleteOnExit();
+
+        PrintWriter writer = new PrintWriter(new FileWriter(file));
+
+        String datumClassName = Datum.class.getName();
+
+        writer.println("<module id=\"hivemind.benchmark\" version=\"1.0.0\">");
+        writer.println("  <configuration-point id=\"Data\">");
+        writer.println("    <schema>");
+        writer.println("      <element name=\"datum\">");
+        writer.println("        <attribute name=\"key\" required=\"true\"/>");
+        writer.println("        <attribute name=\"value\" translator=\"int\"/>");
+        writer.println("        <attribute name=\"enabled\" translator=\"boolean\"/>");
+        writer.println("        <rules>");
+        writer.println("          <create-object class=\"" + datumClassName + "\"/>");
+        writer.println("          <read-attribute attribute=\"key\" property=\"key\"/>");
+        writer.println("          <read-attribute attribute=\"value\" property=\"value\"/>");
+        writer.println("          <read-attribute attribute=\"enabled\" property=\"enabled\"/>");
+        writer.println("          <invoke-parent method=\"addElement\"/>");
+        writer.println("        </rules>");
+        writer.println("      </element>");
+        writer.println("    </schema>");
+        writer.println("  </configuration-point>");
+        writer.println("  <contribution configuration-id=\"Data\">");
+
+        for (int i = 0; i < count; i++)
+            writer.println("    <datum key=\"k" + i + "\" value=\"" + i + "\" enabled=\""
+                    + (i % 2 == 0) + "\"/>");
+
+        writer.println("  </contribution>");
+        writer.println("</module>");
+
+        writer.close();
+
+        return file;
+    }
+
+    /**
+     * Returns the time taken to convert the configuration, in milliseconds.
+     */
+    private static long run(File module, int count)
+    {
+        ClassResolver resolver = new DefaultClassResolver();
+        RegistryBuilder builder = new RegistryBuilder();
+
+        builder.processModule(resolver, new FileResource(module.getPath()));
+        builder.processModules(resolver);
+
+        Registry registry = builder.constructRegistry(Locale.getDefault());
+
+        // Don't charge this pass for the garbage of the previous one.
+
+        System.gc();
+
+        long start = System.currentTimeMillis();
+
+        // The configuration is converted when the list is first accessed.
+
+        List data = registry.getConfiguration("hivemind.benchmark.Data");
+        int size = data.size();
+
+        long elapsed = System.currentTimeMillis() - start;
+
+        if (size != count)
+            throw new IllegalStateException("Expected " + count + " elements, not " + size + ".");
+
+        registry.shutdown();
+
+        return elapsed;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int passes = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        File module = writeModule(count);
+
+        System.out.println("pass    interpreted (elements/s)    compiled (elements/s)");
+
+        for (int i = 0; i < passes; i++)
+        {
+            SchemaProcessorImpl.setTestCompileThreshold(0);
+
+            long interpreted = run(module, count);
+
+            SchemaProcessorImpl.clearTestCompileThreshold();
+
+            long compiled = run(module, count);
+
+            System.out.println(pad(String.valueOf(i + 1), 4)
+                    + pad(String.valueOf(count * 1000L / Math.max(interpreted, 1)), 28)
+                    + pad(String.valueOf(count * 1000L / Math.max(compiled, 1)), 25));
+        }
+    }
+
+    private static String pad(String value, int width)
+    {
+        StringBuffer buffer = new StringBuffer();
+
+        for (int i = value.length(); i < width; i++)
+            buffer.append(' ');
+
+        buffer.append(value);
+
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,176 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl;
+
+import hivemind.test.services.SimpleService;
+
+import java.util.Locale;
+
+import org.apache.hivemind.ClassResolver;
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.util.ClasspathResource;
+
+/**
+ * Throughput benchmark for the service models suited to services that are not
+ * thread safe: threaded, pooled and striped. Each thread performs "requests" of
+ * {@link #CALLS_PER_REQUEST} service method invocations, followed by a thread cleanup
+ * (which unbinds threaded and pooled services, and does nothing for striped services).
+ * Each model is run with 1, 4 and 16 threads.
+ * 
+ * <p>
+ * This is not a unit test; run it with <code>main()</code>. An optional
+ * argument is the duration of each pass, in milliseconds.
+ *
+ * @author Howard Lewis Ship
+ */
+public class ServiceModelBenchmark
+{
+    private static final int[] THREAD_COUNTS = { 1, 4, 16 };
+
+    private static final String[] MODELS = { "Threaded", "Pooled", "Striped" };
+
+    private static final int CALLS_PER_REQUEST = 10;
+
+    private final Registry _registry;
+    private final long _duration;
+
+    private volatile boolean _running;
+
+    private ServiceModelBenchmark(Registry registry, long duration)
+    {
+        _registry = registry;
+        _duration = duration;
+    }
+
+    private class Caller extends Thread
+    {
+        private final SimpleService _service;
+        private long _count;
+
+        Caller(SimpleService service)
+        {
+            _service = service;
+        }
+
+        public void run()
+        {
+            int total = 0;
+
+            while (_running)
+            {
+                for (int i = 0; i < CALLS_PER_REQUEST; i++)
+                    total += _service.add(i, 1);
+
+                _registry.cleanupThread();
+
+                _count += CALLS_PER_REQUEST;
+            }
+
+            // Keep the JIT from eliminating the calls.
+
+            if (total == 42)
+                System.out.print("");
+        }
+
+        long getCount()
+        {
+            return _count;
+        }
+    }
+
+    /**
+     * Returns the number of calls per second.
+     */
+    private long run(String model, int threadCount) throws InterruptedException
+    {
+        SimpleService service =
+            (SimpleService) _registry.getService(
+                "hivemind.test.benchmark." + model,
+                SimpleService.class);
+
+        Caller[] callers = new Caller[threadCount];
+
+        _running = true;
+
+        for (int i = 0; i < threadCount; i++)
+        {
+            callers[i] = new Caller(service);
+            callers[i].start();
+        }
+
+        Thread.sleep(_duration);
+
+        _running = false;
+
+        long total = 0;
+
+        for (int i = 0; i < threadCount; i++)
+        {
+            callers[i].join();
+            total += callers[i].getCount();
+        }
+
+        return total * 1000 / _duration;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        long duration = args.length == 0 ? 2000 : Long.parseLong(args[0]);
+
+        ClassResolver resolver = new DefaultClassResolver();
+        RegistryBuilder builder = new RegistryBuilder();
+
+        builder.processModule(resolver, new ClasspathResource(resolver,
+                "/org/apache/hivemind/impl/ServiceModelBenchmark.xml"));
+        builder.processModules(resolver);
+
+        Registry registry = builder.constructRegistry(Locale.getDefault());
+
+        ServiceModelBenchmark benchmark = new ServiceModelBenchmark(registry, duration);
+
+        // Warm up, so that the JIT has compiled each path.
+
+        for (int i = 0; i < MODELS.length; i++)
+            benchmark.run(MODELS[i], 1);
+
+        System.out.println("threads     threaded (calls/s)      pooled (calls/s)     striped (calls/s)");
+
+        for (int i = 0; i < THREAD_COUNTS.length; i++)
+        {
+            int threads = THREAD_COUNTS[i];
+
+            StringBuffer line = new StringBuffer(pad(String.valueOf(threads), 7));
+
+            for (int j = 0; j < MODELS.length; j++)
+                line.append(pad(String.valueOf(benchmark.run(MODELS[j], threads)), 22));
+
+            System.out.println(line);
+        }
+
+        registry.shutdown();
+    }
+
+    private static String pad(String value, int width)
+    {
+        StringBuffer buffer = new StringBuffer();
+
+        for (int i = value.length(); i < width; i++)
+            buffer.append(' ');
+
+        buffer.append(value);
+
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,269 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.hivemind.impl;
+
+import hivemind.test.services.SimpleService;
+import hivemind.test.services.impl.SimpleServiceImpl;
+
+import java.util.Locale;
+
+import org.apache.hivemind.ClassResolver;
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.util.ClasspathResource;
+
+/**
+ * Benchmark for the proxies created by
+ * {@link org.apache.hivemind.impl.servicemodel.SingletonServiceModel}. First, measures
+ * the time for 1, 8 and 64 threads to concurrently make the first call on a service
+ * (which constructs the service, and installs it into the proxy). Then, compares the
+ * throughput of calls through the (realized) proxy against direct calls on an instance
+ * of the implementation class, with 1, 8 and 64 threads.
+ * 
+ * <p>
+ * This is not a unit test; run it with <code>main()</code>. An optional
+ * argument is the duration of each throughput pass, in milliseconds.
+ *
+ * @author Howard Lewis Ship
+ */
+public class SingletonProxyBenchmark
+{
+    private static final int[] THREAD_COUNTS = { 1, 8, 64 };
+
+    private static final String SERVICE_ID = "hivemind.test.services.Simple";
+
+    private final long _duration;
+
+    private volatile boolean _running;
+
+    /**
+     * Released (by notifyAll()) to start the threads together.
+     */
+    private final Object _gate = new Object();
+
+    private boolean _open;
+
+    private SingletonProxyBenchmark(long duration)
+    {
+        _duration = duration;
+    }
+
+    private class Caller extends Thread
+    {
+        private final SimpleService _service;
+        private final boolean _once;
+        private long _count;
+
+        Caller(SimpleService service, boolean once)
+        {
+            _service = service;
+            _once = once;
+        }
+
+        public void run()
+        {
+            awaitGate();
+
+            if (_once)
+            {
+                _service.add(1, 1);
+                return;
+            }
+
+            int total = 0;
+
+            while (_running)
+            {
+                total += _service.add((int) _count, 1);
+
+                _count++;
+            }
+
+            // Keep the JIT from eliminating the calls.
+
+            if (total == 42)
+                System.out.print("");
+        }
+
+        long getCount()
+        {
+            return _count;
+        }
+    }
+
+    private void awaitGate()
+    {
+        synchronized (_gate)
+        {
+            while (!_open)
+            {
+                try
+                {
+                    _gate.wait();
+                }
+                catch (InterruptedException ex)
+                {
+                    return;
+                }
+            }
+        }
+    }
+
+    private Caller[] startCallers(SimpleService service, int threadCount, boolean once)
+    {
+        Caller[] callers = new Caller[threadCount];
+
+        _open = false;
+
+        for (int i = 0; i < threadCount; i++)
+        {
+            callers[i] = new Caller(service, once);
+            callers[i].start();
+        }
+
+        return callers;
+    }
+
+    private void openGate()
+    {
+        synchronized (_gate)
+        {
+            _open = true;
+            _gate.notifyAll();
+        }
+    }
+
+    private static Registry buildRegistry()
+    {
+        ClassResolver resolver = new DefaultClassResolver();
+        RegistryBuilder builder = new RegistryBuilder();
+
+        builder.processModule(resolver, new ClasspathResource(resolver,
+                "/hivemind/test/services/SimpleModule.xml"));
+        builder.processModules(resolver);
+
+        return builder.constructRegistry(Locale.getDefault());
+    }
+
+    /**
+     * Returns the time, in milliseconds, for all threads to complete their first call.
+     */
+    private long firstAccess(int threadCount) throws InterruptedException
+    {
+        Registry registry = buildRegistry();
+
+        SimpleService service =
+            (SimpleService) registry.getService(SERVICE_ID, SimpleService.class);
+
+        Caller[] callers = startCallers(service, threadCount, true);
+
+        long start = System.currentTimeMillis();
+
+        openGate();
+
+        for (int i = 0; i < threadCount; i++)
+            callers[i].join();
+
+        long result = System.currentTimeMillis() - start;
+
+        registry.shutdown();
+
+        return result;
+    }
+
+    /**
+     * Returns the number of calls per second.
+     */
+    private long throughput(SimpleService service, int threadCount) throws InterruptedException
+    {
+        Caller[] callers = startCallers(service, threadCount, false);
+
+        _running = true;
+
+        openGate();
+
+        Thread.sleep(_duration);
+
+        _running = false;
+
+        long total = 0;
+
+        for (int i = 0; i < threadCount; i++)
+        {
+            callers[i].join();
+            total += callers[i].getCount();
+        }
+
+        return total * 1000 / _duration;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        long duration = args.length == 0 ? 2000 : Long.parseLong(args[0]);
+
+        SingletonProxyBenchmark benchmark = new SingletonProxyBenchmark(duration);
+
+        // Warm up; this also creates the proxy classes, which are then shared
+        // by the registries built for each pass.
+
+        benchmark.firstAccess(8);
+
+        System.out.println("threads      first access (ms)");
+
+        for (int i = 0; i < THREAD_COUNTS.length; i++)
+        {
+            int threads = THREAD_COUNTS[i];
+
+            System.out.println(pad(String.valueOf(threads), 7)
+                    + pad(String.valueOf(benchmark.firstAccess(threads)), 23));
+        }
+
+        Registry registry = buildRegistry();
+
+        SimpleService proxy = (SimpleService) registry.getService(SERVICE_ID, SimpleService.class);
+        SimpleService direct = new SimpleServiceImpl();
+
+        benchmark.throughput(direct, 1);
+        benchmark.throughput(proxy, 1);
+
+        System.out.println();
+        System.out.println("threads      direct (calls/s)       proxy (calls/s)");
+
+        for (int i = 0; i < THREAD_COUNTS.length; i++)
+        {
+            int threads = THREAD_COUNTS[i];
+
+            long directRate = benchmark.throughput(direct, threads);
+            long proxyRate = benchmark.throughput(proxy, threads);
+
+            System.out.println(pad(String.valueOf(threads), 7) + pad(String.valueOf(directRate), 23)
+                    + pad(String.valueOf(proxyRate), 22));
+        }
+
+        registry.shutdown();
+    }
+
+    private static String pad(String value, int width)
+    {
+        StringBuffer buffer = new StringBuffer();
+
+        for (int i = value.length(); i < width; i++)
+            buffer.append(' ');
+
+        buffer.append(value);
+
+        return buffer.toString();
+    }
+}
@@ -17,6 +17,7 @@ package org.apache.hivemind.impl;
 import hivemind.test.services.StringHolder;
 import hivemind.test.services.impl.StringHolderImpl;
 
+import org.apache.hivemind.ServiceHandle;
 import org.apache.hivemind.internal.RegistryInfrastructure;
 import org.apache.hivemind.test.HiveMindTestCase;
 import org.easymock.MockControl;
@@ -39,8 +40,8 @@ public class TestModule extends HiveMindTestCase
 		
 		StringHolder h = new StringHolderImpl();
 		
-		r.getService(StringHolder.class);
-		rc.setReturnValue(h);
+		r.getServiceHandle(StringHolder.class);
+		rc.setReturnValue(new ServiceHandleImpl("foo.StringHolder", StringHolder.class, h));
 		
 		replayControls();
 		
@@ -48,6 +49,34 @@ public class TestModule extends HiveMindTestCase
 		
 		assertEquals(h, result);
 		
+		// The second request is satisfied from the module's cached handle.
+		
+		assertSame(h, m.getService(StringHolder.class));
+		
+		verifyControls();
+	}
+
+	public void testGetServiceHandleById()
+	{
+		MockControl rc = newControl(RegistryInfrastructure.class);
+		RegistryInfrastructure r = (RegistryInfrastructure) rc.getMock();
+		
+		ModuleImpl m = new ModuleImpl();
+		m.setModuleId("foo");
+		m.setRegistry(r);
+		
+		StringHolder h = new StringHolderImpl();
+		ServiceHandle handle = new ServiceHandleImpl("foo.StringHolder", StringHolder.class, h);
+		
+		r.getServiceHandle("foo.StringHolder", StringHolder.class);
+		rc.setReturnValue(handle);
+		
+		replayControls();
+		
+		assertSame(handle, m.getServiceHandle("StringHolder", StringHolder.class));
+		assertSame(handle, m.getServiceHandle("StringHolder", StringHolder.class));
+		assertSame(h, m.getService("StringHolder", StringHolder.class));
+		
 		verifyControls();
 	}
 }
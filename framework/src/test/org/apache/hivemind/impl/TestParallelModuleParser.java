@@ -0,0 +1,109 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl;
+
+import hivemind.test.FrameworkTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.parse.ModuleDescriptor;
+
+/**
+ * Tests for {@link org.apache.hivemind.impl.ParallelModuleParser}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestParallelModuleParser extends FrameworkTestCase
+{
+    private List parseModuleIds(String[] files, int threadCount)
+    {
+        List resources = new ArrayList();
+
+        for (int i = 0; i < files.length; i++)
+            resources.add(getResource(files[i]));
+
+        RegistryAssemblyImpl assembly = new RegistryAssemblyImpl(new DefaultErrorHandler());
+
+        ParallelModuleParser parser =
+            new ParallelModuleParser(new DefaultErrorHandler(), assembly, threadCount);
+
+        parser.start(resources, _resolver);
+
+        List result = new ArrayList();
+
+        try
+        {
+            while (parser.hasNext())
+            {
+                try
+                {
+                    ModuleDescriptor md = parser.next();
+
+                    result.add(md.getModuleId());
+                }
+                catch (ApplicationRuntimeException ex)
+                {
+                    result.add("<failure>");
+                }
+            }
+        }
+        finally
+        {
+            parser.close();
+        }
+
+        assembly.performPostProcessing();
+
+        return result;
+    }
+
+    /**
+     * Sub-modules follow the module that includes them, exactly as with serial parsing.
+     */
+    public void testSerialOrder() throws Exception
+    {
+        List ids =
+            parseModuleIds(new String[] { "/hivemind/test/OuterModule.xml",
+                    "/hivemind/test/services/SimpleModule.xml" }, 2);
+
+        assertListsEqual(new Object[] { "hivemind.test.outer", "hivemind.test.outer.submodule",
+                "hivemind.test.services" }, ids);
+    }
+
+    public void testFailureDoesNotStopOtherModules() throws Exception
+    {
+        List ids =
+            parseModuleIds(new String[] { "/hivemind/test/parse/MissingAttribute.xml",
+                    "/hivemind/test/OuterModule.xml" }, 2);
+
+        assertListsEqual(new Object[] { "<failure>", "hivemind.test.outer",
+                "hivemind.test.outer.submodule" }, ids);
+    }
+
+    public void testErrorsReplayed() throws Exception
+    {
+        interceptLogging();
+
+        List ids =
+            parseModuleIds(new String[] { "/hivemind/test/parse/BadAttribute.xml",
+                    "/hivemind/test/services/SimpleModule.xml" }, 2);
+
+        assertEquals(2, ids.size());
+
+        assertLoggedMessagePattern("Unknown attribute 'bad-attribute' in element module/schema\\.");
+    }
+}
@@ -0,0 +1,351 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.hivemind.impl;
+
+import hivemind.test.FrameworkTestCase;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.Resource;
+import org.apache.hivemind.internal.RegistryInfrastructure;
+import org.apache.hivemind.internal.ServicePoint;
+import org.apache.hivemind.parse.ModuleDescriptor;
+import org.apache.hivemind.service.ClassFactory;
+import org.apache.hivemind.util.FileResource;
+import org.apache.hivemind.util.URLResource;
+
+/**
+ * Tests for registry images ({@link RegistryImageWriter}, {@link RegistryImageReader} and
+ * {@link RegistryBuilder#processModules(org.apache.hivemind.ClassResolver, Resource)}).
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestRegistryImage extends FrameworkTestCase
+{
+    private List _tempFiles = new ArrayList();
+
+    protected void tearDown() throws Exception
+    {
+        for (int i = 0; i < _tempFiles.size(); i++)
+            ((File) _tempFiles.get(i)).delete();
+
+        super.tearDown();
+    }
+
+    private File createTempFile(String suffix) throws IOException
+    {
+        File result = File.createTempFile("TestRegistryImage-", suffix);
+
+        _tempFiles.add(result);
+
+        return result;
+    }
+
+    private Resource writeImage(List descriptorURLs) throws Exception
+    {
+        RegistryImageWriter writer = new RegistryImageWriter(new StrictErrorHandler());
+
+        for (int i = 0; i < descriptorURLs.size(); i++)
+            writer.addModule(_resolver, (URL) descriptorURLs.get(i));
+
+        File image = createTempFile(".image");
+
+        OutputStream out = new FileOutputStream(image);
+
+        writer.write(out);
+
+        out.close();
+
+        return new FileResource(image.getPath());
+    }
+
+    private List findDescriptorURLs() throws IOException
+    {
+        List result = new ArrayList();
+
+        Enumeration e = _resolver.getClassLoader().getResources(RegistryBuilder.HIVE_MODULE_XML);
+
+        while (e.hasMoreElements())
+            result.add(e.nextElement());
+
+        return result;
+    }
+
+    private static List toResources(List urls)
+    {
+        List result = new ArrayList();
+
+        for (int i = 0; i < urls.size(); i++)
+            result.add(new URLResource((URL) urls.get(i)));
+
+        return result;
+    }
+
+    private List readModuleIds(Resource image, List descriptorURLs)
+    {
+        List descriptors =
+            new RegistryImageReader(image).read(_resolver, toResources(descriptorURLs));
+
+        if (descriptors == null)
+            return null;
+
+        List result = new ArrayList();
+
+        for (int i = 0; i < descriptors.size(); i++)
+            result.add(((ModuleDescriptor) descriptors.get(i)).getModuleId());
+
+        return result;
+    }
+
+    private File copyResource(String path) throws IOException
+    {
+        File result = createTempFile(".xml");
+
+        InputStream in = getClass().getResourceAsStream(path);
+        OutputStream out = new FileOutputStream(result);
+
+        byte[] buffer = new byte[1024];
+
+        while (true)
+        {
+            int length = in.read(buffer);
+
+            if (length < 0)
+                break;
+
+            out.write(buffer, 0, length);
+        }
+
+        in.close();
+        out.close();
+
+        return result;
+    }
+
+    public void testConstructRegistryFromImage() throws Exception
+    {
+        List urls = findDescriptorURLs();
+
+        Resource image = writeImage(urls);
+
+        RegistryBuilder builder = new RegistryBuilder();
+
+        assertEquals(true, builder.processModuleImage(_resolver, image, toResources(urls)));
+
+        Registry registry = builder.constructRegistry(Locale.getDefault());
+
+        ClassFactory cf = (ClassFactory) registry.getService(ClassFactory.class);
+
+        assertNotNull(cf);
+
+        // Locations refer to the descriptors as found at runtime.
+
+        ServicePoint sp =
+            ((RegistryInfrastructure) registry).getServicePoint("hivemind.ClassFactory");
+
+        assertEquals(toResources(urls).get(0), sp.getLocation().getResource());
+
+        // Configurations are converted using the stored schemas.
+
+        assertEquals(false, registry.getConfiguration("hivemind.ServiceModels").isEmpty());
+
+        registry.shutdown();
+    }
+
+    public void testSubModules() throws Exception
+    {
+        List urls =
+            Collections.singletonList(getResource("/hivemind/test/OuterModule.xml")
+                    .getResourceURL());
+
+        Resource image = writeImage(urls);
+
+        assertListsEqual(
+            new Object[] { "hivemind.test.outer", "hivemind.test.outer.submodule" },
+            readModuleIds(image, urls));
+    }
+
+    public void testOrderFollowsRuntime() throws Exception
+    {
+        URL outer = getResource("/hivemind/test/OuterModule.xml").getResourceURL();
+        URL simple = getResource("/hivemind/test/services/SimpleModule.xml").getResourceURL();
+
+        List urls = new ArrayList();
+        urls.add(outer);
+        urls.add(simple);
+
+        Resource image = writeImage(urls);
+
+        Collections.reverse(urls);
+
+        assertListsEqual(new Object[] { "hivemind.test.services", "hivemind.test.outer",
+                "hivemind.test.outer.submodule" }, readModuleIds(image, urls));
+    }
+
+    public void testMissingImage() throws Exception
+    {
+        File file = createTempFile(".image");
+
+        file.delete();
+
+        assertNull(readModuleIds(new FileResource(file.getPath()), findDescriptorURLs()));
+    }
+
+    public void testIncompatibleImage() throws Exception
+    {
+        interceptLogging();
+
+        File file = copyResource("/hivemind/test/OuterModule.xml");
+
+        assertNull(readModuleIds(new FileResource(file.getPath()), findDescriptorURLs()));
+
+        assertLoggedMessagePattern("is not a registry image compatible with this version of HiveMind");
+    }
+
+    public void testUnexpectedClassRejected() throws Exception
+    {
+        interceptLogging();
+
+        URL url = getResource("/hivemind/test/services/SimpleModule.xml").getResourceURL();
+
+        File file = createTempFile(".image");
+
+        DataOutputStream data = new DataOutputStream(new FileOutputStream(file));
+
+        data.writeUTF(RegistryImage.MAGIC);
+        data.writeInt(RegistryImage.FORMAT_VERSION);
+        data.writeInt(1);
+
+        new RegistryImage.Entry(-1, "", url.toString(), RegistryImage.lastModified(url),
+                RegistryImage.checksum(url)).write(data);
+
+        ObjectOutputStream out = new ObjectOutputStream(data);
+
+        List stored = new ArrayList();
+        stored.add(new Date());
+
+        out.writeObject(stored);
+        out.close();
+
+        assertNull(readModuleIds(new FileResource(file.getPath()), Collections.singletonList(url)));
+
+        assertLoggedMessagePattern("Class may not be read from a registry image");
+    }
+
+    public void testDescriptorAdded() throws Exception
+    {
+        interceptLogging();
+
+        List urls =
+            Collections.singletonList(getResource("/hivemind/test/services/SimpleModule.xml")
+                    .getResourceURL());
+
+        Resource image = writeImage(urls);
+
+        assertNull(readModuleIds(image, findDescriptorURLs()));
+
+        assertLoggedMessagePattern("Registry image .* is out of date");
+    }
+
+    public void testDescriptorRemoved() throws Exception
+    {
+        interceptLogging();
+
+        URL outer = getResource("/hivemind/test/OuterModule.xml").getResourceURL();
+        URL simple = getResource("/hivemind/test/services/SimpleModule.xml").getResourceURL();
+
+        List urls = new ArrayList();
+        urls.add(outer);
+        urls.add(simple);
+
+        Resource image = writeImage(urls);
+
+        assertNull(readModuleIds(image, Collections.singletonList(outer)));
+
+        assertLoggedMessagePattern("SimpleModule\\.xml has been added, removed or changed");
+    }
+
+    public void testTouchedDescriptorStillMatches() throws Exception
+    {
+        File file = copyResource("/hivemind/test/services/SimpleModule.xml");
+        List urls = Collections.singletonList(file.toURL());
+
+        Resource image = writeImage(urls);
+
+        file.setLastModified(file.lastModified() - 60000);
+
+        assertListsEqual(new Object[] { "hivemind.test.services" }, readModuleIds(image, urls));
+    }
+
+    public void testChangedDescriptor() throws Exception
+    {
+        interceptLogging();
+
+        File file = copyResource("/hivemind/test/services/SimpleModule.xml");
+        List urls = Collections.singletonList(file.toURL());
+
+        Resource image = writeImage(urls);
+
+        long lastModified = file.lastModified();
+
+        OutputStream out = new FileOutputStream(file.getPath(), true);
+        out.write("<!-- changed -->".getBytes());
+        out.close();
+
+        file.setLastModified(lastModified + 60000);
+
+        assertNull(readModuleIds(image, urls));
+
+        assertLoggedMessagePattern("Registry image .* is out of date");
+    }
+
+    public void testFallbackToParsing() throws Exception
+    {
+        interceptLogging();
+
+        List urls =
+            Collections.singletonList(getResource("/hivemind/test/services/SimpleModule.xml")
+                    .getResourceURL());
+
+        Resource image = writeImage(urls);
+
+        RegistryBuilder builder = new RegistryBuilder();
+
+        builder.processModules(_resolver, image);
+
+        Registry registry = builder.constructRegistry(Locale.getDefault());
+
+        assertNotNull(registry.getService(ClassFactory.class));
+
+        assertLoggedMessagePattern("Registry image .* is out of date");
+
+        registry.shutdown();
+    }
+}
@@ -0,0 +1,170 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.impl;
+
+import hivemind.test.FrameworkTestCase;
+import hivemind.test.config.SetContributingModuleRule;
+import hivemind.test.config.impl.Child;
+import hivemind.test.config.impl.Datum;
+import hivemind.test.config.impl.IntHolder;
+import hivemind.test.config.impl.Parent;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.internal.Module;
+import org.apache.hivemind.internal.RegistryInfrastructure;
+import org.apache.hivemind.schema.impl.ElementModelImpl;
+import org.apache.hivemind.schema.rules.CreateObjectRule;
+import org.apache.hivemind.schema.rules.InvokeParentRule;
+import org.apache.hivemind.schema.rules.ReadAttributeRule;
+import org.apache.hivemind.service.impl.ClassFactoryImpl;
+
+/**
+ * Tests for {@link org.apache.hivemind.impl.SchemaCompiler}. Configurations are processed with
+ * the rules of each element compiled the first time the element is processed.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestSchemaCompiler extends FrameworkTestCase
+{
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        SchemaProcessorImpl.setTestCompileThreshold(1);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        SchemaProcessorImpl.clearTestCompileThreshold();
+
+        super.tearDown();
+    }
+
+    private ElementModelImpl newDatumModel()
+    {
+        ElementModelImpl result = new ElementModelImpl();
+
+        result.setElementName("datum");
+        result.addRule(new CreateObjectRule(Datum.class.getName()));
+        result.addRule(new ReadAttributeRule("key", "key", null, null));
+        result.addRule(new InvokeParentRule("addElement"));
+
+        return result;
+    }
+
+    public void testCompile()
+    {
+        SchemaCompiler compiler = new SchemaCompiler(new ClassFactoryImpl());
+
+        List stack = Collections.singletonList(SchemaProcessorImpl.class);
+
+        assertNotNull(compiler.compile(newDatumModel(), stack, _resolver));
+    }
+
+    public void testNothingToCompile()
+    {
+        SchemaCompiler compiler = new SchemaCompiler(new ClassFactoryImpl());
+
+        ElementModelImpl model = new ElementModelImpl();
+
+        model.setElementName("datum");
+        model.addRule(new SetContributingModuleRule());
+
+        List stack = Collections.singletonList(SchemaProcessorImpl.class);
+
+        assertNull(compiler.compile(model, stack, _resolver));
+    }
+
+    public void testStackAfterBegin()
+    {
+        SchemaCompiler compiler = new SchemaCompiler(new ClassFactoryImpl());
+
+        List stack = Collections.singletonList(SchemaProcessorImpl.class);
+
+        List after = compiler.getStackAfterBegin(stack, newDatumModel().getRules(), _resolver);
+
+        assertListsEqual(new Object[] { SchemaProcessorImpl.class, Datum.class }, after);
+
+        ElementModelImpl model = newDatumModel();
+        model.addRule(new SetContributingModuleRule());
+
+        assertNull(compiler.getStackAfterBegin(stack, model.getRules(), _resolver));
+    }
+
+    public void testNestedElements() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("/hivemind/test/config/SetParent.xml");
+
+        List l = r.getConfiguration("hivemind.test.config.SetParent");
+
+        assertEquals(1, l.size());
+
+        Parent p = (Parent) l.get(0);
+
+        assertEquals("key1", p.getKey());
+        assertEquals("value1", p.getValue());
+
+        l = p.getChildren();
+        assertEquals(2, l.size());
+
+        Child c = (Child) l.get(1);
+
+        assertSame(p, c.getParent());
+        assertEquals("detailkey2", c.getKey());
+        assertEquals("detailvalue2", c.getValue());
+    }
+
+    public void testCustomRule() throws Exception
+    {
+        RegistryInfrastructure r =
+            (RegistryInfrastructure) buildFrameworkRegistry("/hivemind/test/config/CustomRule.xml");
+
+        List l = r.getConfiguration("hivemind.test.config.CustomRule");
+        Module m = r.getConfigurationPoint("hivemind.test.config.CustomRule").getModule();
+
+        assertEquals(2, l.size());
+
+        Datum d = (Datum) l.get(1);
+
+        assertEquals("key2", d.getKey());
+        assertSame(m, d.getContributingModule());
+    }
+
+    public void testReadAttributeFailure() throws Exception
+    {
+        interceptLogging();
+
+        Registry r = buildFrameworkRegistry("/hivemind/test/config/IntTranslator.xml");
+
+        List l = r.getConfiguration("hivemind.test.config.IntTranslator");
+
+        assertEquals(5, l.size());
+
+        List events = getInterceptedLogEvents();
+
+        assertLoggedMessagePattern(
+            "Unable to process attribute value \\(of element int\\): "
+                + "Value 2 is less than minimum value 5\\.",
+            events);
+        assertLoggedMessagePattern("'fred' is not an integer value\\.", events);
+
+        assertEquals(7, ((IntHolder) l.get(0)).getValue());
+        assertEquals(0, ((IntHolder) l.get(1)).getValue());
+        assertEquals(6, ((IntHolder) l.get(4)).getValue());
+    }
+}
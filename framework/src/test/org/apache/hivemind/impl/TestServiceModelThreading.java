@@ -137,4 +137,9 @@ public class TestServiceModelThreading extends HiveMindTestCase
     {
     	execute("hivemind.test.threading.PooledWorker");
     }
+    
+    public void testStriped() throws Exception
+    {
+    	execute("hivemind.test.threading.StripedWorker");
+    }
 }
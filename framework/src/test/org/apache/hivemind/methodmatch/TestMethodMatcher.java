@@ -14,6 +14,8 @@
 
 package org.apache.hivemind.methodmatch;
 
+import java.util.Map;
+
 import org.apache.hivemind.ApplicationRuntimeException;
 import org.apache.hivemind.Location;
 import org.apache.hivemind.Resource;
@@ -102,4 +104,55 @@ public class TestMethodMatcher extends AbstractMethodTestCase
             assertEquals(true, matchesPattern);
         }
     }
+
+    public void testNamePatterns()
+    {
+        _m.put("has*", "prefix");
+        _m.put("*als", "suffix");
+        _m.put("*tri*", "infix");
+        _m.put("notify", "exact");
+
+        assertEquals("prefix", _m.get(getMethodSignature(this, "hashCode")));
+        assertEquals("suffix", _m.get(getMethodSignature(this, "equals")));
+        assertEquals("infix", _m.get(getMethodSignature(this, "toString")));
+        assertEquals("exact", _m.get(getMethodSignature(this, "notify")));
+        assertEquals(null, _m.get(getMethodSignature(this, "getClass")));
+    }
+
+    /**
+     * The first pattern stored wins, however the patterns are indexed.
+     */
+    public void testIndexedMatchPriority()
+    {
+        _m.put("*ls(java.lang.String)", "no-match");
+        _m.put("*qu*", "infix");
+        _m.put("e*", "prefix");
+        _m.put("equals", "exact");
+
+        assertEquals("infix", _m.get(getMethodSignature(this, "equals")));
+    }
+
+    public void testPutAfterGet()
+    {
+        _m.put("hashCode", "first");
+
+        assertEquals(null, _m.get(getMethodSignature(this, "equals")));
+
+        _m.put("equals", "second");
+
+        assertEquals("second", _m.get(getMethodSignature(this, "equals")));
+    }
+
+    public void testMatchInterface()
+    {
+        _m.put("run", "run");
+        _m.put("toString", "toString");
+
+        Map matches = _m.match(Runnable.class);
+
+        assertEquals(1, matches.size());
+        assertEquals("run", matches.get(getMethodSignature(Runnable.class, "run")));
+
+        assertEquals("run", _m.get(getMethodSignature(Runnable.class, "run")));
+    }
 }
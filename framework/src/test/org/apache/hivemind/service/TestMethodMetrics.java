@@ -0,0 +1,89 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.service;
+
+import org.apache.hivemind.test.HiveMindTestCase;
+
+/**
+ * Tests for {@link org.apache.hivemind.service.MethodMetrics} and
+ * {@link org.apache.hivemind.service.MethodStatistics}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestMethodMetrics extends HiveMindTestCase
+{
+    public void testBuckets()
+    {
+        for (int i = 0; i < 16; i++)
+            assertEquals(i, MethodMetrics.getBucket(i));
+
+        assertEquals(16, MethodMetrics.getBucket(16));
+        assertEquals(16, MethodMetrics.getBucket(17));
+        assertEquals(17, MethodMetrics.getBucket(18));
+
+        // Each bucket's limit is in the bucket, and the next value is in the next bucket.
+
+        for (int i = 0; i < MethodMetrics.BUCKET_COUNT - 1; i++)
+        {
+            long limit = MethodMetrics.getBucketLimit(i);
+
+            assertEquals(i, MethodMetrics.getBucket(limit));
+            assertEquals(i + 1, MethodMetrics.getBucket(limit + 1));
+        }
+
+        assertEquals(MethodMetrics.BUCKET_COUNT - 1, MethodMetrics.getBucket(Long.MAX_VALUE));
+        assertEquals(0, MethodMetrics.getBucket(-5));
+    }
+
+    public void testStatistics()
+    {
+        MethodMetrics mm = new MethodMetrics("foo.bar", "run()");
+
+        for (int i = 1; i <= 100; i++)
+            mm.record(i * 1000);
+
+        mm.recordFailure(7000);
+
+        MethodStatistics ms = mm.getStatistics();
+
+        assertEquals("foo.bar", ms.getServiceId());
+        assertEquals("run()", ms.getMethodName());
+        assertEquals(100, ms.getCount());
+        assertEquals(1, ms.getFailureCount());
+        assertEquals(5050000, ms.getTotalTime());
+        assertEquals(50500, ms.getMeanTime());
+        assertEquals(100000, ms.getMaxTime());
+        assertEquals(7000, ms.getFailureTime());
+        assertEquals(7000, ms.getMeanFailureTime());
+
+        // Percentiles are the upper bound of a bucket, accurate to within 12.5%.
+
+        long p50 = ms.getPercentile(50);
+
+        assertTrue(p50 >= 50000 && p50 <= 50000 * 1.125);
+
+        assertEquals(100000, ms.getPercentile(100));
+        assertEquals(100000, ms.getPercentile(99.9));
+    }
+
+    public void testNoInvocations()
+    {
+        MethodStatistics ms = new MethodMetrics("foo.bar", "run()").getStatistics();
+
+        assertEquals(0, ms.getCount());
+        assertEquals(0, ms.getMeanTime());
+        assertEquals(0, ms.getPercentile(99));
+    }
+}
@@ -0,0 +1,205 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.service.impl;
+
+import hivemind.test.FrameworkTestCase;
+import hivemind.test.services.DemoService;
+
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.Registry;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Tests for {@link org.apache.hivemind.service.impl.AsyncLoggingInterceptorFactory}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestAsyncLoggingInterceptorFactory extends FrameworkTestCase
+{
+    public void testAsyncLogging() throws Exception
+    {
+        interceptLogging("hivemind.test.services.Demo");
+
+        Registry r = buildFrameworkRegistry("/hivemind/test/services/AsyncLogging.xml");
+
+        DemoService s =
+            (DemoService) r.getService("hivemind.test.services.Demo", DemoService.class);
+
+        assertEquals(8, s.add(5, 3));
+
+        s.noResult();
+
+        try
+        {
+            s.alwaysFail();
+            unreachable();
+        }
+        catch (ApplicationRuntimeException ex)
+        {
+            assertExceptionSubstring(ex, "Failure in method alwaysFail.");
+        }
+
+        // Shutting down the registry writes out any buffered events.
+
+        r.shutdown();
+
+        List events = getInterceptedLogEvents();
+
+        assertLoggedMessagePattern("^\\[\\d\\d:\\d\\d:\\d\\d\\.\\d\\d\\d\\] BEGIN add\\(5, 3\\)$", events);
+        assertLoggedMessagePattern("\\] END add\\(\\) \\[8\\]$", events);
+        assertLoggedMessagePattern("\\] BEGIN noResult\\(\\)$", events);
+        assertLoggedMessagePattern("\\] END noResult\\(\\)$", events);
+        assertLoggedMessagePattern(
+            "\\] EXCEPTION alwaysFail\\(\\) -- org\\.apache\\.hivemind\\.ApplicationRuntimeException$",
+            events);
+    }
+
+    public void testDebugDisabled() throws Exception
+    {
+        interceptLogging("hivemind.test.services.Demo");
+
+        LogManager.getLogger("hivemind.test.services.Demo").setLevel(Level.INFO);
+
+        Registry r = buildFrameworkRegistry("/hivemind/test/services/AsyncLogging.xml");
+
+        DemoService s =
+            (DemoService) r.getService("hivemind.test.services.Demo", DemoService.class);
+
+        s.noResult();
+
+        r.shutdown();
+
+        assertLoggedMessages(new String[0]);
+    }
+
+    /**
+     * Events recorded by concurrent threads (using different stripes) are all written, each
+     * thread's events in order.
+     */
+    public void testConcurrentThreads() throws Exception
+    {
+        interceptLogging("hivemind.test.async");
+
+        final AsyncLogWriter writer =
+            new AsyncLogWriter(16, 4, false, 1000, LogFactory.getLog("hivemind.test.async"));
+        final AsyncMethodLogger logger =
+            writer.getLogger(LogFactory.getLog("hivemind.test.async.Demo"));
+
+        final int count = 100;
+        Thread[] threads = new Thread[4];
+
+        for (int i = 0; i < threads.length; i++)
+        {
+            final String prefix = "t" + i + "_";
+
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    for (int j = 0; j < count; j++)
+                        logger.voidExit(prefix + j);
+                }
+            };
+
+            threads[i].start();
+        }
+
+        for (int i = 0; i < threads.length; i++)
+            threads[i].join();
+
+        writer.shutdown();
+
+        List events = getInterceptedLogEvents();
+
+        assertEquals(threads.length * count, events.size());
+
+        int[] next = new int[threads.length];
+
+        for (int i = 0; i < events.size(); i++)
+        {
+            String message = ((LoggingEvent) events.get(i)).getRenderedMessage();
+
+            // "[time] END t<thread>_<index>()"
+
+            int start = message.indexOf("END t") + 5;
+            int underscore = message.indexOf('_', start);
+
+            int thread = Integer.parseInt(message.substring(start, underscore));
+            int index =
+                Integer.parseInt(message.substring(underscore + 1, message.indexOf('(')));
+
+            assertEquals(next[thread]++, index);
+        }
+    }
+
+    public void testDropOnOverflow() throws Exception
+    {
+        interceptLogging("hivemind.test.async");
+
+        Log log = LogFactory.getLog("hivemind.test.async.Writer");
+
+        // The writer's thread is not started until after the events are recorded.
+
+        AsyncLogWriter writer = new AsyncLogWriter(2, 1, true, 1000, log);
+        AsyncMethodLogger logger =
+            new AsyncMethodLogger(writer, LogFactory.getLog("hivemind.test.async.Demo"));
+
+        logger.entry("run", null);
+        logger.voidExit("run");
+        logger.entry("run", null);
+
+        writer.start();
+        writer.shutdown();
+
+        List events = getInterceptedLogEvents();
+
+        assertLoggedMessagePattern("\\] BEGIN run\\(\\)$", events);
+        assertLoggedMessagePattern("\\] END run\\(\\)$", events);
+        assertLoggedMessage(
+            "1 log event was dropped because the asynchronous logging buffer was full.",
+            events);
+    }
+
+    public void testMutableValuesFormattedWhenRecorded() throws Exception
+    {
+        interceptLogging("hivemind.test.async");
+
+        AsyncLogWriter writer =
+            new AsyncLogWriter(16, 1, true, 1000, LogFactory.getLog("hivemind.test.async"));
+        AsyncMethodLogger logger =
+            new AsyncMethodLogger(writer, LogFactory.getLog("hivemind.test.async.Demo"));
+
+        StringBuffer buffer = new StringBuffer("before");
+
+        logger.entry("append", new Object[] { buffer, "text" });
+        logger.exit("append", buffer);
+
+        buffer.append(" after");
+
+        writer.start();
+        writer.shutdown();
+
+        List events = getInterceptedLogEvents();
+
+        assertLoggedMessagePattern("\\] BEGIN append\\(before, text\\)$", events);
+        assertLoggedMessagePattern("\\] END append\\(\\) \\[before\\]$", events);
+    }
+}
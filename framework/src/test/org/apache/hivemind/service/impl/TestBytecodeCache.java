@@ -0,0 +1,190 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.hivemind.service.impl;
+
+import hivemind.test.services.SimpleService;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Modifier;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.service.ClassFab;
+import org.apache.hivemind.service.MethodSignature;
+import org.apache.hivemind.test.HiveMindTestCase;
+
+/**
+ * Tests for {@link org.apache.hivemind.service.impl.BytecodeCache} and its use by
+ * {@link org.apache.hivemind.service.impl.ClassFactoryImpl}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestBytecodeCache extends HiveMindTestCase
+{
+    private static final MethodSignature ADD =
+        new MethodSignature(int.class, "add", new Class[] { int.class, int.class }, null);
+
+    private File _directory;
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _directory = File.createTempFile("TestBytecodeCache-", "");
+        _directory.delete();
+    }
+
+    protected void tearDown() throws Exception
+    {
+        File[] files = _directory.listFiles();
+
+        for (int i = 0; files != null && i < files.length; i++)
+            files[i].delete();
+
+        _directory.delete();
+
+        super.tearDown();
+    }
+
+    private ClassFab newAdder(ClassFactoryImpl factory, String body)
+    {
+        ClassFab cf =
+            factory.newClass("$CachedAdder", Object.class, getClass().getClassLoader());
+
+        cf.addInterface(SimpleService.class);
+        cf.addMethod(Modifier.PUBLIC, ADD, body);
+
+        return cf;
+    }
+
+    private int add(Class adderClass, int a, int b) throws Exception
+    {
+        SimpleService adder = (SimpleService) adderClass.newInstance();
+
+        return adder.add(a, b);
+    }
+
+    public void testMissThenHit() throws Exception
+    {
+        ClassFactoryImpl first = new ClassFactoryImpl(_directory);
+
+        Class c = newAdder(first, "return $1 + $2;").createClass();
+
+        assertEquals(5, add(c, 2, 3));
+        assertEquals(0, first.getCacheHitCount());
+        assertEquals(1, first.getCacheMissCount());
+        assertEquals(1, _directory.listFiles().length);
+
+        // A new factory has a new class loader, much as in a later run.
+
+        ClassFactoryImpl second = new ClassFactoryImpl(_directory);
+
+        c = newAdder(second, "return $1 + $2;").createClass();
+
+        assertEquals(7, add(c, 3, 4));
+        assertEquals(1, second.getCacheHitCount());
+        assertEquals(0, second.getCacheMissCount());
+    }
+
+    public void testChangedBodyMisses() throws Exception
+    {
+        newAdder(new ClassFactoryImpl(_directory), "return $1 + $2;").createClass();
+
+        ClassFactoryImpl factory = new ClassFactoryImpl(_directory);
+
+        Class c = newAdder(factory, "return $1 * $2;").createClass();
+
+        assertEquals(12, add(c, 3, 4));
+        assertEquals(0, factory.getCacheHitCount());
+        assertEquals(1, factory.getCacheMissCount());
+        assertEquals(2, _directory.listFiles().length);
+    }
+
+    public void testFrameworkVersion()
+    {
+        // The HiveMind classes are loaded from a directory (or JAR), so their build time
+        // is known.
+
+        assertEquals(false, BytecodeCache.getFrameworkVersion().endsWith(" 0"));
+    }
+
+    public void testCatchCached() throws Exception
+    {
+        for (int i = 0; i < 2; i++)
+        {
+            ClassFactoryImpl factory = new ClassFactoryImpl(_directory);
+
+            ClassFab cf = newAdder(factory, "throw new java.lang.IllegalStateException();");
+
+            cf.getMethodFab(ADD).addCatch(IllegalStateException.class, "return -1;");
+
+            assertEquals(-1, add(cf.createClass(), 2, 3));
+            assertEquals(i, factory.getCacheHitCount());
+        }
+    }
+
+    public void testCompileErrorReportedByCreateClass() throws Exception
+    {
+        ClassFab cf = newAdder(new ClassFactoryImpl(_directory), "fail;");
+
+        try
+        {
+            cf.createClass();
+            unreachable();
+        }
+        catch (ApplicationRuntimeException ex)
+        {
+            assertExceptionSubstring(ex, "Unable to add method int add(int, int) to class $CachedAdder");
+        }
+
+        assertEquals(false, _directory.exists());
+    }
+
+    public void testInvalidCacheEntry() throws Exception
+    {
+        newAdder(new ClassFactoryImpl(_directory), "return $1 + $2;").createClass();
+
+        File[] files = _directory.listFiles();
+
+        OutputStream stream = new FileOutputStream(files[0]);
+        stream.write(new byte[] { 1, 2, 3 });
+        stream.close();
+
+        interceptLogging(CtClassSource.class.getName());
+
+        ClassFactoryImpl factory = new ClassFactoryImpl(_directory);
+
+        Class c = newAdder(factory, "return $1 + $2;").createClass();
+
+        assertEquals(5, add(c, 2, 3));
+        assertEquals(0, factory.getCacheHitCount());
+        assertEquals(1, factory.getCacheMissCount());
+
+        assertLoggedMessagePattern("Unable to load class \\$CachedAdder from the bytecode cache");
+    }
+
+    public void testNoCacheDirectory() throws Exception
+    {
+        ClassFactoryImpl factory = new ClassFactoryImpl((File) null);
+
+        Class c = newAdder(factory, "return $1 + $2;").createClass();
+
+        assertEquals(5, add(c, 2, 3));
+        assertEquals(0, factory.getCacheMissCount());
+        assertEquals(false, _directory.exists());
+    }
+}
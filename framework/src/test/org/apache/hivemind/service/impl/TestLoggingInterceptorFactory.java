@@ -65,8 +65,10 @@ public class TestLoggingInterceptorFactory extends HiveMindTestCase
         moduleControl.setReturnValue(new DefaultClassResolver());
 
         
+        // Once for the class name, once for toString()
+
         sp.getExtensionPointId();
-        spControl.setReturnValue("foo.bar");
+        spControl.setReturnValue("foo.bar", 2);
         
         replayControls();
 
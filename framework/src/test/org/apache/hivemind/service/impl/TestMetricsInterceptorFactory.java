@@ -0,0 +1,152 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.service.impl;
+
+import hivemind.test.FrameworkTestCase;
+import hivemind.test.services.DemoService;
+
+import java.util.List;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.service.MethodStatistics;
+import org.apache.hivemind.service.MetricsSnapshot;
+
+/**
+ * Tests for {@link org.apache.hivemind.service.impl.MetricsInterceptorFactory} and
+ * {@link org.apache.hivemind.service.impl.MetricsSnapshotImpl}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestMetricsInterceptorFactory extends FrameworkTestCase
+{
+    private void invoke(DemoService s)
+    {
+        assertEquals(8, s.add(5, 3));
+        assertEquals(3, s.add(1, 2));
+
+        s.noResult();
+
+        try
+        {
+            s.alwaysFail();
+            unreachable();
+        }
+        catch (ApplicationRuntimeException ex)
+        {
+            assertExceptionSubstring(ex, "Failure in method alwaysFail.");
+        }
+    }
+
+    private void assertStatistics(MethodStatistics ms, String serviceId, String methodName,
+            long count, long failureCount)
+    {
+        assertEquals(serviceId, ms.getServiceId());
+        assertEquals(methodName, ms.getMethodName());
+        assertEquals(count, ms.getCount());
+        assertEquals(failureCount, ms.getFailureCount());
+    }
+
+    public void testMetrics() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("/hivemind/test/services/Metrics.xml");
+
+        DemoService s = (DemoService) r.getService("hivemind.test.services.Demo", DemoService.class);
+
+        invoke(s);
+
+        MetricsSnapshot snapshot =
+            (MetricsSnapshot) r.getService("hivemind.MetricsSnapshot", MetricsSnapshot.class);
+
+        // noResult() is excluded.
+
+        List statistics = snapshot.getStatistics();
+
+        assertEquals(2, statistics.size());
+
+        assertStatistics(
+            (MethodStatistics) statistics.get(0),
+            "hivemind.test.services.Demo",
+            "add(int, int)",
+            2,
+            0);
+        assertStatistics(
+            (MethodStatistics) statistics.get(1),
+            "hivemind.test.services.Demo",
+            "alwaysFail()",
+            0,
+            1);
+
+        MethodStatistics add = (MethodStatistics) statistics.get(0);
+
+        assertTrue(add.getPercentile(50) <= add.getPercentile(99));
+        assertTrue(add.getPercentile(99) <= add.getMaxTime());
+        assertTrue(add.getTotalTime() >= add.getMaxTime());
+
+        // Failures are timed, too.
+
+        MethodStatistics alwaysFail = (MethodStatistics) statistics.get(1);
+
+        assertTrue(alwaysFail.getFailureTime() > 0);
+
+        String report = snapshot.getReport();
+
+        assertTrue(report.startsWith("hivemind.test.services.Demo\n  add(int, int): count=2 failures=0 "));
+        assertTrue(report.indexOf("\n  alwaysFail(): count=0 failures=1 ") > 0);
+    }
+
+    public void testFused() throws Exception
+    {
+        interceptLogging("hivemind.test.services.FusedDemo");
+
+        Registry r = buildFrameworkRegistry("/hivemind/test/services/Metrics.xml");
+
+        DemoService s =
+            (DemoService) r.getService("hivemind.test.services.FusedDemo", DemoService.class);
+
+        invoke(s);
+
+        List events = getInterceptedLogEvents();
+
+        assertLoggedMessage("Fusing 2 interceptors for service hivemind.test.services.FusedDemo", events);
+        assertLoggedMessage("BEGIN add(5, 3)", events);
+
+        MetricsSnapshot snapshot =
+            (MetricsSnapshot) r.getService("hivemind.MetricsSnapshot", MetricsSnapshot.class);
+
+        List statistics = snapshot.getStatistics();
+
+        assertEquals(3, statistics.size());
+
+        assertStatistics(
+            (MethodStatistics) statistics.get(0),
+            "hivemind.test.services.FusedDemo",
+            "add(int, int)",
+            2,
+            0);
+        assertStatistics(
+            (MethodStatistics) statistics.get(1),
+            "hivemind.test.services.FusedDemo",
+            "alwaysFail()",
+            0,
+            1);
+        assertStatistics(
+            (MethodStatistics) statistics.get(2),
+            "hivemind.test.services.FusedDemo",
+            "noResult()",
+            1,
+            0);
+    }
+}
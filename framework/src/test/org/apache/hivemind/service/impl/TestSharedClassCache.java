@@ -0,0 +1,120 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.hivemind.service.impl;
+
+import hivemind.test.services.SimpleService;
+
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.service.ClassFab;
+import org.apache.hivemind.service.MethodSignature;
+import org.apache.hivemind.test.HiveMindTestCase;
+
+/**
+ * Tests for {@link org.apache.hivemind.service.impl.SharedClassCache}, and its use by
+ * {@link org.apache.hivemind.service.impl.ClassFactoryImpl}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestSharedClassCache extends HiveMindTestCase
+{
+    private ClassLoader _loader = getClass().getClassLoader();
+
+    private Class createClass(ClassFactoryImpl factory, String name, ClassLoader loader)
+    {
+        ClassFab cf = factory.newClass(name, Object.class, loader);
+
+        cf.addInterface(Runnable.class);
+        cf.addMethod(Modifier.PUBLIC, new MethodSignature(void.class, "run", null, null), "{}");
+
+        return cf.createClass();
+    }
+
+    public void testClassShared()
+    {
+        String name = "$SharedClass";
+
+        ClassFactoryImpl first = new ClassFactoryImpl();
+
+        assertNull(first.findPregeneratedClass(name, _loader));
+
+        Class c = createClass(first, name, _loader);
+
+        assertSame(c, new ClassFactoryImpl().findPregeneratedClass(name, _loader));
+    }
+
+    public void testNotSharedWithOtherClassLoader()
+    {
+        String name = "$SharedClassOtherLoader";
+
+        ClassFactoryImpl first = new ClassFactoryImpl();
+
+        first.findPregeneratedClass(name, _loader);
+        createClass(first, name, _loader);
+
+        ClassLoader other = new URLClassLoader(new URL[0], _loader);
+
+        assertNull(new ClassFactoryImpl().findPregeneratedClass(name, other));
+    }
+
+    public void testOnlySoughtClassesShared()
+    {
+        String name = "$UnsoughtClass";
+
+        createClass(new ClassFactoryImpl(), name, _loader);
+
+        assertNull(new ClassFactoryImpl().findPregeneratedClass(name, _loader));
+    }
+
+    public void testIncompleteClassNotShared()
+    {
+        String name = "$IncompleteClass";
+
+        ClassFactoryImpl first = new ClassFactoryImpl();
+
+        first.findPregeneratedClass(name, _loader);
+        first.newClass(name, Object.class, _loader);
+
+        assertNull(new ClassFactoryImpl().findPregeneratedClass(name, _loader));
+    }
+
+    public void testProxyClassReusedByRebuiltRegistry() throws Exception
+    {
+        Registry first = buildFrameworkRegistry("/hivemind/test/services/SimpleModule.xml");
+
+        SimpleService s1 =
+            (SimpleService) first.getService("hivemind.test.services.Simple", SimpleService.class);
+
+        Registry second = buildFrameworkRegistry("/hivemind/test/services/SimpleModule.xml");
+
+        SimpleService s2 =
+            (SimpleService) second.getService("hivemind.test.services.Simple", SimpleService.class);
+
+        assertSame(s1.getClass(), s2.getClass());
+        assertNotSame(s1, s2);
+
+        assertEquals(7, s2.add(3, 4));
+
+        first.shutdown();
+
+        assertEquals(11, s2.add(5, 6));
+
+        second.shutdown();
+    }
+}
@@ -0,0 +1,39 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib;
+
+import java.util.List;
+
+import org.apache.hivemind.lib.bulkhead.Bulkhead;
+
+/**
+ * Tracks the {@link Bulkhead}s created by the <code>hivemind.lib.BulkheadInterceptor</code>,
+ * and reports their statistics.
+ * 
+ * <p>
+ * This service is available as <code>hivemind.lib.BulkheadMonitor</code>.
+ *
+ * @author Howard Lewis Ship
+ */
+public interface BulkheadMonitor
+{
+    public void addBulkhead(Bulkhead bulkhead);
+
+    /**
+     * Returns a {@link org.apache.hivemind.lib.bulkhead.BulkheadStatistics} for each bulkhead,
+     * sorted by service id and then by method.
+     */
+    public List getStatistics();
+}
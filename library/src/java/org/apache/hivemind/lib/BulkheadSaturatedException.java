@@ -0,0 +1,50 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.Location;
+
+/**
+ * Thrown by an interceptor created by the <code>hivemind.lib.BulkheadInterceptor</code>
+ * when a service method has as many invocations in progress as it allows, and the invocation
+ * can't wait (because the wait queue is full, or the wait timed out).
+ *
+ * @author Howard Lewis Ship
+ */
+public class BulkheadSaturatedException extends ApplicationRuntimeException
+{
+    private String _serviceId;
+    private String _methodName;
+
+    public BulkheadSaturatedException(String message, String serviceId, String methodName,
+            Location location)
+    {
+        super(message, location, null);
+
+        _serviceId = serviceId;
+        _methodName = methodName;
+    }
+
+    public String getServiceId()
+    {
+        return _serviceId;
+    }
+
+    public String getMethodName()
+    {
+        return _methodName;
+    }
+}
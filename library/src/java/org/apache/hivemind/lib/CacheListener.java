@@ -0,0 +1,33 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib;
+
+import java.util.EventListener;
+
+/**
+ * Event listener interface for cache invalidation; see {@link CacheManager}.
+ *
+ * @author Howard Lewis Ship
+ */
+public interface CacheListener extends EventListener
+{
+    /**
+     * Invoked by {@link CacheManager#invalidate(String)}.
+     * 
+     * @param serviceId the service whose cached data should be discarded, or null
+     * to discard all cached data
+     */
+    public void cacheInvalidated(String serviceId);
+}
@@ -0,0 +1,49 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib;
+
+import java.util.List;
+
+/**
+ * Dispatch hub for cache invalidation. The caches created by the
+ * <code>hivemind.lib.CachingInterceptor</code> are registered as listeners, as may
+ * be any other object that caches data on behalf of a service.
+ * 
+ * <p>
+ * This service is available as <code>hivemind.lib.CacheManager</code>.
+ *
+ * @author Howard Lewis Ship
+ */
+public interface CacheManager
+{
+    public void addCacheListener(CacheListener listener);
+
+    public void removeCacheListener(CacheListener listener);
+
+    /**
+     * Invokes {@link CacheListener#cacheInvalidated(String)} on all listeners.
+     * 
+     * @param serviceId the service whose cached data should be discarded, or null
+     * to discard all cached data
+     */
+    public void invalidate(String serviceId);
+
+    /**
+     * Returns a {@link org.apache.hivemind.lib.cache.CacheStatistics} for each cached
+     * method (of each service using the caching interceptor), sorted by service id and
+     * then by method.
+     */
+    public List getStatistics();
+}
@@ -0,0 +1,47 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib;
+
+import java.util.List;
+
+import org.apache.hivemind.lib.pipeline.PipelineControl;
+
+/**
+ * Tracks the reconfigurable pipelines created by the <code>hivemind.lib.PipelineFactory</code>,
+ * providing access to the {@link PipelineControl} for each.
+ * 
+ * <p>
+ * This service is available as <code>hivemind.lib.PipelineManager</code>.
+ *
+ * @author Howard Lewis Ship
+ */
+public interface PipelineManager
+{
+    public void addPipelineControl(PipelineControl control);
+
+    /**
+     * Returns the control for a reconfigurable pipeline service.
+     * 
+     * @param serviceId the fully qualified id of the pipeline service
+     * @throws org.apache.hivemind.ApplicationRuntimeException if the service is not a
+     *         reconfigurable pipeline (or has not yet been constructed)
+     */
+    public PipelineControl getPipelineControl(String serviceId);
+
+    /**
+     * Returns the ids of the reconfigurable pipeline services, sorted.
+     */
+    public List getServiceIds();
+}
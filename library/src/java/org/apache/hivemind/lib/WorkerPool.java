@@ -0,0 +1,42 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib;
+
+/**
+ * A pool of worker threads, used to perform work in parallel with the invoking thread. After
+ * each task, the worker thread is cleaned up (as with
+ * {@link org.apache.hivemind.Registry#cleanupThread()}), so tasks may use thread-bound
+ * services.
+ * 
+ * <p>
+ * This service is available as <code>hivemind.lib.WorkerPool</code>; the maximum number of
+ * threads is the <code>hivemind.lib.worker-pool.max-threads</code> symbol. When every thread is
+ * busy, tasks wait (in order) for a thread to become available, up to the number given by the
+ * <code>hivemind.lib.worker-pool.max-queue-size</code> symbol; further tasks are rejected.
+ * A task submitted by a worker thread when no other thread is available (as with a nested
+ * fan-out) is run immediately by the worker thread, rather than queued.
+ *
+ * @author Howard Lewis Ship
+ */
+public interface WorkerPool
+{
+    /**
+     * Queues the task for execution by a worker thread.
+     * 
+     * @throws org.apache.hivemind.ApplicationRuntimeException if the registry has been shut down,
+     * or if the pool is saturated
+     */
+    public void execute(Runnable task);
+}
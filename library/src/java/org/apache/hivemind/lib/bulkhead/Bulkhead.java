@@ -0,0 +1,147 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.bulkhead;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.Location;
+import org.apache.hivemind.lib.BulkheadSaturatedException;
+
+/**
+ * Limits the number of invocations of a single service method that may be in progress
+ * at once. Invoked from the interceptors created by the {@link BulkheadInterceptorFactory};
+ * every interceptor for a service shares the same bulkheads.
+ *
+ * @author Howard Lewis Ship
+ */
+public final class Bulkhead
+{
+    private final String _serviceId;
+    private final String _methodName;
+    private final int _maxConcurrent;
+    private final int _maxWaiting;
+    private final long _waitTimeout;
+    private final Location _location;
+
+    private int _activeCount;
+    private int _waitingCount;
+    private int _peakWaitingCount;
+    private long _rejectedCount;
+
+    Bulkhead(String serviceId, String methodName, BulkheadParameter parameter)
+    {
+        _serviceId = serviceId;
+        _methodName = methodName;
+        _maxConcurrent = parameter.getMaxConcurrent();
+        _maxWaiting = parameter.getMaxWaiting();
+        _waitTimeout = parameter.getWaitTimeout();
+        _location = parameter.getLocation();
+    }
+
+    /**
+     * Invoked before the method is invoked. Waits, if allowed, for an invocation in progress to
+     * complete.
+     * 
+     * @throws BulkheadSaturatedException if the invocation can't proceed
+     */
+    public synchronized void acquire()
+    {
+        if (_activeCount < _maxConcurrent)
+        {
+            _activeCount++;
+            return;
+        }
+
+        if (_waitingCount >= _maxWaiting)
+            throw reject();
+
+        _waitingCount++;
+        _peakWaitingCount = Math.max(_peakWaitingCount, _waitingCount);
+
+        boolean acquired = false;
+
+        try
+        {
+            long deadline = System.currentTimeMillis() + _waitTimeout;
+
+            while (_activeCount >= _maxConcurrent)
+            {
+                if (_waitTimeout == 0)
+                {
+                    wait();
+                    continue;
+                }
+
+                long remaining = deadline - System.currentTimeMillis();
+
+                if (remaining <= 0)
+                    throw reject();
+
+                wait(remaining);
+            }
+
+            _activeCount++;
+            acquired = true;
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+
+            throw new ApplicationRuntimeException(ex);
+        }
+        finally
+        {
+            _waitingCount--;
+
+            // A release() may have notified this thread just as it timed out or was
+            // interrupted; pass the wakeup on to another waiter, so that it isn't lost.
+
+            if (!acquired && _waitingCount > 0 && _activeCount < _maxConcurrent)
+                notify();
+        }
+    }
+
+    /**
+     * Invoked after the method completes (normally or not).
+     */
+    public synchronized void release()
+    {
+        _activeCount--;
+
+        if (_waitingCount > 0)
+            notify();
+    }
+
+    private BulkheadSaturatedException reject()
+    {
+        _rejectedCount++;
+
+        return new BulkheadSaturatedException(BulkheadMessages.saturated(
+            _serviceId,
+            _methodName,
+            _activeCount,
+            _waitingCount), _serviceId, _methodName, _location);
+    }
+
+    public synchronized BulkheadStatistics getStatistics()
+    {
+        return new BulkheadStatistics(_serviceId, _methodName, _maxConcurrent, _activeCount,
+                _waitingCount, _peakWaitingCount, _rejectedCount);
+    }
+
+    public String toString()
+    {
+        return "Bulkhead[" + _serviceId + " " + _methodName + "]";
+    }
+}
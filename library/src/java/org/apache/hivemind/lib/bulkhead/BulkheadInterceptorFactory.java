@@ -0,0 +1,251 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.bulkhead;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.InterceptorStack;
+import org.apache.hivemind.ServiceInterceptorFactory;
+import org.apache.hivemind.internal.Module;
+import org.apache.hivemind.lib.BulkheadMonitor;
+import org.apache.hivemind.methodmatch.MethodMatcher;
+import org.apache.hivemind.service.BodyBuilder;
+import org.apache.hivemind.service.ClassFab;
+import org.apache.hivemind.service.ClassFabUtils;
+import org.apache.hivemind.service.ClassFactory;
+import org.apache.hivemind.service.InterceptorClassBuilder;
+import org.apache.hivemind.service.MethodFab;
+import org.apache.hivemind.service.MethodIterator;
+import org.apache.hivemind.service.MethodSignature;
+
+/**
+ * An interceptor factory that limits the number of concurrent invocations of service methods.
+ * The parameters (see {@link BulkheadParameter}) identify the methods to limit, by method
+ * pattern; other methods are passed through.
+ * 
+ * <p>
+ * The interceptor has a field, of type {@link Bulkhead}, for each limited method. The bulkheads
+ * are shared by every interceptor for the same service, and are registered with the
+ * {@link BulkheadMonitor}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class BulkheadInterceptorFactory implements ServiceInterceptorFactory
+{
+    private ClassFactory _classFactory;
+    private BulkheadMonitor _monitor;
+    private String _serviceId;
+
+    /**
+     * Keyed on service id; values are maps of {@link Bulkhead}, keyed on
+     * {@link MethodSignature}.
+     */
+    private final Map _bulkheads = new HashMap();
+
+    public void createInterceptor(InterceptorStack stack, Module invokingModule, List parameters)
+    {
+        Class serviceInterface = stack.getServiceInterface();
+
+        MethodMatcher matcher = new MethodMatcher();
+
+        Iterator i = parameters.iterator();
+        while (i.hasNext())
+        {
+            BulkheadParameter bp = (BulkheadParameter) i.next();
+
+            if (bp.getMaxConcurrent() < 1)
+            {
+                invokingModule.getErrorHandler().error(
+                    stack.getServiceLog(),
+                    BulkheadMessages.invalidMaxConcurrent(
+                        stack.getServiceExtensionPointId(),
+                        bp.getMethodPattern()),
+                    bp.getLocation(),
+                    null);
+
+                continue;
+            }
+
+            matcher.put(bp.getMethodPattern(), bp);
+        }
+
+        matcher.match(serviceInterface);
+
+        List methods = new ArrayList();
+        List bulkheads = new ArrayList();
+
+        MethodIterator mi = new MethodIterator(serviceInterface);
+
+        while (mi.hasNext())
+        {
+            MethodSignature sig = mi.next();
+            BulkheadParameter bp = (BulkheadParameter) matcher.get(sig);
+
+            if (bp == null)
+                continue;
+
+            methods.add(sig);
+            bulkheads.add(getBulkhead(stack.getServiceExtensionPointId(), sig, bp));
+        }
+
+        Class interceptorClass = constructInterceptorClass(stack, methods);
+
+        try
+        {
+            Constructor c = interceptorClass.getConstructors()[0];
+
+            Object interceptor = c.newInstance(new Object[]
+            { bulkheads.toArray(new Bulkhead[bulkheads.size()]), stack.peek() });
+
+            stack.push(interceptor);
+        }
+        catch (Exception ex)
+        {
+            throw new ApplicationRuntimeException(BulkheadMessages.unableToCreateInterceptor(
+                _serviceId,
+                stack.getServiceExtensionPointId(),
+                ex), ex);
+        }
+    }
+
+    /**
+     * Returns the bulkhead for a method, creating (and registering) it as needed.
+     */
+    private synchronized Bulkhead getBulkhead(String serviceId, MethodSignature sig,
+            BulkheadParameter parameter)
+    {
+        Map bulkheads = (Map) _bulkheads.get(serviceId);
+
+        if (bulkheads == null)
+        {
+            bulkheads = new HashMap();
+            _bulkheads.put(serviceId, bulkheads);
+        }
+
+        Bulkhead result = (Bulkhead) bulkheads.get(sig);
+
+        if (result == null)
+        {
+            result = new Bulkhead(serviceId, sig.getDescription(), parameter);
+
+            bulkheads.put(sig, result);
+
+            _monitor.addBulkhead(result);
+        }
+
+        return result;
+    }
+
+    private Class constructInterceptorClass(InterceptorStack stack, final List methods)
+    {
+        InterceptorClassBuilder builder = new InterceptorClassBuilder(_classFactory, stack)
+        {
+            protected void createInfrastructure(ClassFab classFab)
+            {
+                addMethodFields(classFab, "_bulkhead", Bulkhead.class, methods.size());
+            }
+
+            protected void addServiceMethods(ClassFab classFab)
+            {
+                MethodIterator mi = new MethodIterator(getStack().getServiceInterface());
+
+                while (mi.hasNext())
+                {
+                    MethodSignature sig = mi.next();
+                    int index = methods.indexOf(sig);
+
+                    if (index < 0)
+                        addPassThruMethod(classFab, sig);
+                    else
+                        addLimitedMethod(classFab, sig, "_bulkhead" + index);
+                }
+
+                if (!mi.getToString())
+                    addToStringMethod(classFab, "BulkheadInterceptor");
+            }
+        };
+
+        return builder.constructInterceptorClass(InterceptorClassBuilder.buildClassKey(
+                this,
+                _serviceId,
+                methods));
+    }
+
+    /**
+     * Adds the service method, which acquires the bulkhead, and a private method that invokes
+     * the inner object and releases the bulkhead. The release is in a separate method so that
+     * its catch blocks don't release a bulkhead that was never acquired.
+     */
+    private void addLimitedMethod(ClassFab classFab, MethodSignature sig, String field)
+    {
+        String guardedName = sig.getName() + "$" + field;
+
+        MethodSignature guarded = new MethodSignature(sig.getReturnType(), guardedName, sig
+                .getParameterTypes(), sig.getExceptionTypes());
+
+        Class returnType = sig.getReturnType();
+        boolean isVoid = returnType == void.class;
+
+        BodyBuilder builder = new BodyBuilder();
+
+        builder.begin();
+
+        if (!isVoid)
+        {
+            builder.add(ClassFabUtils.getJavaClassName(returnType));
+            builder.add(" result = ");
+        }
+
+        builder.addln("_inner." + sig.getName() + "($$);");
+        builder.addln(field + ".release();");
+
+        if (!isVoid)
+            builder.addln("return result;");
+
+        builder.end();
+
+        MethodFab methodFab = classFab.addMethod(Modifier.PRIVATE, guarded, builder.toString());
+
+        // Catch everything (including undeclared checked exceptions, which the inner object
+        // may throw when it is itself fabricated), so that the permit is always released.
+
+        methodFab.addCatch(Throwable.class, "{ " + field + ".release(); throw $e; }");
+
+        classFab.addMethod(Modifier.PUBLIC, sig, "{ " + field + ".acquire(); return ($r) "
+                + guardedName + "($$); }");
+    }
+
+    public void setClassFactory(ClassFactory classFactory)
+    {
+        _classFactory = classFactory;
+    }
+
+    public void setMonitor(BulkheadMonitor monitor)
+    {
+        _monitor = monitor;
+    }
+
+    public void setServiceId(String serviceId)
+    {
+        _serviceId = serviceId;
+    }
+}
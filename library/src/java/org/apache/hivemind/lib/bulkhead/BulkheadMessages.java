@@ -0,0 +1,46 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.bulkhead;
+
+import org.apache.hivemind.impl.MessageFormatter;
+
+/**
+ * Messages for the lib.bulkhead package.
+ *
+ * @author Howard Lewis Ship
+ */
+final class BulkheadMessages
+{
+    private static MessageFormatter _formatter =
+        new MessageFormatter(BulkheadMessages.class, "BulkheadStrings");
+
+    public static String saturated(String serviceId, String methodName, int activeCount,
+            int waitingCount)
+    {
+        return _formatter.format("saturated", new Object[]
+        { methodName, serviceId, new Integer(activeCount), new Integer(waitingCount) });
+    }
+
+    public static String invalidMaxConcurrent(String serviceId, String methodPattern)
+    {
+        return _formatter.format("invalid-max-concurrent", methodPattern, serviceId);
+    }
+
+    public static String unableToCreateInterceptor(String factoryId, String serviceId,
+            Throwable cause)
+    {
+        return _formatter.format("unable-to-create-interceptor", factoryId, serviceId, cause);
+    }
+}
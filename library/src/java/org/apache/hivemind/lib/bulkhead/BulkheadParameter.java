@@ -0,0 +1,82 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.bulkhead;
+
+import org.apache.hivemind.impl.BaseLocatable;
+
+/**
+ * Parameter to the {@link BulkheadInterceptorFactory}; identifies methods whose concurrency
+ * is limited, and the limit.
+ *
+ * @author Howard Lewis Ship
+ */
+public class BulkheadParameter extends BaseLocatable
+{
+    private String _methodPattern;
+    private int _maxConcurrent;
+    private int _maxWaiting;
+    private long _waitTimeout;
+
+    public String getMethodPattern()
+    {
+        return _methodPattern;
+    }
+
+    public void setMethodPattern(String methodPattern)
+    {
+        _methodPattern = methodPattern;
+    }
+
+    /**
+     * The maximum number of invocations (of each matched method) in progress at once.
+     */
+    public int getMaxConcurrent()
+    {
+        return _maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent)
+    {
+        _maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * The maximum number of invocations that may wait for an invocation to complete; if zero
+     * (the default), invocations fail immediately when the limit is reached.
+     */
+    public int getMaxWaiting()
+    {
+        return _maxWaiting;
+    }
+
+    public void setMaxWaiting(int maxWaiting)
+    {
+        _maxWaiting = maxWaiting;
+    }
+
+    /**
+     * The maximum time, in milliseconds, an invocation waits; zero (the default) waits
+     * indefinitely.
+     */
+    public long getWaitTimeout()
+    {
+        return _waitTimeout;
+    }
+
+    public void setWaitTimeout(long waitTimeout)
+    {
+        _waitTimeout = waitTimeout;
+    }
+}
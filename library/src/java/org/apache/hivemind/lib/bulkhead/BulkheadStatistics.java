@@ -0,0 +1,98 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.bulkhead;
+
+/**
+ * A snapshot of the state and counters of a {@link Bulkhead}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class BulkheadStatistics
+{
+    private final String _serviceId;
+    private final String _methodName;
+    private final int _maxConcurrent;
+    private final int _activeCount;
+    private final int _waitingCount;
+    private final int _peakWaitingCount;
+    private final long _rejectedCount;
+
+    BulkheadStatistics(String serviceId, String methodName, int maxConcurrent, int activeCount,
+            int waitingCount, int peakWaitingCount, long rejectedCount)
+    {
+        _serviceId = serviceId;
+        _methodName = methodName;
+        _maxConcurrent = maxConcurrent;
+        _activeCount = activeCount;
+        _waitingCount = waitingCount;
+        _peakWaitingCount = peakWaitingCount;
+        _rejectedCount = rejectedCount;
+    }
+
+    public String getServiceId()
+    {
+        return _serviceId;
+    }
+
+    public String getMethodName()
+    {
+        return _methodName;
+    }
+
+    public int getMaxConcurrent()
+    {
+        return _maxConcurrent;
+    }
+
+    /**
+     * The number of invocations in progress.
+     */
+    public int getActiveCount()
+    {
+        return _activeCount;
+    }
+
+    /**
+     * The number of invocations waiting (the current queue depth).
+     */
+    public int getWaitingCount()
+    {
+        return _waitingCount;
+    }
+
+    /**
+     * The largest number of invocations that have waited at once.
+     */
+    public int getPeakWaitingCount()
+    {
+        return _peakWaitingCount;
+    }
+
+    /**
+     * The number of invocations rejected with a
+     * {@link org.apache.hivemind.lib.BulkheadSaturatedException}.
+     */
+    public long getRejectedCount()
+    {
+        return _rejectedCount;
+    }
+
+    public String toString()
+    {
+        return _serviceId + " " + _methodName + ": active=" + _activeCount + "/" + _maxConcurrent
+                + " waiting=" + _waitingCount + " peak-waiting=" + _peakWaitingCount
+                + " rejected=" + _rejectedCount;
+    }
+}
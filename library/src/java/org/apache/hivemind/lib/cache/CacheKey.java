@@ -0,0 +1,113 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.cache;
+
+import java.lang.reflect.Array;
+
+/**
+ * Identifies the arguments of a cached method invocation. Arguments are compared by value;
+ * array arguments are copied (so that the key is unaffected if the caller later changes them),
+ * and compared element by element.
+ *
+ * @author Howard Lewis Ship
+ */
+final class CacheKey
+{
+    private final Object[] _arguments;
+    private final int _hashCode;
+
+    CacheKey(Object[] arguments)
+    {
+        _arguments = (Object[]) copy(arguments);
+        _hashCode = hash(_arguments);
+    }
+
+    private static Object copy(Object value)
+    {
+        if (value == null || !value.getClass().isArray())
+            return value;
+
+        int count = Array.getLength(value);
+        Object result = Array.newInstance(value.getClass().getComponentType(), count);
+
+        for (int i = 0; i < count; i++)
+            Array.set(result, i, copy(Array.get(value, i)));
+
+        return result;
+    }
+
+    private static int hash(Object value)
+    {
+        if (value == null)
+            return 0;
+
+        if (!value.getClass().isArray())
+            return value.hashCode();
+
+        int result = 1;
+        int count = Array.getLength(value);
+
+        for (int i = 0; i < count; i++)
+            result = 31 * result + hash(Array.get(value, i));
+
+        return result;
+    }
+
+    private static boolean equal(Object value1, Object value2)
+    {
+        if (value1 == value2)
+            return true;
+
+        if (value1 == null || value2 == null)
+            return false;
+
+        if (!value1.getClass().isArray())
+            return value1.equals(value2);
+
+        if (value1.getClass() != value2.getClass())
+            return false;
+
+        int count = Array.getLength(value1);
+
+        if (count != Array.getLength(value2))
+            return false;
+
+        for (int i = 0; i < count; i++)
+        {
+            if (!equal(Array.get(value1, i), Array.get(value2, i)))
+                return false;
+        }
+
+        return true;
+    }
+
+    public int hashCode()
+    {
+        return _hashCode;
+    }
+
+    public boolean equals(Object other)
+    {
+        if (this == other)
+            return true;
+
+        if (!(other instanceof CacheKey))
+            return false;
+
+        CacheKey key = (CacheKey) other;
+
+        return _hashCode == key._hashCode && equal(_arguments, key._arguments);
+    }
+}
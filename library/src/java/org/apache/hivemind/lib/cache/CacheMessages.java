@@ -0,0 +1,46 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.cache;
+
+import java.lang.reflect.Method;
+
+import org.apache.hivemind.impl.MessageFormatter;
+
+/**
+ * Messages for the lib.cache package.
+ *
+ * @author Howard Lewis Ship
+ */
+final class CacheMessages
+{
+    private static MessageFormatter _formatter =
+        new MessageFormatter(CacheMessages.class, "CacheStrings");
+
+    public static String unableToInvoke(String serviceId, Method method, Throwable cause)
+    {
+        return _formatter.format("unable-to-invoke", method.getName(), serviceId, cause);
+    }
+
+    public static String unableToCreateInterceptor(String factoryId, String serviceId,
+            Throwable cause)
+    {
+        return _formatter.format("unable-to-create-interceptor", factoryId, serviceId, cause);
+    }
+
+    public static String notCacheable(String serviceId, Method method)
+    {
+        return _formatter.format("not-cacheable", method.getName(), serviceId);
+    }
+}
@@ -0,0 +1,111 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.cache;
+
+import org.apache.hivemind.impl.BaseLocatable;
+
+/**
+ * Parameter to the {@link CachingInterceptorFactory}; identifies methods whose results are
+ * cached, and how.
+ *
+ * @author Howard Lewis Ship
+ */
+public class CacheParameter extends BaseLocatable
+{
+    private String _methodPattern;
+    private int _maxSize;
+    private long _timeToLive;
+    private boolean _leastFrequentlyUsed;
+    private boolean _softValues;
+    private KeyExtractor _keyExtractor;
+
+    public String getMethodPattern()
+    {
+        return _methodPattern;
+    }
+
+    public void setMethodPattern(String methodPattern)
+    {
+        _methodPattern = methodPattern;
+    }
+
+    /**
+     * The maximum number of results cached (for each method), or zero for no maximum.
+     */
+    public int getMaxSize()
+    {
+        return _maxSize;
+    }
+
+    public void setMaxSize(int maxSize)
+    {
+        _maxSize = maxSize;
+    }
+
+    /**
+     * The time, in milliseconds, for which a result is cached, or zero to cache results
+     * until evicted or invalidated.
+     */
+    public long getTimeToLive()
+    {
+        return _timeToLive;
+    }
+
+    public void setTimeToLive(long timeToLive)
+    {
+        _timeToLive = timeToLive;
+    }
+
+    /**
+     * If true, the least frequently used result is evicted when the cache is full; otherwise
+     * (the default) the least recently used result.
+     */
+    public boolean getLeastFrequentlyUsed()
+    {
+        return _leastFrequentlyUsed;
+    }
+
+    public void setLeastFrequentlyUsed(boolean leastFrequentlyUsed)
+    {
+        _leastFrequentlyUsed = leastFrequentlyUsed;
+    }
+
+    /**
+     * If true, results are held by soft references, and may be discarded by the garbage collector.
+     */
+    public boolean getSoftValues()
+    {
+        return _softValues;
+    }
+
+    public void setSoftValues(boolean softValues)
+    {
+        _softValues = softValues;
+    }
+
+    /**
+     * Extracts the key under which results are cached; if null, the complete list of
+     * arguments is the key.
+     */
+    public KeyExtractor getKeyExtractor()
+    {
+        return _keyExtractor;
+    }
+
+    public void setKeyExtractor(KeyExtractor keyExtractor)
+    {
+        _keyExtractor = keyExtractor;
+    }
+}
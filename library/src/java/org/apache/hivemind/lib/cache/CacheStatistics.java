@@ -0,0 +1,97 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.cache;
+
+/**
+ * A snapshot of the counters of a {@link MethodCache}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class CacheStatistics
+{
+    private final String _serviceId;
+    private final String _methodName;
+    private final int _size;
+    private final long _hitCount;
+    private final long _missCount;
+    private final long _evictionCount;
+
+    CacheStatistics(String serviceId, String methodName, int size, long hitCount,
+            long missCount, long evictionCount)
+    {
+        _serviceId = serviceId;
+        _methodName = methodName;
+        _size = size;
+        _hitCount = hitCount;
+        _missCount = missCount;
+        _evictionCount = evictionCount;
+    }
+
+    public String getServiceId()
+    {
+        return _serviceId;
+    }
+
+    public String getMethodName()
+    {
+        return _methodName;
+    }
+
+    /**
+     * The number of cached results (including those still being computed).
+     */
+    public int getSize()
+    {
+        return _size;
+    }
+
+    /**
+     * The number of invocations satisfied from the cache, including invocations that
+     * waited for another thread to compute the same result.
+     */
+    public long getHitCount()
+    {
+        return _hitCount;
+    }
+
+    /**
+     * The number of invocations that were passed through to the service.
+     */
+    public long getMissCount()
+    {
+        return _missCount;
+    }
+
+    /**
+     * The number of results discarded to keep the cache within its maximum size.
+     */
+    public long getEvictionCount()
+    {
+        return _evictionCount;
+    }
+
+    public double getHitRatio()
+    {
+        long total = _hitCount + _missCount;
+
+        return total == 0 ? 0 : (double) _hitCount / total;
+    }
+
+    public String toString()
+    {
+        return _serviceId + " " + _methodName + ": size=" + _size + " hits=" + _hitCount
+                + " misses=" + _missCount + " evictions=" + _evictionCount;
+    }
+}
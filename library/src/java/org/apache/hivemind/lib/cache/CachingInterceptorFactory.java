@@ -0,0 +1,245 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.cache;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.InterceptorStack;
+import org.apache.hivemind.ServiceInterceptorFactory;
+import org.apache.hivemind.internal.Module;
+import org.apache.hivemind.lib.CacheManager;
+import org.apache.hivemind.methodmatch.MethodMatcher;
+import org.apache.hivemind.service.ClassFab;
+import org.apache.hivemind.service.ClassFactory;
+import org.apache.hivemind.service.InterceptorClassBuilder;
+import org.apache.hivemind.service.MethodIterator;
+import org.apache.hivemind.service.MethodSignature;
+
+/**
+ * An interceptor factory that caches the results of service methods. The parameters
+ * (see {@link CacheParameter}) identify the methods to cache, by method pattern; other
+ * methods are passed through.
+ * 
+ * <p>
+ * The interceptor has a field, of type {@link MethodCache}, for each cached method.
+ * The caches are shared by every interceptor for the same service, and are registered
+ * with the {@link CacheManager}, which is used to invalidate them and to obtain their statistics.
+ * 
+ * <p>
+ * When configured not to retain results (as with the <code>hivemind.lib.CoalescingInterceptor</code>
+ * service), the interceptor only coalesces concurrent, equivalent invocations: one invocation
+ * proceeds, the others wait for and share its result (or exception). Void methods may be
+ * coalesced, though not cached.
+ *
+ * @author Howard Lewis Ship
+ */
+public class CachingInterceptorFactory implements ServiceInterceptorFactory
+{
+    private ClassFactory _classFactory;
+    private CacheManager _cacheManager;
+    private String _serviceId;
+    private boolean _retainResults = true;
+
+    /**
+     * Keyed on service id; values are maps of {@link MethodCache}, keyed on
+     * {@link MethodSignature}.
+     */
+    private final Map _caches = new HashMap();
+
+    public void createInterceptor(InterceptorStack stack, Module invokingModule, List parameters)
+    {
+        Class serviceInterface = stack.getServiceInterface();
+        String serviceId = stack.getServiceExtensionPointId();
+
+        MethodMatcher matcher = new MethodMatcher();
+
+        Iterator i = parameters.iterator();
+        while (i.hasNext())
+        {
+            CacheParameter cp = (CacheParameter) i.next();
+
+            matcher.put(cp.getMethodPattern(), cp);
+        }
+
+        matcher.match(serviceInterface);
+
+        List methods = new ArrayList();
+        List caches = new ArrayList();
+
+        MethodIterator mi = new MethodIterator(serviceInterface);
+
+        while (mi.hasNext())
+        {
+            MethodSignature sig = mi.next();
+            CacheParameter cp = (CacheParameter) matcher.get(sig);
+
+            if (cp == null)
+                continue;
+
+            MethodCache cache = getMethodCache(serviceId, serviceInterface, sig, cp, stack);
+
+            if (cache == null)
+                continue;
+
+            methods.add(sig);
+            caches.add(cache);
+        }
+
+        Class interceptorClass = constructInterceptorClass(stack, methods);
+
+        try
+        {
+            Constructor c = interceptorClass.getConstructors()[0];
+
+            Object interceptor = c.newInstance(new Object[]
+            { caches.toArray(new MethodCache[caches.size()]), stack.peek() });
+
+            stack.push(interceptor);
+        }
+        catch (Exception ex)
+        {
+            throw new ApplicationRuntimeException(CacheMessages.unableToCreateInterceptor(
+                _serviceId,
+                serviceId,
+                ex), ex);
+        }
+    }
+
+    /**
+     * Returns the cache for a method, creating (and registering) it as needed. Returns null
+     * (after logging an error) for void methods, which can't be cached (but may be coalesced).
+     */
+    private synchronized MethodCache getMethodCache(String serviceId, Class serviceInterface,
+            MethodSignature sig, CacheParameter parameter, InterceptorStack stack)
+    {
+        Map caches = (Map) _caches.get(serviceId);
+
+        if (caches == null)
+        {
+            caches = new HashMap();
+            _caches.put(serviceId, caches);
+        }
+
+        MethodCache result = (MethodCache) caches.get(sig);
+
+        if (result != null)
+            return result;
+
+        Method method = findMethod(serviceInterface, sig);
+
+        if (_retainResults && method.getReturnType() == void.class)
+        {
+            stack.getServiceModule().getErrorHandler().error(
+                stack.getServiceLog(),
+                CacheMessages.notCacheable(serviceId, method),
+                parameter.getLocation(),
+                null);
+
+            return null;
+        }
+
+        result =
+            new MethodCache(serviceId, sig.getDescription(), method, parameter, _retainResults);
+
+        caches.put(sig, result);
+
+        _cacheManager.addCacheListener(result);
+
+        return result;
+    }
+
+    private Method findMethod(Class serviceInterface, MethodSignature sig)
+    {
+        try
+        {
+            return serviceInterface.getMethod(sig.getName(), sig.getParameterTypes());
+        }
+        catch (NoSuchMethodException ex)
+        {
+            throw new ApplicationRuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    private Class constructInterceptorClass(InterceptorStack stack, final List methods)
+    {
+        InterceptorClassBuilder builder = new InterceptorClassBuilder(_classFactory, stack)
+        {
+            protected void createInfrastructure(ClassFab classFab)
+            {
+                addMethodFields(classFab, "_cache", MethodCache.class, methods.size());
+            }
+
+            protected void addServiceMethods(ClassFab classFab)
+            {
+                MethodIterator mi = new MethodIterator(getStack().getServiceInterface());
+
+                while (mi.hasNext())
+                {
+                    MethodSignature sig = mi.next();
+                    int index = methods.indexOf(sig);
+
+                    // MethodCache.invoke() rethrows whatever the service method throws.
+
+                    if (index < 0)
+                        addPassThruMethod(classFab, sig);
+                    else
+                        classFab.addMethod(Modifier.PUBLIC, sig, "return ($r) _cache" + index
+                                + ".invoke(_inner, $args);");
+                }
+
+                if (!mi.getToString())
+                    addToStringMethod(classFab, _retainResults ? "CachingInterceptor"
+                            : "CoalescingInterceptor");
+            }
+        };
+
+        return builder.constructInterceptorClass(InterceptorClassBuilder.buildClassKey(
+                this,
+                _serviceId,
+                methods));
+    }
+
+    public void setCacheManager(CacheManager cacheManager)
+    {
+        _cacheManager = cacheManager;
+    }
+
+    public void setClassFactory(ClassFactory classFactory)
+    {
+        _classFactory = classFactory;
+    }
+
+    public void setServiceId(String serviceId)
+    {
+        _serviceId = serviceId;
+    }
+
+    /**
+     * If true (the default), results are cached. If false, only concurrent invocations
+     * are coalesced.
+     */
+    public void setRetainResults(boolean retainResults)
+    {
+        _retainResults = retainResults;
+    }
+}
@@ -0,0 +1,37 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.cache;
+
+import java.lang.reflect.Method;
+
+/**
+ * Computes the key used by the {@link CachingInterceptorFactory caching} and coalescing
+ * interceptors to identify equivalent invocations of a method. By default, invocations are
+ * equivalent when their arguments are equal.
+ *
+ * @author Howard Lewis Ship
+ */
+public interface KeyExtractor
+{
+    /**
+     * Returns the key for an invocation of the method. Keys must implement
+     * <code>equals()</code> and <code>hashCode()</code> appropriately.
+     *
+     * @param method the method being invoked
+     * @param arguments the arguments to the method (primitive values are wrapped)
+     * @return the key, or null if the invocation should not be cached (or coalesced)
+     */
+    public Object extractKey(Method method, Object[] arguments);
+}
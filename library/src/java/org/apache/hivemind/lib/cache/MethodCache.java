@@ -0,0 +1,496 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.cache;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.lib.CacheListener;
+
+/**
+ * Caches the results of a single service method, keyed on the method's arguments (or on the key
+ * provided by a {@link KeyExtractor}). Invoked from the interceptors created by the
+ * {@link CachingInterceptorFactory}; every interceptor for a service shares the same caches.
+ * 
+ * <p>
+ * When several threads invoke the method with the same arguments, and the result is not cached,
+ * only the first invokes the service; the others wait for (and share) its result, or its
+ * exception. Exceptions are not cached. A cache that does not retain results only coalesces
+ * these concurrent invocations: an entry is removed as soon as its result is available.
+ * 
+ * <p>
+ * When the cache is full, the least recently used (or least frequently used) result is evicted.
+ * Finding the least frequently used result requires a scan of the cache.
+ * 
+ * <p>
+ * The entries are split, by key, between up to {@link #SEGMENT_COUNT} segments, each with its
+ * own lock and an equal share of the maximum size; eviction is by use within each segment. A
+ * cache with a maximum size is only split into segments of at least {@link #MIN_SEGMENT_SIZE}
+ * entries, so a small cache is a single segment. Threads waiting for a result wait on its entry,
+ * not on the segment.
+ *
+ * @author Howard Lewis Ship
+ */
+public final class MethodCache implements CacheListener
+{
+    /**
+     * Stored in place of a null result.
+     */
+    private static final Object NULL = new Object();
+
+    static final int SEGMENT_COUNT = 16;
+
+    static final int MIN_SEGMENT_SIZE = 16;
+
+    private final String _serviceId;
+    private final String _methodName;
+    private final Method _method;
+    private final long _timeToLive;
+    private final boolean _leastFrequentlyUsed;
+    private final boolean _softValues;
+    private final boolean _retainResults;
+    private final KeyExtractor _keyExtractor;
+
+    private final Segment[] _segments;
+
+    /**
+     * A cached (or pending) result. Its fields are read and written while synchronized on its
+     * segment; {@link #_done} is also written while synchronized on the entry itself, which is
+     * the monitor that threads waiting for the result wait on.
+     */
+    private static final class Entry
+    {
+        private final Object _key;
+
+        private Entry _previous;
+        private Entry _next;
+
+        private boolean _done;
+        private boolean _removed;
+        private long _useCount;
+        private long _expiration;
+
+        private Object _value;
+        private SoftReference _reference;
+        private Throwable _failure;
+
+        Entry(Object key)
+        {
+            _key = key;
+
+            _previous = this;
+            _next = this;
+        }
+
+        /**
+         * Returns the cached value (which may be {@link MethodCache#NULL}), or null if
+         * collected.
+         */
+        Object getValue()
+        {
+            return _reference == null ? _value : _reference.get();
+        }
+
+        void unlink()
+        {
+            _previous._next = _next;
+            _next._previous = _previous;
+        }
+
+        void linkAfter(Entry entry)
+        {
+            _previous = entry;
+            _next = entry._next;
+
+            _next._previous = this;
+            entry._next = this;
+        }
+    }
+
+    /**
+     * A portion of the cache, with its own lock.
+     */
+    private final class Segment
+    {
+        private final int _maxSize;
+
+        private final Map _entries = new HashMap();
+
+        /**
+         * Sentinel of a circular list of entries, most recently used first.
+         */
+        private final Entry _head = new Entry(null);
+
+        private long _hitCount;
+        private long _missCount;
+        private long _evictionCount;
+
+        Segment(int maxSize)
+        {
+            _maxSize = maxSize;
+        }
+
+        void touch(Entry entry)
+        {
+            entry._useCount++;
+
+            if (entry._removed)
+                return;
+
+            entry.unlink();
+            entry.linkAfter(_head);
+        }
+
+        void add(Entry entry)
+        {
+            _entries.put(entry._key, entry);
+            entry.linkAfter(_head);
+
+            if (_maxSize > 0 && _entries.size() > _maxSize)
+                evict();
+        }
+
+        void remove(Entry entry)
+        {
+            _entries.remove(entry._key);
+            entry.unlink();
+            entry._removed = true;
+        }
+
+        /**
+         * Removes the least recently (or frequently) used entry, ignoring entries still
+         * being computed.
+         */
+        private void evict()
+        {
+            Entry victim = null;
+
+            for (Entry entry = _head._previous; entry != _head; entry = entry._previous)
+            {
+                if (!entry._done)
+                    continue;
+
+                if (!_leastFrequentlyUsed)
+                {
+                    victim = entry;
+                    break;
+                }
+
+                if (victim == null || entry._useCount < victim._useCount)
+                    victim = entry;
+            }
+
+            if (victim == null)
+                return;
+
+            remove(victim);
+
+            _evictionCount++;
+        }
+
+        void clear()
+        {
+            for (Entry entry = _head._next; entry != _head; entry = entry._next)
+                entry._removed = true;
+
+            _entries.clear();
+
+            _head._next = _head;
+            _head._previous = _head;
+        }
+    }
+
+    MethodCache(String serviceId, String methodName, Method method, CacheParameter parameter,
+            boolean retainResults)
+    {
+        _serviceId = serviceId;
+        _methodName = methodName;
+        _method = method;
+        _timeToLive = parameter.getTimeToLive();
+        _leastFrequentlyUsed = parameter.getLeastFrequentlyUsed();
+        _softValues = parameter.getSoftValues();
+        _keyExtractor = parameter.getKeyExtractor();
+        _retainResults = retainResults;
+
+        int maxSize = parameter.getMaxSize();
+
+        int count = maxSize == 0 ? SEGMENT_COUNT : Math.max(1, Math.min(
+            SEGMENT_COUNT,
+            maxSize / MIN_SEGMENT_SIZE));
+
+        _segments = new Segment[count];
+
+        for (int i = 0; i < count; i++)
+            _segments[i] = new Segment((maxSize + count - 1) / count);
+    }
+
+    private Segment getSegment(Object key)
+    {
+        if (_segments.length == 1)
+            return _segments[0];
+
+        int hash = key.hashCode();
+
+        hash ^= hash >>> 16;
+
+        return _segments[(hash & 0x7fffffff) % _segments.length];
+    }
+
+    /**
+     * Returns the cached result for the arguments, or invokes the method on the target
+     * and caches its result.
+     */
+    public Object invoke(Object target, Object[] arguments) throws Throwable
+    {
+        Object key =
+            _keyExtractor == null ? new CacheKey(arguments) : _keyExtractor.extractKey(
+                _method,
+                arguments);
+
+        if (key == null)
+        {
+            Segment segment = _segments[0];
+
+            synchronized (segment)
+            {
+                segment._missCount++;
+            }
+
+            return invokeMethod(target, arguments);
+        }
+
+        Segment segment = getSegment(key);
+
+        while (true)
+        {
+            Entry entry;
+            boolean pending;
+
+            synchronized (segment)
+            {
+                entry = (Entry) segment._entries.get(key);
+                pending = entry != null && !entry._done;
+
+                if (entry != null && !pending)
+                {
+                    Object value = entry.getValue();
+
+                    if (value != null
+                            && (_timeToLive == 0 || System.currentTimeMillis() < entry._expiration))
+                    {
+                        segment._hitCount++;
+
+                        segment.touch(entry);
+
+                        return value == NULL ? null : value;
+                    }
+
+                    if (!entry._removed)
+                        segment.remove(entry);
+                }
+
+                if (!pending)
+                {
+                    segment._missCount++;
+
+                    entry = new Entry(key);
+
+                    segment.add(entry);
+                }
+            }
+
+            if (!pending)
+                return invokeAndComplete(segment, entry, target, arguments);
+
+            // Another thread is invoking the method; wait for its result (without holding the
+            // segment's lock). A result just computed for this invocation is used even if it
+            // has since been invalidated or has expired; only a soft value collected in the
+            // meantime sends the thread back to the cache.
+
+            Object value = waitFor(segment, entry);
+
+            if (value != null)
+                return value == NULL ? null : value;
+        }
+    }
+
+    /**
+     * Waits for another thread to complete the entry, then returns its value (which may be
+     * {@link #NULL}, or null if collected), or throws its exception.
+     */
+    private Object waitFor(Segment segment, Entry entry) throws Throwable
+    {
+        synchronized (entry)
+        {
+            while (!entry._done)
+            {
+                try
+                {
+                    entry.wait();
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+
+                    throw new ApplicationRuntimeException(ex);
+                }
+            }
+        }
+
+        synchronized (segment)
+        {
+            if (entry._failure != null)
+                throw entry._failure;
+
+            Object value = entry.getValue();
+
+            if (value != null)
+            {
+                segment._hitCount++;
+
+                segment.touch(entry);
+            }
+
+            return value;
+        }
+    }
+
+    /**
+     * Invokes the method for a new entry, then completes the entry with the method's result
+     * (or exception), waking any threads waiting for it.
+     */
+    private Object invokeAndComplete(Segment segment, Entry entry, Object target,
+            Object[] arguments) throws Throwable
+    {
+        Object result = null;
+        Throwable failure = null;
+
+        try
+        {
+            result = invokeMethod(target, arguments);
+        }
+        catch (Throwable ex)
+        {
+            failure = ex;
+        }
+
+        synchronized (segment)
+        {
+            if (failure == null)
+            {
+                Object value = result == null ? NULL : result;
+
+                if (_softValues && _retainResults)
+                    entry._reference = new SoftReference(value);
+                else
+                    entry._value = value;
+
+                if (_timeToLive > 0)
+                    entry._expiration = System.currentTimeMillis() + _timeToLive;
+            }
+            else
+                entry._failure = failure;
+
+            if ((failure != null || !_retainResults) && !entry._removed)
+                segment.remove(entry);
+
+            synchronized (entry)
+            {
+                entry._done = true;
+
+                entry.notifyAll();
+            }
+        }
+
+        if (failure != null)
+            throw failure;
+
+        return result;
+    }
+
+    /**
+     * Invokes the method, rethrowing any exception it throws.
+     */
+    private Object invokeMethod(Object target, Object[] arguments) throws Throwable
+    {
+        try
+        {
+            return _method.invoke(target, arguments);
+        }
+        catch (InvocationTargetException ex)
+        {
+            throw ex.getTargetException();
+        }
+        catch (IllegalAccessException ex)
+        {
+            throw new ApplicationRuntimeException(CacheMessages.unableToInvoke(
+                _serviceId,
+                _method,
+                ex), ex);
+        }
+    }
+
+    /**
+     * Discards all cached results if the service id is null or matches the service.
+     */
+    public void cacheInvalidated(String serviceId)
+    {
+        if (serviceId != null && !serviceId.equals(_serviceId))
+            return;
+
+        for (int i = 0; i < _segments.length; i++)
+        {
+            Segment segment = _segments[i];
+
+            synchronized (segment)
+            {
+                segment.clear();
+            }
+        }
+    }
+
+    public CacheStatistics getStatistics()
+    {
+        int size = 0;
+        long hitCount = 0;
+        long missCount = 0;
+        long evictionCount = 0;
+
+        for (int i = 0; i < _segments.length; i++)
+        {
+            Segment segment = _segments[i];
+
+            synchronized (segment)
+            {
+                size += segment._entries.size();
+                hitCount += segment._hitCount;
+                missCount += segment._missCount;
+                evictionCount += segment._evictionCount;
+            }
+        }
+
+        return new CacheStatistics(_serviceId, _methodName, size, hitCount, missCount,
+                evictionCount);
+    }
+
+    public String toString()
+    {
+        return "MethodCache[" + _serviceId + " " + _methodName + "]";
+    }
+}
@@ -0,0 +1,75 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.hivemind.lib.BulkheadMonitor;
+import org.apache.hivemind.lib.bulkhead.Bulkhead;
+import org.apache.hivemind.lib.bulkhead.BulkheadStatistics;
+
+/**
+ * Implementation of {@link org.apache.hivemind.lib.BulkheadMonitor}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class BulkheadMonitorImpl implements BulkheadMonitor
+{
+    private static final Comparator STATISTICS_COMPARATOR = new Comparator()
+    {
+        public int compare(Object o1, Object o2)
+        {
+            BulkheadStatistics s1 = (BulkheadStatistics) o1;
+            BulkheadStatistics s2 = (BulkheadStatistics) o2;
+
+            int result = s1.getServiceId().compareTo(s2.getServiceId());
+
+            if (result == 0)
+                result = s1.getMethodName().compareTo(s2.getMethodName());
+
+            return result;
+        }
+    };
+
+    private List _bulkheads = new ArrayList();
+
+    public synchronized void addBulkhead(Bulkhead bulkhead)
+    {
+        _bulkheads.add(bulkhead);
+    }
+
+    public List getStatistics()
+    {
+        List bulkheads;
+
+        synchronized (this)
+        {
+            bulkheads = new ArrayList(_bulkheads);
+        }
+
+        int count = bulkheads.size();
+        List result = new ArrayList(count);
+
+        for (int i = 0; i < count; i++)
+            result.add(((Bulkhead) bulkheads.get(i)).getStatistics());
+
+        Collections.sort(result, STATISTICS_COMPARATOR);
+
+        return result;
+    }
+}
@@ -0,0 +1,94 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.hivemind.lib.CacheListener;
+import org.apache.hivemind.lib.CacheManager;
+import org.apache.hivemind.lib.cache.CacheStatistics;
+import org.apache.hivemind.lib.cache.MethodCache;
+import org.apache.hivemind.util.EventListenerList;
+
+/**
+ * Implementation of {@link org.apache.hivemind.lib.CacheManager}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class CacheManagerImpl implements CacheManager
+{
+    private static final Comparator STATISTICS_COMPARATOR = new Comparator()
+    {
+        public int compare(Object o1, Object o2)
+        {
+            CacheStatistics s1 = (CacheStatistics) o1;
+            CacheStatistics s2 = (CacheStatistics) o2;
+
+            int result = s1.getServiceId().compareTo(s2.getServiceId());
+
+            if (result == 0)
+                result = s1.getMethodName().compareTo(s2.getMethodName());
+
+            return result;
+        }
+    };
+
+    private EventListenerList _listeners = new EventListenerList();
+
+    public void addCacheListener(CacheListener listener)
+    {
+        _listeners.addListener(listener);
+    }
+
+    public void removeCacheListener(CacheListener listener)
+    {
+        _listeners.removeListener(listener);
+    }
+
+    public void invalidate(String serviceId)
+    {
+        Iterator i = _listeners.getListeners();
+
+        while (i.hasNext())
+        {
+            CacheListener listener = (CacheListener) i.next();
+
+            listener.cacheInvalidated(serviceId);
+        }
+    }
+
+    public List getStatistics()
+    {
+        List result = new ArrayList();
+
+        Iterator i = _listeners.getListeners();
+
+        while (i.hasNext())
+        {
+            Object listener = i.next();
+
+            if (listener instanceof MethodCache)
+                result.add(((MethodCache) listener).getStatistics());
+        }
+
+        Collections.sort(result, STATISTICS_COMPARATOR);
+
+        return result;
+    }
+}
@@ -115,4 +115,27 @@ final class ImplMessages
             "service-property-to-string",
             new Object[] { serviceId, serviceInterface.getName(), propertyName, service });
     }
-}
\ No newline at end of file
+
+    static String noPipelineControl(String serviceId)
+    {
+        return _formatter.format("no-pipeline-control", serviceId);
+    }
+
+    static String workerPoolShutdown()
+    {
+        return _formatter.getMessage("worker-pool-shutdown");
+    }
+
+    static String workerPoolSaturated(int maxThreads, int maxQueueSize)
+    {
+        return _formatter.format(
+            "worker-pool-saturated",
+            new Integer(maxThreads),
+            new Integer(maxQueueSize));
+    }
+
+    static String workerTaskFailure(Runnable task, Throwable cause)
+    {
+        return _formatter.format("worker-task-failure", task, cause);
+    }
+}
@@ -0,0 +1,62 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.lib.PipelineManager;
+import org.apache.hivemind.lib.pipeline.PipelineControl;
+
+/**
+ * Implementation of {@link org.apache.hivemind.lib.PipelineManager}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class PipelineManagerImpl implements PipelineManager
+{
+    /**
+     * Keyed on service id.
+     */
+    private Map _controls = new HashMap();
+
+    public synchronized void addPipelineControl(PipelineControl control)
+    {
+        _controls.put(control.getServiceId(), control);
+    }
+
+    public synchronized PipelineControl getPipelineControl(String serviceId)
+    {
+        PipelineControl result = (PipelineControl) _controls.get(serviceId);
+
+        if (result == null)
+            throw new ApplicationRuntimeException(ImplMessages.noPipelineControl(serviceId));
+
+        return result;
+    }
+
+    public synchronized List getServiceIds()
+    {
+        List result = new ArrayList(_controls.keySet());
+
+        Collections.sort(result);
+
+        return result;
+    }
+}
@@ -0,0 +1,227 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.impl;
+
+import java.util.LinkedList;
+
+import org.apache.commons.logging.Log;
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.events.RegistryShutdownListener;
+import org.apache.hivemind.lib.WorkerPool;
+import org.apache.hivemind.service.ThreadEventNotifier;
+
+/**
+ * Implementation of {@link org.apache.hivemind.lib.WorkerPool}. Threads are started as needed
+ * (up to the maximum), and exit after being idle for a minute, or when the registry is shut down.
+ * 
+ * <p>
+ * When every thread is busy, tasks are queued, up to a maximum; beyond that, tasks are rejected.
+ * A task submitted by one of the pool's own threads (for example, by a fan-out branch that is
+ * itself a fan-out) is never queued behind busy threads: the submitting thread may be waiting
+ * for it, and if every thread did so, none would be left to run the queue. Such a task is run
+ * immediately, by the submitting thread.
+ *
+ * @author Howard Lewis Ship
+ */
+public class WorkerPoolImpl implements WorkerPool, RegistryShutdownListener
+{
+    private static final long KEEP_ALIVE = 60 * 1000;
+
+    private Log _log;
+    private ThreadEventNotifier _threadEventNotifier;
+    private int _maxThreads = 20;
+    private int _maxQueueSize = 100;
+
+    private final LinkedList _queue = new LinkedList();
+
+    private int _threadCount;
+    private int _idleCount;
+    private int _threadIndex;
+    private boolean _shutdown;
+
+    private class Worker extends Thread
+    {
+        Worker(int index)
+        {
+            super("HiveMind worker " + index);
+
+            setDaemon(true);
+        }
+
+        WorkerPoolImpl getPool()
+        {
+            return WorkerPoolImpl.this;
+        }
+
+        public void run()
+        {
+            while (true)
+            {
+                Runnable task = nextTask();
+
+                if (task == null)
+                    return;
+
+                runTask(task);
+
+                // A task abandoned by its submitter may have been interrupted; that
+                // mustn't affect the next task (or end the thread).
+
+                Thread.interrupted();
+
+                try
+                {
+                    _threadEventNotifier.fireThreadCleanup();
+                }
+                catch (Throwable ex)
+                {
+                    _log.error(ImplMessages.workerTaskFailure(task, ex), ex);
+                }
+            }
+        }
+    }
+
+    public void execute(Runnable task)
+    {
+        if (!enqueue(task))
+            runTask(task);
+    }
+
+    private void runTask(Runnable task)
+    {
+        try
+        {
+            task.run();
+        }
+        catch (Throwable ex)
+        {
+            _log.error(ImplMessages.workerTaskFailure(task, ex), ex);
+        }
+    }
+
+    /**
+     * Queues the task, starting a new thread if needed. Returns false if the task
+     * should instead be run by the invoking thread (one of the pool's own threads, when no
+     * other thread is available).
+     */
+    private synchronized boolean enqueue(Runnable task)
+    {
+        if (_shutdown)
+            throw new ApplicationRuntimeException(ImplMessages.workerPoolShutdown());
+
+        // Idle threads will pick up queued tasks; start a new thread only if there are
+        // more queued tasks than idle threads.
+
+        boolean idleThread = _queue.size() < _idleCount;
+
+        if (!idleThread && _threadCount >= _maxThreads)
+        {
+            Thread current = Thread.currentThread();
+
+            if (current instanceof Worker && ((Worker) current).getPool() == this)
+                return false;
+
+            if (_queue.size() >= _maxQueueSize)
+                throw new ApplicationRuntimeException(ImplMessages.workerPoolSaturated(
+                        _maxThreads,
+                        _maxQueueSize));
+        }
+
+        _queue.add(task);
+
+        if (idleThread)
+            notify();
+        else if (_threadCount < _maxThreads)
+        {
+            _threadCount++;
+
+            new Worker(_threadIndex++).start();
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the next task for a worker thread, or null if the thread should exit.
+     */
+    private synchronized Runnable nextTask()
+    {
+        long idleSince = System.currentTimeMillis();
+
+        while (_queue.isEmpty())
+        {
+            long remaining = idleSince + KEEP_ALIVE - System.currentTimeMillis();
+
+            if (_shutdown || remaining <= 0)
+            {
+                _threadCount--;
+
+                return null;
+            }
+
+            _idleCount++;
+
+            try
+            {
+                wait(remaining);
+            }
+            catch (InterruptedException ex)
+            {
+                _threadCount--;
+
+                return null;
+            }
+            finally
+            {
+                _idleCount--;
+            }
+        }
+
+        return (Runnable) _queue.removeFirst();
+    }
+
+    /**
+     * Stops accepting tasks. Queued tasks are still executed; idle threads exit.
+     */
+    public synchronized void registryDidShutdown()
+    {
+        _shutdown = true;
+
+        notifyAll();
+    }
+
+    public void setLog(Log log)
+    {
+        _log = log;
+    }
+
+    public void setThreadEventNotifier(ThreadEventNotifier threadEventNotifier)
+    {
+        _threadEventNotifier = threadEventNotifier;
+    }
+
+    public void setMaxThreads(int maxThreads)
+    {
+        _maxThreads = maxThreads;
+    }
+
+    /**
+     * The number of tasks that may wait for a thread; defaults to 100.
+     */
+    public void setMaxQueueSize(int maxQueueSize)
+    {
+        _maxQueueSize = maxQueueSize;
+    }
+}
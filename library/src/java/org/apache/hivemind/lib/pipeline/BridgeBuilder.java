@@ -17,8 +17,10 @@ package org.apache.hivemind.lib.pipeline;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.hivemind.ApplicationRuntimeException;
@@ -33,6 +35,13 @@ import org.apache.hivemind.service.MethodSignature;
 /**
  * Used by the {@link org.apache.hivemind.lib.pipeline.PipelineAssembler}
  * class to create bridge classes and to create instances of briddge classes.
+ * 
+ * <p>
+ * Normally, a single bridge class is shared by every stage of the pipeline. Its invocation of the
+ * filter sees every filter class in the pipeline, which (for deep pipelines) defeats inlining by
+ * the JIT. A <em>flattened</em> pipeline instead uses a bridge class specialized for each filter
+ * class, with the filter held in a field of that (concrete) class; each bridge then invokes
+ * exactly one filter class.
  *
  * @author Howard Lewis Ship
  */
@@ -42,12 +51,27 @@ class BridgeBuilder
     private String _serviceId;
     private Class _serviceInterface;
     private Class _filterInterface;
+    private ClassFactory _classFactory;
+    private ClassLoader _classLoader;
+    private boolean _flatten;
 
     private ClassFab _classFab;
     private FilterMethodAnalyzer _filterMethodAnalyzer;
 
     private Constructor _constructor;
 
+    /**
+     * Constructors of specialized bridge classes, keyed on filter class (flattened
+     * pipelines only).
+     */
+    private Map _stageConstructors;
+
+    /**
+     * Set once the first bridge class is created; mismatches between the service and filter
+     * interfaces are only reported once.
+     */
+    private boolean _errorsReported;
+
     BridgeBuilder(
         Log log,
         String serviceId,
@@ -55,26 +79,42 @@ class BridgeBuilder
         Class filterInterface,
         ClassFactory classFactory,
         Module module)
+    {
+        this(log, serviceId, serviceInterface, filterInterface, classFactory, module, false);
+    }
+
+    /**
+     * @param flatten if true, a bridge class is created for each filter class, rather than
+     * a single bridge class for every filter
+     */
+    BridgeBuilder(
+        Log log,
+        String serviceId,
+        Class serviceInterface,
+        Class filterInterface,
+        ClassFactory classFactory,
+        Module module,
+        boolean flatten)
     {
         _log = log;
         _serviceId = serviceId;
         _serviceInterface = serviceInterface;
         _filterInterface = filterInterface;
-
-        String name = ClassFabUtils.generateClassName("PipelineBridge");
-
-        _classFab =
-            classFactory.newClass(name, Object.class, module.getClassResolver().getClassLoader());
+        _classFactory = classFactory;
+        _classLoader = module.getClassResolver().getClassLoader();
+        _flatten = flatten;
 
         _filterMethodAnalyzer = new FilterMethodAnalyzer(serviceInterface);
     }
 
-    private void createClass()
+    private Class createClass(String name, Class filterClass)
     {
         List serviceMethods = new ArrayList();
         List filterMethods = new ArrayList();
 
-        createInfrastructure();
+        _classFab = _classFactory.newClass(name, Object.class, _classLoader);
+
+        createInfrastructure(filterClass);
 
         MethodIterator mi = new MethodIterator(_serviceInterface);
 
@@ -106,18 +146,21 @@ class BridgeBuilder
                 _classFab,
                 PipelineMessages.bridgeInstanceDescription(_serviceId, _serviceInterface));
 
-        Class bridgeClass = _classFab.createClass();
+        Class result = _classFab.createClass();
+
+        _classFab = null;
+        _errorsReported = true;
 
-        _constructor = bridgeClass.getConstructors()[0];
+        return result;
     }
 
-    private void createInfrastructure()
+    private void createInfrastructure(Class filterClass)
     {
         _classFab.addField("_next", _serviceInterface);
-        _classFab.addField("_filter", _filterInterface);
+        _classFab.addField("_filter", filterClass);
 
         _classFab.addConstructor(
-            new Class[] { _serviceInterface, _filterInterface },
+            new Class[] { _serviceInterface, filterClass },
             null,
             "{ _next = $1; _filter = $2; }");
 
@@ -132,12 +175,11 @@ class BridgeBuilder
      */
     public Object instantiateBridge(Object nextBridge, Object filter)
     {
-        if (_constructor == null)
-            createClass();
+        Constructor c = _flatten ? getStageConstructor(filter) : getConstructor();
 
         try
         {
-            return _constructor.newInstance(new Object[] { nextBridge, filter });
+            return c.newInstance(new Object[] { nextBridge, filter });
         }
         catch (Exception ex)
         {
@@ -145,8 +187,81 @@ class BridgeBuilder
         }
     }
 
+    private Constructor getConstructor()
+    {
+        if (_constructor == null)
+            _constructor =
+                createClass(ClassFabUtils.generateClassName("PipelineBridge"), _filterInterface)
+                        .getConstructors()[0];
+
+        return _constructor;
+    }
+
+    /**
+     * Returns the constructor for the bridge class specialized for the filter's class,
+     * creating the class as needed.
+     */
+    private Constructor getStageConstructor(Object filter)
+    {
+        Class filterClass = getFilterClass(filter);
+
+        if (_stageConstructors == null)
+            _stageConstructors = new HashMap();
+
+        Constructor result = (Constructor) _stageConstructors.get(filterClass);
+
+        if (result != null)
+            return result;
+
+        String name = ClassFabUtils.generateClassName(
+            "PipelineStage",
+            _serviceId,
+            _serviceInterface,
+            _filterInterface.getName() + " " + filterClass.getName());
+
+        Class stageClass = _classFactory.findPregeneratedClass(name, _classLoader);
+
+        if (stageClass == null
+                || stageClass.getConstructors()[0].getParameterTypes()[1] != filterClass)
+            stageClass = createClass(name, filterClass);
+
+        result = stageClass.getConstructors()[0];
+
+        _stageConstructors.put(filterClass, result);
+
+        return result;
+    }
+
+    /**
+     * Returns the type of the filter field of a specialized bridge class: the filter's
+     * own class if it is public and visible to the module's class loader, the filter
+     * interface otherwise.
+     */
+    private Class getFilterClass(Object filter)
+    {
+        Class result = ClassFabUtils.getInstanceClass(filter, _filterInterface);
+
+        if (!Modifier.isPublic(result.getModifiers()))
+            return _filterInterface;
+
+        try
+        {
+            if (Class.forName(result.getName(), false, _classLoader) == result)
+                return result;
+        }
+        catch (ClassNotFoundException ex)
+        {
+            // Fall through
+        }
+
+        return _filterInterface;
+    }
+
     private void reportExtraFilterMethods(List filterMethods)
     {
+        if (_errorsReported)
+            return;
+
         Iterator i = filterMethods.iterator();
 
         while (i.hasNext())
@@ -191,7 +306,8 @@ class BridgeBuilder
 
         String message = PipelineMessages.unmatchedServiceMethod(ms, _filterInterface);
 
-        _log.error(message);
+        if (!_errorsReported)
+            _log.error(message);
 
         BodyBuilder b = new BodyBuilder();
 
@@ -0,0 +1,295 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.pipeline;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.lib.WorkerPool;
+
+/**
+ * A scatter-gather terminator for a pipeline. Each invocation of a service method is
+ * performed, in parallel, by every branch (each on a thread of the
+ * {@link org.apache.hivemind.lib.WorkerPool}), and the branch results are merged by a
+ * {@link FanOutCombiner}. Invoked from the terminator class created by the
+ * {@link PipelineAssembler}.
+ * 
+ * <p>
+ * Each branch may be limited by a timeout, measured from the start of the invocation. A branch
+ * that does not complete in time is abandoned and treated as failed: if it has not started, it
+ * never will; otherwise its worker thread is interrupted (so that a branch that responds to
+ * interruption releases the thread), and its result is ignored. Branches still running when the
+ * invocation fails early (with {@link FanOutPolicy#FAIL}) are abandoned the same way. A branch
+ * rejected by a saturated worker pool is also treated as failed. Failed branches are handled
+ * according to the {@link FanOutPolicy}; if every branch fails, the invocation fails.
+ *
+ * @author Howard Lewis Ship
+ */
+public final class FanOut
+{
+    private final Log _log;
+    private final String _serviceId;
+    private final Object[] _branches;
+    private final long[] _timeouts;
+    private final FanOutCombiner _combiner;
+    private final FanOutPolicy _policy;
+    private final WorkerPool _workerPool;
+
+    /**
+     * The invocation of a method by a single branch.
+     */
+    private static class BranchInvocation implements Runnable
+    {
+        private final Object _branch;
+        private final Method _method;
+        private final Object[] _arguments;
+
+        private boolean _done;
+        private boolean _abandoned;
+        private Thread _thread;
+        private Object _result;
+        private Throwable _failure;
+
+        BranchInvocation(Object branch, Method method, Object[] arguments)
+        {
+            _branch = branch;
+            _method = method;
+            _arguments = arguments;
+        }
+
+        public void run()
+        {
+            if (!start())
+                return;
+
+            Object result = null;
+            Throwable failure = null;
+
+            try
+            {
+                result = _method.invoke(_branch, _arguments);
+            }
+            catch (InvocationTargetException ex)
+            {
+                failure = ex.getTargetException();
+            }
+            catch (Throwable ex)
+            {
+                failure = ex;
+            }
+
+            finish(result, failure);
+        }
+
+        /**
+         * Records the thread performing the invocation; returns false if the invocation
+         * has been abandoned.
+         */
+        private synchronized boolean start()
+        {
+            if (_abandoned)
+                return false;
+
+            _thread = Thread.currentThread();
+
+            return true;
+        }
+
+        synchronized void finish(Object result, Throwable failure)
+        {
+            _result = result;
+            _failure = failure;
+            _done = true;
+            _thread = null;
+
+            notifyAll();
+        }
+
+        /**
+         * Ensures that an invocation that has not completed never starts, or (if running)
+         * is interrupted.
+         */
+        synchronized void abandon()
+        {
+            if (_done)
+                return;
+
+            _abandoned = true;
+
+            if (_thread != null)
+                _thread.interrupt();
+        }
+
+        /**
+         * Waits until the invocation completes, or until the deadline.
+         * 
+         * @param deadline the time to stop waiting, or zero to wait indefinitely
+         * @return true if the invocation completed
+         */
+        synchronized boolean waitUntilDone(long deadline)
+        {
+            while (!_done)
+            {
+                long remaining = deadline == 0 ? 0 : deadline - System.currentTimeMillis();
+
+                if (deadline != 0 && remaining <= 0)
+                    return false;
+
+                try
+                {
+                    wait(remaining);
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+
+                    throw new ApplicationRuntimeException(ex);
+                }
+            }
+
+            return true;
+        }
+
+        public String toString()
+        {
+            return _branch.toString();
+        }
+    }
+
+    /**
+     * @param log used to log failed branches (when the policy permits partial results)
+     * @param serviceId the id of the pipeline service
+     * @param branches {@link FanOutBranch} for each branch, in order
+     * @param timeout the default timeout for each branch, or zero for no timeout
+     */
+    FanOut(Log log, String serviceId, List branches, long timeout, FanOutCombiner combiner,
+            FanOutPolicy policy, WorkerPool workerPool)
+    {
+        _log = log;
+        _serviceId = serviceId;
+        _combiner = combiner;
+        _policy = policy;
+        _workerPool = workerPool;
+
+        int count = branches.size();
+
+        _branches = new Object[count];
+        _timeouts = new long[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            FanOutBranch b = (FanOutBranch) branches.get(i);
+
+            _branches[i] = b.getService();
+            _timeouts[i] = b.getTimeout() > 0 ? b.getTimeout() : timeout;
+        }
+    }
+
+    /**
+     * Invokes the method on each branch, and returns the combined result.
+     */
+    public Object invoke(Method method, Object[] arguments) throws Throwable
+    {
+        long start = System.currentTimeMillis();
+        int count = _branches.length;
+
+        BranchInvocation[] invocations = new BranchInvocation[count];
+
+        try
+        {
+            for (int i = 0; i < count; i++)
+            {
+                invocations[i] = new BranchInvocation(_branches[i], method, arguments);
+
+                try
+                {
+                    _workerPool.execute(invocations[i]);
+                }
+                catch (ApplicationRuntimeException ex)
+                {
+                    invocations[i].finish(null, ex);
+                }
+            }
+
+            return collect(method, arguments, invocations, start);
+        }
+        finally
+        {
+            // Abandon any branch that has not completed (because it timed out, or because an
+            // earlier branch failed).
+
+            for (int i = 0; i < count; i++)
+            {
+                if (invocations[i] != null)
+                    invocations[i].abandon();
+            }
+        }
+    }
+
+    private Object collect(Method method, Object[] arguments, BranchInvocation[] invocations,
+            long start) throws Throwable
+    {
+        int count = invocations.length;
+        List results = new ArrayList(count);
+        Throwable firstFailure = null;
+        int successCount = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            BranchInvocation bi = invocations[i];
+
+            boolean timedOut = !bi.waitUntilDone(_timeouts[i] == 0 ? 0 : start + _timeouts[i]);
+
+            Throwable failure = timedOut ? new ApplicationRuntimeException(PipelineMessages
+                    .branchTimeout(_branches[i], _serviceId, method, _timeouts[i])) : bi._failure;
+
+            if (failure == null)
+            {
+                results.add(bi._result);
+                successCount++;
+                continue;
+            }
+
+            if (_policy == FanOutPolicy.FAIL)
+                throw failure;
+
+            if (timedOut)
+                _log.warn(failure.getMessage());
+            else
+                _log.warn(PipelineMessages.branchFailure(_branches[i], _serviceId, method, failure),
+                        failure);
+
+            if (firstFailure == null)
+                firstFailure = failure;
+
+            if (_policy == FanOutPolicy.NULL)
+                results.add(null);
+        }
+
+        // If every branch failed, there's nothing to combine.
+
+        if (count > 0 && successCount == 0)
+            throw firstFailure;
+
+        if (method.getReturnType() == void.class)
+            return null;
+
+        return _combiner.combine(method, arguments, results);
+    }
+}
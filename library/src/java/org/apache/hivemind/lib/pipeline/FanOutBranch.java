@@ -0,0 +1,53 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.pipeline;
+
+import org.apache.hivemind.impl.BaseLocatable;
+
+/**
+ * A branch of a fan-out (see {@link FanOutContribution}): an object implementing the
+ * pipeline's service interface, and an optional timeout.
+ *
+ * @author Howard Lewis Ship
+ */
+public class FanOutBranch extends BaseLocatable
+{
+    private Object _service;
+    private long _timeout;
+
+    public Object getService()
+    {
+        return _service;
+    }
+
+    public void setService(Object service)
+    {
+        _service = service;
+    }
+
+    /**
+     * The time, in milliseconds, the branch may take; zero (the default) uses the fan-out's
+     * timeout.
+     */
+    public long getTimeout()
+    {
+        return _timeout;
+    }
+
+    public void setTimeout(long timeout)
+    {
+        _timeout = timeout;
+    }
+}
@@ -0,0 +1,39 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.pipeline;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Combines the results of the branches of a fan-out (see {@link FanOut}) into the result
+ * of the service method.
+ *
+ * @author Howard Lewis Ship
+ */
+public interface FanOutCombiner
+{
+    /**
+     * Combines the branch results. Not invoked for methods that return no value.
+     * 
+     * @param method the service method invoked
+     * @param arguments the arguments to the method (primitive values are wrapped)
+     * @param results the result from each branch, in branch order (primitive values are wrapped).
+     *            Depending on the {@link FanOutPolicy}, failed branches may be omitted or
+     *            represented by null.
+     * @return the result of the method (wrapped, for primitive return types)
+     */
+    public Object combine(Method method, Object[] arguments, List results);
+}
@@ -0,0 +1,87 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hivemind.impl.BaseLocatable;
+
+/**
+ * A contribution used to make a fan-out (see {@link FanOut}) the terminator of the pipeline.
+ *
+ * @author Howard Lewis Ship
+ */
+public class FanOutContribution extends BaseLocatable implements PipelineContribution
+{
+    private FanOutCombiner _combiner;
+    private long _timeout;
+    private FanOutPolicy _policy;
+    private List _branches = new ArrayList();
+
+    public void informAssembler(PipelineAssembler pa)
+    {
+        pa.setFanOut(this);
+    }
+
+    public void addBranch(FanOutBranch branch)
+    {
+        _branches.add(branch);
+    }
+
+    /**
+     * Returns the {@link FanOutBranch}es, in order.
+     */
+    public List getBranches()
+    {
+        return _branches;
+    }
+
+    public FanOutCombiner getCombiner()
+    {
+        return _combiner;
+    }
+
+    public void setCombiner(FanOutCombiner combiner)
+    {
+        _combiner = combiner;
+    }
+
+    /**
+     * The time, in milliseconds, each branch may take, or zero (the default) for no limit.
+     */
+    public long getTimeout()
+    {
+        return _timeout;
+    }
+
+    public void setTimeout(long timeout)
+    {
+        _timeout = timeout;
+    }
+
+    /**
+     * Returns the policy, {@link FanOutPolicy#FAIL} by default.
+     */
+    public FanOutPolicy getPolicy()
+    {
+        return _policy == null ? FanOutPolicy.FAIL : _policy;
+    }
+
+    public void setPolicy(FanOutPolicy policy)
+    {
+        _policy = policy;
+    }
+}
@@ -0,0 +1,51 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.pipeline;
+
+/**
+ * Determines how a {@link FanOut} treats branches that fail (throw an exception) or do not
+ * complete within their timeout.
+ *
+ * @author Howard Lewis Ship
+ */
+public final class FanOutPolicy
+{
+    /**
+     * The invocation fails (with the exception of the first failed branch); the default.
+     */
+    public static final FanOutPolicy FAIL = new FanOutPolicy("FAIL");
+
+    /**
+     * Failed branches are omitted from the results passed to the combiner.
+     */
+    public static final FanOutPolicy OMIT = new FanOutPolicy("OMIT");
+
+    /**
+     * Failed branches are represented by null in the results passed to the combiner.
+     */
+    public static final FanOutPolicy NULL = new FanOutPolicy("NULL");
+
+    private final String _name;
+
+    private FanOutPolicy(String name)
+    {
+        _name = name;
+    }
+
+    public String toString()
+    {
+        return "FanOutPolicy[" + _name + "]";
+    }
+}
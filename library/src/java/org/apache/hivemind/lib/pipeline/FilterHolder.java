@@ -20,7 +20,8 @@ import org.apache.hivemind.Location;
 /**
  * A holder for a filter within a pipeline, and for the location for that filter.
  * This allows the location of the filter to be reported, even if the filter
- * itself does not implement Locatable.
+ * itself does not implement Locatable. The holder also retains the filter's name and
+ * ordering, so that a reconfigurable pipeline may be re-ordered.
  *
  * @author Howard Lewis Ship
  */
@@ -28,6 +29,9 @@ public class FilterHolder implements Locatable
 {
     private Object _filter;
     private Location _location;
+    private String _name;
+    private String _prereqs;
+    private String _postreqs;
 
     public FilterHolder(Object filter, Location location)
     {
@@ -35,6 +39,20 @@ public class FilterHolder implements Locatable
         _location = location;
     }
 
+    public FilterHolder(
+        Object filter,
+        Location location,
+        String name,
+        String prereqs,
+        String postreqs)
+    {
+        _filter = filter;
+        _location = location;
+        _name = name;
+        _prereqs = prereqs;
+        _postreqs = postreqs;
+    }
+
     public Object getFilter()
     {
         return _filter;
@@ -45,4 +63,26 @@ public class FilterHolder implements Locatable
         return _location;
     }
 
+    public String getName()
+    {
+        return _name;
+    }
+
+    /**
+     * The names of the filters that precede this filter (as with
+     * {@link org.apache.hivemind.order.Orderer#add(Object, String, String, String)}).
+     */
+    public String getPrereqs()
+    {
+        return _prereqs;
+    }
+
+    /**
+     * The names of the filters that follow this filter.
+     */
+    public String getPostreqs()
+    {
+        return _postreqs;
+    }
+
 }
@@ -14,16 +14,25 @@
 
 package org.apache.hivemind.lib.pipeline;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
+import org.apache.hivemind.ApplicationRuntimeException;
 import org.apache.hivemind.ErrorHandler;
 import org.apache.hivemind.Location;
 import org.apache.hivemind.impl.BaseLocatable;
 import org.apache.hivemind.internal.Module;
 import org.apache.hivemind.lib.DefaultImplementationBuilder;
+import org.apache.hivemind.lib.WorkerPool;
 import org.apache.hivemind.order.Orderer;
+import org.apache.hivemind.service.ClassFab;
+import org.apache.hivemind.service.ClassFabUtils;
 import org.apache.hivemind.service.ClassFactory;
+import org.apache.hivemind.service.MethodIterator;
+import org.apache.hivemind.service.MethodSignature;
 
 /**
  * Used by the {@link org.apache.hivemind.lib.pipeline.PipelineFactory} to
@@ -48,6 +57,14 @@ public class PipelineAssembler extends BaseLocatable
     private Object _terminator;
     private Location _terminatorLocation;
 
+    private boolean _flatten;
+    private boolean _reconfigurable;
+    private WorkerPool _workerPool;
+
+    private BridgeBuilder _bridgeBuilder;
+    private Object _defaultTerminator;
+    private ReconfigurablePipeline _reconfigurablePipeline;
+
     /**
      * @param log used for logging, typically the log for the service being assembled\
      * @param errorHandler used for handling recoverable errors
@@ -92,7 +109,7 @@ public class PipelineAssembler extends BaseLocatable
         if (!checkInterface(_filterInterface, filter, location))
             return;
 
-        FilterHolder holder = new FilterHolder(filter, location);
+        FilterHolder holder = new FilterHolder(filter, location, name, prereqs, postreqs);
 
         _orderer.add(holder, name, prereqs, postreqs);
     }
@@ -120,6 +137,65 @@ public class PipelineAssembler extends BaseLocatable
         _terminatorLocation = terminatorLocation;
     }
 
+    /**
+     * If true, each stage of the pipeline uses a bridge class specialized for its filter's class
+     * (see {@link BridgeBuilder}). The default is false.
+     */
+    public void setFlatten(boolean flatten)
+    {
+        _flatten = flatten;
+    }
+
+    /**
+     * If true, the pipeline may be reconfigured (by its {@link PipelineControl}) after it is
+     * created. The default is false.
+     */
+    public void setReconfigurable(boolean reconfigurable)
+    {
+        _reconfigurable = reconfigurable;
+    }
+
+    /**
+     * Returns the control for a reconfigurable pipeline (after {@link #createPipeline()}), or
+     * null if the pipeline is not reconfigurable.
+     */
+    public PipelineControl getPipelineControl()
+    {
+        return _reconfigurablePipeline;
+    }
+
+    /**
+     * The pool used to invoke the branches of a fan-out.
+     */
+    public void setWorkerPool(WorkerPool workerPool)
+    {
+        _workerPool = workerPool;
+    }
+
+    /**
+     * Makes a fan-out the terminator of the pipeline. Branches that do not implement the service
+     * interface are reported, and ignored.
+     */
+    public void setFanOut(FanOutContribution contribution)
+    {
+        List branches = new ArrayList();
+        List all = contribution.getBranches();
+        int count = all.size();
+
+        for (int i = 0; i < count; i++)
+        {
+            FanOutBranch b = (FanOutBranch) all.get(i);
+
+            if (checkInterface(_serviceInterface, b.getService(), b.getLocation()))
+                branches.add(b);
+        }
+
+        FanOut fanOut = new FanOut(_log, _serviceId, branches, contribution.getTimeout(),
+                contribution.getCombiner(), contribution.getPolicy(), _workerPool);
+
+        setTerminator(createFanOutTerminator(fanOut), contribution.getLocation());
+    }
+
     // For testing
 
     Object getTerminator()
@@ -143,28 +219,63 @@ public class PipelineAssembler extends BaseLocatable
 
     /**
      * Returns an object that implements the service interface, and integrates
-     * any filters for the pipeline with the 
+     * any filters for the pipeline with the terminator. For a reconfigurable pipeline,
+     * the object obtains the current filter chain on each invocation.
      */
     public Object createPipeline()
     {
         List filterHolders = _orderer.getOrderedObjects();
+
+        if (!_reconfigurable)
+            return createChain(filterHolders);
+
+        _reconfigurablePipeline = new ReconfigurablePipeline(this, _serviceId, filterHolders);
+
+        return createReconfigurableService(_reconfigurablePipeline);
+    }
+
+    /**
+     * Orders a list of {@link FilterHolder}, using each holder's name and ordering.
+     */
+    List orderFilters(List filterHolders)
+    {
+        Orderer orderer = new Orderer(_log, _errorHandler, "filter");
         int count = filterHolders.size();
 
-        BridgeBuilder bb =
-            (count == 0)
-                ? null
-                : new BridgeBuilder(
+        for (int i = 0; i < count; i++)
+        {
+            FilterHolder h = (FilterHolder) filterHolders.get(i);
+
+            orderer.add(h, h.getName(), h.getPrereqs(), h.getPostreqs());
+        }
+
+        return orderer.getOrderedObjects();
+    }
+
+    /**
+     * Assembles the bridges that connect the ordered filters to each other and to the terminator,
+     * returning the first bridge (or the terminator, if there are no filters).
+     */
+    Object createChain(List filterHolders)
+    {
+        int count = filterHolders.size();
+
+        if (count > 0 && _bridgeBuilder == null)
+            _bridgeBuilder =
+                new BridgeBuilder(
                     _log,
                     _serviceId,
                     _serviceInterface,
                     _filterInterface,
                     _classFactory,
-                    _module);
+                    _module,
+                    _flatten);
+
+        if (_terminator == null && _defaultTerminator == null)
+            _defaultTerminator =
+                _defaultBuilder.buildDefaultImplementation(_serviceInterface, _module);
 
-        Object next =
-            _terminator != null
-                ? _terminator
-                : _defaultBuilder.buildDefaultImplementation(_serviceInterface, _module);
+        Object next = _terminator != null ? _terminator : _defaultTerminator;
 
         // Like service interceptors, we work deepest (last) to shallowest (first).
 
@@ -173,9 +284,150 @@ public class PipelineAssembler extends BaseLocatable
             FilterHolder h = (FilterHolder) filterHolders.get(i);
             Object filter = h.getFilter();
 
-            next = bb.instantiateBridge(next, filter);
+            next = _bridgeBuilder.instantiateBridge(next, filter);
         }
 
         return next;
     }
+
+    /**
+     * Creates the service implementation for a reconfigurable pipeline; each method
+     * re-invokes the method on the pipeline's current chain.
+     */
+    private Object createReconfigurableService(ReconfigurablePipeline pipeline)
+    {
+        ClassLoader loader = _module.getClassResolver().getClassLoader();
+
+        String name = ClassFabUtils.generateClassName(
+            "ReconfigurablePipeline",
+            _serviceId,
+            _serviceInterface,
+            null);
+
+        Class serviceClass = _classFactory.findPregeneratedClass(name, loader);
+
+        if (serviceClass == null)
+        {
+            ClassFab classFab = _classFactory.newClass(name, Object.class, loader);
+
+            classFab.addInterface(_serviceInterface);
+            classFab.addField("_pipeline", ReconfigurablePipeline.class);
+            classFab.addConstructor(
+                new Class[] { ReconfigurablePipeline.class },
+                null,
+                "{ _pipeline = $1; }");
+
+            String chain = "((" + _serviceInterface.getName() + ") _pipeline.getChain()).";
+
+            MethodIterator mi = new MethodIterator(_serviceInterface);
+
+            while (mi.hasNext())
+            {
+                MethodSignature sig = mi.next();
+
+                classFab.addMethod(Modifier.PUBLIC, sig, "return ($r) " + chain + sig.getName()
+                        + "($$);");
+            }
+
+            if (!mi.getToString())
+                ClassFabUtils.addToStringMethod(
+                    classFab,
+                    PipelineMessages.reconfigurableDescription(_serviceId, _serviceInterface));
+
+            serviceClass = classFab.createClass();
+        }
+
+        try
+        {
+            return serviceClass.getConstructors()[0].newInstance(new Object[] { pipeline });
+        }
+        catch (Exception ex)
+        {
+            throw new ApplicationRuntimeException(PipelineMessages.unableToInstantiate(
+                serviceClass,
+                _serviceId,
+                ex), ex);
+        }
+    }
+
+    /**
+     * Creates the terminator for a fan-out; each method invokes
+     * {@link FanOut#invoke(Method, Object[])}.
+     */
+    private Object createFanOutTerminator(FanOut fanOut)
+    {
+        ClassLoader loader = _module.getClassResolver().getClassLoader();
+
+        List methods = new ArrayList();
+        MethodIterator mi = new MethodIterator(_serviceInterface);
+
+        while (mi.hasNext())
+            methods.add(mi.next());
+
+        String name =
+            ClassFabUtils.generateClassName("FanOut", _serviceId, _serviceInterface, null);
+
+        Class terminatorClass = _classFactory.findPregeneratedClass(name, loader);
+
+        if (terminatorClass == null)
+        {
+            ClassFab classFab = _classFactory.newClass(name, Object.class, loader);
+
+            classFab.addInterface(_serviceInterface);
+            classFab.addField("_fanOut", FanOut.class);
+
+            StringBuffer constructor = new StringBuffer("{ _fanOut = $1;");
+
+            for (int i = 0; i < methods.size(); i++)
+            {
+                MethodSignature sig = (MethodSignature) methods.get(i);
+                String field = "_method" + i;
+
+                classFab.addField(field, Method.class);
+                constructor.append(" " + field + " = $2[" + i + "];");
+
+                // FanOut.invoke() rethrows whatever the branch throws.
+
+                classFab.addMethod(Modifier.PUBLIC, sig, "return ($r) _fanOut.invoke(" + field
+                        + ", $args);");
+            }
+
+            constructor.append(" }");
+
+            classFab.addConstructor(
+                new Class[] { FanOut.class, Method[].class },
+                null,
+                constructor.toString());
+
+            if (!mi.getToString())
+                ClassFabUtils.addToStringMethod(
+                    classFab,
+                    PipelineMessages.fanOutDescription(_serviceId, _serviceInterface));
+
+            terminatorClass = classFab.createClass();
+        }
+
+        Method[] methodArray = new Method[methods.size()];
+
+        try
+        {
+            for (int i = 0; i < methodArray.length; i++)
+            {
+                MethodSignature sig = (MethodSignature) methods.get(i);
+
+                methodArray[i] =
+                    _serviceInterface.getMethod(sig.getName(), sig.getParameterTypes());
+            }
+
+            return terminatorClass.getConstructors()[0].newInstance(new Object[] { fanOut,
+                    methodArray });
+        }
+        catch (Exception ex)
+        {
+            throw new ApplicationRuntimeException(PipelineMessages.unableToInstantiate(
+                terminatorClass,
+                _serviceId,
+                ex), ex);
+        }
+    }
 }
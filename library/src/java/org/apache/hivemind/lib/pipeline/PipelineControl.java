@@ -0,0 +1,83 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.pipeline;
+
+import java.util.List;
+
+/**
+ * Management interface for a reconfigurable pipeline (one created by the
+ * <code>hivemind.lib.PipelineFactory</code> with <code>reconfigurable</code> set to true).
+ * Filters may be enabled, disabled or re-ordered while the pipeline is in use; each change
+ * assembles a new filter chain (ordered using the same rules as the pipeline configuration),
+ * which is used by subsequent invocations of the service. Invocations already in progress
+ * complete using the previous chain.
+ * 
+ * <p>
+ * Filter names are fully qualified, as in the pipeline's configuration. Pipeline controls are
+ * obtained from the <code>hivemind.lib.PipelineManager</code> service, once the pipeline service
+ * has been constructed (i.e., first invoked, or eagerly loaded).
+ *
+ * @author Howard Lewis Ship
+ */
+public interface PipelineControl
+{
+    /**
+     * Returns the id of the pipeline service.
+     */
+    public String getServiceId();
+
+    /**
+     * Returns the names of the enabled filters, in pipeline order.
+     */
+    public List getFilterNames();
+
+    /**
+     * Returns true if the named filter is enabled (filters are initially enabled).
+     * 
+     * @throws org.apache.hivemind.ApplicationRuntimeException if the pipeline does not contain
+     *         the named filter
+     */
+    public boolean isFilterEnabled(String name);
+
+    /**
+     * Enables a previously disabled filter.
+     * 
+     * @throws org.apache.hivemind.ApplicationRuntimeException if the pipeline does not contain
+     *         the named filter
+     */
+    public void enableFilter(String name);
+
+    /**
+     * Disables a filter, removing it from the pipeline. Any ordering that references a disabled
+     * filter is ignored.
+     * 
+     * @throws org.apache.hivemind.ApplicationRuntimeException if the pipeline does not contain
+     *         the named filter
+     */
+    public void disableFilter(String name);
+
+    /**
+     * Replaces the ordering of a filter.
+     * 
+     * @param name the name of the filter
+     * @param before a comma-separated list of the names of filters that should follow the filter,
+     *            or "*" (the filter is first), or null
+     * @param after a comma-separated list of the names of filters that should precede the filter,
+     *            or "*" (the filter is last), or null
+     * @throws org.apache.hivemind.ApplicationRuntimeException if the pipeline does not contain
+     *         the named filter
+     */
+    public void orderFilter(String name, String before, String after);
+}
@@ -21,8 +21,12 @@ import org.apache.commons.logging.Log;
 import org.apache.hivemind.ErrorHandler;
 import org.apache.hivemind.ServiceImplementationFactory;
 import org.apache.hivemind.impl.BaseLocatable;
+import org.apache.hivemind.impl.ServicePointImpl;
 import org.apache.hivemind.internal.Module;
+import org.apache.hivemind.internal.ServicePoint;
 import org.apache.hivemind.lib.DefaultImplementationBuilder;
+import org.apache.hivemind.lib.PipelineManager;
+import org.apache.hivemind.lib.WorkerPool;
 import org.apache.hivemind.service.ClassFactory;
 
 /**
@@ -35,6 +39,8 @@ public class PipelineFactory extends BaseLocatable implements ServiceImplementat
     private ClassFactory _classFactory;
     private DefaultImplementationBuilder _defaultImplementationBuilder;
     private ErrorHandler _errorHandler;
+    private PipelineManager _pipelineManager;
+    private WorkerPool _workerPool;
 
     public Object createCoreServiceImplementation(
         String serviceId,
@@ -56,6 +62,11 @@ public class PipelineFactory extends BaseLocatable implements ServiceImplementat
                 _defaultImplementationBuilder,
                 invokingModule);
 
+        pa.setFlatten(pp.getFlatten());
+        pa.setReconfigurable(pp.getReconfigurable()
+                && checkReconfigurable(serviceId, serviceLog, invokingModule, pp));
+        pa.setWorkerPool(_workerPool);
+
         Object terminator = pp.getTerminator();
 
         if (terminator != null)
@@ -71,7 +82,42 @@ public class PipelineFactory extends BaseLocatable implements ServiceImplementat
             c.informAssembler(pa);
         }
 
-        return pa.createPipeline();
+        Object result = pa.createPipeline();
+
+        PipelineControl control = pa.getPipelineControl();
+
+        if (control != null && _pipelineManager != null)
+            _pipelineManager.addPipelineControl(control);
+
+        return result;
+    }
+
+    /**
+     * A reconfigurable pipeline is registered with the {@link PipelineManager} by service id, so
+     * only a service point that constructs a single pipeline may be reconfigurable. Otherwise,
+     * (for example, with the threaded or pooled service model) an error is reported, and
+     * the pipeline is not reconfigurable.
+     */
+    private boolean checkReconfigurable(String serviceId, Log serviceLog, Module invokingModule,
+            PipelineParameters parameters)
+    {
+        ServicePoint sp = invokingModule.getServicePoint(serviceId);
+
+        if (!(sp instanceof ServicePointImpl))
+            return true;
+
+        String model = ((ServicePointImpl) sp).getServiceModel();
+
+        if ("singleton".equals(model) || "primitive".equals(model))
+            return true;
+
+        _errorHandler.error(
+            serviceLog,
+            PipelineMessages.reconfigurableNotSingleton(serviceId, model),
+            parameters.getLocation(),
+            null);
+
+        return false;
     }
 
     public void setClassFactory(ClassFactory factory)
@@ -89,4 +135,14 @@ public class PipelineFactory extends BaseLocatable implements ServiceImplementat
         _errorHandler = handler;
     }
 
+    public void setPipelineManager(PipelineManager pipelineManager)
+    {
+        _pipelineManager = pipelineManager;
+    }
+
+    public void setWorkerPool(WorkerPool workerPool)
+    {
+        _workerPool = workerPool;
+    }
+
 }
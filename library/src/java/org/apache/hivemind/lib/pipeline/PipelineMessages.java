@@ -14,6 +14,8 @@
 
 package org.apache.hivemind.lib.pipeline;
 
+import java.lang.reflect.Method;
+
 import org.apache.hivemind.HiveMind;
 import org.apache.hivemind.Location;
 import org.apache.hivemind.impl.MessageFormatter;
@@ -37,6 +39,14 @@ final class PipelineMessages
             serviceInterface.getName());
     }
 
+    public static String reconfigurableDescription(String serviceId, Class serviceInterface)
+    {
+        return _formatter.format(
+            "reconfigurable-description",
+            serviceId,
+            serviceInterface.getName());
+    }
+
     public static String extraFilterMethod(
         MethodSignature ms,
         Class filterInterface,
@@ -76,4 +86,42 @@ final class PipelineMessages
             interfaceType.getName(),
             serviceId);
     }
-}
\ No newline at end of file
+
+    public static String reconfigurableNotSingleton(String serviceId, String serviceModel)
+    {
+        return _formatter.format("reconfigurable-not-singleton", serviceId, serviceModel);
+    }
+
+    public static String unableToInstantiate(Class instanceClass, String serviceId,
+            Throwable cause)
+    {
+        return _formatter.format(
+            "unable-to-instantiate",
+            instanceClass.getName(),
+            serviceId,
+            cause.getMessage());
+    }
+
+    public static String unknownFilter(String name, String serviceId)
+    {
+        return _formatter.format("unknown-filter", name, serviceId);
+    }
+
+    public static String fanOutDescription(String serviceId, Class serviceInterface)
+    {
+        return _formatter.format("fan-out-description", serviceId, serviceInterface.getName());
+    }
+
+    public static String branchTimeout(Object branch, String serviceId, Method method, long timeout)
+    {
+        return _formatter.format("branch-timeout", new Object[] { branch, serviceId,
+                method.getName(), new Long(timeout) });
+    }
+
+    public static String branchFailure(Object branch, String serviceId, Method method,
+            Throwable cause)
+    {
+        return _formatter.format("branch-failure", new Object[] { branch, serviceId,
+                method.getName(), cause.getMessage() });
+    }
+}
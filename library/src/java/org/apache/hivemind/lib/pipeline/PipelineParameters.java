@@ -26,6 +26,8 @@ public class PipelineParameters extends BaseLocatable
     private Class _filterInterface;
     private Object _terminator;
     private List _pipelineConfiguration;
+    private boolean _flatten;
+    private boolean _reconfigurable;
 
     public Class getFilterInterface()
     {
@@ -57,4 +59,32 @@ public class PipelineParameters extends BaseLocatable
         _pipelineConfiguration = list;
     }
 
+    /**
+     * If true, the pipeline is flattened: each stage uses a bridge class specialized
+     * for its filter's class.
+     */
+    public boolean getFlatten()
+    {
+        return _flatten;
+    }
+
+    public void setFlatten(boolean flatten)
+    {
+        _flatten = flatten;
+    }
+
+    /**
+     * If true, the pipeline's filters may be enabled, disabled or re-ordered at runtime
+     * (see {@link PipelineControl}).
+     */
+    public boolean getReconfigurable()
+    {
+        return _reconfigurable;
+    }
+
+    public void setReconfigurable(boolean reconfigurable)
+    {
+        _reconfigurable = reconfigurable;
+    }
+
 }
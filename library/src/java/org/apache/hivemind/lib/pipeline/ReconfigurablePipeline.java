@@ -0,0 +1,199 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.util.StringUtils;
+
+/**
+ * The filter chain of a reconfigurable pipeline. The service implementation (created by the
+ * {@link PipelineAssembler}) obtains the current chain, from {@link #getChain()}, on each
+ * invocation; reading the chain requires no locking. Changes (made through the
+ * {@link PipelineControl} interface) are serialized, and each assembles a complete new chain
+ * before replacing the current one, so an invocation never sees a partially assembled chain.
+ *
+ * @author Howard Lewis Ship
+ */
+public final class ReconfigurablePipeline implements PipelineControl
+{
+    private final PipelineAssembler _assembler;
+    private final String _serviceId;
+
+    /**
+     * {@link FilterHolder} for every filter (enabled or not), in the pipeline's original order.
+     */
+    private final List _filters;
+
+    private final Set _disabled = new HashSet();
+
+    private volatile Object _chain;
+
+    private volatile List _filterNames;
+
+    ReconfigurablePipeline(PipelineAssembler assembler, String serviceId, List filterHolders)
+    {
+        _assembler = assembler;
+        _serviceId = serviceId;
+        _filters = new ArrayList(filterHolders);
+
+        install(filterHolders);
+    }
+
+    /**
+     * Returns the current chain: the first filter's bridge, or the terminator if no filters
+     * are enabled.
+     */
+    public Object getChain()
+    {
+        return _chain;
+    }
+
+    public String getServiceId()
+    {
+        return _serviceId;
+    }
+
+    public List getFilterNames()
+    {
+        return _filterNames;
+    }
+
+    public synchronized boolean isFilterEnabled(String name)
+    {
+        findFilter(name);
+
+        return !_disabled.contains(name);
+    }
+
+    public synchronized void enableFilter(String name)
+    {
+        findFilter(name);
+
+        if (_disabled.remove(name))
+            rebuild();
+    }
+
+    public synchronized void disableFilter(String name)
+    {
+        findFilter(name);
+
+        if (_disabled.add(name))
+            rebuild();
+    }
+
+    public synchronized void orderFilter(String name, String before, String after)
+    {
+        int index = findFilter(name);
+        FilterHolder h = (FilterHolder) _filters.get(index);
+
+        _filters.set(index, new FilterHolder(h.getFilter(), h.getLocation(), name, after, before));
+
+        rebuild();
+    }
+
+    private int findFilter(String name)
+    {
+        int count = _filters.size();
+
+        for (int i = 0; i < count; i++)
+        {
+            FilterHolder h = (FilterHolder) _filters.get(i);
+
+            if (h.getName().equals(name))
+                return i;
+        }
+
+        throw new ApplicationRuntimeException(PipelineMessages.unknownFilter(name, _serviceId));
+    }
+
+    /**
+     * Orders the enabled filters, and assembles and installs a new chain.
+     */
+    private void rebuild()
+    {
+        Set enabled = new HashSet();
+        int count = _filters.size();
+
+        for (int i = 0; i < count; i++)
+        {
+            String name = ((FilterHolder) _filters.get(i)).getName();
+
+            if (!_disabled.contains(name))
+                enabled.add(name);
+        }
+
+        List holders = new ArrayList(enabled.size());
+
+        for (int i = 0; i < count; i++)
+        {
+            FilterHolder h = (FilterHolder) _filters.get(i);
+
+            if (!enabled.contains(h.getName()))
+                continue;
+
+            holders.add(new FilterHolder(h.getFilter(), h.getLocation(), h.getName(), retain(
+                h.getPrereqs(),
+                enabled), retain(h.getPostreqs(), enabled)));
+        }
+
+        install(_assembler.orderFilters(holders));
+    }
+
+    /**
+     * Assembles a chain from the ordered filters, and makes it the current chain.
+     */
+    private void install(List filterHolders)
+    {
+        Object chain = _assembler.createChain(filterHolders);
+
+        int count = filterHolders.size();
+        List names = new ArrayList(count);
+
+        for (int i = 0; i < count; i++)
+            names.add(((FilterHolder) filterHolders.get(i)).getName());
+
+        _filterNames = Collections.unmodifiableList(names);
+        _chain = chain;
+    }
+
+    /**
+     * Removes, from a list of filter names, any filter that is not enabled (or does not exist).
+     */
+    private String retain(String names, Set enabled)
+    {
+        if (names == null || names.equals("*"))
+            return names;
+
+        String[] split = StringUtils.split(names);
+        List result = new ArrayList(split.length);
+
+        for (int i = 0; i < split.length; i++)
+        {
+            if (enabled.contains(split[i]))
+                result.add(split[i]);
+        }
+
+        if (result.isEmpty())
+            return null;
+
+        return StringUtils.join((String[]) result.toArray(new String[result.size()]), ',');
+    }
+}
@@ -0,0 +1,39 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.bulkhead;
+
+/**
+ * Service interface used to test the {@link BulkheadInterceptorFactory}.
+ *
+ * @author Howard Lewis Ship
+ */
+public interface Gate
+{
+    /**
+     * Waits until the gate is open.
+     */
+    public String pass(String name);
+
+    public void fail();
+
+    public void open();
+
+    public void close();
+
+    /**
+     * Waits until the given number of invocations of {@link #pass(String)} have started.
+     */
+    public void waitForCount(int count);
+}
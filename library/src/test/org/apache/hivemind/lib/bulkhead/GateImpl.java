@@ -0,0 +1,75 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.bulkhead;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+
+/**
+ * Implementation of {@link Gate}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class GateImpl implements Gate
+{
+    private boolean _open = true;
+    private int _count;
+
+    public synchronized String pass(String name)
+    {
+        _count++;
+
+        notifyAll();
+
+        while (!_open)
+            waitForChange();
+
+        return name;
+    }
+
+    public void fail()
+    {
+        throw new ApplicationRuntimeException("Gate failure.");
+    }
+
+    public synchronized void open()
+    {
+        _open = true;
+
+        notifyAll();
+    }
+
+    public synchronized void close()
+    {
+        _open = false;
+    }
+
+    public synchronized void waitForCount(int count)
+    {
+        while (_count < count)
+            waitForChange();
+    }
+
+    private void waitForChange()
+    {
+        try
+        {
+            wait();
+        }
+        catch (InterruptedException ex)
+        {
+            throw new ApplicationRuntimeException(ex);
+        }
+    }
+}
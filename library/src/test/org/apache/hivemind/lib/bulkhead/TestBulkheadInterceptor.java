@@ -0,0 +1,283 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.bulkhead;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.lib.BulkheadMonitor;
+import org.apache.hivemind.lib.BulkheadSaturatedException;
+import org.apache.hivemind.test.HiveMindTestCase;
+
+/**
+ * Tests for {@link org.apache.hivemind.lib.bulkhead.BulkheadInterceptorFactory} and
+ * {@link org.apache.hivemind.lib.bulkhead.Bulkhead}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestBulkheadInterceptor extends HiveMindTestCase
+{
+    private Registry _registry;
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        _registry = null;
+    }
+
+    private Gate getGate(String name) throws Exception
+    {
+        if (_registry == null)
+            _registry = buildFrameworkRegistry("Bulkhead.xml");
+
+        return (Gate) _registry.getService("hivemind.lib.test." + name, Gate.class);
+    }
+
+    private BulkheadStatistics getStatistics(String serviceName)
+    {
+        BulkheadMonitor monitor = (BulkheadMonitor) _registry.getService(
+            "hivemind.lib.BulkheadMonitor",
+            BulkheadMonitor.class);
+
+        List statistics = monitor.getStatistics();
+
+        for (int i = 0; i < statistics.size(); i++)
+        {
+            BulkheadStatistics bs = (BulkheadStatistics) statistics.get(i);
+
+            if (bs.getServiceId().equals("hivemind.lib.test." + serviceName)
+                    && bs.getMethodName().equals("pass(java.lang.String)"))
+                return bs;
+        }
+
+        return null;
+    }
+
+    private Thread pass(final Gate gate, final String name, final List results)
+    {
+        Thread result = new Thread()
+        {
+            public void run()
+            {
+                try
+                {
+                    gate.pass(name);
+
+                    synchronized (results)
+                    {
+                        results.add(name);
+                    }
+                }
+                catch (RuntimeException ex)
+                {
+                    synchronized (results)
+                    {
+                        results.add(ex);
+                    }
+                }
+            }
+        };
+
+        result.start();
+
+        return result;
+    }
+
+    private void assertSaturated(Gate gate)
+    {
+        try
+        {
+            gate.pass("rejected");
+            unreachable();
+        }
+        catch (BulkheadSaturatedException ex)
+        {
+            assertEquals("pass(java.lang.String)", ex.getMethodName());
+        }
+    }
+
+    public void testFailFast() throws Exception
+    {
+        Gate gate = getGate("FailFast");
+        List results = new ArrayList();
+
+        gate.close();
+
+        Thread t = pass(gate, "first", results);
+
+        gate.waitForCount(1);
+
+        try
+        {
+            gate.pass("second");
+            unreachable();
+        }
+        catch (BulkheadSaturatedException ex)
+        {
+            assertEquals(
+                "Method pass(java.lang.String) of service hivemind.lib.test.FailFast is saturated: 1 invocations are in progress and 0 are waiting.",
+                ex.getMessage());
+            assertEquals("hivemind.lib.test.FailFast", ex.getServiceId());
+            assertEquals("pass(java.lang.String)", ex.getMethodName());
+            assertNotNull(ex.getLocation());
+        }
+
+        BulkheadStatistics bs = getStatistics("FailFast");
+
+        assertEquals(1, bs.getActiveCount());
+        assertEquals(1, bs.getRejectedCount());
+
+        gate.open();
+        t.join();
+
+        assertEquals("third", gate.pass("third"));
+
+        assertEquals(0, getStatistics("FailFast").getActiveCount());
+    }
+
+    /**
+     * An invocation that throws an exception still releases the bulkhead.
+     */
+    public void testFailureReleases() throws Exception
+    {
+        Gate gate = getGate("FailFast");
+
+        for (int i = 0; i < 2; i++)
+        {
+            try
+            {
+                gate.fail();
+                unreachable();
+            }
+            catch (ApplicationRuntimeException ex)
+            {
+                assertEquals("Gate failure.", ex.getMessage());
+            }
+        }
+    }
+
+    public void testQueued() throws Exception
+    {
+        Gate gate = getGate("Queued");
+        List results = new ArrayList();
+
+        gate.close();
+
+        Thread first = pass(gate, "first", results);
+
+        gate.waitForCount(1);
+
+        Thread second = pass(gate, "second", results);
+
+        // Wait for the second invocation to be queued.
+
+        while (getStatistics("Queued").getWaitingCount() == 0)
+            Thread.sleep(10);
+
+        // The queue is full.
+
+        assertSaturated(gate);
+
+        gate.open();
+
+        first.join();
+        second.join();
+
+        assertListsEqual(new Object[] { "first", "second" }, results);
+
+        BulkheadStatistics bs = getStatistics("Queued");
+
+        assertEquals(0, bs.getActiveCount());
+        assertEquals(0, bs.getWaitingCount());
+        assertEquals(1, bs.getPeakWaitingCount());
+        assertEquals(1, bs.getRejectedCount());
+    }
+
+    /**
+     * A waiting invocation that is interrupted fails, leaving the thread's interrupt flag set.
+     */
+    public void testInterruptedWaiter() throws Exception
+    {
+        Gate gate = getGate("Queued");
+        List results = new ArrayList();
+
+        gate.close();
+
+        Thread first = pass(gate, "first", results);
+
+        gate.waitForCount(1);
+
+        final Gate waitingGate = gate;
+        final boolean[] interrupted = new boolean[1];
+
+        Thread second = new Thread()
+        {
+            public void run()
+            {
+                try
+                {
+                    waitingGate.pass("second");
+                }
+                catch (ApplicationRuntimeException ex)
+                {
+                    interrupted[0] = Thread.currentThread().isInterrupted();
+                }
+            }
+        };
+
+        second.start();
+
+        while (getStatistics("Queued").getWaitingCount() == 0)
+            Thread.sleep(10);
+
+        second.interrupt();
+        second.join();
+
+        assertTrue(interrupted[0]);
+        assertEquals(0, getStatistics("Queued").getWaitingCount());
+
+        gate.open();
+        first.join();
+
+        assertEquals("third", gate.pass("third"));
+        assertEquals(0, getStatistics("Queued").getActiveCount());
+    }
+
+    public void testWaitTimeout() throws Exception
+    {
+        Gate gate = getGate("Timeout");
+        List results = new ArrayList();
+
+        gate.close();
+
+        Thread first = pass(gate, "first", results);
+
+        gate.waitForCount(1);
+
+        long start = System.currentTimeMillis();
+
+        assertSaturated(gate);
+
+        assertTrue(System.currentTimeMillis() - start >= 90);
+
+        gate.open();
+        first.join();
+
+        assertEquals("second", gate.pass("second"));
+    }
+}
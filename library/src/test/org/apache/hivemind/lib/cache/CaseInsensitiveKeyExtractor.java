@@ -0,0 +1,33 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.cache;
+
+import java.lang.reflect.Method;
+
+/**
+ * {@link KeyExtractor} used in tests; ignores the case of the (single, string) argument. Returns
+ * null (i.e., don't cache) for the empty string.
+ *
+ * @author Howard Lewis Ship
+ */
+public class CaseInsensitiveKeyExtractor implements KeyExtractor
+{
+    public Object extractKey(Method method, Object[] arguments)
+    {
+        String key = (String) arguments[0];
+
+        return key.length() == 0 ? null : key.toLowerCase();
+    }
+}
@@ -0,0 +1,40 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.cache;
+
+/**
+ * Service interface used to test the {@link CachingInterceptorFactory}.
+ *
+ * @author Howard Lewis Ship
+ */
+public interface Lookup
+{
+    public String lookup(String key);
+
+    public int square(int value);
+
+    public String missing(String key);
+
+    public String fail(String key);
+
+    public int sum(int[] values);
+
+    public void touch();
+
+    /**
+     * The number of times a method of the implementation was invoked.
+     */
+    public int getCount();
+}
@@ -0,0 +1,109 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.cache;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+
+/**
+ * Implementation of {@link Lookup}. The lookup method may be blocked (until released) to test
+ * concurrent invocations.
+ *
+ * @author Howard Lewis Ship
+ */
+public class LookupImpl implements Lookup
+{
+    private int _count;
+    private boolean _blocked;
+
+    public synchronized String lookup(String key)
+    {
+        _count++;
+
+        notifyAll();
+
+        while (_blocked)
+        {
+            try
+            {
+                wait();
+            }
+            catch (InterruptedException ex)
+            {
+                throw new ApplicationRuntimeException(ex);
+            }
+        }
+
+        return key.toUpperCase();
+    }
+
+    public synchronized int square(int value)
+    {
+        _count++;
+
+        return value * value;
+    }
+
+    public synchronized String missing(String key)
+    {
+        _count++;
+
+        return null;
+    }
+
+    public synchronized String fail(String key)
+    {
+        _count++;
+
+        throw new ApplicationRuntimeException("Failure for " + key + ".");
+    }
+
+    public synchronized int sum(int[] values)
+    {
+        _count++;
+
+        int result = 0;
+
+        for (int i = 0; i < values.length; i++)
+            result += values[i];
+
+        return result;
+    }
+
+    public synchronized void touch()
+    {
+        _count++;
+    }
+
+    public synchronized int getCount()
+    {
+        return _count;
+    }
+
+    public synchronized void setBlocked(boolean blocked)
+    {
+        _blocked = blocked;
+
+        notifyAll();
+    }
+
+    /**
+     * Waits until the count reaches the value.
+     */
+    public synchronized void waitForCount(int count) throws InterruptedException
+    {
+        while (_count < count)
+            wait();
+    }
+}
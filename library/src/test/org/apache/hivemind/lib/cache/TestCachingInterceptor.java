@@ -0,0 +1,338 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.cache;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.lib.CacheManager;
+import org.apache.hivemind.test.HiveMindTestCase;
+
+/**
+ * Tests for {@link org.apache.hivemind.lib.cache.CachingInterceptorFactory} and
+ * {@link org.apache.hivemind.lib.cache.MethodCache}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestCachingInterceptor extends HiveMindTestCase
+{
+    private Registry _registry;
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        _registry = null;
+    }
+
+    private Lookup getLookup(String name) throws Exception
+    {
+        if (_registry == null)
+            _registry = buildFrameworkRegistry("Caching.xml");
+
+        return (Lookup) _registry.getService("hivemind.lib.test." + name, Lookup.class);
+    }
+
+    private CacheStatistics getStatistics(String serviceName, String methodName)
+    {
+        CacheManager cm = (CacheManager) _registry.getService(
+            "hivemind.lib.CacheManager",
+            CacheManager.class);
+
+        List statistics = cm.getStatistics();
+
+        for (int i = 0; i < statistics.size(); i++)
+        {
+            CacheStatistics cs = (CacheStatistics) statistics.get(i);
+
+            if (cs.getServiceId().equals("hivemind.lib.test." + serviceName)
+                    && cs.getMethodName().equals(methodName))
+                return cs;
+        }
+
+        return null;
+    }
+
+    public void testCaching() throws Exception
+    {
+        Lookup l = getLookup("Lookup");
+
+        assertEquals("FRED", l.lookup("fred"));
+        assertEquals("FRED", l.lookup("fred"));
+        assertEquals("BARNEY", l.lookup("barney"));
+
+        assertEquals(2, l.getCount());
+
+        assertEquals(9, l.square(3));
+        assertEquals(9, l.square(3));
+
+        assertNull(l.missing("wilma"));
+        assertNull(l.missing("wilma"));
+
+        assertEquals(6, l.sum(new int[] { 1, 2, 3 }));
+        assertEquals(6, l.sum(new int[] { 1, 2, 3 }));
+        assertEquals(5, l.sum(new int[] { 2, 3 }));
+
+        assertEquals(6, l.getCount());
+
+        CacheStatistics cs = getStatistics("Lookup", "lookup(java.lang.String)");
+
+        assertEquals(2, cs.getSize());
+        assertEquals(1, cs.getHitCount());
+        assertEquals(2, cs.getMissCount());
+
+        cs = getStatistics("Lookup", "sum(int[])");
+
+        assertEquals(1, cs.getHitCount());
+        assertEquals(2, cs.getMissCount());
+
+        // getCount() is not cached, so it doesn't have statistics.
+
+        assertNull(getStatistics("Lookup", "getCount()"));
+    }
+
+    public void testArrayArgumentChanged() throws Exception
+    {
+        Lookup l = getLookup("Lookup");
+
+        int[] values = { 1, 2, 3 };
+
+        assertEquals(6, l.sum(values));
+
+        // The key is a copy; changing the array doesn't change the cached entry.
+
+        values[0] = 4;
+
+        assertEquals(9, l.sum(values));
+        assertEquals(6, l.sum(new int[] { 1, 2, 3 }));
+
+        assertEquals(2, l.getCount());
+    }
+
+    public void testFailuresNotCached() throws Exception
+    {
+        Lookup l = getLookup("Lookup");
+
+        for (int i = 0; i < 2; i++)
+        {
+            try
+            {
+                l.fail("betty");
+                unreachable();
+            }
+            catch (ApplicationRuntimeException ex)
+            {
+                assertEquals("Failure for betty.", ex.getMessage());
+            }
+        }
+
+        assertEquals(2, l.getCount());
+    }
+
+    public void testInvalidate() throws Exception
+    {
+        Lookup l = getLookup("Lookup");
+
+        l.lookup("fred");
+        l.square(4);
+
+        CacheManager cm = (CacheManager) _registry.getService(
+            "hivemind.lib.CacheManager",
+            CacheManager.class);
+
+        cm.invalidate("hivemind.lib.test.LruLookup");
+
+        l.lookup("fred");
+        l.square(4);
+
+        assertEquals(2, l.getCount());
+
+        cm.invalidate("hivemind.lib.test.Lookup");
+
+        l.lookup("fred");
+        l.square(4);
+
+        assertEquals(4, l.getCount());
+
+        cm.invalidate(null);
+
+        l.lookup("fred");
+
+        assertEquals(5, l.getCount());
+    }
+
+    public void testLeastRecentlyUsed() throws Exception
+    {
+        Lookup l = getLookup("LruLookup");
+
+        l.lookup("a");
+        l.lookup("b");
+        l.lookup("a");
+
+        // Evicts b.
+
+        l.lookup("c");
+
+        assertEquals(3, l.getCount());
+
+        l.lookup("a");
+
+        assertEquals(3, l.getCount());
+
+        l.lookup("b");
+
+        assertEquals(4, l.getCount());
+
+        assertEquals(2, getStatistics("LruLookup", "lookup(java.lang.String)").getEvictionCount());
+    }
+
+    public void testLeastFrequentlyUsed() throws Exception
+    {
+        Lookup l = getLookup("LfuLookup");
+
+        l.lookup("a");
+        l.lookup("b");
+        l.lookup("b");
+        l.lookup("b");
+        l.lookup("a");
+
+        // a is more recently used, but b is more frequently used; evicts a.
+
+        l.lookup("c");
+
+        l.lookup("b");
+
+        assertEquals(3, l.getCount());
+
+        l.lookup("a");
+
+        assertEquals(4, l.getCount());
+    }
+
+    public void testTimeToLive() throws Exception
+    {
+        Lookup l = getLookup("ExpiringLookup");
+
+        l.lookup("a");
+        l.lookup("a");
+
+        assertEquals(1, l.getCount());
+
+        Thread.sleep(100);
+
+        l.lookup("a");
+
+        assertEquals(2, l.getCount());
+    }
+
+    public void testKeyExtractor() throws Exception
+    {
+        Lookup l = getLookup("CaseInsensitiveLookup");
+
+        assertEquals("FRED", l.lookup("fred"));
+        assertEquals("FRED", l.lookup("Fred"));
+
+        assertEquals(1, l.getCount());
+
+        // A null key is not cached.
+
+        assertEquals("", l.lookup(""));
+        assertEquals("", l.lookup(""));
+
+        assertEquals(3, l.getCount());
+
+        CacheStatistics cs = getStatistics("CaseInsensitiveLookup", "lookup(java.lang.String)");
+
+        assertEquals(1, cs.getHitCount());
+        assertEquals(3, cs.getMissCount());
+        assertEquals(1, cs.getSize());
+    }
+
+    public void testConcurrentMissesCoalesced() throws Exception
+    {
+        final LookupImpl core = new LookupImpl();
+        Method method = Lookup.class.getMethod("lookup", new Class[] { String.class });
+
+        final MethodCache cache = new MethodCache("foo.Lookup", "lookup(java.lang.String)",
+                method, new CacheParameter(), true);
+
+        final Object[] results = new Object[5];
+        Thread[] threads = new Thread[results.length];
+
+        for (int i = 0; i < threads.length; i++)
+        {
+            final int index = i;
+
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        results[index] = cache.invoke(core, new Object[] { "fred" });
+                    }
+                    catch (Throwable t)
+                    {
+                        results[index] = t;
+                    }
+                }
+            };
+        }
+
+        core.setBlocked(true);
+
+        threads[0].start();
+
+        core.waitForCount(1);
+
+        // The remaining threads wait for the first thread's result.
+
+        for (int i = 1; i < threads.length; i++)
+            threads[i].start();
+
+        Thread.sleep(100);
+
+        core.setBlocked(false);
+
+        for (int i = 0; i < threads.length; i++)
+            threads[i].join();
+
+        for (int i = 0; i < results.length; i++)
+            assertEquals("FRED", results[i]);
+
+        assertEquals(1, core.getCount());
+
+        CacheStatistics cs = cache.getStatistics();
+
+        assertEquals(4, cs.getHitCount());
+        assertEquals(1, cs.getMissCount());
+    }
+
+    public void testVoidMethodNotCached() throws Exception
+    {
+        interceptLogging("hivemind.lib.test.VoidLookup");
+
+        Lookup l = getLookup("VoidLookup");
+
+        l.touch();
+        l.touch();
+
+        assertEquals(2, l.getCount());
+
+        assertLoggedMessagePattern("Method touch of service hivemind\\.lib\\.test\\.VoidLookup returns no value, and will not be cached\\.");
+    }
+}
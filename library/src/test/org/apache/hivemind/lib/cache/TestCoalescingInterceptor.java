@@ -0,0 +1,241 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.cache;
+
+import java.util.List;
+
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.lib.CacheManager;
+import org.apache.hivemind.test.HiveMindTestCase;
+
+/**
+ * Tests for the <code>hivemind.lib.CoalescingInterceptor</code> service (a
+ * {@link org.apache.hivemind.lib.cache.CachingInterceptorFactory} that does not retain results).
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestCoalescingInterceptor extends HiveMindTestCase
+{
+    private Registry _registry;
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        _registry = null;
+    }
+
+    private Lookup getLookup(String name) throws Exception
+    {
+        if (_registry == null)
+            _registry = buildFrameworkRegistry("Coalescing.xml");
+
+        return (Lookup) _registry.getService("hivemind.lib.test." + name, Lookup.class);
+    }
+
+    private CacheStatistics getStatistics(String serviceName, String methodName)
+    {
+        CacheManager cm = (CacheManager) _registry.getService(
+            "hivemind.lib.CacheManager",
+            CacheManager.class);
+
+        List statistics = cm.getStatistics();
+
+        for (int i = 0; i < statistics.size(); i++)
+        {
+            CacheStatistics cs = (CacheStatistics) statistics.get(i);
+
+            if (cs.getServiceId().equals("hivemind.lib.test." + serviceName)
+                    && cs.getMethodName().equals(methodName))
+                return cs;
+        }
+
+        return null;
+    }
+
+    /**
+     * Starts a thread for each key, each invoking <code>lookup()</code>. The first thread
+     * is blocked inside the service until the others have started. Returns the results.
+     */
+    private Object[] lookupConcurrently(final Lookup lookup, LookupImpl core, String[] keys)
+            throws Exception
+    {
+        final Object[] results = new Object[keys.length];
+        Thread[] threads = new Thread[keys.length];
+
+        for (int i = 0; i < threads.length; i++)
+        {
+            final int index = i;
+            final String key = keys[i];
+
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        results[index] = lookup.lookup(key);
+                    }
+                    catch (Throwable t)
+                    {
+                        results[index] = t;
+                    }
+                }
+            };
+        }
+
+        core.setBlocked(true);
+
+        threads[0].start();
+
+        core.waitForCount(1);
+
+        for (int i = 1; i < threads.length; i++)
+            threads[i].start();
+
+        Thread.sleep(100);
+
+        core.setBlocked(false);
+
+        for (int i = 0; i < threads.length; i++)
+            threads[i].join();
+
+        return results;
+    }
+
+    public void testResultsNotRetained() throws Exception
+    {
+        Lookup l = getLookup("Lookup");
+
+        assertEquals("FRED", l.lookup("fred"));
+        assertEquals("FRED", l.lookup("fred"));
+
+        assertEquals(2, l.getCount());
+
+        CacheStatistics cs = getStatistics("Lookup", "lookup(java.lang.String)");
+
+        assertEquals(0, cs.getHitCount());
+        assertEquals(2, cs.getMissCount());
+        assertEquals(0, cs.getSize());
+    }
+
+    /**
+     * Uses a {@link MethodCache} directly, so that the service implementation can be blocked.
+     */
+    public void testConcurrentInvocationsCoalesced() throws Exception
+    {
+        LookupImpl core = new LookupImpl();
+        MethodCache cache = new MethodCache("foo.Lookup", "lookup(java.lang.String)", Lookup.class
+                .getMethod("lookup", new Class[] { String.class }), new CacheParameter(), false);
+
+        Lookup lookup = new CoalescingLookup(core, cache);
+
+        Object[] results = lookupConcurrently(lookup, core, new String[] { "fred", "fred", "fred",
+                "barney" });
+
+        assertEquals("FRED", results[0]);
+        assertEquals("FRED", results[1]);
+        assertEquals("FRED", results[2]);
+        assertEquals("BARNEY", results[3]);
+
+        assertEquals(2, core.getCount());
+
+        // Once complete, the next invocation is not coalesced.
+
+        assertEquals("FRED", lookup.lookup("fred"));
+
+        assertEquals(3, core.getCount());
+
+        CacheStatistics cs = cache.getStatistics();
+
+        assertEquals(2, cs.getHitCount());
+        assertEquals(3, cs.getMissCount());
+        assertEquals(0, cs.getSize());
+    }
+
+    public void testKeyExtractor() throws Exception
+    {
+        LookupImpl core = new LookupImpl();
+        CacheParameter parameter = new CacheParameter();
+
+        parameter.setKeyExtractor(new CaseInsensitiveKeyExtractor());
+
+        MethodCache cache = new MethodCache("foo.Lookup", "lookup(java.lang.String)", Lookup.class
+                .getMethod("lookup", new Class[] { String.class }), parameter, false);
+
+        Lookup lookup = new CoalescingLookup(core, cache);
+
+        Object[] results = lookupConcurrently(lookup, core, new String[] { "fred", "Fred" });
+
+        // The second invocation shares the result of the first.
+
+        assertEquals("FRED", results[0]);
+        assertEquals("FRED", results[1]);
+
+        assertEquals(1, core.getCount());
+    }
+
+    public void testKeyExtractorConfigured() throws Exception
+    {
+        Lookup l = getLookup("CaseInsensitiveLookup");
+
+        assertEquals("FRED", l.lookup("Fred"));
+
+        assertEquals(1, l.getCount());
+    }
+
+    public void testVoidMethodCoalesced() throws Exception
+    {
+        Lookup l = getLookup("Lookup");
+
+        l.touch();
+        l.touch();
+
+        assertEquals(2, l.getCount());
+
+        // Unlike the caching interceptor, void methods are accepted.
+
+        CacheStatistics cs = getStatistics("Lookup", "touch()");
+
+        assertEquals(2, cs.getMissCount());
+    }
+
+    /**
+     * Stands in for the generated interceptor.
+     */
+    private static class CoalescingLookup extends LookupImpl
+    {
+        private final Lookup _inner;
+        private final MethodCache _cache;
+
+        CoalescingLookup(Lookup inner, MethodCache cache)
+        {
+            _inner = inner;
+            _cache = cache;
+        }
+
+        public String lookup(String key)
+        {
+            try
+            {
+                return (String) _cache.invoke(_inner, new Object[] { key });
+            }
+            catch (Throwable t)
+            {
+                throw new RuntimeException(t.getMessage());
+            }
+        }
+    }
+}
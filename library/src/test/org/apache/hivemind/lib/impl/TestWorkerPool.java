@@ -0,0 +1,160 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.impl;
+
+import org.apache.commons.logging.LogFactory;
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.service.impl.ThreadEventNotifierImpl;
+import org.apache.hivemind.test.HiveMindTestCase;
+
+/**
+ * Tests for {@link org.apache.hivemind.lib.impl.WorkerPoolImpl}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestWorkerPool extends HiveMindTestCase
+{
+    /**
+     * A task that blocks until released.
+     */
+    private static class GateTask implements Runnable
+    {
+        private boolean _started;
+        private boolean _released;
+        private boolean _done;
+
+        public synchronized void run()
+        {
+            _started = true;
+
+            notifyAll();
+
+            try
+            {
+                while (!_released)
+                    wait();
+            }
+            catch (InterruptedException ex)
+            {
+                // Ignore
+            }
+
+            _done = true;
+
+            notifyAll();
+        }
+
+        synchronized void release()
+        {
+            _released = true;
+
+            notifyAll();
+        }
+
+        synchronized void waitForStart() throws InterruptedException
+        {
+            while (!_started)
+                wait();
+        }
+
+        synchronized void waitForDone() throws InterruptedException
+        {
+            while (!_done)
+                wait();
+        }
+    }
+
+    private WorkerPoolImpl newPool(int maxThreads, int maxQueueSize)
+    {
+        WorkerPoolImpl result = new WorkerPoolImpl();
+
+        result.setLog(LogFactory.getLog(TestWorkerPool.class));
+        result.setThreadEventNotifier(new ThreadEventNotifierImpl());
+        result.setMaxThreads(maxThreads);
+        result.setMaxQueueSize(maxQueueSize);
+
+        return result;
+    }
+
+    public void testSaturated() throws Exception
+    {
+        WorkerPoolImpl pool = newPool(1, 1);
+
+        GateTask running = new GateTask();
+        GateTask queued = new GateTask();
+
+        pool.execute(running);
+        running.waitForStart();
+
+        pool.execute(queued);
+
+        try
+        {
+            pool.execute(new GateTask());
+            unreachable();
+        }
+        catch (ApplicationRuntimeException ex)
+        {
+            assertEquals("The worker pool is saturated: all 1 threads are busy and 1 tasks are "
+                    + "waiting. The task has been rejected.", ex.getMessage());
+        }
+
+        running.release();
+        queued.release();
+
+        queued.waitForDone();
+
+        pool.registryDidShutdown();
+    }
+
+    /**
+     * A task submitted by a worker thread, when no other thread is available, is run by
+     * the worker thread (rather than queued, where it would never run).
+     */
+    public void testNestedTask() throws Exception
+    {
+        final WorkerPoolImpl pool = newPool(1, 1);
+
+        final GateTask nested = new GateTask();
+        nested.release();
+
+        GateTask outer = new GateTask()
+        {
+            public void run()
+            {
+                pool.execute(nested);
+
+                try
+                {
+                    nested.waitForDone();
+                }
+                catch (InterruptedException ex)
+                {
+                    // Ignore
+                }
+
+                super.run();
+            }
+        };
+
+        outer.release();
+
+        pool.execute(outer);
+
+        outer.waitForDone();
+
+        pool.registryDidShutdown();
+    }
+}
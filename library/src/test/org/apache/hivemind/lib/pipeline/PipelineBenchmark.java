@@ -0,0 +1,241 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.pipeline;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+
+import org.apache.commons.logging.LogFactory;
+import org.apache.hivemind.impl.DefaultClassResolver;
+import org.apache.hivemind.impl.DefaultErrorHandler;
+import org.apache.hivemind.impl.ModuleImpl;
+import org.apache.hivemind.lib.impl.DefaultImplementationBuilderImpl;
+import org.apache.hivemind.service.ClassFactory;
+import org.apache.hivemind.service.impl.ClassFactoryImpl;
+
+/**
+ * Compares the throughput of pipelines of 1, 5 and 20 filters, assembled with a single shared
+ * bridge class, and flattened (with a bridge class specialized for each filter class). The
+ * filters are instances of several different classes, as in a typical pipeline.
+ *
+ * <p>
+ * This is not a unit test; run it with <code>main()</code>. An optional
+ * argument is the duration of each pass, in milliseconds. Each pipeline is measured in a
+ * separate JVM, from its own call site.
+ *
+ * @author Howard Lewis Ship
+ */
+public class PipelineBenchmark
+{
+    private static final int[] DEPTHS = { 1, 5, 20 };
+
+    public static class AddFilter implements StandardFilter
+    {
+        public int run(int i, StandardService service)
+        {
+            return service.run(i + 1);
+        }
+    }
+
+    public static class SubtractFilter implements StandardFilter
+    {
+        public int run(int i, StandardService service)
+        {
+            return service.run(i) - 1;
+        }
+    }
+
+    public static class ShiftFilter implements StandardFilter
+    {
+        public int run(int i, StandardService service)
+        {
+            return service.run(i << 1) >> 1;
+        }
+    }
+
+    public static class XorFilter implements StandardFilter
+    {
+        public int run(int i, StandardService service)
+        {
+            return service.run(i ^ 5) ^ 5;
+        }
+    }
+
+    private static final Class[] FILTER_CLASSES = { AddFilter.class, SubtractFilter.class,
+            ShiftFilter.class, XorFilter.class };
+
+    private static StandardService buildPipeline(int depth, boolean flatten) throws Exception
+    {
+        ClassFactory cf = new ClassFactoryImpl();
+        DefaultImplementationBuilderImpl dib = new DefaultImplementationBuilderImpl();
+
+        dib.setClassFactory(cf);
+
+        ModuleImpl module = new ModuleImpl();
+        module.setClassResolver(new DefaultClassResolver());
+
+        PipelineAssembler pa = new PipelineAssembler(LogFactory.getLog(PipelineBenchmark.class),
+                new DefaultErrorHandler(), "benchmark.Pipeline", StandardService.class,
+                StandardFilter.class, cf, dib, module);
+
+        pa.setFlatten(flatten);
+        pa.setTerminator(new StandardServiceImpl(), null);
+
+        String previous = null;
+
+        for (int i = 0; i < depth; i++)
+        {
+            String name = "filter" + i;
+            Object filter = FILTER_CLASSES[i % FILTER_CLASSES.length].newInstance();
+
+            pa.addFilter(name, previous, null, filter, null);
+
+            previous = name;
+        }
+
+        return (StandardService) pa.createPipeline();
+    }
+
+    /**
+     * Invokes each of the pipelines, without measuring. This is a separate method from
+     * {@link #run(StandardService, long)}, so that its call site (which sees every pipeline)
+     * does not affect the one being measured.
+     */
+    private static void warmUp(StandardService[] pipelines, long duration)
+    {
+        int sink = 0;
+
+        for (int i = 0; i < pipelines.length; i++)
+        {
+            long end = System.currentTimeMillis() + duration;
+
+            while (System.currentTimeMillis() < end)
+            {
+                for (int j = 0; j < 1000; j++)
+                    sink += pipelines[i].run(j);
+            }
+        }
+
+        if (sink == 42)
+            System.out.print("");
+    }
+
+    /**
+     * Returns invocations per second.
+     */
+    private static long run(StandardService pipeline, long duration)
+    {
+        long count = 0;
+        int sink = 0;
+        long end = System.currentTimeMillis() + duration;
+
+        while (System.currentTimeMillis() < end)
+        {
+            for (int i = 0; i < 1000; i++)
+                sink += pipeline.run(i);
+
+            count += 1000;
+        }
+
+        // Keep the JIT from discarding the invocations.
+
+        if (sink == 42)
+            System.out.print("");
+
+        return count * 1000 / duration;
+    }
+
+    /**
+     * Measures a single pipeline, and prints the invocations per second. Every pipeline of
+     * the same kind is built and warmed up first, so that a shared bridge class sees every
+     * filter class (as it would in an application with several pipelines).
+     */
+    private static void measure(long duration, int depth, boolean flatten) throws Exception
+    {
+        StandardService[] pipelines = new StandardService[DEPTHS.length];
+        StandardService measured = null;
+
+        for (int i = 0; i < DEPTHS.length; i++)
+        {
+            pipelines[i] = buildPipeline(DEPTHS[i], flatten);
+
+            if (DEPTHS[i] == depth)
+                measured = pipelines[i];
+        }
+
+        warmUp(pipelines, duration / 4);
+
+        System.out.println(run(measured, duration));
+    }
+
+    /**
+     * Runs {@link #measure(long, int, boolean)} in a new JVM, so that the pipelines
+     * don't share the call site (or the JIT's profile) of any other measurement.
+     */
+    private static String fork(long duration, int depth, boolean flatten) throws Exception
+    {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator
+                + "java";
+
+        Process process = Runtime.getRuntime().exec(new String[]
+        { java, "-cp", System.getProperty("java.class.path"), PipelineBenchmark.class.getName(),
+                String.valueOf(duration), String.valueOf(depth), String.valueOf(flatten) });
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process
+                .getInputStream()));
+
+        String result = reader.readLine();
+
+        reader.close();
+        process.waitFor();
+
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        long duration = args.length == 0 ? 2000 : Long.parseLong(args[0]);
+
+        if (args.length == 3)
+        {
+            measure(duration, Integer.parseInt(args[1]), Boolean.valueOf(args[2])
+                    .booleanValue());
+            return;
+        }
+
+        System.out.println("filters      shared (calls/s)    flattened (calls/s)");
+
+        for (int i = 0; i < DEPTHS.length; i++)
+        {
+            String s = fork(duration, DEPTHS[i], false);
+            String f = fork(duration, DEPTHS[i], true);
+
+            System.out.println(pad(String.valueOf(DEPTHS[i]), 7) + pad(s, 22) + pad(f, 23));
+        }
+    }
+
+    private static String pad(String value, int width)
+    {
+        StringBuffer buffer = new StringBuffer();
+
+        for (int i = value.length(); i < width; i++)
+            buffer.append(' ');
+
+        buffer.append(value);
+
+        return buffer.toString();
+    }
+}
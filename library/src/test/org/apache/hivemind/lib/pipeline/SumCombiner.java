@@ -0,0 +1,42 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.pipeline;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Used with {@link org.apache.hivemind.lib.pipeline.TestFanOut}; sums the (integer) branch
+ * results, ignoring nulls.
+ *
+ * @author Howard Lewis Ship
+ */
+public class SumCombiner implements FanOutCombiner
+{
+    public Object combine(Method method, Object[] arguments, List results)
+    {
+        int result = 0;
+
+        for (int i = 0; i < results.size(); i++)
+        {
+            Integer value = (Integer) results.get(i);
+
+            if (value != null)
+                result += value.intValue();
+        }
+
+        return new Integer(result);
+    }
+}
@@ -0,0 +1,332 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.pipeline;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.ErrorHandler;
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.impl.DefaultClassResolver;
+import org.apache.hivemind.internal.Module;
+import org.apache.hivemind.lib.WorkerPool;
+import org.apache.hivemind.lib.impl.DefaultImplementationBuilderImpl;
+import org.apache.hivemind.service.ClassFactory;
+import org.apache.hivemind.service.impl.ClassFactoryImpl;
+import org.apache.hivemind.test.HiveMindTestCase;
+import org.easymock.MockControl;
+
+/**
+ * Tests for {@link org.apache.hivemind.lib.pipeline.FanOut} and its use as the terminator of
+ * a pipeline.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestFanOut extends HiveMindTestCase
+{
+    /**
+     * Runs each task in a new thread.
+     */
+    private static class ThreadWorkerPool implements WorkerPool
+    {
+        public void execute(Runnable task)
+        {
+            new Thread(task).start();
+        }
+    }
+
+    /**
+     * Records the results it combines.
+     */
+    private static class RecordingCombiner implements FanOutCombiner
+    {
+        private List _results;
+
+        public Object combine(Method method, Object[] arguments, List results)
+        {
+            _results = results;
+
+            return new Integer(results.size());
+        }
+    }
+
+    private FanOutBranch newBranch(Object service)
+    {
+        FanOutBranch result = new FanOutBranch();
+
+        result.setService(service);
+
+        return result;
+    }
+
+    private FanOut newFanOut(Object[] services, FanOutCombiner combiner, FanOutPolicy policy)
+    {
+        List branches = new ArrayList();
+
+        for (int i = 0; i < services.length; i++)
+            branches.add(newBranch(services[i]));
+
+        return new FanOut(LogFactory.getLog(TestFanOut.class), "foo.bar", branches, 0, combiner,
+                policy, new ThreadWorkerPool());
+    }
+
+    private Method getRunMethod() throws Exception
+    {
+        return StandardService.class.getMethod("run", new Class[] { int.class });
+    }
+
+    private Object[] toArguments(int i)
+    {
+        return new Object[] { new Integer(i) };
+    }
+
+    /**
+     * Each invocation is combined from fresh instances of the threaded ThreadCounter service;
+     * the worker threads are cleaned up after each branch.
+     */
+    public void testCombinedResults() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Pipeline.xml");
+
+        StandardService s = (StandardService) r.getService(
+            "hivemind.lib.test.FanOutPipeline",
+            StandardService.class);
+
+        // multiply(5 + 1 + 1)
+
+        assertEquals(14, s.run(5));
+        assertEquals(14, s.run(5));
+        assertEquals(14, s.run(5));
+    }
+
+    public void testPartialResults() throws Exception
+    {
+        interceptLogging("hivemind.lib.test.PartialFanOutPipeline");
+
+        Registry r = buildFrameworkRegistry("Pipeline.xml");
+
+        StandardService s = (StandardService) r.getService(
+            "hivemind.lib.test.PartialFanOutPipeline",
+            StandardService.class);
+
+        assertEquals(5, s.run(5));
+
+        List events = getInterceptedLogEvents();
+
+        assertLoggedMessage("Fan-out branch FailingService of pipeline service "
+                + "hivemind.lib.test.PartialFanOutPipeline failed in method run(): "
+                + "Failure.", events);
+        assertLoggedMessage("Fan-out branch SlowService of pipeline service "
+                + "hivemind.lib.test.PartialFanOutPipeline did not complete method run() "
+                + "within 50 milliseconds.", events);
+    }
+
+    public void testFailPolicy() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Pipeline.xml");
+
+        StandardService s = (StandardService) r.getService(
+            "hivemind.lib.test.FailingFanOutPipeline",
+            StandardService.class);
+
+        try
+        {
+            s.run(5);
+            unreachable();
+        }
+        catch (ApplicationRuntimeException ex)
+        {
+            assertEquals("Failure.", ex.getMessage());
+        }
+    }
+
+    public void testNullPolicy() throws Throwable
+    {
+        RecordingCombiner c = new RecordingCombiner();
+
+        FanOut fo = newFanOut(new Object[] { new StandardServiceImpl(), new FailingService(),
+                new StandardServiceImpl() }, c, FanOutPolicy.NULL);
+
+        assertEquals(new Integer(3), fo.invoke(getRunMethod(), toArguments(7)));
+
+        assertListsEqual(new Object[] { new Integer(7), null, new Integer(7) }, c._results);
+    }
+
+    public void testOmitPolicy() throws Throwable
+    {
+        RecordingCombiner c = new RecordingCombiner();
+
+        FanOut fo = newFanOut(new Object[] { new FailingService(), new StandardServiceImpl() }, c,
+                FanOutPolicy.OMIT);
+
+        assertEquals(new Integer(1), fo.invoke(getRunMethod(), toArguments(7)));
+
+        assertListsEqual(new Object[] { new Integer(7) }, c._results);
+    }
+
+    /**
+     * Blocks until interrupted.
+     */
+    private static class BlockingService implements StandardService
+    {
+        private boolean _interrupted;
+
+        public synchronized int run(int i)
+        {
+            try
+            {
+                while (true)
+                    wait();
+            }
+            catch (InterruptedException ex)
+            {
+                _interrupted = true;
+
+                notifyAll();
+            }
+
+            return i;
+        }
+
+        synchronized boolean waitForInterrupt(long timeout) throws InterruptedException
+        {
+            if (!_interrupted)
+                wait(timeout);
+
+            return _interrupted;
+        }
+    }
+
+    /**
+     * A branch that times out is interrupted, so that it releases its thread.
+     */
+    public void testTimedOutBranchInterrupted() throws Throwable
+    {
+        BlockingService blocking = new BlockingService();
+        RecordingCombiner c = new RecordingCombiner();
+
+        List branches = new ArrayList();
+
+        branches.add(newBranch(new StandardServiceImpl()));
+        branches.add(newBranch(blocking));
+
+        FanOut fo = new FanOut(LogFactory.getLog(TestFanOut.class), "foo.bar", branches, 50, c,
+                FanOutPolicy.OMIT, new ThreadWorkerPool());
+
+        assertEquals(new Integer(1), fo.invoke(getRunMethod(), toArguments(7)));
+
+        assertTrue(blocking.waitForInterrupt(5000));
+    }
+
+    /**
+     * A branch rejected by the worker pool is a failed branch.
+     */
+    public void testRejectedBranch() throws Throwable
+    {
+        List branches = new ArrayList();
+
+        branches.add(newBranch(new StandardServiceImpl()));
+
+        WorkerPool saturated = new WorkerPool()
+        {
+            public void execute(Runnable task)
+            {
+                throw new ApplicationRuntimeException("Saturated.");
+            }
+        };
+
+        FanOut fo = new FanOut(LogFactory.getLog(TestFanOut.class), "foo.bar", branches, 0,
+                new RecordingCombiner(), FanOutPolicy.FAIL, saturated);
+
+        try
+        {
+            fo.invoke(getRunMethod(), toArguments(7));
+            unreachable();
+        }
+        catch (ApplicationRuntimeException ex)
+        {
+            assertEquals("Saturated.", ex.getMessage());
+        }
+    }
+
+    public void testAllBranchesFail() throws Throwable
+    {
+        FanOut fo = newFanOut(new Object[] { new FailingService(), new FailingService() },
+                new RecordingCombiner(), FanOutPolicy.OMIT);
+
+        try
+        {
+            fo.invoke(getRunMethod(), toArguments(7));
+            unreachable();
+        }
+        catch (ApplicationRuntimeException ex)
+        {
+            assertEquals("Failure.", ex.getMessage());
+        }
+    }
+
+    public void testFanOutTerminator() throws Exception
+    {
+        ClassFactory cf = new ClassFactoryImpl();
+        DefaultImplementationBuilderImpl dib = new DefaultImplementationBuilderImpl();
+
+        dib.setClassFactory(cf);
+
+        MockControl control = newControl(Module.class);
+        Module module = (Module) control.getMock();
+
+        module.getClassResolver();
+        control.setReturnValue(new DefaultClassResolver(), MockControl.ZERO_OR_MORE);
+
+        PipelineAssembler pa =
+            new PipelineAssembler(
+                (Log) newMock(Log.class),
+                (ErrorHandler) newMock(ErrorHandler.class),
+                "foo.bar",
+                StandardService.class,
+                StandardFilter.class,
+                cf,
+                dib,
+                module);
+
+        replayControls();
+
+        FanOutContribution fc = new FanOutContribution();
+
+        fc.setCombiner(new SumCombiner());
+        fc.addBranch(newBranch(new StandardServiceImpl()));
+        fc.addBranch(newBranch(new StandardServiceImpl()));
+
+        pa.setWorkerPool(new ThreadWorkerPool());
+        pa.setFanOut(fc);
+        pa.addFilter("multiply", null, null, new StandardFilterImpl(), null);
+
+        StandardService s = (StandardService) pa.createPipeline();
+
+        assertEquals(20, s.run(5));
+
+        verifyControls();
+
+        Object terminator = pa.getTerminator();
+
+        assertEquals(
+            "<FanOut for service foo.bar(org.apache.hivemind.lib.pipeline.StandardService)>",
+            terminator.toString());
+    }
+}
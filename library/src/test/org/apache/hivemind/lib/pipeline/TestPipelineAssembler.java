@@ -265,6 +265,102 @@ public class TestPipelineAssembler extends HiveMindTestCase
         verifyControls();
     }
 
+    /**
+     * The filters are instances of anonymous (non-public) classes, so the bridges can't be
+     * specialized.
+     */
+    public void testFlattenedFilterChain()
+    {
+        ClassFactory cf = new ClassFactoryImpl();
+        DefaultImplementationBuilderImpl dib = new DefaultImplementationBuilderImpl();
+
+        dib.setClassFactory(cf);
+
+        Module module = newModule();
+
+        PipelineAssembler pa =
+            new PipelineAssembler(
+                getLog(),
+                getErrorHandler(),
+                "foo.bar",
+                StandardService.class,
+                StandardFilter.class,
+                new ClassFactoryImpl(),
+                dib,
+                module);
+
+        replayControls();
+
+        pa.setFlatten(true);
+        pa.setTerminator(new StandardInner("ss"), null);
+
+        StandardFilter adder = new StandardFilter()
+        {
+            public int run(int i, StandardService service)
+            {
+                return service.run(i + 3);
+            }
+        };
+
+        StandardFilter multiplier = new StandardFilter()
+        {
+            public int run(int i, StandardService service)
+            {
+                return 2 * service.run(i);
+            }
+        };
+
+        pa.addFilter("adder", null, null, adder, null);
+        pa.addFilter("multiplier", "adder", null, multiplier, null);
+
+        StandardService pipeline = (StandardService) pa.createPipeline();
+
+        assertEquals(16, pipeline.run(5));
+
+        verifyControls();
+    }
+
+    public void testFlattenedPipelineSpecialized()
+    {
+        ClassFactory cf = new ClassFactoryImpl();
+        DefaultImplementationBuilderImpl dib = new DefaultImplementationBuilderImpl();
+
+        dib.setClassFactory(cf);
+
+        Module module = newModule();
+
+        PipelineAssembler pa =
+            new PipelineAssembler(
+                getLog(),
+                getErrorHandler(),
+                "foo.bar",
+                StandardService.class,
+                StandardFilter.class,
+                cf,
+                dib,
+                module);
+
+        replayControls();
+
+        pa.setFlatten(true);
+        pa.setTerminator(new StandardServiceImpl(), null);
+
+        pa.addFilter("first", null, null, new StandardFilterImpl(), null);
+        pa.addFilter("second", "first", null, new StandardFilterImpl(), null);
+
+        StandardService pipeline = (StandardService) pa.createPipeline();
+
+        assertEquals(20, pipeline.run(5));
+
+        assertTrue(pipeline.getClass().getName().startsWith("$PipelineStage_foo_bar_"));
+
+        assertEquals(
+            "<PipelineBridge for service foo.bar(org.apache.hivemind.lib.pipeline.StandardService)>",
+            pipeline.toString());
+
+        verifyControls();
+    }
+
     public void testPipelineFactoryWithTerminator()
     {
         ClassFactory cf = new ClassFactoryImpl();
@@ -394,4 +490,17 @@ public class TestPipelineAssembler extends HiveMindTestCase
         assertEquals(24, s.run(12));
         assertEquals(18, s.run(9));
     }
+
+    public void testFactoryFlattened() throws Exception
+    {
+        Registry r = buildFrameworkRegistry("Pipeline.xml");
+
+        StandardService s =
+            (StandardService) r.getService(
+                "hivemind.lib.test.FlattenedPipeline",
+                StandardService.class);
+
+        assertEquals(24, s.run(12));
+        assertEquals(18, s.run(9));
+    }
 }
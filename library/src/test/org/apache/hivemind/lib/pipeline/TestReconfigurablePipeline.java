@@ -0,0 +1,321 @@
+//  Copyright 2004 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.hivemind.lib.pipeline;
+
+import java.util.Arrays;
+
+import org.apache.commons.logging.Log;
+import org.apache.hivemind.ApplicationRuntimeException;
+import org.apache.hivemind.ErrorHandler;
+import org.apache.hivemind.Registry;
+import org.apache.hivemind.impl.DefaultClassResolver;
+import org.apache.hivemind.internal.Module;
+import org.apache.hivemind.lib.PipelineManager;
+import org.apache.hivemind.lib.impl.DefaultImplementationBuilderImpl;
+import org.apache.hivemind.service.ClassFactory;
+import org.apache.hivemind.service.impl.ClassFactoryImpl;
+import org.apache.hivemind.test.HiveMindTestCase;
+import org.easymock.MockControl;
+
+/**
+ * Tests for {@link org.apache.hivemind.lib.pipeline.ReconfigurablePipeline} and
+ * {@link org.apache.hivemind.lib.impl.PipelineManagerImpl}.
+ *
+ * @author Howard Lewis Ship
+ */
+public class TestReconfigurablePipeline extends HiveMindTestCase
+{
+    /**
+     * A filter that may block invocations until released.
+     */
+    private static class GateFilter implements StandardFilter
+    {
+        private boolean _blocked;
+        private int _count;
+
+        public int run(int i, StandardService service)
+        {
+            synchronized (this)
+            {
+                _count++;
+
+                notifyAll();
+
+                while (_blocked)
+                {
+                    try
+                    {
+                        wait();
+                    }
+                    catch (InterruptedException ex)
+                    {
+                        throw new ApplicationRuntimeException(ex);
+                    }
+                }
+            }
+
+            return service.run(i);
+        }
+
+        synchronized void setBlocked(boolean blocked)
+        {
+            _blocked = blocked;
+
+            notifyAll();
+        }
+
+        synchronized void waitForCount(int count) throws InterruptedException
+        {
+            while (_count < count)
+                wait();
+        }
+    }
+
+    private Registry _registry;
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        _registry = null;
+    }
+
+    /**
+     * Returns the pipeline, after invoking it once (the pipeline control is available only
+     * once the service is constructed).
+     */
+    private StandardService getPipeline() throws Exception
+    {
+        if (_registry == null)
+            _registry = buildFrameworkRegistry("Pipeline.xml");
+
+        StandardService result = (StandardService) _registry.getService(
+            "hivemind.lib.test.ReconfigurablePipeline",
+            StandardService.class);
+
+        assertEquals(16, result.run(5));
+
+        return result;
+    }
+
+    private PipelineControl getControl()
+    {
+        PipelineManager pm = (PipelineManager) _registry.getService(
+            "hivemind.lib.PipelineManager",
+            PipelineManager.class);
+
+        return pm.getPipelineControl("hivemind.lib.test.ReconfigurablePipeline");
+    }
+
+    private Module newModule()
+    {
+        MockControl control = newControl(Module.class);
+        Module result = (Module) control.getMock();
+
+        result.getClassResolver();
+        control.setReturnValue(new DefaultClassResolver(), MockControl.ONE_OR_MORE);
+
+        return result;
+    }
+
+    public void testInitialChain() throws Exception
+    {
+        getPipeline();
+
+        PipelineControl pc = getControl();
+
+        assertListsEqual(
+            new Object[] { "hivemind.lib.test.multiply", "hivemind.lib.test.add" },
+            pc.getFilterNames());
+        assertEquals(true, pc.isFilterEnabled("hivemind.lib.test.add"));
+    }
+
+    public void testDisableAndEnable() throws Exception
+    {
+        StandardService s = getPipeline();
+
+        PipelineControl pc = getControl();
+
+        pc.disableFilter("hivemind.lib.test.add");
+
+        assertEquals(false, pc.isFilterEnabled("hivemind.lib.test.add"));
+        assertListsEqual(new Object[] { "hivemind.lib.test.multiply" }, pc.getFilterNames());
+        assertEquals(10, s.run(5));
+
+        // The add filter's ordering refers to multiply; disabling multiply is not an error.
+
+        pc.disableFilter("hivemind.lib.test.multiply");
+
+        assertListsEqual(new Object[0], pc.getFilterNames());
+        assertEquals(5, s.run(5));
+
+        pc.enableFilter("hivemind.lib.test.add");
+
+        assertListsEqual(new Object[] { "hivemind.lib.test.add" }, pc.getFilterNames());
+        assertEquals(8, s.run(5));
+
+        pc.enableFilter("hivemind.lib.test.multiply");
+
+        assertEquals(16, s.run(5));
+    }
+
+    public void testReorder() throws Exception
+    {
+        StandardService s = getPipeline();
+
+        PipelineControl pc = getControl();
+
+        pc.orderFilter("hivemind.lib.test.add", "hivemind.lib.test.multiply", null);
+
+        assertListsEqual(
+            new Object[] { "hivemind.lib.test.add", "hivemind.lib.test.multiply" },
+            pc.getFilterNames());
+        assertEquals(13, s.run(5));
+    }
+
+    public void testUnknownFilter() throws Exception
+    {
+        getPipeline();
+
+        try
+        {
+            getControl().disableFilter("missing");
+            unreachable();
+        }
+        catch (ApplicationRuntimeException ex)
+        {
+            assertEquals("Pipeline service hivemind.lib.test.ReconfigurablePipeline does not "
+                    + "contain a filter named 'missing'.", ex.getMessage());
+        }
+    }
+
+    public void testUnknownPipeline() throws Exception
+    {
+        getPipeline();
+
+        PipelineManager pm = (PipelineManager) _registry.getService(
+            "hivemind.lib.PipelineManager",
+            PipelineManager.class);
+
+        assertEquals(
+            Arrays.asList(new Object[] { "hivemind.lib.test.ReconfigurablePipeline" }),
+            pm.getServiceIds());
+
+        try
+        {
+            pm.getPipelineControl("hivemind.lib.test.Pipeline");
+            unreachable();
+        }
+        catch (ApplicationRuntimeException ex)
+        {
+            assertEquals("Service hivemind.lib.test.Pipeline is not a reconfigurable pipeline, "
+                    + "or has not yet been constructed.", ex.getMessage());
+        }
+    }
+
+    /**
+     * A pipeline that may be constructed more than once (here, once per thread) can't be
+     * reconfigurable.
+     */
+    public void testThreadedNotReconfigurable() throws Exception
+    {
+        interceptLogging("hivemind.lib.test.ThreadedReconfigurablePipeline");
+
+        Registry r = buildFrameworkRegistry("Pipeline.xml");
+
+        StandardService s = (StandardService) r.getService(
+            "hivemind.lib.test.ThreadedReconfigurablePipeline",
+            StandardService.class);
+
+        assertEquals(16, s.run(5));
+
+        assertLoggedMessagePattern(
+            "Pipeline service hivemind\\.lib\\.test\\.ThreadedReconfigurablePipeline uses the "
+                    + "threaded service model, which may construct more than one pipeline;",
+            getInterceptedLogEvents());
+
+        PipelineManager pm = (PipelineManager) r.getService(
+            "hivemind.lib.PipelineManager",
+            PipelineManager.class);
+
+        assertEquals(0, pm.getServiceIds().size());
+    }
+
+    /**
+     * An invocation in progress when the pipeline is reconfigured completes using the old chain.
+     */
+    public void testInvocationInProgress() throws Exception
+    {
+        ClassFactory cf = new ClassFactoryImpl();
+        DefaultImplementationBuilderImpl dib = new DefaultImplementationBuilderImpl();
+
+        dib.setClassFactory(cf);
+
+        PipelineAssembler pa =
+            new PipelineAssembler(
+                (Log) newMock(Log.class),
+                (ErrorHandler) newMock(ErrorHandler.class),
+                "foo.bar",
+                StandardService.class,
+                StandardFilter.class,
+                cf,
+                dib,
+                newModule());
+
+        replayControls();
+
+        GateFilter gate = new GateFilter();
+
+        pa.setReconfigurable(true);
+        pa.setTerminator(new StandardServiceImpl(), null);
+        pa.addFilter("gate", null, null, gate, null);
+        pa.addFilter("multiply", "gate", null, new StandardFilterImpl(), null);
+
+        final StandardService s = (StandardService) pa.createPipeline();
+        PipelineControl pc = pa.getPipelineControl();
+
+        final int[] result = new int[1];
+
+        Thread t = new Thread()
+        {
+            public void run()
+            {
+                result[0] = s.run(5);
+            }
+        };
+
+        gate.setBlocked(true);
+
+        t.start();
+
+        gate.waitForCount(1);
+
+        pc.disableFilter("multiply");
+
+        gate.setBlocked(false);
+
+        t.join();
+
+        assertEquals(10, result[0]);
+
+        assertEquals(5, s.run(5));
+
+        assertEquals(
+            "<ReconfigurablePipeline for service foo.bar(org.apache.hivemind.lib.pipeline.StandardService)>",
+            s.toString());
+
+        verifyControls();
+    }
+}